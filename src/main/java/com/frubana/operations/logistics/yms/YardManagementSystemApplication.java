@@ -2,18 +2,30 @@ package com.frubana.operations.logistics.yms;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 
 /** Application starter.
  */
 @SpringBootApplication
+@EnableScheduling
 public class YardManagementSystemApplication {
 
+  /** System property that stops the application once it started, the image
+   * build runs it so to list the classes of the class data sharing archive.
+   */
+  public static final String CDS_TRAINING = "yms.cds.training";
+
   /** Main method that runs the spring boot.
    *
    * @param args args to run the spring application.
    */
   public static void main( String[] args ) {
-    SpringApplication.run(YardManagementSystemApplication.class, args);
+    ConfigurableApplicationContext context =
+        SpringApplication.run(YardManagementSystemApplication.class, args);
+    if (Boolean.getBoolean(CDS_TRAINING)) {
+      System.exit(SpringApplication.exit(context));
+    }
   }
 }
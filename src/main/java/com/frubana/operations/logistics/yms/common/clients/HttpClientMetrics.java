@@ -0,0 +1,102 @@
+package com.frubana.operations.logistics.yms.common.clients;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/** Times the outbound requests of the {@code RestTemplate} and the
+ * {@code WebClient} by host, method and status.
+ * <p> Only the host is tagged, not the path: the Slack web hooks carry
+ * their token in the path and the clients call one host with many paths.
+ * The requests that fail without a response are tagged as
+ * {@code IO_ERROR}.
+ */
+public class HttpClientMetrics
+        implements ClientHttpRequestInterceptor, ExchangeFilterFunction {
+
+    /** Name of the timer of the requests. */
+    public static final String REQUESTS_METRIC = "yms.http.client.requests";
+
+    /** The registry of the timers, it's never null. */
+    private final MeterRegistry registry;
+
+    /** Constructor.
+     *
+     * @param registry The registry of the timers, cannot be null.
+     */
+    public HttpClientMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body,
+                                        ClientHttpRequestExecution execution)
+            throws IOException {
+        long start = System.nanoTime();
+        String status = "IO_ERROR";
+        try {
+            ClientHttpResponse response = execution.execute(request, body);
+            status = String.valueOf(response.getRawStatusCode());
+            return response;
+        } finally {
+            record(request.getURI(), request.getMethodValue(), status, start);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request,
+                                       ExchangeFunction next) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return next.exchange(request)
+                    .doOnNext(response -> record(request.url(),
+                            request.method().name(),
+                            String.valueOf(response.rawStatusCode()), start))
+                    .doOnError(error -> record(request.url(),
+                            request.method().name(), "IO_ERROR", start));
+        });
+    }
+
+    /** Records the time of a request.
+     *
+     * @param uri    The URI of the request.
+     * @param method The method of the request.
+     * @param status The status of the response or IO_ERROR.
+     * @param start  The {@link System#nanoTime()} of the request.
+     */
+    private void record(URI uri, String method, String status, long start) {
+        Timer.builder(REQUESTS_METRIC)
+                .tag("host", host(uri))
+                .tag("method", method)
+                .tag("status", status)
+                .register(registry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /** Obtains the host and port of a URI, without the user information.
+     *
+     * @param uri The URI of the request.
+     * @return the host, with the port if it's explicit.
+     */
+    static String host(URI uri) {
+        if (uri.getHost() == null) {
+            return "none";
+        }
+        return uri.getPort() == -1 ? uri.getHost()
+                : uri.getHost() + ":" + uri.getPort();
+    }
+}
@@ -0,0 +1,313 @@
+package com.frubana.operations.logistics.yms.common.clients;
+
+import com.frubana.operations.logistics.yms.common.configuration.FormattedLogger;
+import com.frubana.operations.logistics.yms.common.utils.WarehouseRelationUtils;
+import com.frubana.operations.logistics.yms.common.utils.WarehouseRelationUtils.WarehouseRelation;
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/** Client of the orders of the report data service of each country.
+ * <p> The country of the warehouse chooses the URL. The responses are
+ * cached by warehouse and date for {@code yms.report-data.cache-ttl}
+ * milliseconds, and the requests of a warehouse and date already in flight
+ * wait for the same response instead of calling the service again. The
+ * calls go through the {@code reportDataServiceClient} circuit breaker.
+ */
+@Component
+public class ReportDataServiceClient implements SomeClient {
+
+    /** The name of the circuit breaker and the cache metrics. */
+    public static final String CLIENT_NAME = "reportDataServiceClient";
+
+    /** Logger. */
+    private final Logger logger =
+            LoggerFactory.getLogger(ReportDataServiceClient.class);
+
+    /** Formatter to set the log in a specific format, it's never null. */
+    private final FormattedLogger logFormatter;
+
+    /** The non-blocking client, it's never null. */
+    private final WebClient webClient;
+
+    /** The URL of the service of each country, without the empty ones. */
+    private final Map<String, String> urls;
+
+    /** The path of the orders in the service, it's never null. */
+    private final String ordersPath;
+
+    /** The token of the calls, it's never null. */
+    private final String authToken;
+
+    /** The circuit breaker of the calls, it's never null. */
+    private final CircuitBreaker circuitBreaker;
+
+    /** The responses and the calls in flight by warehouse and date. */
+    private final AsyncCache<Request, List<Yard>> cache;
+
+    /** The milliseconds a response is waited. */
+    private final long timeout;
+
+    /** Constructor.
+     *
+     * @param webClient       The non-blocking client, required.
+     * @param circuitBreakers The circuit breakers of the application.
+     * @param registry        The registry of the cache metrics.
+     * @param logFormatter    Formatter to set the log, required.
+     * @param urlCo           The URL of the service in Colombia.
+     * @param urlMx           The URL of the service in Mexico.
+     * @param urlBr           The URL of the service in Brazil.
+     * @param ordersPath      The path of the orders in the service.
+     * @param authToken       The token of the calls.
+     * @param cacheTtl        The milliseconds a response is cached.
+     * @param cacheSize       The responses cached.
+     * @param timeout         The milliseconds a response is waited.
+     */
+    @Autowired
+    public ReportDataServiceClient(
+            WebClient webClient,
+            CircuitBreakerRegistry circuitBreakers,
+            MeterRegistry registry,
+            FormattedLogger logFormatter,
+            @Value("${frubana.report_data_service.url_co:}") String urlCo,
+            @Value("${frubana.report_data_service.url_mx:}") String urlMx,
+            @Value("${frubana.report_data_service.url_br:}") String urlBr,
+            @Value("${frubana.report_data_service.orders:/microservice/orders/}")
+                    String ordersPath,
+            @Value("${frubana.auth.token:}") String authToken,
+            @Value("${yms.report-data.cache-ttl:300000}") long cacheTtl,
+            @Value("${yms.report-data.cache-size:1000}") long cacheSize,
+            @Value("${yms.report-data.timeout:10000}") long timeout) {
+        this.webClient = webClient;
+        this.logFormatter = logFormatter;
+        this.ordersPath = ordersPath;
+        this.authToken = authToken;
+        this.timeout = timeout;
+        this.urls = new HashMap<>();
+        putUrl("co", urlCo);
+        putUrl("mx", urlMx);
+        putUrl("br", urlBr);
+        this.circuitBreaker = circuitBreakers.circuitBreaker(CLIENT_NAME);
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(cacheTtl, TimeUnit.MILLISECONDS)
+                .maximumSize(cacheSize)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(registry, cache.synchronous(),
+                CLIENT_NAME);
+    }
+
+    /** {@inheritDoc}
+     *
+     * @throws IllegalArgumentException if the warehouse has no service or
+     * the date is not valid.
+     * @throws IllegalStateException if the service doesn't answer in time.
+     */
+    @Override
+    public List<Yard> requireSomeObjects(String warehouse, String date) {
+        try {
+            return fetch(warehouse, date).get(timeout, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(
+                    "The report data service call failed", e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException(
+                    "The report data service didn't answer in time", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(
+                    "Interrupted waiting for the report data service", e);
+        }
+    }
+
+    /** {@inheritDoc}
+     * <p> The warehouses are requested at the same time, the ones that fail
+     * or don't answer in time are logged and left out.
+     *
+     * @throws IllegalArgumentException if a warehouse has no service or the
+     * date is not valid, before any call is made.
+     */
+    @Override
+    public Map<String, List<Yard>> requireSomeObjects(
+            Collection<String> warehouses, String date) {
+        Map<String, String> requestUrls = new LinkedHashMap<>();
+        for (String warehouse : warehouses) {
+            requestUrls.put(warehouse, url(warehouse, date));
+        }
+        Map<String, CompletableFuture<List<Yard>>> pending =
+                new LinkedHashMap<>();
+        requestUrls.forEach((warehouse, url) ->
+                pending.put(warehouse, fetch(warehouse, date, url)));
+
+        Map<String, List<Yard>> found = new LinkedHashMap<>();
+        long deadline = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(timeout);
+        for (Map.Entry<String, CompletableFuture<List<Yard>>> entry
+                : pending.entrySet()) {
+            // All the calls started together, so each one waits only what
+            // is left of the timeout.
+            long left = Math.max(0, deadline - System.nanoTime());
+            try {
+                found.put(entry.getKey(), entry.getValue()
+                        .get(left, TimeUnit.NANOSECONDS));
+            } catch (TimeoutException | ExecutionException e) {
+                HashMap<String, Object> params = new HashMap<>();
+                params.put("warehouse", entry.getKey());
+                params.put("date", date);
+                logFormatter.logError(logger, "requireSomeObjects",
+                        "Couldn't obtain the orders of the warehouse",
+                        params, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return found;
+    }
+
+    /** Obtains the orders of a warehouse without blocking.
+     *
+     * @param warehouse The warehouse, must have a service.
+     * @param date      The day in format yyyy-MM-dd.
+     * @return the orders, cached or shared with the call in flight.
+     * @throws IllegalArgumentException if the warehouse has no service or
+     * the date is not valid.
+     */
+    public CompletableFuture<List<Yard>> fetch(String warehouse, String date) {
+        return fetch(warehouse, date, url(warehouse, date));
+    }
+
+    /** Obtains the orders of a warehouse from the cache or the service.
+     *
+     * @param warehouse The warehouse.
+     * @param date      The day.
+     * @param url       The URL of the orders.
+     * @return the orders.
+     */
+    private CompletableFuture<List<Yard>> fetch(String warehouse, String date,
+                                                String url) {
+        // A failed call is removed from the cache by Caffeine, so the next
+        // request calls the service again.
+        return cache.get(new Request(warehouse, date), (request, executor) ->
+                circuitBreaker.executeCompletionStage(() -> webClient.get()
+                        .uri(url)
+                        .header(HttpHeaders.AUTHORIZATION, authToken)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .retrieve()
+                        .bodyToFlux(Yard.class)
+                        .collectList()
+                        .timeout(Duration.ofMillis(timeout))
+                        .toFuture())
+                        .toCompletableFuture());
+    }
+
+    /** Builds the URL of the orders of a warehouse.
+     *
+     * @param warehouse The warehouse.
+     * @param date      The day in format yyyy-MM-dd.
+     * @return the URL.
+     * @throws IllegalArgumentException if the warehouse has no service or
+     * the date is not valid.
+     */
+    private String url(String warehouse, String date) {
+        WarehouseRelation relation =
+                WarehouseRelationUtils.getRelation(warehouse);
+        if (relation == null) {
+            throw new IllegalArgumentException(
+                    "Unknown warehouse " + warehouse);
+        }
+        String url = urls.get(relation.getCountry().toLowerCase());
+        if (url == null) {
+            throw new IllegalArgumentException("No report data service for "
+                    + "the country " + relation.getCountry());
+        }
+        try {
+            LocalDate.parse(date);
+        } catch (DateTimeParseException | NullPointerException e) {
+            throw new IllegalArgumentException(
+                    "The date must be in format yyyy-MM-dd", e);
+        }
+        return UriComponentsBuilder.fromHttpUrl(url)
+                .path(ordersPath)
+                .queryParam("warehouse", warehouse)
+                .queryParam("date", date)
+                .toUriString();
+    }
+
+    /** Registers the URL of a country if it's configured.
+     *
+     * @param country The country.
+     * @param url     The URL, can be null or empty.
+     */
+    private void putUrl(String country, String url) {
+        if (url != null && !url.isBlank()) {
+            urls.put(country, url);
+        }
+    }
+
+    /** The key of a response.
+     */
+    private static final class Request {
+
+        /** The warehouse of the orders. */
+        private final String warehouse;
+
+        /** The day of the orders. */
+        private final String date;
+
+        /** Constructor.
+         *
+         * @param warehouse The warehouse of the orders.
+         * @param date      The day of the orders.
+         */
+        private Request(String warehouse, String date) {
+            this.warehouse = warehouse;
+            this.date = date;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Request)) {
+                return false;
+            }
+            Request request = (Request) other;
+            return warehouse.equals(request.warehouse)
+                    && date.equals(request.date);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(warehouse, date);
+        }
+    }
+}
@@ -2,7 +2,9 @@ package com.frubana.operations.logistics.yms.common.clients;
 
 import com.frubana.operations.logistics.yms.yard.domain.Yard;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /** External some object client definition.
  */
@@ -17,4 +19,16 @@ public interface SomeClient {
      * date.
      */
     List<Yard> requireSomeObjects(String warehouse, String date);
+
+    /** Extracts some object of several warehouses at the same time.
+     *
+     * @param warehouses The warehouses from where the some object are going
+     *                   to be extracted, cannot be null.
+     * @param date       Day of the some object to extract, required in
+     *                   format yyyy-MM-dd and cannot be null.
+     * @return The list of some object of each warehouse, the warehouses that
+     * failed are left out.
+     */
+    Map<String, List<Yard>> requireSomeObjects(Collection<String> warehouses,
+                                               String date);
 }
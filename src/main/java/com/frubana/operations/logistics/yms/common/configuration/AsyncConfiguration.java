@@ -0,0 +1,43 @@
+package com.frubana.operations.logistics.yms.common.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/** Configures the async and streamed responses of the REST endpoints.
+ */
+@Configuration
+public class AsyncConfiguration implements WebMvcConfigurer {
+
+    /** The timeout in milliseconds of the async requests without their own,
+     * the event streams have none and stay open until the client leaves. */
+    @Value("${yms.web.async.timeout:60000}")
+    private long asyncTimeout;
+
+    /** The threads that write the streamed responses. */
+    @Value("${yms.web.async.pool-size:16}")
+    private int asyncPoolSize;
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(asyncTimeout);
+        configurer.setTaskExecutor(mvcAsyncExecutor());
+    }
+
+    /** The executor used to write the async and streamed responses.
+     *
+     * @return the bounded {@link ThreadPoolTaskExecutor}.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor mvcAsyncExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(asyncPoolSize);
+        executor.setMaxPoolSize(asyncPoolSize);
+        executor.setQueueCapacity(asyncPoolSize * 64);
+        executor.setThreadNamePrefix("yms-mvc-async-");
+        return executor;
+    }
+}
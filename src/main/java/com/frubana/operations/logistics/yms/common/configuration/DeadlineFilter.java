@@ -0,0 +1,133 @@
+package com.frubana.operations.logistics.yms.common.configuration;
+
+import com.frubana.operations.logistics.yms.common.datasource.Deadline;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+
+/** Sets the {@link Deadline} of each request, so its database work stops
+ * when the client stopped waiting.
+ * <p> The client sends its timeout in milliseconds in the
+ * {@value #TIMEOUT_HEADER} header, capped by {@code yms.deadline.max}.
+ * Without it, or if it's not a positive number, the timeout of the first
+ * pattern of {@code yms.deadline.endpoints} matching the path is used, or
+ * {@code yms.deadline.default}.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class DeadlineFilter extends OncePerRequestFilter {
+
+    /** The header with the timeout of the client in milliseconds. */
+    public static final String TIMEOUT_HEADER = "X-Request-Timeout";
+
+    /** Matches the paths of the endpoints. */
+    private static final AntPathMatcher matcher = new AntPathMatcher();
+
+    /** If the requests have a deadline. */
+    private final boolean enabled;
+
+    /** The milliseconds of the requests without header or endpoint. */
+    private final long defaultTimeout;
+
+    /** The longest timeout a client can ask for. */
+    private final long maxTimeout;
+
+    /** The milliseconds of the requests by pattern of their path. */
+    private final Map<String, Long> endpoints;
+
+    /** Constructor.
+     *
+     * @param env            Environment to extract the timeouts of the
+     *                       endpoints.
+     * @param enabled        If the requests have a deadline.
+     * @param defaultTimeout The milliseconds of the other requests.
+     * @param maxTimeout     The longest timeout a client can ask for.
+     */
+    @Autowired
+    public DeadlineFilter(
+            Environment env,
+            @Value("${yms.deadline.enabled:true}") boolean enabled,
+            @Value("${yms.deadline.default:6000}") long defaultTimeout,
+            @Value("${yms.deadline.max:30000}") long maxTimeout) {
+        this(Binder.get(env).bind("yms.deadline.endpoints",
+                Bindable.mapOf(String.class, Long.class)).orElse(Map.of()),
+                enabled, defaultTimeout, maxTimeout);
+    }
+
+    /** Constructor.
+     *
+     * @param endpoints      The milliseconds of the requests by pattern of
+     *                       their path, in order of preference.
+     * @param enabled        If the requests have a deadline.
+     * @param defaultTimeout The milliseconds of the other requests.
+     * @param maxTimeout     The longest timeout a client can ask for.
+     */
+    public DeadlineFilter(Map<String, Long> endpoints, boolean enabled,
+                          long defaultTimeout, long maxTimeout) {
+        this.endpoints = endpoints;
+        this.enabled = enabled;
+        this.defaultTimeout = defaultTimeout;
+        this.maxTimeout = maxTimeout;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain chain)
+            throws ServletException, IOException {
+        Deadline.start(timeout(request));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            Deadline.clear();
+        }
+    }
+
+    /** Obtains the timeout of a request.
+     *
+     * @param request The request.
+     * @return the milliseconds the client waits.
+     */
+    private long timeout(HttpServletRequest request) {
+        String header = request.getHeader(TIMEOUT_HEADER);
+        if (header != null) {
+            try {
+                long timeout = Long.parseLong(header.trim());
+                if (timeout > 0) {
+                    return Math.min(maxTimeout, timeout);
+                }
+            } catch (NumberFormatException e) {
+                // An invalid header is ignored as if it was missing.
+            }
+        }
+        String path = request.getRequestURI().substring(
+                request.getContextPath().length());
+        for (Map.Entry<String, Long> endpoint : endpoints.entrySet()) {
+            if (matcher.match(endpoint.getKey(), path)) {
+                return endpoint.getValue();
+            }
+        }
+        return defaultTimeout;
+    }
+}
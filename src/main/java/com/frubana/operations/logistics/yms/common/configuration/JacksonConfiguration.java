@@ -0,0 +1,53 @@
+package com.frubana.operations.logistics.yms.common.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.frubana.operations.logistics.yms.common.utils.JsonUtils;
+import com.frubana.operations.logistics.yms.yard.application.YardProtobufHttpMessageConverter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/** Configures the mapper of the beans and the representations of the
+ * requests and responses.
+ */
+@Configuration
+public class JacksonConfiguration implements WebMvcConfigurer {
+
+    /** Adds the protobuf representation of the yards, the Smile and CBOR
+     * converters are registered by default when their Jackson modules are
+     * present.
+     * <p> The JSON converter uses {@link JsonUtils#instance} and the binary
+     * ones get its same configuration, so the requests and responses are
+     * mapped as in the rest of the code.
+     */
+    @Override
+    public void extendMessageConverters(
+            List<HttpMessageConverter<?>> converters) {
+        for (HttpMessageConverter<?> converter : converters) {
+            if (converter instanceof MappingJackson2HttpMessageConverter) {
+                ((MappingJackson2HttpMessageConverter) converter)
+                        .setObjectMapper(JsonUtils.instance);
+            } else if (converter instanceof AbstractJackson2HttpMessageConverter) {
+                JsonUtils.configure(((AbstractJackson2HttpMessageConverter)
+                        converter).getObjectMapper());
+            }
+        }
+        converters.add(new YardProtobufHttpMessageConverter());
+    }
+
+    /** The mapper injected in the beans, the same of the responses.
+     *
+     * @return {@link JsonUtils#instance}.
+     */
+    @Bean
+    @Primary
+    public ObjectMapper objectMapper() {
+        return JsonUtils.instance;
+    }
+}
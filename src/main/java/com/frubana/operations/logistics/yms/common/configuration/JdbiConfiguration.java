@@ -1,5 +1,16 @@
 package com.frubana.operations.logistics.yms.common.configuration;
 
+import com.frubana.operations.logistics.yms.common.datasource.DatabasePools;
+import com.frubana.operations.logistics.yms.common.datasource.DeadlineAwareDataSource;
+import com.frubana.operations.logistics.yms.common.datasource.DeadlineStatementCustomizer;
+import com.frubana.operations.logistics.yms.common.datasource.ReadWriteRoutingDataSource;
+import com.frubana.operations.logistics.yms.common.datasource.ReplicaPool;
+import com.frubana.operations.logistics.yms.common.datasource.WarehouseShards;
+import com.frubana.operations.logistics.yms.common.datasource.Workload;
+import com.frubana.operations.logistics.yms.common.datasource.WorkloadRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.flywaydb.core.Flyway;
 import org.jdbi.v3.core.Jdbi;
 import org.jdbi.v3.core.mapper.RowMapper;
 import org.jdbi.v3.core.spi.JdbiPlugin;
@@ -10,10 +21,17 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
 import org.springframework.jdbc.datasource.TransactionAwareDataSourceProxy;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 
 import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
 
 import static java.util.Objects.requireNonNull;
 
@@ -44,6 +62,81 @@ public class JdbiConfiguration {
         requireNonNull(jdbiPlugins);
         requireNonNull(rowMappers);
 
+        return createJdbi(ds, jdbiPlugins, rowMappers);
+    }
+
+    /** The databases of each country, the countries are listed in
+     * {@code yms.shards.countries} and each one is configured with the
+     * {@code yms.shards.<country>.url}, {@code username} and {@code password}
+     * properties. The shards are migrated at startup with the same
+     * migrations of the default database. Each shard has a pool for each
+     * {@link Workload}, {@code maximum-pool-size} sizes the critical one and
+     * {@code bulk-pool-size} the bulk one.
+     *
+     * @param env         Environment definition to extract the properties.
+     * @param jdbi        The {@link Jdbi} of the default database, used for
+     *                    the warehouses without shard.
+     * @param jdbiPlugins Loaded {@link JdbiPlugin} to install in the shards.
+     * @param rowMappers  Loaded {@link RowMapper} to register in the shards.
+     * @param registry    The registry of the metrics of the pools.
+     * @param pools       The pools of the application, the ones of the
+     *                    shards are added to it.
+     * @return The {@link WarehouseShards} used by the repositories.
+     */
+    @Bean
+    @Autowired
+    public WarehouseShards warehouseShards(final Environment env,
+                                           final Jdbi jdbi,
+                                           final List<JdbiPlugin> jdbiPlugins,
+                                           final List<RowMapper<?>> rowMappers,
+                                           final MeterRegistry registry,
+                                           final DatabasePools pools) {
+        requireNonNull(env);
+        String[] countries = env.getProperty("yms.shards.countries",
+                String[].class, new String[0]);
+        String[] migrations = env.getProperty("spring.flyway.locations",
+                String[].class, new String[]{"classpath:db/migration"});
+        Map<String, Jdbi> shards = new HashMap<>();
+        for (String country : countries) {
+            String prefix = "yms.shards." + country + ".";
+            String url = env.getRequiredProperty(prefix + "url");
+            String username = env.getProperty(prefix + "username",
+                    env.getProperty("spring.datasource.username"));
+            String password = env.getProperty(prefix + "password",
+                    env.getProperty("spring.datasource.password"));
+            DataSource shard = new WorkloadRoutingDataSource(
+                    pools.add(pool(env, url, username, password,
+                            "yms-shard-" + country + "-critical",
+                            env.getProperty(prefix + "maximum-pool-size",
+                                    Integer.class, poolSize(env, Workload.CRITICAL)),
+                            Workload.CRITICAL, registry)),
+                    pools.add(pool(env, url, username, password,
+                            "yms-shard-" + country + "-bulk",
+                            env.getProperty(prefix + "bulk-pool-size",
+                                    Integer.class, poolSize(env, Workload.BULK)),
+                            Workload.BULK, registry)));
+            Flyway.configure().dataSource(shard).locations(migrations)
+                    .load().migrate();
+            shards.put(country, createJdbi(new DeadlineAwareDataSource(shard),
+                    jdbiPlugins, rowMappers));
+        }
+        return new WarehouseShards(jdbi, shards,
+                Executors.newFixedThreadPool(Math.max(1, countries.length),
+                        new CustomizableThreadFactory("yms-shard-")));
+    }
+
+    /** Creates a {@link Jdbi} that joins the spring transactions of the given
+     * {@link DataSource} with all the plugins and mappers registered, its
+     * statements stop at the deadline of the request.
+     *
+     * @param ds          The database to use, cannot be null.
+     * @param jdbiPlugins The plugins to install, cannot be null.
+     * @param rowMappers  The mappers to register, cannot be null.
+     * @return The configured {@link Jdbi}.
+     */
+    private static Jdbi createJdbi(final DataSource ds,
+                                   final List<JdbiPlugin> jdbiPlugins,
+                                   final List<RowMapper<?>> rowMappers) {
         TransactionAwareDataSourceProxy proxy =
                 new TransactionAwareDataSourceProxy(ds);
         Jdbi jdbi = Jdbi.create(proxy);
@@ -54,9 +147,71 @@ public class JdbiConfiguration {
         // Register all available rowMappers
         rowMappers.forEach(jdbi::registerRowMapper);
 
+        jdbi.addCustomizer(new DeadlineStatementCustomizer());
+
         return jdbi;
     }
 
+    /** Creates the pool of a {@link Workload} of a database, its wait and
+     * usage times are exported as {@code hikaricp.connections.*} tagged
+     * with its name.
+     *
+     * @param env      Environment definition to extract the timeout.
+     * @param url      The url of the database.
+     * @param username The user of the database.
+     * @param password The password of the database.
+     * @param name     The name of the pool.
+     * @param size     The connections of the pool.
+     * @param workload The work of the pool.
+     * @param registry The registry of the metrics of the pool.
+     * @return the pool.
+     */
+    static HikariDataSource pool(final Environment env, final String url,
+                                 final String username,
+                                 final String password, final String name,
+                                 final int size, final Workload workload,
+                                 final MeterRegistry registry) {
+        HikariDataSource pool = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(env.getProperty("spring.datasource.driverClassName"))
+                .url(url)
+                .username(username)
+                .password(password).build();
+        pool.setPoolName(name);
+        pool.setMaximumPoolSize(size);
+        pool.setConnectionTimeout(env.getProperty(
+                workloadPrefix(workload) + "connection-timeout", Long.class,
+                workload == Workload.CRITICAL ? 2000L : 30000L));
+        pool.setMetricRegistry(registry);
+        return pool;
+    }
+
+    /** Obtains the connections of the pools of a {@link Workload}.
+     *
+     * @param env      Environment definition to extract the properties.
+     * @param workload The work of the pools.
+     * @return the connections of each pool of the work.
+     */
+    private static int poolSize(final Environment env,
+                                final Workload workload) {
+        return env.getProperty(workloadPrefix(workload) + "maximum-pool-size",
+                Integer.class, workload == Workload.CRITICAL ? 10 : 4);
+    }
+
+    /** @param workload The work of the pools.
+     * @return the prefix of the properties of its pools. */
+    private static String workloadPrefix(final Workload workload) {
+        return "yms.datasource." + workload.name().toLowerCase() + ".";
+    }
+
+    /** The connection pools of the application, they are closed with the
+     * context after the beans that use them.
+     *
+     * @return The {@link DatabasePools} instance for the project.
+     */
+    @Bean
+    public DatabasePools databasePools() { return new DatabasePools(); }
+
     /** Sql plugin needed for the JDBI bean.
      *
      * @return The {@link JdbiPlugin} instance for the project.
@@ -64,23 +219,116 @@ public class JdbiConfiguration {
     @Bean
     public JdbiPlugin sqlObjectPlugin() { return new SqlObjectPlugin(); }
 
+    /** Plugin that binds the Java arrays as Postgres arrays, used by the
+     * batch registrations and the lookups of several ids.
+     *
+     * @return The {@link JdbiPlugin} instance for the project.
+     */
+    @Bean
+    public JdbiPlugin arrayTypesPlugin() {
+        return new JdbiPlugin() {
+            @Override
+            public void customizeJdbi(Jdbi jdbi) {
+                jdbi.registerArrayType(int.class, "integer");
+                jdbi.registerArrayType(Integer.class, "integer");
+                jdbi.registerArrayType(String.class, "varchar");
+            }
+        };
+    }
+
+    /** The pool with the read replica of the database, disabled when no
+     * replica url is configured.
+     *
+     * @param env          Environment definition to extract the properties.
+     * @param logFormatter Formatter to set the log, required.
+     * @param registry     The registry of the metrics of the pool.
+     * @param pools        The pools of the application, the one of the
+     *                     replica is added to it.
+     * @return the {@link ReplicaPool} instance for the project.
+     */
+    @Bean
+    @Autowired
+    public ReplicaPool replicaPool(final Environment env,
+                                   final FormattedLogger logFormatter,
+                                   final MeterRegistry registry,
+                                   final DatabasePools pools) {
+        requireNonNull(env);
+        String url = env.getProperty("yms.datasource.replica.url");
+        Duration maxLag = Duration.ofMillis(env.getProperty(
+                "yms.datasource.replica.max-lag", Long.class, 10000L));
+        if (url == null || url.isBlank()) {
+            return new ReplicaPool(null, null, maxLag, logFormatter);
+        }
+        HikariDataSource replica = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(env.getProperty("spring.datasource.driverClassName"))
+                .url(url)
+                .username(env.getProperty("yms.datasource.replica.username",
+                        env.getProperty("spring.datasource.username")))
+                .password(env.getProperty("yms.datasource.replica.password",
+                        env.getProperty("spring.datasource.password"))).build();
+        replica.setPoolName("yms-replica");
+        replica.setReadOnly(true);
+        replica.setMaximumPoolSize(env.getProperty(
+                "yms.datasource.replica.maximum-pool-size", Integer.class, 10));
+        replica.setMetricRegistry(registry);
+        pools.add(replica);
+        return new ReplicaPool(replica,
+                env.getProperty("yms.datasource.replica.lag-query",
+                        ReplicaPool.POSTGRES_LAG_QUERY),
+                maxLag, logFormatter);
+    }
+
     /** {@link DataSource} Bean definition to set the database used in the
      * project.
+     * <p> When a replica is configured the read-only transactions are routed
+     * to it while it's healthy. The connection is obtained lazily so the
+     * route is decided once the transaction is already marked as read-only,
+     * and the transactions that don't run statements, like the registrations
+     * waiting for their batch, don't take a connection. The wait for a
+     * connection ends at the deadline of the request.
+     * <p> The primary has a pool for each {@link Workload}, sized with
+     * {@code yms.datasource.<workload>.maximum-pool-size} and
+     * {@code connection-timeout}, so the listings and exports can't take the
+     * connections of the lookups and registrations.
      *
-     * @param env Environment definition to extract the properties, this
-     *            field is autowired using the properties
-     *            defined in the {@link PropertySource} annotation.
+     * @param env     Environment definition to extract the properties, this
+     *                field is autowired using the properties
+     *                defined in the {@link PropertySource} annotation.
+     * @param replica  The pool of the read replica, cannot be null.
+     * @param registry The registry of the metrics of the pools.
+     * @param pools    The pools of the application, the ones of the primary
+     *                 are added to it.
      * @return the {@link DataSource} instance for the project.
      */
     @Bean
     @Autowired
-    public DataSource getDataSource(final Environment env) {
+    public DataSource getDataSource(final Environment env,
+                                    final ReplicaPool replica,
+                                    final MeterRegistry registry,
+                                    final DatabasePools pools) {
         requireNonNull(env);
-        return DataSourceBuilder.create()
-                .driverClassName(env.getProperty("spring.datasource.driverClassName"))
-                .url(env.getProperty("spring.datasource.url"))
-                .username(env.getProperty("spring.datasource.username"))
-                .password(env.getProperty("spring.datasource.password")).build();
+        requireNonNull(replica);
+        String url = env.getProperty("spring.datasource.url");
+        String username = env.getProperty("spring.datasource.username");
+        String password = env.getProperty("spring.datasource.password");
+        DataSource primary = new WorkloadRoutingDataSource(
+                pools.add(pool(env, url, username, password, "yms-critical",
+                        poolSize(env, Workload.CRITICAL), Workload.CRITICAL,
+                        registry)),
+                pools.add(pool(env, url, username, password, "yms-bulk",
+                        poolSize(env, Workload.BULK), Workload.BULK,
+                        registry)));
+        LazyConnectionDataSourceProxy proxy =
+                new LazyConnectionDataSourceProxy();
+        proxy.setTargetDataSource(new DeadlineAwareDataSource(
+                !replica.isEnabled() ? primary
+                        : new ReadWriteRoutingDataSource(primary, replica)));
+        proxy.setDefaultAutoCommit(true);
+        proxy.setDefaultTransactionIsolation(
+                Connection.TRANSACTION_READ_COMMITTED);
+        proxy.afterPropertiesSet();
+        return proxy;
     }
 
 }
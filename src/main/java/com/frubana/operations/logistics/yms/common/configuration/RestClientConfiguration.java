@@ -1,18 +1,158 @@
 package com.frubana.operations.logistics.yms.common.configuration;
 
+import com.frubana.operations.logistics.yms.common.clients.HttpClientMetrics;
+import com.frubana.operations.logistics.yms.common.utils.JsonUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.handler.timeout.WriteTimeoutHandler;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
-/** Configures the REST client for the WMS service.
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/** Configures the REST clients of the outbound calls.
+ * <p> The {@link RestTemplate} and the {@link WebClient} keep a pool of
+ * connections alive by host, fail fast when the pool, the connection or
+ * the response take longer than their timeouts and time each request in
+ * {@link HttpClientMetrics#REQUESTS_METRIC}.
  */
 @Configuration
 public class RestClientConfiguration {
 
+    /** The pooled connections of the {@link RestTemplate}.
+     *
+     * @param maxConnections The connections to all the hosts.
+     * @param maxPerHost     The connections to each host.
+     * @param connectTimeout The milliseconds to open a connection.
+     * @param readTimeout    The milliseconds of silence of a response.
+     * @param poolTimeout    The milliseconds to wait for a free connection.
+     * @param keepAlive      The milliseconds an idle connection is kept, if
+     *                       the server doesn't ask for less.
+     * @return the client, closed with the application.
+     */
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient httpClient(
+            @Value("${yms.http.max-connections:100}") int maxConnections,
+            @Value("${yms.http.max-per-host:20}") int maxPerHost,
+            @Value("${yms.http.connect-timeout:1000}") int connectTimeout,
+            @Value("${yms.http.read-timeout:5000}") int readTimeout,
+            @Value("${yms.http.pool-timeout:500}") int poolTimeout,
+            @Value("${yms.http.keep-alive:30000}") long keepAlive) {
+        PoolingHttpClientConnectionManager connections =
+                new PoolingHttpClientConnectionManager(
+                        keepAlive, TimeUnit.MILLISECONDS);
+        connections.setMaxTotal(maxConnections);
+        connections.setDefaultMaxPerRoute(maxPerHost);
+        // A connection closed by the server while idle is replaced before
+        // it's used instead of failing the request.
+        connections.setValidateAfterInactivity(2000);
+        return HttpClients.custom()
+                .setConnectionManager(connections)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(connectTimeout)
+                        .setSocketTimeout(readTimeout)
+                        .setConnectionRequestTimeout(poolTimeout)
+                        .build())
+                .setKeepAliveStrategy((response, context) -> Math.min(
+                        keepAlive, positive(DefaultConnectionKeepAliveStrategy
+                                .INSTANCE.getKeepAliveDuration(
+                                        response, context), keepAlive)))
+                .evictIdleConnections(keepAlive, TimeUnit.MILLISECONDS)
+                .evictExpiredConnections()
+                .build();
+    }
+
     /** Configures the template to use in the app.
      *
+     * @param httpClient The pooled connections.
+     * @param registry   The registry of the timers of the requests.
      * @return The configured template.
      */
     @Bean
-    public RestTemplate restTemplate() { return new RestTemplate(); }
+    public RestTemplate restTemplate(CloseableHttpClient httpClient,
+                                     MeterRegistry registry) {
+        RestTemplate template = new RestTemplate(
+                new HttpComponentsClientHttpRequestFactory(httpClient));
+        template.getInterceptors().add(new HttpClientMetrics(registry));
+        return template;
+    }
+
+    /** The pooled connections of the {@link WebClient}, reactor-netty
+     * keeps one pool by host.
+     *
+     * @param maxPerHost  The connections to each host.
+     * @param poolTimeout The milliseconds to wait for a free connection.
+     * @param keepAlive   The milliseconds an idle connection is kept.
+     * @return the pools, disposed with the application.
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider webClientConnections(
+            @Value("${yms.http.max-per-host:20}") int maxPerHost,
+            @Value("${yms.http.pool-timeout:500}") long poolTimeout,
+            @Value("${yms.http.keep-alive:30000}") long keepAlive) {
+        return ConnectionProvider.fixed("yms-http", maxPerHost, poolTimeout,
+                Duration.ofMillis(keepAlive));
+    }
+
+    /** The non-blocking client, with the timeouts of the template and the
+     * mapper of the application.
+     *
+     * @param connections    The pooled connections.
+     * @param registry       The registry of the timers of the requests.
+     * @param connectTimeout The milliseconds to open a connection.
+     * @param readTimeout    The milliseconds of silence of a response.
+     * @return the client.
+     */
+    @Bean
+    public WebClient webClient(
+            ConnectionProvider connections, MeterRegistry registry,
+            @Value("${yms.http.connect-timeout:1000}") int connectTimeout,
+            @Value("${yms.http.read-timeout:5000}") long readTimeout) {
+        // The timeouts are added to each request, they are removed when the
+        // connection goes back to the pool so the idle ones don't expire.
+        HttpClient httpClient = HttpClient.create(connections)
+                .tcpConfiguration(tcp -> tcp.option(
+                        ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeout))
+                .doOnRequest((request, connection) -> connection
+                        .addHandlerLast(new ReadTimeoutHandler(
+                                readTimeout, TimeUnit.MILLISECONDS))
+                        .addHandlerLast(new WriteTimeoutHandler(
+                                readTimeout, TimeUnit.MILLISECONDS)));
+        return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonEncoder(
+                            new Jackson2JsonEncoder(JsonUtils.instance));
+                    codecs.defaultCodecs().jackson2JsonDecoder(
+                            new Jackson2JsonDecoder(JsonUtils.instance));
+                })
+                .filter(new HttpClientMetrics(registry))
+                .build();
+    }
+
+    /** Replaces the keep alive without limit of a response.
+     *
+     * @param duration The milliseconds asked by the server, -1 if none.
+     * @param keepAlive The milliseconds to use instead.
+     * @return the milliseconds to keep the connection.
+     */
+    private static long positive(long duration, long keepAlive) {
+        return duration > 0 ? duration : keepAlive;
+    }
 }
@@ -1,8 +1,11 @@
 package com.frubana.operations.logistics.yms.common.configuration;
 
+import com.frubana.operations.logistics.yms.common.datasource.Deadline;
+import com.frubana.operations.logistics.yms.common.datasource.DeadlineExceededException;
 import com.frubana.operations.logistics.yms.common.utils.JsonUtils;
 import com.frubana.operations.logistics.yms.common.utils.SlackUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.jdbi.v3.core.JdbiException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,8 +25,6 @@ import org.springframework.web.servlet.mvc.method.annotation
 
 import java.util.HashMap;
 
-import static org.springframework.http.ResponseEntity.status;
-
 /** Handler that captures the exceptions and selects the correct exception and
  * code to be send to the one that requested the endpoint.
  */
@@ -66,9 +67,8 @@ public class RestHandlerConfiguration extends ResponseEntityExceptionHandler {
         params.put("status", status.toString());
         logFormatter.logError(logger, "handleMissingPathVariable",
                 "Error in the path variables", params, ex);
-        return status(HttpStatus.BAD_REQUEST).body(
-                JsonUtils.jsonResponse(HttpStatus.BAD_REQUEST,
-                        ex.getMessage()));
+        return JsonUtils.errorResponse(HttpStatus.BAD_REQUEST,
+                ex.getMessage());
     }
 
     /** {@inheritDoc} */
@@ -83,9 +83,8 @@ public class RestHandlerConfiguration extends ResponseEntityExceptionHandler {
         params.put("status", status.toString());
         logFormatter.logError(logger, "handleMissingServletRequestParameter",
                 "Error in the request parameters", params, ex);
-        return status(HttpStatus.BAD_REQUEST).body(
-                JsonUtils.jsonResponse(HttpStatus.BAD_REQUEST,
-                        ex.getMessage()));
+        return JsonUtils.errorResponse(HttpStatus.BAD_REQUEST,
+                ex.getMessage());
     }
 
     /** {@inheritDoc} */
@@ -100,9 +99,8 @@ public class RestHandlerConfiguration extends ResponseEntityExceptionHandler {
         params.put("status", status.toString());
         logFormatter.logError(logger, "handleHttpMessageNotReadable",
                 "The request cannot be interpreted", params, ex);
-        return status(HttpStatus.BAD_REQUEST).body(
-                JsonUtils.jsonResponse(HttpStatus.BAD_REQUEST,
-                        ex.getMessage()));
+        return JsonUtils.errorResponse(HttpStatus.BAD_REQUEST,
+                ex.getMessage());
     }
 
     /** {@inheritDoc} */
@@ -117,9 +115,8 @@ public class RestHandlerConfiguration extends ResponseEntityExceptionHandler {
         params.put("status", status.toString());
         logFormatter.logError(logger, "handleMethodArgumentNotValid",
                 "The given arguments cannot be processed", params, ex);
-        return status(HttpStatus.BAD_REQUEST).body(
-                JsonUtils.jsonResponse(HttpStatus.BAD_REQUEST,
-                        ex.getMessage()));
+        return JsonUtils.errorResponse(HttpStatus.BAD_REQUEST,
+                ex.getMessage());
     }
 
     /** {@inheritDoc} */
@@ -134,9 +131,8 @@ public class RestHandlerConfiguration extends ResponseEntityExceptionHandler {
         params.put("status", status.toString());
         logFormatter.logError(logger, "handleHttpRequestMethodNotSupported",
                 "The REST method is not allowed", params, ex);
-        return status(HttpStatus.METHOD_NOT_ALLOWED).body(
-                JsonUtils.jsonResponse(HttpStatus.METHOD_NOT_ALLOWED,
-                        ex.getMessage()));
+        return JsonUtils.errorResponse(HttpStatus.METHOD_NOT_ALLOWED,
+                ex.getMessage());
     }
 
     /** Handler for a request with invalid data exception.
@@ -156,9 +152,42 @@ public class RestHandlerConfiguration extends ResponseEntityExceptionHandler {
 
         notificationUtil.logError(message);
 
-        return status(HttpStatus.BAD_REQUEST).body(
-                JsonUtils.jsonResponse(HttpStatus.BAD_REQUEST,
-                        ex.getMessage()));
+        return JsonUtils.errorResponse(HttpStatus.BAD_REQUEST,
+                ex.getMessage());
+    }
+
+    /** Handler for a request whose deadline passed before the database
+     * answered, the client already stopped waiting so it's not notified.
+     *
+     * @param ex The exception that caused the error.
+     * @return The HTTP response with the status and error message.
+     */
+    @ExceptionHandler(DeadlineExceededException.class)
+    public ResponseEntity<Object> deadlineExceededHandler(
+            DeadlineExceededException ex) {
+        //Logging the given info
+        String message = "Deadline of the request exceeded: " +
+                ex.getMessage();
+        logFormatter.logError(
+                logger, "deadlineExceededHandler", message, null, ex);
+
+        return JsonUtils.errorResponse(HttpStatus.GATEWAY_TIMEOUT,
+                ex.getMessage());
+    }
+
+    /** Handler for a database error, the statements cancelled at the
+     * deadline of the request are answered as exceeded deadlines.
+     *
+     * @param ex The exception that caused the error.
+     * @return The HTTP response with the status and error message.
+     */
+    @ExceptionHandler(JdbiException.class)
+    public ResponseEntity<Object> databaseExceptionHandler(JdbiException ex) {
+        if (Deadline.isExpired()) {
+            return deadlineExceededHandler(new DeadlineExceededException(
+                    "The statement was cancelled at the deadline", ex));
+        }
+        return unexpectedExceptionHandler(ex);
     }
 
     /** Handler for a unexpected exception.
@@ -176,8 +205,7 @@ public class RestHandlerConfiguration extends ResponseEntityExceptionHandler {
                 logger, "unexpectedExceptionHandler", message, null, ex);
         notificationUtil.logError(message);
 
-        return status(HttpStatus.INTERNAL_SERVER_ERROR).body(
-                JsonUtils.jsonResponse(HttpStatus.INTERNAL_SERVER_ERROR,
-                        ex.getMessage()));
+        return JsonUtils.errorResponse(HttpStatus.INTERNAL_SERVER_ERROR,
+                ex.getMessage());
     }
 }
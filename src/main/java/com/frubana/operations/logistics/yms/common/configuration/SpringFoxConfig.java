@@ -1,5 +1,6 @@
 package com.frubana.operations.logistics.yms.common.configuration;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import springfox.documentation.builders.PathSelectors;
@@ -10,8 +11,12 @@ import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
 /** Configures SpringFox to produce the api documentation automatically when
  * calling an endpoint.
+ * <p> It's disabled with {@code yms.swagger.enabled: false}, the scan of the
+ * endpoints is a good part of the startup.
  */
 @Configuration
+@ConditionalOnProperty(name = "yms.swagger.enabled", havingValue = "true",
+        matchIfMissing = true)
 @EnableSwagger2
 public class SpringFoxConfig {
     /** Bean definition used to configure the components in the project to be
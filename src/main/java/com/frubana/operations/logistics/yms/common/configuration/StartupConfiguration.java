@@ -0,0 +1,38 @@
+package com.frubana.operations.logistics.yms.common.configuration;
+
+import com.frubana.operations.logistics.yms.common.datasource.ReplicaPool;
+import com.frubana.operations.logistics.yms.warehouse.service.WarehouseRelationRegistry;
+import com.frubana.operations.logistics.yms.yard.application.YardGrpcServer;
+import com.frubana.operations.logistics.yms.yard.application.YardWarmup;
+import com.frubana.operations.logistics.yms.yard.service.YardMirror;
+import com.frubana.operations.logistics.yms.yard.service.YardOccupancy;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationInitializer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/** Configures the beans that start with the application when the
+ * {@code fast-start} profile creates the rest of them on their first use.
+ */
+@Configuration
+public class StartupConfiguration {
+
+    /** The beans that must be created on startup even with the lazy
+     * initialization: the migrations, the restore of the snapshot and the
+     * warm-up must run before the first request and the scheduled tasks and
+     * the gRPC server only start when their bean is created.
+     *
+     * @return the filter of the eager beans, never null.
+     */
+    @Bean
+    public static LazyInitializationExcludeFilter eagerBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(
+                FlywayMigrationInitializer.class,
+                YardOccupancy.class,
+                WarehouseRelationRegistry.class,
+                ReplicaPool.class,
+                YardGrpcServer.class,
+                YardWarmup.class,
+                YardMirror.class);
+    }
+}
@@ -0,0 +1,36 @@
+package com.frubana.operations.logistics.yms.common.datasource;
+
+import org.jdbi.v3.core.JdbiException;
+import org.springframework.dao.DataAccessException;
+
+import java.sql.SQLException;
+import java.util.function.Predicate;
+
+/** The errors of the database that count as failures in the circuit
+ * breakers of the database work.
+ * <p> The statements cancelled at the {@link Deadline} of their request
+ * fail with the same errors of the driver, so once the deadline of the
+ * current thread passed the error is of the request and not of the
+ * database.
+ */
+public class DatabaseFailure implements Predicate<Throwable> {
+
+    /** {@inheritDoc}
+     *
+     * @return true if the error comes from the database and the deadline of
+     * the current thread didn't pass.
+     */
+    @Override
+    public boolean test(Throwable error) {
+        return !(error instanceof DeadlineExceededException)
+                && isDatabaseError(error) && !Deadline.isExpired();
+    }
+
+    /** @param error The error, cannot be null.
+     * @return true if it comes from Jdbi, spring or the driver. */
+    private static boolean isDatabaseError(Throwable error) {
+        return error instanceof JdbiException
+                || error instanceof DataAccessException
+                || error instanceof SQLException;
+    }
+}
@@ -0,0 +1,39 @@
+package com.frubana.operations.logistics.yms.common.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/** The connection pools opened by the application: the pools of each
+ * {@link Workload} of the primary and the shards and the pool of the
+ * replica.
+ * <p> The pools are wrapped by routing data sources that are not closed by
+ * Spring, so they are closed here with the context and their connections
+ * are released on shutdown.
+ */
+public class DatabasePools implements AutoCloseable {
+
+    /** The pools in the order they were opened. */
+    private final List<HikariDataSource> pools = new CopyOnWriteArrayList<>();
+
+    /** Registers a pool to check and close it with the others.
+     *
+     * @param pool The pool, cannot be null.
+     * @return the same pool.
+     */
+    public HikariDataSource add(HikariDataSource pool) {
+        pools.add(pool);
+        return pool;
+    }
+
+    /** Obtains every pool registered.
+     *
+     * @return the pools in the order they were opened, never null.
+     */
+    public List<HikariDataSource> getPools() { return List.copyOf(pools); }
+
+    /** Closes every pool, the open connections are closed once returned. */
+    @Override
+    public void close() { pools.forEach(HikariDataSource::close); }
+}
@@ -0,0 +1,166 @@
+package com.frubana.operations.logistics.yms.common.datasource;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/** The deadline of the request served by the current thread.
+ * <p> It's set by the web filter when the request arrives and read by the
+ * connections and statements of the request, which give up when nobody is
+ * waiting for them anymore. The threads without a deadline, like the
+ * scheduled tasks, are not limited.
+ */
+public final class Deadline {
+
+    /** The {@link System#nanoTime()} of the deadline of each thread. */
+    private static final ThreadLocal<Long> deadline = new ThreadLocal<>();
+
+    /** The thread that fires the actions at the deadlines, the actions
+     * cancelled when their request finishes in time are removed at once
+     * instead of waiting in the queue until their deadline. */
+    private static final ScheduledThreadPoolExecutor timer = timer();
+
+    /** Private constructor to force the use of the static methods.
+     */
+    private Deadline() { }
+
+    /** Sets the deadline of the current thread.
+     *
+     * @param millis The milliseconds from now until the deadline.
+     */
+    public static void start(long millis) {
+        deadline.set(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    /** Removes the deadline of the current thread.
+     */
+    public static void clear() {
+        deadline.remove();
+    }
+
+    /** Obtains the deadline of the current thread, to {@link #enter(Long)}
+     * it in the threads that work for the request.
+     *
+     * @return the deadline, null if the thread has no deadline.
+     */
+    public static Long current() {
+        return deadline.get();
+    }
+
+    /** Obtains the earlier of the deadline of the current thread and a
+     * limit, for the work of the request that must end before.
+     *
+     * @param millis The milliseconds from now of the limit.
+     * @return the deadline, to {@link #enter(Long)} it.
+     */
+    public static long earliest(long millis) {
+        long limit = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        Long nanos = deadline.get();
+        return nanos != null && nanos - limit < 0 ? nanos : limit;
+    }
+
+    /** Sets a deadline obtained with {@link #current()} in the current
+     * thread.
+     *
+     * @param nanos The deadline, null to remove it.
+     * @return the previous deadline, to {@link #restore(Long)} it.
+     */
+    public static Long enter(Long nanos) {
+        Long previous = deadline.get();
+        restore(nanos);
+        return previous;
+    }
+
+    /** Restores the deadline of the current thread.
+     *
+     * @param previous The deadline returned by {@link #enter(Long)}.
+     */
+    public static void restore(Long previous) {
+        if (previous == null) {
+            deadline.remove();
+        } else {
+            deadline.set(previous);
+        }
+    }
+
+    /** Wraps a task to run it with the deadline of the current thread in
+     * any other thread.
+     *
+     * @param task The task, cannot be null.
+     * @param <T>  The type of the result.
+     * @return the task with the deadline, never null.
+     */
+    public static <T> Supplier<T> propagate(Supplier<T> task) {
+        return propagate(current(), task);
+    }
+
+    /** Wraps a task to run it with the given deadline in any other thread.
+     *
+     * @param nanos The deadline, null to run it without deadline.
+     * @param task  The task, cannot be null.
+     * @param <T>   The type of the result.
+     * @return the task with the deadline, never null.
+     */
+    public static <T> Supplier<T> propagate(Long nanos, Supplier<T> task) {
+        return () -> {
+            Long previous = enter(nanos);
+            try {
+                return task.get();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    /** @return true if the current thread has a deadline. */
+    public static boolean isSet() {
+        return deadline.get() != null;
+    }
+
+    /** @return true if the deadline of the current thread passed. */
+    public static boolean isExpired() {
+        return remainingMillis() <= 0;
+    }
+
+    /** Obtains the time left to the deadline of the current thread.
+     *
+     * @return the milliseconds left, 0 or less if expired and
+     * {@link Long#MAX_VALUE} if the thread has no deadline.
+     */
+    public static long remainingMillis() {
+        Long nanos = deadline.get();
+        if (nanos == null) {
+            return Long.MAX_VALUE;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(nanos - System.nanoTime());
+    }
+
+    /** Runs an action at the deadline of the current thread.
+     *
+     * @param action The action, it must be quick.
+     * @return the scheduled action, to cancel it when it's not needed.
+     */
+    static ScheduledFuture<?> atDeadline(Runnable action) {
+        return timer.schedule(action, Math.max(0, remainingMillis()),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /** @return the executor of the timer, with a daemon thread. */
+    private static ScheduledThreadPoolExecutor timer() {
+        ScheduledThreadPoolExecutor timer =
+                new ScheduledThreadPoolExecutor(1, daemonThreads());
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+
+    /** @return the factory of the daemon thread of the timer. */
+    private static CustomizableThreadFactory daemonThreads() {
+        CustomizableThreadFactory threads =
+                new CustomizableThreadFactory("yms-deadline-");
+        threads.setDaemon(true);
+        return threads;
+    }
+}
@@ -0,0 +1,132 @@
+package com.frubana.operations.logistics.yms.common.datasource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ScheduledFuture;
+
+/** {@link DataSource} that waits for a connection of its pool only until
+ * the {@link Deadline} of the request.
+ * <p> Hikari only has a timeout for the whole pool, so the thread that
+ * waits is interrupted at the deadline, which Hikari answers by giving up
+ * the wait. The interruption is cleared before returning, and a connection
+ * obtained after the deadline is closed instead of used. The threads
+ * without a deadline wait as long as the pool allows.
+ */
+public class DeadlineAwareDataSource extends DelegatingDataSource {
+
+    /** Constructor.
+     *
+     * @param target The pool of the connections, cannot be null.
+     */
+    public DeadlineAwareDataSource(DataSource target) {
+        super(target);
+    }
+
+    /** {@inheritDoc}
+     *
+     * @throws DeadlineExceededException if the deadline passed before a
+     * connection was free.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(null, null);
+    }
+
+    /** {@inheritDoc}
+     *
+     * @throws DeadlineExceededException if the deadline passed before a
+     * connection was free.
+     */
+    @Override
+    public Connection getConnection(String username, String password)
+            throws SQLException {
+        if (!Deadline.isSet()) {
+            return obtain(username, password);
+        }
+        if (Deadline.isExpired()) {
+            throw new DeadlineExceededException(
+                    "The deadline passed before obtaining a connection");
+        }
+        Interruption interruption = new Interruption(Thread.currentThread());
+        ScheduledFuture<?> timer = Deadline.atDeadline(interruption);
+        Connection connection = null;
+        SQLException error = null;
+        try {
+            connection = obtain(username, password);
+        } catch (SQLException e) {
+            error = e;
+        } finally {
+            timer.cancel(false);
+        }
+        if (!interruption.disarm()) {
+            if (error != null) {
+                throw error;
+            }
+            return connection;
+        }
+        // The interruption was only for the wait of the pool.
+        Thread.interrupted();
+        if (connection != null) {
+            connection.close();
+        }
+        throw new DeadlineExceededException(
+                "The deadline passed waiting for a connection", error);
+    }
+
+    /** Obtains a connection of the pool.
+     *
+     * @param username The user, null for the one of the pool.
+     * @param password The password, null for the one of the pool.
+     * @return the connection.
+     * @throws SQLException if the pool has no connection.
+     */
+    private Connection obtain(String username, String password)
+            throws SQLException {
+        return username == null ? obtainTargetDataSource().getConnection()
+                : obtainTargetDataSource().getConnection(username, password);
+    }
+
+    /** Interrupts the thread waiting for a connection at the deadline,
+     * unless it was disarmed before.
+     */
+    private static class Interruption implements Runnable {
+
+        /** The thread waiting for the connection. */
+        private final Thread thread;
+
+        /** If the thread can be interrupted, guarded by this. */
+        private boolean armed = true;
+
+        /** If the thread was interrupted, guarded by this. */
+        private boolean fired;
+
+        /** Constructor.
+         *
+         * @param thread The thread waiting for the connection.
+         */
+        private Interruption(Thread thread) {
+            this.thread = thread;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public synchronized void run() {
+            if (armed) {
+                fired = true;
+                thread.interrupt();
+            }
+        }
+
+        /** Stops the interruption.
+         *
+         * @return true if the thread was already interrupted.
+         */
+        private synchronized boolean disarm() {
+            armed = false;
+            return fired;
+        }
+    }
+}
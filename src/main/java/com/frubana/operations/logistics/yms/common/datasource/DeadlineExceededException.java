@@ -0,0 +1,23 @@
+package com.frubana.operations.logistics.yms.common.datasource;
+
+/** The deadline of the request passed before its database work finished.
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    /** Constructor.
+     *
+     * @param message The step that was not finished.
+     */
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+
+    /** Constructor.
+     *
+     * @param message The step that was not finished.
+     * @param cause   The error of the step.
+     */
+    public DeadlineExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
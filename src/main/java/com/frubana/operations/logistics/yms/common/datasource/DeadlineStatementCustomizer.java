@@ -0,0 +1,44 @@
+package com.frubana.operations.logistics.yms.common.datasource;
+
+import org.jdbi.v3.core.statement.StatementContext;
+import org.jdbi.v3.core.statement.StatementCustomizer;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.ScheduledFuture;
+
+/** Limits the statements to the time left to the {@link Deadline} of the
+ * request.
+ * <p> The JDBC query timeout only counts whole seconds, so the statement
+ * is also cancelled at the deadline; it's the driver timeout rounded up
+ * that stops it if the timer is late. The statements of the threads
+ * without a deadline are not changed.
+ */
+public class DeadlineStatementCustomizer implements StatementCustomizer {
+
+    /** {@inheritDoc}
+     *
+     * @throws DeadlineExceededException if the deadline already passed.
+     */
+    @Override
+    public void beforeExecution(PreparedStatement statement,
+                                StatementContext context) throws SQLException {
+        if (!Deadline.isSet()) {
+            return;
+        }
+        long remaining = Deadline.remainingMillis();
+        if (remaining <= 0) {
+            throw new DeadlineExceededException(
+                    "The deadline passed before running the statement");
+        }
+        statement.setQueryTimeout((int) Math.max(1, (remaining + 999) / 1000));
+        ScheduledFuture<?> cancel = Deadline.atDeadline(() -> {
+            try {
+                statement.cancel();
+            } catch (SQLException e) {
+                // The statement already finished or its connection is gone.
+            }
+        });
+        context.addCleanable(() -> cancel.cancel(false));
+    }
+}
@@ -0,0 +1,50 @@
+package com.frubana.operations.logistics.yms.common.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/** {@link DataSource} that sends the read-only transactions to the replica
+ * and everything else to the primary.
+ * <p> The route is decided when the connection is requested, so this must
+ * be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}
+ * to request it after the transaction was marked as read-only.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    /** The targets where a connection can be obtained. */
+    enum Route { PRIMARY, REPLICA }
+
+    /** The replica and its health, it's never null. */
+    private final ReplicaPool replica;
+
+    /** Constructor.
+     *
+     * @param primary The pool of the primary database, cannot be null.
+     * @param replica The pool of the replica, cannot be null and must be
+     *                enabled.
+     */
+    public ReadWriteRoutingDataSource(DataSource primary, ReplicaPool replica) {
+        this.replica = replica;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Route.PRIMARY, primary);
+        targets.put(Route.REPLICA, replica.getDataSource());
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && replica.isHealthy()) {
+            return Route.REPLICA;
+        }
+        return Route.PRIMARY;
+    }
+}
@@ -0,0 +1,115 @@
+package com.frubana.operations.logistics.yms.common.datasource;
+
+import com.frubana.operations.logistics.yms.common.configuration.FormattedLogger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.HashMap;
+
+/** Pool of connections to the read replica of the database and the guard
+ * that decides if the replica is fresh enough to serve the read-only
+ * transactions.
+ * <p> The replication lag is measured periodically with the configured
+ * query, any failure or a lag bigger than the allowed one marks the replica
+ * as unhealthy and the reads fall back to the primary until the next check
+ * succeeds.
+ */
+public class ReplicaPool {
+
+    /** Query used in Postgres to know how many seconds the replica is
+     * behind the primary, 0 if everything received was already replayed. */
+    public static final String POSTGRES_LAG_QUERY = "SELECT CASE " +
+            "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() " +
+            "THEN 0 " +
+            "ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) " +
+            "END";
+
+    /** Logger. */
+    private final Logger logger = LoggerFactory.getLogger(ReplicaPool.class);
+
+    /** Formatter to set the log in a specific format, it's never null. */
+    private final FormattedLogger logFormatter;
+
+    /** The pool of the replica, null if there is no replica configured. */
+    private final DataSource dataSource;
+
+    /** Query that returns the lag of the replica in seconds. */
+    private final String lagQuery;
+
+    /** The maximum lag allowed to keep sending reads to the replica. */
+    private final Duration maxLag;
+
+    /** If the last lag check was successful and under the maximum lag. */
+    private volatile boolean healthy;
+
+    /** Constructor.
+     *
+     * @param dataSource   The pool of the replica, null to disable it.
+     * @param lagQuery     The query that returns the replica lag in seconds,
+     *                     cannot be null if the data source is given.
+     * @param maxLag       The maximum lag allowed, cannot be null.
+     * @param logFormatter Formatter to set the log, required.
+     */
+    public ReplicaPool(DataSource dataSource, String lagQuery, Duration maxLag,
+                       FormattedLogger logFormatter) {
+        this.dataSource = dataSource;
+        this.lagQuery = lagQuery;
+        this.maxLag = maxLag;
+        this.logFormatter = logFormatter;
+    }
+
+    /** Obtains the pool of the replica.
+     *
+     * @return The {@link DataSource} of the replica, null if disabled.
+     */
+    public DataSource getDataSource() { return dataSource; }
+
+    /** Checks if there is a replica configured.
+     *
+     * @return true if the reads can be sent to a replica.
+     */
+    public boolean isEnabled() { return dataSource != null; }
+
+    /** Checks if the replica can receive reads right now.
+     *
+     * @return true if the replica is configured and its last lag check was
+     * under the maximum lag, false otherwise.
+     */
+    public boolean isHealthy() { return dataSource != null && healthy; }
+
+    /** Measures the replication lag and updates the health of the replica.
+     */
+    @Scheduled(fixedDelayString =
+            "${yms.datasource.replica.lag-check-interval:5000}")
+    public void checkLag() {
+        if (dataSource == null) {
+            return;
+        }
+        boolean wasHealthy = healthy;
+        HashMap<String, Object> params = new HashMap<>();
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(lagQuery)) {
+            double lagSeconds = result.next() ? result.getDouble(1) : 0;
+            params.put("lagMillis", (long) (lagSeconds * 1000));
+            healthy = lagSeconds * 1000 <= maxLag.toMillis();
+        } catch (SQLException | RuntimeException e) {
+            healthy = false;
+            params.put("error", e.getMessage());
+        }
+        if (wasHealthy != healthy) {
+            params.put("maxLagMillis", maxLag.toMillis());
+            logFormatter.logInfo(logger, "checkLag", healthy
+                    ? "The replica is back, sending the reads to it"
+                    : "The replica is lagging or down, sending the reads to "
+                    + "the primary", params);
+        }
+    }
+}
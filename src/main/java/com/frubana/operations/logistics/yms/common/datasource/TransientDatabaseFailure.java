@@ -0,0 +1,44 @@
+package com.frubana.operations.logistics.yms.common.datasource;
+
+import org.jdbi.v3.core.ConnectionException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+
+/** The {@link DatabaseFailure}s worth retrying: the connection was lost or
+ * not obtained, or the transaction lost a deadlock or a serialization
+ * conflict. The others, like a violated constraint, fail the same way
+ * again.
+ */
+public class TransientDatabaseFailure extends DatabaseFailure {
+
+    @Override
+    public boolean test(Throwable error) {
+        return super.test(error) && isTransient(error);
+    }
+
+    /** @param error The error of the database, cannot be null.
+     * @return true if any of its causes is transient. */
+    private static boolean isTransient(Throwable error) {
+        for (Throwable cause = error; cause != null;
+             cause = cause.getCause()) {
+            if (cause instanceof ConnectionException
+                    || cause instanceof CannotGetJdbcConnectionException
+                    || cause instanceof TransientDataAccessException
+                    || cause instanceof SQLTransientException) {
+                return true;
+            }
+            if (cause instanceof SQLException) {
+                String state = ((SQLException) cause).getSQLState();
+                // Class 08 is connection exception, 40 transaction rollback.
+                if (state != null && (state.startsWith("08")
+                        || state.startsWith("40"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,23 @@
+package com.frubana.operations.logistics.yms.common.datasource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/** Runs the statements of a bean method with the connections of a
+ * {@link Workload}.
+ * <p> The pool is chosen when the connection is obtained, so in a
+ * transaction the first method that runs a statement decides it. The calls
+ * inside the same bean don't pass through {@link WorkloadAspect} and keep
+ * the work of their caller.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface UsesWorkload {
+
+    /** @return the work of the statements of the method. */
+    Workload value();
+}
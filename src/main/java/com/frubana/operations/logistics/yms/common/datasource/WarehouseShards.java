@@ -0,0 +1,133 @@
+package com.frubana.operations.logistics.yms.common.datasource;
+
+import com.frubana.operations.logistics.yms.common.utils.WarehouseRelationUtils;
+import com.frubana.operations.logistics.yms.common.utils.WarehouseRelationUtils.WarehouseRelation;
+import org.jdbi.v3.core.Jdbi;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+
+/** The databases where the yards live, one per country.
+ * <p> Each warehouse is resolved to its country through the
+ * {@link WarehouseRelationUtils}, the warehouses whose country has no shard
+ * configured use the default database. The warehouses without relation are
+ * rejected, as their yards could live in any shard.
+ */
+public class WarehouseShards implements AutoCloseable {
+
+    /** The default database, it's never null. */
+    private final Jdbi defaultShard;
+
+    /** The database of each country, it's never null. */
+    private final Map<String, Jdbi> shardsByCountry;
+
+    /** Every distinct database starting by the default one. */
+    private final List<Jdbi> shards;
+
+    /** Executor to query the shards in parallel, it's never null. */
+    private final ExecutorService executor;
+
+    /** Constructor.
+     *
+     * @param defaultShard    The default database, cannot be null.
+     * @param shardsByCountry The database of each country, cannot be null.
+     * @param executor        The executor used to query in parallel, cannot
+     *                        be null.
+     */
+    public WarehouseShards(Jdbi defaultShard, Map<String, Jdbi> shardsByCountry,
+                           ExecutorService executor) {
+        this.defaultShard = defaultShard;
+        this.shardsByCountry = Map.copyOf(shardsByCountry);
+        LinkedHashSet<Jdbi> distinct = new LinkedHashSet<>();
+        distinct.add(defaultShard);
+        distinct.addAll(shardsByCountry.values());
+        this.shards = List.copyOf(distinct);
+        this.executor = executor;
+    }
+
+    /** Obtains the database where the yards of the warehouse live.
+     *
+     * @param warehouse The warehouse, cannot be null or empty.
+     * @return the {@link Jdbi} of the shard, never null.
+     * @throws IllegalArgumentException if the warehouse is null, empty or
+     * has no relation.
+     */
+    public Jdbi forWarehouse(String warehouse) {
+        WarehouseRelation relation = WarehouseRelationUtils.getRelation(warehouse);
+        if (relation == null) {
+            throw new IllegalArgumentException("The warehouse " + warehouse +
+                    " is not registered.");
+        }
+        return shardsByCountry.getOrDefault(relation.getCountry(), defaultShard);
+    }
+
+    /** Obtains the default database.
+     *
+     * @return the {@link Jdbi} of the default shard, never null.
+     */
+    public Jdbi getDefault() { return defaultShard; }
+
+    /** Runs the same query in every shard and merges the results.
+     * <p> The default shard is queried in the calling thread to keep its
+     * transaction, the others are queried in parallel.
+     *
+     * @param query The query to run in each shard, cannot be null.
+     * @param <T>   The type of the results.
+     * @return the results of all the shards, never null.
+     */
+    public <T> List<T> fanOut(Function<Jdbi, List<T>> query) {
+        if (shards.size() == 1) {
+            return query.apply(defaultShard);
+        }
+        List<CompletableFuture<List<T>>> others = new ArrayList<>(
+                shards.size() - 1);
+        // The other shards use the pools of the same work of the caller
+        // and give up at its deadline.
+        Workload workload = Workload.current();
+        for (Jdbi shard : shards.subList(1, shards.size())) {
+            others.add(CompletableFuture.supplyAsync(Deadline.propagate(() -> {
+                Workload previous = workload.enter();
+                try {
+                    return query.apply(shard);
+                } finally {
+                    Workload.restore(previous);
+                }
+            }), executor));
+        }
+        List<List<T>> results = new ArrayList<>(shards.size());
+        results.add(query.apply(defaultShard));
+        try {
+            for (CompletableFuture<List<T>> other : others) {
+                results.add(other.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        int size = 0;
+        for (List<T> result : results) {
+            size += result.size();
+        }
+        List<T> merged = new ArrayList<>(size);
+        results.forEach(merged::addAll);
+        return merged;
+    }
+
+    /** Obtains every distinct shard.
+     *
+     * @return the shards starting with the default one, never null.
+     */
+    public List<Jdbi> getShards() { return shards; }
+
+    /** Stops the threads used to query the shards. */
+    @Override
+    public void close() { executor.shutdown(); }
+}
@@ -0,0 +1,44 @@
+package com.frubana.operations.logistics.yms.common.datasource;
+
+/** The kind of database work of the current thread, each one takes its
+ * connections from its own pool so the long reads can't starve the
+ * scanners.
+ * <p> The work is {@link #CRITICAL} unless a method marked with
+ * {@link UsesWorkload} is running.
+ */
+public enum Workload {
+
+    /** Short statements the scanners wait for: lookups, registrations and
+     * releases. */
+    CRITICAL,
+
+    /** Listings, exports and other statements that read many rows. */
+    BULK;
+
+    /** The work of each thread. */
+    private static final ThreadLocal<Workload> current =
+            ThreadLocal.withInitial(() -> CRITICAL);
+
+    /** @return the work of the current thread. */
+    public static Workload current() {
+        return current.get();
+    }
+
+    /** Makes this the work of the current thread.
+     *
+     * @return the previous work, to {@link #restore(Workload)} it.
+     */
+    public Workload enter() {
+        Workload previous = current.get();
+        current.set(this);
+        return previous;
+    }
+
+    /** Restores the work of the current thread.
+     *
+     * @param previous The work returned by {@link #enter()}.
+     */
+    public static void restore(Workload previous) {
+        current.set(previous);
+    }
+}
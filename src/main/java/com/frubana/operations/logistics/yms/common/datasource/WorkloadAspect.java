@@ -0,0 +1,32 @@
+package com.frubana.operations.logistics.yms.common.datasource;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/** Sets the {@link Workload} of the methods marked with
+ * {@link UsesWorkload} while they run.
+ */
+@Aspect
+@Component
+public class WorkloadAspect {
+
+    /** Runs a method with its work.
+     *
+     * @param method   The method.
+     * @param workload The work of the method.
+     * @return the result of the method.
+     * @throws Throwable the error of the method.
+     */
+    @Around("@annotation(workload)")
+    public Object withWorkload(ProceedingJoinPoint method,
+                               UsesWorkload workload) throws Throwable {
+        Workload previous = workload.value().enter();
+        try {
+            return method.proceed();
+        } finally {
+            Workload.restore(previous);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.frubana.operations.logistics.yms.common.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/** {@link DataSource} that takes the connections of the current
+ * {@link Workload} from its own pool.
+ * <p> As the {@link ReadWriteRoutingDataSource}, the route is decided when
+ * the connection is requested, so it must be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}
+ * to request it once the statement runs.
+ */
+public class WorkloadRoutingDataSource extends AbstractRoutingDataSource {
+
+    /** Constructor.
+     *
+     * @param critical The pool of the critical work, cannot be null.
+     * @param bulk     The pool of the bulk work, cannot be null.
+     */
+    public WorkloadRoutingDataSource(DataSource critical, DataSource bulk) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Workload.CRITICAL, critical);
+        targets.put(Workload.BULK, bulk);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(critical);
+        afterPropertiesSet();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return Workload.current();
+    }
+}
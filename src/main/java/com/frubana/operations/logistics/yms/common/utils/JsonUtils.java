@@ -1,9 +1,14 @@
 package com.frubana.operations.logistics.yms.common.utils;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -13,8 +18,9 @@ import java.time.format.DateTimeFormatter;
  * Utility class to get things from JSON Nodes.
  */
 public class JsonUtils {
-    /** The unique instance to use when mapping objects. */
-    public static final ObjectMapper instance = new ObjectMapper();
+    /** The unique instance to use when mapping objects, it's also the
+     * mapper of the JSON requests and responses. */
+    public static final ObjectMapper instance = configure(new ObjectMapper());
 
     /** The format to transform dates with time */
     public static final DateTimeFormatter DATETIME_FORMAT =
@@ -24,18 +30,31 @@ public class JsonUtils {
     public static final DateTimeFormatter DATE_FORMAT =
             DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
-    // Registering all the special JSON modules defined in the POM or the
-    // code to add more context to certain serialization and deserialization
-    // of specific types like dates.
-    static {
-        instance.findAndRegisterModules();
-    }
-
     /** Private constructor to force the use of the instance.
      */
     private JsonUtils() {
     }
 
+    /** Applies the configuration of {@link #instance} to a mapper, it's
+     * used for the mappers of the binary formats.
+     * <p> Registers all the special JSON modules defined in the POM or the
+     * code to add more context to certain serialization and
+     * deserialization of specific types like dates, and the Afterburner
+     * module that replaces the reflection of the getters and fields with
+     * generated bytecode. The output is never indented and the unknown
+     * properties are ignored as in the Spring Boot mapper.
+     *
+     * @param mapper The mapper to configure, cannot be null.
+     * @return the same mapper.
+     */
+    public static ObjectMapper configure(ObjectMapper mapper) {
+        return mapper.findAndRegisterModules()
+                .registerModule(new AfterburnerModule())
+                .disable(SerializationFeature.INDENT_OUTPUT)
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
     /** Gets the value from a json node as a string.
      *
      * @param node      Json node from where to extract info, cannot be null.
@@ -119,4 +138,19 @@ public class JsonUtils {
         json.put("status", status.value());
         return json;
     }
-}
\ No newline at end of file
+
+    /** Creates the response of an error, it's always written as JSON even
+     * when the client asked for another format of the endpoint, as protobuf,
+     * that cannot represent the message.
+     *
+     * @param status  the http status to expose.
+     * @param message the message to display.
+     * @return the response with the {@link #jsonResponse} body, never null.
+     */
+    public static ResponseEntity<Object> errorResponse(
+            final HttpStatus status, final String message) {
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(jsonResponse(status, message));
+    }
+}
@@ -0,0 +1,41 @@
+package com.frubana.operations.logistics.yms.common.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Canonical instances of the warehouse codes, so the thousands of yards of
+ * a listing share the same string instead of one copy per row.
+ */
+public class WarehouseCodes {
+
+    /** The maximum number of codes kept, the codes come from the requests so
+     * the registry cannot grow without limit. */
+    private static final int MAX_CODES = 10_000;
+
+    /** The canonical instance of each code. */
+    private static final ConcurrentHashMap<String, String> codes =
+            new ConcurrentHashMap<>();
+
+    /** Constructor, private as this must be accessed static. */
+    private WarehouseCodes() {}
+
+    /** Obtains the canonical instance of a warehouse code.
+     *
+     * @param warehouse The warehouse code, can be null.
+     * @return the canonical instance equal to the given code, or the same
+     * code if the registry is full or the code is null.
+     */
+    public static String canonical(String warehouse) {
+        if (warehouse == null) {
+            return null;
+        }
+        String canonical = codes.get(warehouse);
+        if (canonical != null) {
+            return canonical;
+        }
+        if (codes.size() >= MAX_CODES) {
+            return warehouse;
+        }
+        canonical = codes.putIfAbsent(warehouse, warehouse);
+        return canonical != null ? canonical : warehouse;
+    }
+}
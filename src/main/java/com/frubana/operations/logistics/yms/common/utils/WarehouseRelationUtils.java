@@ -1,22 +1,19 @@
 package com.frubana.operations.logistics.yms.common.utils;
 
-import java.util.HashMap;
 import java.util.Map;
 
 /** The legacy needed relations to identify by the warehouse the region and
  * country.
+ * <p> The relations are an immutable snapshot that is replaced as a whole
+ * when the registry reloads them from the database, so the lookups never
+ * lock nor see a half loaded registry.
  * TODO: this is only while multi warehouse is released.
  */
 public class WarehouseRelationUtils {
-    /** The warehouse registered in our systems. */
-    private static final Map<String, WarehouseRelation> warehouses =
-            new HashMap<>();
-
-    // Registering the warehouses.
-    static {
-        warehouses.put("PA",
-                new WarehouseRelation("Puente aranda", "co", "BOG"));
-    }
+    /** The warehouse registered in our systems, until the first load from the
+     * database only the legacy ones are known. */
+    private static volatile Map<String, WarehouseRelation> warehouses =
+            Map.of("PA", new WarehouseRelation("Puente aranda", "co", "BOG"));
 
     /** Constructor, private as this must be accessed static. */
     private WarehouseRelationUtils() {}
@@ -39,6 +36,23 @@ public class WarehouseRelationUtils {
         return warehouses.get(warehouse);
     }
 
+    /** Obtains the current snapshot of the relations.
+     *
+     * @return the immutable relations by warehouse, never null.
+     */
+    public static Map<String, WarehouseRelation> getRelations() {
+        return warehouses;
+    }
+
+    /** Replaces all the relations with the given ones.
+     *
+     * @param relations The relations by warehouse, cannot be null.
+     */
+    public static void replaceRelations(
+            Map<String, WarehouseRelation> relations) {
+        warehouses = Map.copyOf(relations);
+    }
+
     /** The relation used to obtain the region and country of a warehouse.
      */
     public static class WarehouseRelation {
@@ -84,6 +98,12 @@ public class WarehouseRelationUtils {
             }
         }
 
+        /** Obtains the name of this relation.
+         *
+         * @return The detailed name of the warehouse.
+         */
+        public String getName() { return name; }
+
         /** Obtains the country of this relation.
          *
          * @return The country where the warehouse is related.
@@ -1,54 +1,254 @@
 package com.frubana.operations.logistics.yms.health.domain;
 
 import com.frubana.operations.logistics.yms.health.service.HealthCheck;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.actuate.health.Health;
 import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Class to implement the readiness end point
+ * <p> The registered {@link HealthCheck}s run in parallel, each one has
+ * {@code yms.health.timeout} milliseconds to answer. The result is reused
+ * for {@code yms.health.ttl} milliseconds and the probes that arrive while
+ * the checks run wait for the same result, so the probes never add load
+ * to the database. The time of each check is recorded in
+ * {@code yms.health.check}.
  */
 @Component
 public class SomeHealthVerifier implements HealthIndicator {
 
+    /** Name of the timer of the checks, tagged with the check and status. */
+    public static final String CHECK_METRIC = "yms.health.check";
+
     /** The services to verify if all is OK, it's never null. */
     private final List<HealthCheck> services;
 
+    /** The registry of the times of the checks, it's never null. */
+    private final MeterRegistry registry;
+
+    /** The threads that run the checks, it's never null. */
+    private final ExecutorService executor;
+
+    /** The milliseconds each check has to answer. */
+    private final long timeout;
+
+    /** The milliseconds a result is reused. */
+    private final long ttl;
+
+    /** The last result, or the one being computed. */
+    private final AtomicReference<CompletableFuture<Report>> report =
+            new AtomicReference<>();
+
 
     /** Constructor.
      *
      * @param services The services to verify if all is OK, cannot be null.
+     * @param registry The registry of the times of the checks.
+     * @param timeout  The milliseconds each check has to answer.
+     * @param ttl      The milliseconds a result is reused.
      */
     @Autowired
-    public SomeHealthVerifier(List<HealthCheck> services) {
+    public SomeHealthVerifier(List<HealthCheck> services,
+                              MeterRegistry registry,
+                              @Value("${yms.health.timeout:1000}") long timeout,
+                              @Value("${yms.health.ttl:5000}") long ttl) {
         this.services = services;
+        this.registry = registry;
+        this.timeout = timeout;
+        this.ttl = ttl;
+        int threads = Math.max(1, services.size());
+        // A check stuck beyond its timeout keeps its thread, the next runs
+        // are rejected and reported down until it's released.
+        this.executor = new ThreadPoolExecutor(threads, threads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads),
+                new CustomizableThreadFactory("yms-health-"),
+                new ThreadPoolExecutor.AbortPolicy());
     }
 
     /** {@inheritDoc} */
     @Override
     public Health health() {
-        int errorCode = check(); // perform some specific health check
-        if (errorCode != 0) {
-            return Health.down()
-                    .withDetail("Error Code", errorCode).build();
-        }
-        return Health.up().build();
+        Report current = report();
+        Health.Builder health = current.isHealthy()
+                ? Health.up() : Health.down().withDetail("Error Code", 1);
+        current.results.forEach((name, result) -> {
+            Map<String, Object> detail = new LinkedHashMap<>();
+            detail.put("status", result.status);
+            detail.put("latencyMs", result.latency / 1_000_000.0);
+            health.withDetail(name, detail);
+        });
+        return health.withDetail("checkedAt", current.checkedAt).build();
     }
 
-    /** Checks one by one the services registered for health check.
+    /** Checks the services registered for health check.
      *
      * @return 0 if everything was ok, 1 if something reported a health problem.
      */
     public int check() {
-        // Check the services to see all are ok.
+        return report().isHealthy() ? 0 : 1;
+    }
+
+    /** Stops the threads of the checks. */
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /** Obtains the last result if it's still fresh, otherwise runs the
+     * checks once for all the callers.
+     *
+     * @return the {@link Report}, never null.
+     */
+    private Report report() {
+        while (true) {
+            CompletableFuture<Report> current = report.get();
+            if (current != null && (!current.isDone()
+                    || System.currentTimeMillis() - current.join().checkedAt
+                    < ttl)) {
+                return current.join();
+            }
+            CompletableFuture<Report> next = new CompletableFuture<>();
+            if (report.compareAndSet(current, next)) {
+                try {
+                    next.complete(runChecks());
+                } catch (RuntimeException e) {
+                    next.completeExceptionally(e);
+                    report.compareAndSet(next, null);
+                    throw e;
+                }
+                return next.join();
+            }
+        }
+    }
+
+    /** Runs all the checks in parallel.
+     *
+     * @return the {@link Report} of the checks.
+     */
+    private Report runChecks() {
+        List<Future<Boolean>> pending = new ArrayList<>(services.size());
+        List<Long> starts = new ArrayList<>(services.size());
         for (HealthCheck service : services) {
-            if (!service.isServiceHealthy()) {
-                return 1;
+            starts.add(System.nanoTime());
+            try {
+                pending.add(executor.submit(service::isServiceHealthy));
+            } catch (RejectedExecutionException e) {
+                pending.add(null);
             }
         }
-        return 0;
+        Map<String, Result> results = new LinkedHashMap<>();
+        long deadline = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(timeout);
+        for (int i = 0; i < services.size(); i++) {
+            String status = await(pending.get(i), deadline);
+            long latency = System.nanoTime() - starts.get(i);
+            String name = services.get(i).getName();
+            results.put(name, new Result(status, latency));
+            Timer.builder(CHECK_METRIC)
+                    .tag("check", name)
+                    .tag("status", status)
+                    .register(registry)
+                    .record(latency, TimeUnit.NANOSECONDS);
+        }
+        return new Report(results, System.currentTimeMillis());
+    }
+
+    /** Waits for a check until the deadline.
+     *
+     * @param check    The running check, null if it couldn't start.
+     * @param deadline The {@link System#nanoTime()} of the timeout.
+     * @return the status of the check.
+     */
+    private static String await(Future<Boolean> check, long deadline) {
+        if (check == null) {
+            return "REJECTED";
+        }
+        try {
+            // All the checks started together, so each one waits only what
+            // is left of the timeout.
+            boolean healthy = check.get(
+                    Math.max(0, deadline - System.nanoTime()),
+                    TimeUnit.NANOSECONDS);
+            return healthy ? "UP" : "DOWN";
+        } catch (TimeoutException e) {
+            check.cancel(true);
+            return "TIMEOUT";
+        } catch (ExecutionException e) {
+            return "ERROR";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            check.cancel(true);
+            return "INTERRUPTED";
+        }
+    }
+
+    /** The result of a run of the checks.
+     */
+    private static class Report {
+
+        /** The result of each check by name. */
+        private final Map<String, Result> results;
+
+        /** The milliseconds since the epoch of the run. */
+        private final long checkedAt;
+
+        /** Constructor.
+         *
+         * @param results   The result of each check by name.
+         * @param checkedAt The milliseconds since the epoch of the run.
+         */
+        private Report(Map<String, Result> results, long checkedAt) {
+            this.results = results;
+            this.checkedAt = checkedAt;
+        }
+
+        /** @return true if every check is up. */
+        private boolean isHealthy() {
+            return results.values().stream()
+                    .allMatch(result -> "UP".equals(result.status));
+        }
+    }
+
+    /** The result of a check.
+     */
+    private static class Result {
+
+        /** UP, DOWN, ERROR, TIMEOUT, REJECTED or INTERRUPTED. */
+        private final String status;
+
+        /** The nanoseconds the check took. */
+        private final long latency;
+
+        /** Constructor.
+         *
+         * @param status  The status of the check.
+         * @param latency The nanoseconds the check took.
+         */
+        private Result(String status, long latency) {
+            this.status = status;
+            this.latency = latency;
+        }
     }
 }
@@ -0,0 +1,55 @@
+package com.frubana.operations.logistics.yms.health.service;
+
+import com.frubana.operations.logistics.yms.common.datasource.DatabasePools;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/** Checks no pool of the databases is saturated, that is, all its
+ * connections are in use and more than {@code yms.health.pool.max-waiting}
+ * threads are waiting for one. The pools of each workload of the primary
+ * and the shards and the pool of the replica are checked.
+ */
+@Component
+public class ConnectionPoolHealthCheck implements HealthCheck {
+
+    /** The pools of the application, it's never null. */
+    private final DatabasePools pools;
+
+    /** The threads that can wait for a connection. */
+    private final int maxWaiting;
+
+    /** Constructor.
+     *
+     * @param pools      The pools of the application.
+     * @param maxWaiting The threads that can wait for a connection.
+     */
+    @Autowired
+    public ConnectionPoolHealthCheck(
+            DatabasePools pools,
+            @Value("${yms.health.pool.max-waiting:10}") int maxWaiting) {
+        this.pools = pools;
+        this.maxWaiting = maxWaiting;
+    }
+
+    @Override
+    public boolean isServiceHealthy() {
+        for (HikariDataSource pool : pools.getPools()) {
+            HikariPoolMXBean bean = pool.getHikariPoolMXBean();
+            if (bean == null) {
+                // Not started yet.
+                continue;
+            }
+            if (bean.getActiveConnections() >= pool.getMaximumPoolSize()
+                    && bean.getThreadsAwaitingConnection() > maxWaiting) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String getName() { return "connectionPool"; }
+}
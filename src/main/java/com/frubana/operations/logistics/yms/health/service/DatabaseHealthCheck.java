@@ -0,0 +1,39 @@
+package com.frubana.operations.logistics.yms.health.service;
+
+import com.frubana.operations.logistics.yms.common.datasource.WarehouseShards;
+import org.jdbi.v3.core.Jdbi;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/** Checks every database answers a query through its pool.
+ */
+@Component
+public class DatabaseHealthCheck implements HealthCheck {
+
+    /** The query that pings the databases. */
+    static final String PING_QUERY = "Select 1";
+
+    /** The databases to ping, it's never null. */
+    private final WarehouseShards shards;
+
+    /** Constructor.
+     *
+     * @param shards The databases to ping, cannot be null.
+     */
+    @Autowired
+    public DatabaseHealthCheck(WarehouseShards shards) {
+        this.shards = shards;
+    }
+
+    @Override
+    public boolean isServiceHealthy() {
+        for (Jdbi shard : shards.getShards()) {
+            shard.withHandle(handle -> handle.createQuery(PING_QUERY)
+                    .mapTo(Integer.class).one());
+        }
+        return true;
+    }
+
+    @Override
+    public String getName() { return "database"; }
+}
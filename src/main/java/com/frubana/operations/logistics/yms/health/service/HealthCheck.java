@@ -1,5 +1,7 @@
 package com.frubana.operations.logistics.yms.health.service;
 
+import org.springframework.util.ClassUtils;
+
 /** Basic interface for all the services in change-me to check the readiness and
  *  health of each service.
  */
@@ -11,4 +13,12 @@ public interface HealthCheck {
      */
     boolean isServiceHealthy();
 
+    /** The name of the check in the health details and metrics.
+     *
+     * @return the name, the simple name of the class by default.
+     */
+    default String getName() {
+        return ClassUtils.getUserClass(getClass()).getSimpleName();
+    }
+
 }
@@ -0,0 +1,47 @@
+package com.frubana.operations.logistics.yms.health.service;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationInfoService;
+import org.flywaydb.core.api.MigrationState;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/** Checks the database has all the migrations applied and none failed.
+ */
+@Component
+public class MigrationHealthCheck implements HealthCheck {
+
+    /** The migrations of the database, null if Flyway is disabled. */
+    private final Flyway flyway;
+
+    /** Constructor.
+     *
+     * @param flyway The migrations of the database.
+     */
+    @Autowired
+    public MigrationHealthCheck(ObjectProvider<Flyway> flyway) {
+        this.flyway = flyway.getIfAvailable();
+    }
+
+    @Override
+    public boolean isServiceHealthy() {
+        if (flyway == null) {
+            return true;
+        }
+        MigrationInfoService info = flyway.info();
+        if (info.pending().length > 0) {
+            return false;
+        }
+        for (MigrationInfo migration : info.applied()) {
+            if (migration.getState() == MigrationState.FAILED) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String getName() { return "migrations"; }
+}
@@ -0,0 +1,71 @@
+package com.frubana.operations.logistics.yms.warehouse.application;
+
+import com.frubana.operations.logistics.yms.common.configuration.FormattedLogger;
+import com.frubana.operations.logistics.yms.common.utils.JsonUtils;
+import com.frubana.operations.logistics.yms.warehouse.service.WarehouseRelationRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+
+import static org.springframework.http.ResponseEntity.status;
+
+/** Entry point for the warehouse relations.
+ */
+@RestController
+@RequestMapping("/yms/warehouse")
+public class WarehouseRelationController {
+
+    /** Logger. */
+    private final Logger logger =
+            LoggerFactory.getLogger(WarehouseRelationController.class);
+
+    /** Formatter to set the log in a specific format and add the body as part
+     * of the same log. */
+    private final FormattedLogger logFormatter;
+
+    /** The registry of the relations, it's never null. */
+    private final WarehouseRelationRegistry registry;
+
+    /** Creates a new instance of the controller.
+     *
+     * @param registry     The registry to reload, required.
+     * @param logFormatter The formatter utility to log errors, required.
+     */
+    @Autowired
+    public WarehouseRelationController(WarehouseRelationRegistry registry,
+                                       FormattedLogger logFormatter) {
+        this.registry = registry;
+        this.logFormatter = logFormatter;
+    }
+
+    /** Forces the reload of the warehouse relations from the database.
+     *
+     * @return A JSON response with a message and status:
+     * <code>
+     * {
+     * "message": "Reloaded 1 warehouse relations",
+     * "status": 200
+     * }
+     * </code>
+     */
+    @PostMapping(
+            value = "/reload",
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public ResponseEntity<Object> reload() {
+        logFormatter.logInfo(logger, "reload", "Received request",
+                new HashMap<>());
+        int loaded = registry.reload();
+        return status(HttpStatus.OK).body(
+                JsonUtils.jsonResponse(HttpStatus.OK,
+                        "Reloaded " + loaded + " warehouse relations"));
+    }
+}
@@ -0,0 +1,70 @@
+package com.frubana.operations.logistics.yms.warehouse.domain.repository;
+
+import com.frubana.operations.logistics.yms.common.datasource.UsesWorkload;
+import com.frubana.operations.logistics.yms.common.datasource.Workload;
+import com.frubana.operations.logistics.yms.common.utils.WarehouseRelationUtils.WarehouseRelation;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.statement.Query;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/** Repository of the warehouse relations using JDBI.
+ */
+@Component
+public class WarehouseRelationRepository {
+
+    /** The JDBI instance to request data to the database, it's never null. */
+    private final Jdbi dbi;
+
+    /** Base constructor of the repository.
+     *
+     * @param jdbi the JDBI instance of the default database.
+     */
+    @Autowired
+    public WarehouseRelationRepository(Jdbi jdbi) {
+        this.dbi = jdbi;
+    }
+
+    /**
+     * Retrieve all the relations registered.
+     * @return the {@link WarehouseRelation} of each warehouse.
+     */
+    @UsesWorkload(Workload.BULK)
+    public Map<String, WarehouseRelation> getAll() {
+        String sql_query = "Select warehouse,name,country,region " +
+                "from warehouse_relation";
+        try (Handle handler = dbi.open();
+             Query query_string = handler.createQuery(sql_query)) {
+            Map<String, WarehouseRelation> relations = query_string
+                    .map((rs, ctx) -> Map.entry(rs.getString("warehouse"),
+                            new WarehouseRelation(
+                                    rs.getString("name"),
+                                    rs.getString("country"),
+                                    rs.getString("region"))))
+                    .collect(Collectors.toMap(Map.Entry::getKey,
+                            Map.Entry::getValue));
+            handler.close();
+            return relations;
+        }
+    }
+
+    /**
+     * Retrieve a value that changes every time a relation is added, removed
+     * or updated, each insert or update takes a new revision.
+     * @return the version of the relations.
+     */
+    public String getVersion() {
+        String sql_query = "Select count(*) || '@' || " +
+                "coalesce(max(revision), 0) from warehouse_relation";
+        try (Handle handler = dbi.open();
+             Query query_string = handler.createQuery(sql_query)) {
+            String version = query_string.mapTo(String.class).first();
+            handler.close();
+            return version;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.frubana.operations.logistics.yms.warehouse.service;
+
+import com.frubana.operations.logistics.yms.common.configuration.FormattedLogger;
+import com.frubana.operations.logistics.yms.common.utils.WarehouseRelationUtils;
+import com.frubana.operations.logistics.yms.common.utils.WarehouseRelationUtils.WarehouseRelation;
+import com.frubana.operations.logistics.yms.health.service.HealthCheck;
+import com.frubana.operations.logistics.yms.warehouse.domain.repository.WarehouseRelationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/** Keeps the {@link WarehouseRelationUtils} in sync with the relations stored
+ * in the database.
+ * <p> The relations are loaded before the other tasks of the startup and
+ * then checked periodically and reloaded only when they changed, the reload
+ * builds a new snapshot and swaps it in one step. The readiness stays down
+ * until they are loaded, as the warehouses are routed to their database by
+ * them.
+ */
+@Component
+public class WarehouseRelationRegistry implements HealthCheck {
+
+    /** Logger. */
+    private final Logger logger =
+            LoggerFactory.getLogger(WarehouseRelationRegistry.class);
+
+    /** Formatter to set the log in a specific format, it's never null. */
+    private final FormattedLogger logFormatter;
+
+    /** The repository to ask for the relations, it's never null. */
+    private final WarehouseRelationRepository repository;
+
+    /** The version of the loaded relations, null if not loaded yet. */
+    private volatile String loadedVersion;
+
+    /** Constructor.
+     *
+     * @param repository   Repository to extract the relations.
+     * @param logFormatter Formatter to set the log, required.
+     */
+    @Autowired
+    public WarehouseRelationRegistry(WarehouseRelationRepository repository,
+                                     FormattedLogger logFormatter) {
+        this.repository = repository;
+        this.logFormatter = logFormatter;
+    }
+
+    /** Loads the relations once the application is ready, the migrations
+     * already ran, before the listeners that read the warehouses.
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        refresh();
+    }
+
+    /** Reloads the relations if they changed since the last load, keeping
+     * the current ones if the database cannot be reached.
+     */
+    @Scheduled(fixedDelayString =
+            "${yms.warehouse-relations.refresh-interval:60000}")
+    public void refresh() {
+        try {
+            if (!Objects.equals(loadedVersion, repository.getVersion())) {
+                reload();
+            }
+        } catch (RuntimeException e) {
+            logFormatter.logError(logger, "refresh",
+                    "Couldn't refresh the warehouse relations", null, e);
+        }
+    }
+
+    /** Loads all the relations from the database and replaces the current
+     * ones.
+     *
+     * @return the number of relations loaded.
+     */
+    public synchronized int reload() {
+        String version = repository.getVersion();
+        Map<String, WarehouseRelation> relations = repository.getAll();
+        WarehouseRelationUtils.replaceRelations(relations);
+        loadedVersion = version;
+
+        HashMap<String, Object> params = new HashMap<>();
+        params.put("version", version);
+        params.put("warehouses", relations.keySet());
+        logFormatter.logInfo(logger, "reload",
+                "Loaded the warehouse relations", params);
+        return relations.size();
+    }
+
+    /** {@inheritDoc}
+     * <p> It's down until the relations are loaded from the database.
+     */
+    @Override
+    public boolean isServiceHealthy() {
+        return loadedVersion != null;
+    }
+
+    @Override
+    public String getName() { return "warehouse-relations"; }
+}
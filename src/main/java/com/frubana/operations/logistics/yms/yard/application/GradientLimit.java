@@ -0,0 +1,119 @@
+package com.frubana.operations.logistics.yms.yard.application;
+
+/** Concurrency limit that follows the latency of the requests.
+ * <p> The limit is scaled by the gradient between the long term latency
+ * and the recent one: it grows by its square root while the recent
+ * latency is within the tolerance of the long term one and shrinks, down
+ * to half per update, when the requests start queueing. The long term
+ * latency decays when the recent one stays far below it, so the limit
+ * recovers after a slow period.
+ * <p> Writes may use the whole limit, reads only the part not reserved for
+ * the writes, so the reads are the first rejected under load.
+ */
+public class GradientLimit {
+
+    /** The samples averaged by the recent latency. */
+    private static final double SHORT_WINDOW = 10;
+
+    /** The samples averaged by the long term latency. */
+    private static final double LONG_WINDOW = 600;
+
+    /** The recent latency accepted over the long term one. */
+    private static final double TOLERANCE = 1.5;
+
+    /** The lowest limit. */
+    private final int min;
+
+    /** The highest limit. */
+    private final int max;
+
+    /** The weight of each new limit, between 0 and 1. */
+    private final double smoothing;
+
+    /** The part of the limit only the writes can use, between 0 and 1. */
+    private final double writeReserve;
+
+    /** The current limit, guarded by this. */
+    private double limit;
+
+    /** The requests in progress, guarded by this. */
+    private int inflight;
+
+    /** The recent latency in nanoseconds, 0 before the first sample. */
+    private double shortRtt;
+
+    /** The long term latency in nanoseconds, 0 before the first sample. */
+    private double longRtt;
+
+    /** Constructor.
+     *
+     * @param initial      The limit before the first sample.
+     * @param min          The lowest limit, at least 1.
+     * @param max          The highest limit.
+     * @param smoothing    The weight of each new limit, between 0 and 1.
+     * @param writeReserve The part of the limit only the writes can use.
+     */
+    public GradientLimit(int initial, int min, int max, double smoothing,
+                         double writeReserve) {
+        this.min = Math.max(1, min);
+        this.max = Math.max(this.min, max);
+        this.limit = Math.min(this.max, Math.max(this.min, initial));
+        this.smoothing = smoothing;
+        this.writeReserve = writeReserve;
+    }
+
+    /** Starts a request if it fits in the limit.
+     *
+     * @param write If the request is a write.
+     * @return true if the request can start, it must be released then.
+     */
+    public synchronized boolean tryAcquire(boolean write) {
+        double available = write ? limit : limit * (1 - writeReserve);
+        if (inflight >= Math.max(1, (int) available)) {
+            return false;
+        }
+        inflight++;
+        return true;
+    }
+
+    /** Finishes a request without using its latency.
+     */
+    public synchronized void release() {
+        inflight--;
+    }
+
+    /** Finishes a request and updates the limit with its latency.
+     *
+     * @param rtt The nanoseconds of the request.
+     */
+    public synchronized void release(long rtt) {
+        int concurrent = inflight--;
+        if (longRtt == 0) {
+            shortRtt = rtt;
+            longRtt = rtt;
+            return;
+        }
+        shortRtt += (rtt - shortRtt) / SHORT_WINDOW;
+        longRtt += (rtt - longRtt) / LONG_WINDOW;
+        if (longRtt > shortRtt * 2) {
+            // The latency dropped for long, forget the slow period.
+            longRtt *= 0.95;
+        }
+        if (concurrent < limit / 2) {
+            // The requests don't use the limit, their latency doesn't say
+            // if it's too high.
+            return;
+        }
+        double gradient = Math.max(0.5,
+                Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+        double next = limit * gradient + Math.sqrt(limit);
+        limit = Math.min(max, Math.max(min,
+                limit * (1 - smoothing) + next * smoothing));
+    }
+
+    /** @return the current limit. */
+    public synchronized int getLimit() { return (int) limit; }
+
+    /** @return the requests in progress. */
+    public synchronized int getInflight() { return inflight; }
+}
@@ -0,0 +1,164 @@
+package com.frubana.operations.logistics.yms.yard.application;
+
+import com.frubana.operations.logistics.yms.common.utils.JsonUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/** Sheds the requests of the yards that exceed an adaptive concurrency
+ * limit, before they queue in Tomcat and the service.
+ * <p> The limit follows the latency of the requests with a
+ * {@link GradientLimit}. The exceeding requests are answered at once with
+ * 503 and a {@code Retry-After}; the registrations and releases of yards
+ * may use the whole limit, the reads only the part left by
+ * {@code yms.limit.write-reserve}. The streams and long polls are admitted
+ * by the limit but their latency is not sampled. The limit, the requests
+ * in progress and the rejections by priority are exported in
+ * {@code yms.limit.*}.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class YardConcurrencyLimiter extends OncePerRequestFilter {
+
+    /** Name of the gauge of the limit. */
+    public static final String LIMIT_METRIC = "yms.limit.limit";
+
+    /** Name of the gauge of the requests in progress. */
+    public static final String INFLIGHT_METRIC = "yms.limit.inflight";
+
+    /** Name of the counter of the rejected requests. */
+    public static final String REJECTED_METRIC = "yms.limit.rejected";
+
+    /** The path of the limited requests. */
+    private static final String PATH = "/yms/yard/";
+
+    /** If the requests are limited. */
+    private final boolean enabled;
+
+    /** The limit of the requests, it's never null. */
+    private final GradientLimit limit;
+
+    /** The seconds the rejected clients are asked to wait. */
+    private final String retryAfter;
+
+    /** The rejected writes. */
+    private final Counter rejectedWrites;
+
+    /** The rejected reads. */
+    private final Counter rejectedReads;
+
+    /** The body of the rejections. */
+    private final byte[] rejection;
+
+    /** Constructor.
+     *
+     * @param registry     The registry of the metrics of the limit.
+     * @param enabled      If the requests are limited.
+     * @param initial      The limit before the first request.
+     * @param min          The lowest limit.
+     * @param max          The highest limit.
+     * @param smoothing    The weight of each new limit, between 0 and 1.
+     * @param writeReserve The part of the limit only the writes can use.
+     * @param retryAfter   The seconds the rejected clients should wait.
+     * @throws IOException if the body of the rejections cannot be written.
+     */
+    @Autowired
+    public YardConcurrencyLimiter(
+            MeterRegistry registry,
+            @Value("${yms.limit.enabled:true}") boolean enabled,
+            @Value("${yms.limit.initial:20}") int initial,
+            @Value("${yms.limit.min:4}") int min,
+            @Value("${yms.limit.max:200}") int max,
+            @Value("${yms.limit.smoothing:0.2}") double smoothing,
+            @Value("${yms.limit.write-reserve:0.2}") double writeReserve,
+            @Value("${yms.limit.retry-after:1}") int retryAfter)
+            throws IOException {
+        this.enabled = enabled;
+        this.limit = new GradientLimit(initial, min, max, smoothing,
+                writeReserve);
+        this.retryAfter = String.valueOf(retryAfter);
+        this.rejection = JsonUtils.instance.writeValueAsBytes(
+                JsonUtils.jsonResponse(HttpStatus.SERVICE_UNAVAILABLE,
+                        "Too many requests, retry later"));
+        Gauge.builder(LIMIT_METRIC, limit, GradientLimit::getLimit)
+                .register(registry);
+        Gauge.builder(INFLIGHT_METRIC, limit, GradientLimit::getInflight)
+                .register(registry);
+        this.rejectedWrites = Counter.builder(REJECTED_METRIC)
+                .tag("priority", "write").register(registry);
+        this.rejectedReads = Counter.builder(REJECTED_METRIC)
+                .tag("priority", "read").register(registry);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = path(request);
+        return !enabled || !path.startsWith(PATH)
+                || path.endsWith("/healthz");
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain chain)
+            throws ServletException, IOException {
+        boolean write = isWrite(request);
+        if (!limit.tryAcquire(write)) {
+            (write ? rejectedWrites : rejectedReads).increment();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getOutputStream().write(rejection);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                limit.release();
+            } else {
+                limit.release(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /** @return the limit of the requests. */
+    GradientLimit getLimit() { return limit; }
+
+    /** The registrations and releases of yards are writes, the lookups are
+     * posted but only read.
+     *
+     * @param request The request.
+     * @return true if the request is a write.
+     */
+    private static boolean isWrite(HttpServletRequest request) {
+        return HttpMethod.POST.matches(request.getMethod())
+                && !path(request).endsWith("/lookup");
+    }
+
+    /** @param request The request.
+     * @return the path of the request inside the application. */
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(
+                request.getContextPath().length());
+    }
+}
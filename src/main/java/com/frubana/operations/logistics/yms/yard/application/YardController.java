@@ -2,18 +2,31 @@ package com.frubana.operations.logistics.yms.yard.application;
 
 import com.frubana.operations.logistics.yms.common.configuration.FormattedLogger;
 import com.frubana.operations.logistics.yms.common.utils.JsonUtils;
+import com.frubana.operations.logistics.yms.yard.domain.ColorPalette;
+import com.frubana.operations.logistics.yms.yard.domain.OccupancySummary;
 import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import com.frubana.operations.logistics.yms.yard.domain.YardChangePage;
+import com.frubana.operations.logistics.yms.yard.domain.YardLookup;
+import com.frubana.operations.logistics.yms.yard.domain.YardOverview;
+import com.frubana.operations.logistics.yms.yard.service.YardChangeFeed;
 import com.frubana.operations.logistics.yms.yard.service.YardService;
+import com.frubana.operations.logistics.yms.yard.service.YardWaiters;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import reactor.core.publisher.Flux;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 
 import static org.springframework.http.ResponseEntity.status;
@@ -24,6 +37,14 @@ import static org.springframework.http.ResponseEntity.status;
 @RequestMapping("/yms/yard")
 public class YardController {
 
+    /** The media type of the Jackson Smile responses, the yard endpoints
+     * also answer CBOR and protobuf through the {@code Accept} header. */
+    public static final String SMILE_VALUE = "application/x-jackson-smile";
+
+    /** Header with the warehouses missing from the overview. */
+    public static final String INCOMPLETE_WAREHOUSES_HEADER =
+            "X-Incomplete-Warehouses";
+
     /** Logger. */
     private final Logger logger =
             LoggerFactory.getLogger(YardController.class);
@@ -36,18 +57,48 @@ public class YardController {
     /** The jackson's object mapper, it's never null. */
     private final YardService yardService;
 
+    /** The feed of the changes of the yards, it's never null. */
+    private final YardChangeFeed changeFeed;
+
+    /** The requests waiting for a free yard, it's never null. */
+    private final YardWaiters waiters;
+
+    /** The serialized listings of the warehouses, it's never null. */
+    private final YardListingCache listingCache;
+
+    /** The maximum milliseconds a request waits for a free yard. */
+    @Value("${yms.await-free.max-timeout:30000}")
+    private long maxAwaitTimeout;
+
+    /** The maximum number of ids of a lookup. */
+    @Value("${yms.lookup.max-ids:500}")
+    private int maxLookupIds;
+
+    /** The maximum number of changes returned by request. */
+    @Value("${yms.changes.max-limit:1000}")
+    private int maxChanges;
+
 
 
     /** Creates a new instance of the controller.
      *
      * @param yardService   The service used to process the requests,
      *                         required.
+     * @param changeFeed       The feed of the changes of the yards, required.
+     * @param waiters          The requests waiting for a free yard, required.
+     * @param listingCache     The serialized listings, required.
      * @param logFormatter     The formatter utility to log errors, required.
      */
     @Autowired
     public YardController(YardService yardService,
+                          YardChangeFeed changeFeed,
+                          YardWaiters waiters,
+                          YardListingCache listingCache,
                           FormattedLogger logFormatter) {
         this.yardService = yardService;
+        this.changeFeed = changeFeed;
+        this.waiters = waiters;
+        this.listingCache = listingCache;
         this.logFormatter = logFormatter;
 
     }
@@ -77,7 +128,9 @@ public class YardController {
      */
     @GetMapping(
             value =  "/{warehouse}/{id}",
-            produces = MediaType.APPLICATION_JSON_VALUE
+            produces = {MediaType.APPLICATION_JSON_VALUE, SMILE_VALUE,
+                    MediaType.APPLICATION_CBOR_VALUE,
+                    YardProtobufHttpMessageConverter.PROTOBUF_VALUE}
     )
     public ResponseEntity<Object> getYardInWarehouseById(
             @PathVariable(value = "warehouse") String warehouse,
@@ -89,14 +142,12 @@ public class YardController {
         logFormatter.logInfo(logger, "getYard", "Received request", params);
 
         if (id == null || id.isBlank()) {
-            return status(HttpStatus.BAD_REQUEST).body(
-                    JsonUtils.jsonResponse(HttpStatus.BAD_REQUEST,
-                            "The id cannot be null or empty"));
+            return JsonUtils.errorResponse(HttpStatus.BAD_REQUEST,
+                    "The id cannot be null or empty");
         }
         if (warehouse == null || warehouse.isBlank()) {
-            return status(HttpStatus.BAD_REQUEST).body(
-                    JsonUtils.jsonResponse(HttpStatus.BAD_REQUEST,
-                            "The warehouse cannot be null or empty"));
+            return JsonUtils.errorResponse(HttpStatus.BAD_REQUEST,
+                    "The warehouse cannot be null or empty");
         }
 
         if (yardService.exists(id, warehouse)) {
@@ -108,16 +159,62 @@ public class YardController {
             if(yard != null)
                 return status(HttpStatus.OK).body(yard);
             else
-                return status(HttpStatus.NOT_FOUND).body("Yard not Found");
+                return JsonUtils.errorResponse(HttpStatus.NOT_FOUND,
+                        "Yard not Found");
         }
 
         return status(HttpStatus.NO_CONTENT).body(null);
     }
 
 
-    /** Returns the yards of the given warehouse.
+    /** Returns the yards of several ids with a single query.
+     *
+     * @param warehouse The warehouse where the yards belong.
+     * @param ids       The ids of the yards, up to
+     *                  {@code yms.lookup.max-ids}.
+     * @return A JSON representing the yards found and the missing ids:
+     * <code>
+     * {@link YardLookup}
+     * </code>
+     */
+    @PostMapping(
+            value =  "/{warehouse}/lookup",
+            produces = {MediaType.APPLICATION_JSON_VALUE, SMILE_VALUE,
+                    MediaType.APPLICATION_CBOR_VALUE,
+                    YardProtobufHttpMessageConverter.PROTOBUF_VALUE}
+    )
+    public ResponseEntity<Object> lookupYardsInWarehouse(
+            @PathVariable(value = "warehouse") String warehouse,
+            @RequestBody final List<Integer> ids) {
+        //Logging the given info
+        HashMap<String, Object> params = new HashMap<>();
+        params.put("warehouse", warehouse);
+        params.put("ids", ids);
+        logFormatter.logInfo(logger, "lookupYardsInWarehouse",
+                "Received request", params);
+        if (warehouse == null || warehouse.isBlank()) {
+            return JsonUtils.errorResponse(HttpStatus.BAD_REQUEST,
+                    "The warehouse cannot be null or empty");
+        }
+        if (ids == null || ids.isEmpty() || ids.contains(null)) {
+            return JsonUtils.errorResponse(HttpStatus.BAD_REQUEST,
+                    "The ids cannot be null or empty");
+        }
+        List<Integer> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        if (distinct.size() > maxLookupIds) {
+            return JsonUtils.errorResponse(HttpStatus.BAD_REQUEST,
+                    "The ids cannot be more than " + maxLookupIds);
+        }
+        return status(HttpStatus.OK).body(
+                yardService.lookup(distinct, warehouse));
+    }
+
+
+    /** Returns the yards of the given warehouse grouped by color, the
+     * serialized listing is reused until the warehouse changes.
      *
      * @param warehouse The warehouse where the task belongs.
+     * @param accept    The formats accepted by the client.
      * @return A JSON representing a some object:
      * <code>
      * {@link Yard}
@@ -125,43 +222,44 @@ public class YardController {
      */
     @GetMapping(
             value =  "/{warehouse}/",
-            produces = MediaType.APPLICATION_JSON_VALUE
+            produces = {MediaType.APPLICATION_JSON_VALUE, SMILE_VALUE,
+                    MediaType.APPLICATION_CBOR_VALUE,
+                    YardProtobufHttpMessageConverter.PROTOBUF_VALUE}
     )
     public ResponseEntity<Object> getAllYardsInWarehouse(
-            @PathVariable(value = "warehouse") String warehouse) {
+            @PathVariable(value = "warehouse") String warehouse,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false)
+                    String accept) {
         //Logging the given info
         HashMap<String, Object> params = new HashMap<>();
         params.put("warehouse", warehouse);
         logFormatter.logInfo(logger, "getAllYardsInWarehouse",
                 "Received request", params);
         if (warehouse == null || warehouse.isBlank()) {
-            return status(HttpStatus.BAD_REQUEST).body(
-                    JsonUtils.jsonResponse(HttpStatus.BAD_REQUEST,
-                            "The warehouse cannot be null or empty"));
+            return JsonUtils.errorResponse(HttpStatus.BAD_REQUEST,
+                    "The warehouse cannot be null or empty");
         }
 
-        // Register the yard throws an error if something fails.
-        List<Yard> yards = yardService.getYards(warehouse);
-        params.put("yards", yards);
-        HashMap<String,List<Yard>> yardsByWhs= new HashMap<>();
-        for(Yard yard : yards) {
-            if(!yardsByWhs.containsKey(yard.getColor())){
-                yardsByWhs.put(yard.getColor(), new ArrayList<>());
-            }
-            List currentYards = yardsByWhs.get(yard.getColor());
-            currentYards.add(yard);
-            yardsByWhs.put(yard.getColor(), currentYards);
-        }
+        // The version is read first so the cached listing is never newer
+        // than its version.
+        long version = yardService.getVersion(warehouse);
+        MediaType mediaType = listingCache.negotiate(accept);
+        byte[] body = listingCache.get(warehouse, version, mediaType, () -> {
+            // Register the yard throws an error if something fails.
+            List<Yard> yards = yardService.getYards(warehouse, version);
+            params.put("yards", yards);
+            return YardListingCache.byColor(yards);
+        });
+        params.put("version", version);
 
         logFormatter.logInfo(logger, "obtainAYard", "found the Yard",
                 params);
-        if(yards != null)
-            return status(HttpStatus.OK).body(yardsByWhs);
-        else
-            return status(HttpStatus.NOT_FOUND).body("Yard not Found");
+        return status(HttpStatus.OK).contentType(mediaType).body(body);
     }
 
-    /** Returns the yard of the given id.
+    /** Returns the yards of every warehouse, the warehouses are read in
+     * parallel and the ones that couldn't be read in time are left out and
+     * listed in the {@code X-Incomplete-Warehouses} header.
      *
      * @return A JSON representing a some object:
      * <code>
@@ -172,7 +270,9 @@ public class YardController {
      */
     @GetMapping(
             value =  "/",
-            produces = MediaType.APPLICATION_JSON_VALUE
+            produces = {MediaType.APPLICATION_JSON_VALUE, SMILE_VALUE,
+                    MediaType.APPLICATION_CBOR_VALUE,
+                    YardProtobufHttpMessageConverter.PROTOBUF_VALUE}
     )
     public ResponseEntity<Object> getAllYardsByWarehouse() {
         //Logging the given info
@@ -180,25 +280,195 @@ public class YardController {
         logFormatter.logInfo(logger, "getAllYardsByWarehouse",
                 "Received request", params);
         // Register the yard throws an error if something fails.
-        List<Yard> yards = yardService.getYards();
-        params.put("yards", yards);
-        HashMap<String,List<Yard>> yardsByWhs= new HashMap<>();
-        for (Yard yard:yards) {
-            if( !yardsByWhs.containsKey(yard.getWarehouse())) {
-                yardsByWhs.put(yard.getWarehouse(), new ArrayList<>());
-            }
-            List<Yard> currentYards=yardsByWhs.get(yard.getWarehouse());
-            currentYards.add(yard);
-            yardsByWhs.put(yard.getWarehouse(),currentYards);
+        YardOverview overview = yardService.getOverview();
+        params.put("warehouses", overview.getYards().keySet());
+        params.put("incomplete", overview.getIncomplete());
+
+        logFormatter.logInfo(logger, "obtainAYard", "found the Yard",
+                params);
+        if (overview.getYards().isEmpty() && overview.isComplete())
+            return JsonUtils.errorResponse(HttpStatus.NOT_FOUND,
+                    "Yard not Found");
+        ResponseEntity.BodyBuilder response = status(HttpStatus.OK);
+        if (!overview.isComplete()) {
+            response.header(INCOMPLETE_WAREHOUSES_HEADER,
+                    String.join(",", overview.getIncomplete()));
         }
+        return response.body(overview.getYards());
+    }
 
+    /** Streams the yards of the given warehouse as Server-Sent Events.
+     * <p> The first event is a {@code snapshot} with the yards, followed by
+     * a {@code change} event for each registered or freed yard and a
+     * heartbeat comment while there are no changes. A subscriber that falls
+     * behind receives a new {@code snapshot}.
+     *
+     * @param warehouse The warehouse where the yards belong.
+     * @return the stream of events:
+     * <code>
+     * event:snapshot
+     * data:[{@link Yard}]
+     *
+     * event:change
+     * data:{@link com.frubana.operations.logistics.yms.yard.domain.YardChangedEvent}
+     * </code>
+     */
+    @GetMapping(
+            value =  "/{warehouse}/stream",
+            produces = MediaType.TEXT_EVENT_STREAM_VALUE
+    )
+    public Flux<ServerSentEvent<Object>> streamYardsInWarehouse(
+            @PathVariable(value = "warehouse") String warehouse) {
+        //Logging the given info
+        HashMap<String, Object> params = new HashMap<>();
+        params.put("warehouse", warehouse);
+        logFormatter.logInfo(logger, "streamYardsInWarehouse",
+                "Received request", params);
+        return changeFeed.subscribe(warehouse);
+    }
 
-        logFormatter.logInfo(logger, "obtainAYard", "found the Yard",
+    /** Returns the changes of the yards of a warehouse committed after the
+     * given sequence, so the consumers can sync without reading all the
+     * yards.
+     * <p> The sequence is only ordered inside each warehouse, and each
+     * country database has its own, so the warehouse is required.
+     *
+     * @param since     The last sequence known by the consumer, 0 to start
+     *                  from the beginning.
+     * @param limit     The maximum number of changes to return.
+     * @param warehouse The warehouse of the changes.
+     * @return A JSON representing the changes:
+     * <code>
+     * {@link YardChangePage}
+     * </code>
+     */
+    @GetMapping(
+            value =  "/changes",
+            produces = {MediaType.APPLICATION_JSON_VALUE, SMILE_VALUE,
+                    MediaType.APPLICATION_CBOR_VALUE}
+    )
+    public ResponseEntity<Object> getChanges(
+            @RequestParam(value = "since", defaultValue = "0") long since,
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            @RequestParam(value = "warehouse", required = false)
+                    String warehouse) {
+        //Logging the given info
+        HashMap<String, Object> params = new HashMap<>();
+        params.put("since", since);
+        params.put("limit", limit);
+        params.put("warehouse", warehouse);
+        logFormatter.logInfo(logger, "getChanges", "Received request", params);
+        if (since < 0) {
+            return JsonUtils.errorResponse(HttpStatus.BAD_REQUEST,
+                    "The since cannot be negative");
+        }
+        if (limit < 1 || limit > maxChanges) {
+            return JsonUtils.errorResponse(HttpStatus.BAD_REQUEST,
+                    "The limit must be between 1 and " + maxChanges);
+        }
+        if (warehouse == null || warehouse.isBlank()) {
+            return JsonUtils.errorResponse(HttpStatus.BAD_REQUEST,
+                    "The warehouse is required");
+        }
+        return status(HttpStatus.OK).body(yardService.getChanges(since, limit,
+                warehouse));
+    }
+
+    /** Waits until a yard of the given color is freed in the warehouse.
+     * <p> The request is parked without holding a thread, the waiters of the
+     * same warehouse and color are served in arrival order.
+     *
+     * @param warehouse The warehouse where the yard belongs.
+     * @param color     The color of the wanted yard in hex format.
+     * @param timeout   The milliseconds to wait, capped by
+     *                  {@code yms.await-free.max-timeout}.
+     * @return A JSON representing the freed yard, or a 204 Status Code if no
+     * yard was freed before the timeout:
+     * <code>
+     * {@link Yard}
+     * </code>
+     */
+    @GetMapping(
+            value =  "/{warehouse}/await-free",
+            produces = {MediaType.APPLICATION_JSON_VALUE, SMILE_VALUE,
+                    MediaType.APPLICATION_CBOR_VALUE,
+                    YardProtobufHttpMessageConverter.PROTOBUF_VALUE}
+    )
+    public DeferredResult<ResponseEntity<Object>> awaitFreeYard(
+            @PathVariable(value = "warehouse") String warehouse,
+            @RequestParam(value = "color") String color,
+            @RequestParam(value = "timeout", required = false) Long timeout) {
+        //Logging the given info
+        HashMap<String, Object> params = new HashMap<>();
+        params.put("warehouse", warehouse);
+        params.put("color", color);
+        params.put("timeout", timeout);
+        logFormatter.logInfo(logger, "awaitFreeYard", "Received request",
                 params);
-        if(!yards.isEmpty())
-            return status(HttpStatus.OK).body(yardsByWhs);
-        else
-            return status(HttpStatus.NOT_FOUND).body("Yard not Found");
+        int rgb;
+        try {
+            rgb = ColorPalette.parse(color);
+        } catch (IllegalArgumentException e) {
+            rgb = ColorPalette.NONE;
+        }
+        if (rgb == ColorPalette.NONE) {
+            DeferredResult<ResponseEntity<Object>> result =
+                    new DeferredResult<>();
+            result.setResult(JsonUtils.errorResponse(HttpStatus.BAD_REQUEST,
+                    "The color must have the format #RRGGBB"));
+            return result;
+        }
+        long wait = timeout == null || timeout <= 0 ? maxAwaitTimeout
+                : Math.min(timeout, maxAwaitTimeout);
+        return waiters.await(warehouse, rgb, wait);
+    }
+
+    /** Returns the used and free yards of each color of the warehouse.
+     *
+     * @param warehouse The warehouse where the yards belong.
+     * @return A JSON representing the occupancy:
+     * <code>
+     * {@link OccupancySummary}
+     * </code>
+     */
+    @GetMapping(
+            value =  "/{warehouse}/summary",
+            produces = {MediaType.APPLICATION_JSON_VALUE, SMILE_VALUE,
+                    MediaType.APPLICATION_CBOR_VALUE}
+    )
+    public ResponseEntity<Object> getSummaryOfWarehouse(
+            @PathVariable(value = "warehouse") String warehouse) {
+        //Logging the given info
+        HashMap<String, Object> params = new HashMap<>();
+        params.put("warehouse", warehouse);
+        logFormatter.logInfo(logger, "getSummaryOfWarehouse",
+                "Received request", params);
+        if (warehouse == null || warehouse.isBlank()) {
+            return JsonUtils.errorResponse(HttpStatus.BAD_REQUEST,
+                    "The warehouse cannot be null or empty");
+        }
+        return status(HttpStatus.OK).body(yardService.getSummary(warehouse));
+    }
+
+    /** Returns the used and free yards of each color by warehouse.
+     *
+     * @return A JSON representing the occupancy:
+     * <code>
+     * {@link HashMap}<{@link String} warehouse,
+     *                 {@link OccupancySummary}
+     *                >
+     * </code>
+     */
+    @GetMapping(
+            value =  "/summary",
+            produces = {MediaType.APPLICATION_JSON_VALUE, SMILE_VALUE,
+                    MediaType.APPLICATION_CBOR_VALUE}
+    )
+    public ResponseEntity<Object> getSummaryByWarehouse() {
+        //Logging the given info
+        logFormatter.logInfo(logger, "getSummaryByWarehouse",
+                "Received request", new HashMap<>());
+        return status(HttpStatus.OK).body(yardService.getSummaries());
     }
 
     /** Generates the yard.
@@ -215,7 +485,9 @@ public class YardController {
      */
     @PostMapping(
             value = "/{warehouse}/",
-            produces = MediaType.APPLICATION_JSON_VALUE
+            produces = {MediaType.APPLICATION_JSON_VALUE, SMILE_VALUE,
+                    MediaType.APPLICATION_CBOR_VALUE,
+                    YardProtobufHttpMessageConverter.PROTOBUF_VALUE}
     )
     public ResponseEntity<Object> register(
             @PathVariable(value = "warehouse") String warehouse,
@@ -228,18 +500,16 @@ public class YardController {
             logFormatter.logInfo(logger, "registerYard",
                     "Received request", params);
             if (yard == null) {
-                return status(HttpStatus.BAD_REQUEST).body(
-                        JsonUtils.jsonResponse(HttpStatus.BAD_REQUEST,
-                                "The Yard cannot be null"));
+                return JsonUtils.errorResponse(HttpStatus.BAD_REQUEST,
+                        "The Yard cannot be null");
             }
             return status(HttpStatus.CREATED).body(
                     yardService.registerYard(yard,warehouse)
             );
     	}catch (Exception e) {
-    		return status(HttpStatus.BAD_REQUEST).body(
-                    JsonUtils.jsonResponse(HttpStatus.BAD_REQUEST,
-                            "La estructura ingresada no es correcta. Ejemplo: "
-                    	    + "'color': '#D3D3D3' "));
+    		return JsonUtils.errorResponse(HttpStatus.BAD_REQUEST,
+                    "La estructura ingresada no es correcta. Ejemplo: "
+                    + "'color': '#D3D3D3' ");
     	}
     }
     
@@ -257,7 +527,9 @@ public class YardController {
      */
     @PostMapping(
             value = "/free/",
-            produces = MediaType.APPLICATION_JSON_VALUE
+            produces = {MediaType.APPLICATION_JSON_VALUE, SMILE_VALUE,
+                    MediaType.APPLICATION_CBOR_VALUE,
+                    YardProtobufHttpMessageConverter.PROTOBUF_VALUE}
     )
     public ResponseEntity<Object> liberar(
             @RequestBody final Yard yard) {
@@ -268,27 +540,24 @@ public class YardController {
             logFormatter.logInfo(logger, "registerYard",
                     "Received request", params);
             if (yard == null) {
-                return status(HttpStatus.BAD_REQUEST).body(
-                        JsonUtils.jsonResponse(HttpStatus.BAD_REQUEST,
-                                "The Yard cannot be null"));
+                return JsonUtils.errorResponse(HttpStatus.BAD_REQUEST,
+                        "The Yard cannot be null");
             }
 
             Yard yard2= yardService.liberar(yard);
             if(yard2 == null) { 
-               return status(HttpStatus.BAD_REQUEST).body(
-                        JsonUtils.jsonResponse(HttpStatus.BAD_REQUEST,
-                                    "yard no exist"));
+               return JsonUtils.errorResponse(HttpStatus.BAD_REQUEST,
+                       "yard no exist");
             }
             return status(HttpStatus.CREATED).body(
                     yard2
             );
     	}catch (Exception e) {
-    		return status(HttpStatus.BAD_REQUEST).body(
-                    JsonUtils.jsonResponse(HttpStatus.BAD_REQUEST,
-                            "La estructura ingresada no es correcta. Ejemplo:"
-                            + " warehouse:'AXM'," + 
-                            " color:'#0000ff'"+
-                            " assignation_Number: 1"));
+    		return JsonUtils.errorResponse(HttpStatus.BAD_REQUEST,
+                    "La estructura ingresada no es correcta. Ejemplo:"
+                    + " warehouse:'AXM'," + 
+                    " color:'#0000ff'"+
+                    " assignation_Number: 1");
 		}     
     }
  
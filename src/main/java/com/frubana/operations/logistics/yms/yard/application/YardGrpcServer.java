@@ -0,0 +1,108 @@
+package com.frubana.operations.logistics.yms.yard.application;
+
+import com.frubana.operations.logistics.yms.common.configuration.FormattedLogger;
+import io.grpc.Server;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/** Serves {@link YardGrpcService} on {@code yms.grpc.port}.
+ * <p> The calls run on their own {@code yms.grpc.threads} threads so the
+ * scanners don't compete with the HTTP requests for the servlet threads.
+ * Disabled with {@code yms.grpc.enabled}.
+ */
+@Component
+public class YardGrpcServer {
+
+    /** Logger. */
+    private final Logger logger = LoggerFactory.getLogger(YardGrpcServer.class);
+
+    /** Formatter to set the log in a specific format, it's never null. */
+    private final FormattedLogger logFormatter;
+
+    /** The service to serve, it's never null. */
+    private final YardGrpcService service;
+
+    /** If the server is started. */
+    private final boolean enabled;
+
+    /** The port of the server. */
+    private final int port;
+
+    /** The threads that run the calls, it's never null. */
+    private final ExecutorService executor;
+
+    /** The running server, null until the application is ready. */
+    private Server server;
+
+    /** Constructor.
+     *
+     * @param service      The service to serve.
+     * @param logFormatter Formatter to set the log, required.
+     * @param enabled      If the server is started.
+     * @param port         The port of the server.
+     * @param threads      The threads that run the calls.
+     */
+    @Autowired
+    public YardGrpcServer(YardGrpcService service,
+                          FormattedLogger logFormatter,
+                          @Value("${yms.grpc.enabled:true}") boolean enabled,
+                          @Value("${yms.grpc.port:9090}") int port,
+                          @Value("${yms.grpc.threads:16}") int threads) {
+        this.service = service;
+        this.logFormatter = logFormatter;
+        this.enabled = enabled;
+        this.port = port;
+        this.executor = Executors.newFixedThreadPool(threads,
+                new CustomizableThreadFactory("yms-grpc-"));
+    }
+
+    /** Starts the server once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || server != null) {
+            return;
+        }
+        try {
+            server = NettyServerBuilder.forPort(port)
+                    .executor(executor)
+                    .addService(service)
+                    .build()
+                    .start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        HashMap<String, Object> params = new HashMap<>();
+        params.put("port", server.getPort());
+        logFormatter.logInfo(logger, "start", "Started the gRPC server",
+                params);
+    }
+
+    /** Stops the server letting the running calls finish.
+     *
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+        if (server != null) {
+            server.shutdown().awaitTermination(5, TimeUnit.SECONDS);
+            server.shutdownNow();
+        }
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,305 @@
+package com.frubana.operations.logistics.yms.yard.application;
+
+import com.frubana.operations.logistics.yms.common.configuration.FormattedLogger;
+import com.frubana.operations.logistics.yms.yard.domain.ColorPalette;
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import com.frubana.operations.logistics.yms.yard.domain.YardChangedEvent;
+import com.frubana.operations.logistics.yms.yard.domain.proto.FreeRequest;
+import com.frubana.operations.logistics.yms.yard.domain.proto.LookupRequest;
+import com.frubana.operations.logistics.yms.yard.domain.proto.RegisterRequest;
+import com.frubana.operations.logistics.yms.yard.domain.proto.WatchRequest;
+import com.frubana.operations.logistics.yms.yard.domain.proto.YardChange;
+import com.frubana.operations.logistics.yms.yard.domain.proto.YardEvent;
+import com.frubana.operations.logistics.yms.yard.domain.proto.YardLookup;
+import com.frubana.operations.logistics.yms.yard.domain.proto.YardsGrpc;
+import com.frubana.operations.logistics.yms.yard.service.YardChangeFeed;
+import com.frubana.operations.logistics.yms.yard.service.YardService;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.BaseSubscriber;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/** The gRPC service of the gate scanners, it answers the same as the
+ * register, free, lookup and stream endpoints of {@link YardController}
+ * without the overhead of HTTP/1.1 and JSON.
+ */
+@Component
+public class YardGrpcService extends YardsGrpc.YardsImplBase {
+
+    /** Logger. */
+    private final Logger logger = LoggerFactory.getLogger(YardGrpcService.class);
+
+    /** Formatter to set the log in a specific format, it's never null. */
+    private final FormattedLogger logFormatter;
+
+    /** The service to handle the yards, it's never null. */
+    private final YardService yardService;
+
+    /** The feed of the changes of the yards, it's never null. */
+    private final YardChangeFeed changeFeed;
+
+    /** The most ids resolved by a lookup. */
+    private final int maxLookupIds;
+
+    /** Constructor.
+     *
+     * @param yardService  The service to handle the yards.
+     * @param changeFeed   The feed of the changes of the yards.
+     * @param logFormatter Formatter to set the log, required.
+     * @param maxLookupIds The most ids resolved by a lookup.
+     */
+    @Autowired
+    public YardGrpcService(YardService yardService, YardChangeFeed changeFeed,
+                           FormattedLogger logFormatter,
+                           @Value("${yms.lookup.max-ids:500}")
+                                   int maxLookupIds) {
+        this.yardService = yardService;
+        this.changeFeed = changeFeed;
+        this.logFormatter = logFormatter;
+        this.maxLookupIds = maxLookupIds;
+    }
+
+    @Override
+    public void register(RegisterRequest request,
+                         StreamObserver<
+                                 com.frubana.operations.logistics.yms.yard
+                                         .domain.proto.Yard> observer) {
+        if (request.getWarehouse().isBlank()) {
+            invalid(observer, "The warehouse cannot be null or empty");
+            return;
+        }
+        Yard yard = new Yard();
+        yard.setColor(ColorPalette.toHex(request.getColor()));
+        answer(observer, "register", () -> YardProtobufHttpMessageConverter
+                .toMessage(yardService.registerYard(yard,
+                        request.getWarehouse())));
+    }
+
+    @Override
+    public void free(FreeRequest request,
+                     StreamObserver<
+                             com.frubana.operations.logistics.yms.yard.domain
+                                     .proto.Yard> observer) {
+        if (request.getWarehouse().isBlank()) {
+            invalid(observer, "The warehouse cannot be null or empty");
+            return;
+        }
+        Yard yard = new Yard();
+        yard.AssignWarehouse(request.getWarehouse());
+        yard.setAssignationNumber(request.getAssignationNumber());
+        yard.setColor(ColorPalette.toHex(request.getColor()));
+        answer(observer, "free", () -> {
+            Yard freed = yardService.liberar(yard);
+            if (freed == null) {
+                throw Status.NOT_FOUND
+                        .withDescription("yard no exist")
+                        .asRuntimeException();
+            }
+            return YardProtobufHttpMessageConverter.toMessage(freed);
+        });
+    }
+
+    @Override
+    public void lookup(LookupRequest request,
+                       StreamObserver<YardLookup> observer) {
+        if (request.getWarehouse().isBlank()) {
+            invalid(observer, "The warehouse cannot be null or empty");
+            return;
+        }
+        List<Integer> ids = new ArrayList<>(
+                new LinkedHashSet<>(request.getIdsList()));
+        if (ids.isEmpty()) {
+            invalid(observer, "The ids cannot be null or empty");
+            return;
+        }
+        if (ids.size() > maxLookupIds) {
+            invalid(observer, "The ids cannot be more than " + maxLookupIds);
+            return;
+        }
+        answer(observer, "lookup", () -> (YardLookup)
+                YardProtobufHttpMessageConverter.toMessage(
+                        yardService.lookup(ids, request.getWarehouse())));
+    }
+
+    /** Streams the snapshot and changes of {@link YardChangeFeed}, the
+     * heartbeats are left out since the clients rely on the keepalive of
+     * the channel.
+     * <p> The events are requested from the feed one at a time while the
+     * transport is ready, so a slow scanner falls behind in the feed and
+     * is sent a new snapshot instead of buffering in the server.
+     */
+    @Override
+    public void watch(WatchRequest request,
+                      StreamObserver<YardEvent> observer) {
+        if (request.getWarehouse().isBlank()) {
+            invalid(observer, "The warehouse cannot be null or empty");
+            return;
+        }
+        ServerCallStreamObserver<YardEvent> call =
+                (ServerCallStreamObserver<YardEvent>) observer;
+        WatchSubscriber subscriber = new WatchSubscriber(call,
+                error -> failed(call, "watch", error));
+        call.setOnReadyHandler(subscriber::demand);
+        call.setOnCancelHandler(subscriber::dispose);
+        changeFeed.subscribe(request.getWarehouse()).subscribe(subscriber);
+    }
+
+    /** Sends the events of the feed to a watch, requesting the next one
+     * only when the previous arrived and the transport is ready.
+     * <p> Both the ready handler of the call and the arrival of an event
+     * ask for more, so the request in flight is tracked to never have more
+     * than one event requested.
+     */
+    static class WatchSubscriber extends BaseSubscriber<ServerSentEvent<Object>> {
+
+        /** The call of the watch, it's never null. */
+        private final ServerCallStreamObserver<YardEvent> call;
+
+        /** Answers the call with an error of the feed, it's never null. */
+        private final Consumer<Throwable> failure;
+
+        /** If an event was requested and didn't arrive yet, it starts set
+         * until the subscription since the requests before it are lost. */
+        private final AtomicBoolean requested = new AtomicBoolean(true);
+
+        /** Constructor.
+         *
+         * @param call    The call of the watch.
+         * @param failure Answers the call with an error of the feed.
+         */
+        WatchSubscriber(ServerCallStreamObserver<YardEvent> call,
+                        Consumer<Throwable> failure) {
+            this.call = call;
+            this.failure = failure;
+        }
+
+        /** Requests the next event if the transport is ready and no event
+         * is requested already.
+         */
+        void demand() {
+            if (call.isReady() && requested.compareAndSet(false, true)) {
+                request(1);
+            }
+        }
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            requested.set(false);
+            demand();
+        }
+
+        @Override
+        protected void hookOnNext(ServerSentEvent<Object> event) {
+            YardEvent message = toEvent(event);
+            if (message != null) {
+                call.onNext(message);
+            }
+            requested.set(false);
+            demand();
+        }
+
+        @Override
+        protected void hookOnComplete() {
+            call.onCompleted();
+        }
+
+        @Override
+        protected void hookOnError(Throwable error) {
+            failure.accept(error);
+        }
+    }
+
+    /** Converts an event of the feed.
+     *
+     * @param event The event of the feed.
+     * @return the {@link YardEvent}, or null for the heartbeats.
+     */
+    static YardEvent toEvent(ServerSentEvent<Object> event) {
+        if (YardChangeFeed.SNAPSHOT_EVENT.equals(event.event())) {
+            return YardEvent.newBuilder()
+                    .setSnapshot(YardProtobufHttpMessageConverter.toList(
+                            (List<?>) event.data()))
+                    .build();
+        }
+        if (YardChangeFeed.CHANGE_EVENT.equals(event.event())) {
+            YardChangedEvent change = (YardChangedEvent) event.data();
+            return YardEvent.newBuilder()
+                    .setChange(YardChange.newBuilder()
+                            .setYard(YardProtobufHttpMessageConverter
+                                    .toMessage(change.getYard()))
+                            .setPreviousColor(
+                                    Math.max(change.getPreviousRgb(), 0))
+                            .setRegistration(change.isRegistration()))
+                    .build();
+        }
+        return null;
+    }
+
+    /** Completes a unary call with the result of the service.
+     *
+     * @param observer The observer of the call.
+     * @param origin   The method that answers, for the logs.
+     * @param result   Obtains the result.
+     * @param <T>      The type of the result.
+     */
+    private <T> void answer(StreamObserver<T> observer, String origin,
+                            Supplier<T> result) {
+        T message;
+        try {
+            message = result.get();
+        } catch (RuntimeException e) {
+            failed(observer, origin, e);
+            return;
+        }
+        observer.onNext(message);
+        observer.onCompleted();
+    }
+
+    /** Fails a call with the status matching the error.
+     *
+     * @param observer The observer of the call.
+     * @param origin   The method that failed, for the logs.
+     * @param error    The error.
+     */
+    private void failed(StreamObserver<?> observer, String origin,
+                        Throwable error) {
+        Status status = Status.fromThrowable(error);
+        if (status.getCode() == Status.Code.UNKNOWN) {
+            if (error instanceof IllegalArgumentException) {
+                status = Status.INVALID_ARGUMENT
+                        .withDescription(error.getMessage());
+            } else {
+                logFormatter.logError(logger, origin,
+                        "Couldn't answer the gRPC call", new HashMap<>(),
+                        error);
+                status = Status.INTERNAL.withDescription(error.getMessage());
+            }
+        }
+        observer.onError(status.asRuntimeException());
+    }
+
+    /** Fails a call with an invalid argument.
+     *
+     * @param observer The observer of the call.
+     * @param message  The description of the error.
+     */
+    private static void invalid(StreamObserver<?> observer, String message) {
+        observer.onError(Status.INVALID_ARGUMENT.withDescription(message)
+                .asRuntimeException());
+    }
+}
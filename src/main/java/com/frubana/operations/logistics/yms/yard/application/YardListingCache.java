@@ -0,0 +1,193 @@
+package com.frubana.operations.logistics.yms.yard.application;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.frubana.operations.logistics.yms.common.utils.JsonUtils;
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import com.frubana.operations.logistics.yms.yard.domain.YardChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/** The serialized listings of the warehouses, so the polls of a warehouse
+ * that didn't change copy the bytes instead of reading and serializing the
+ * yards again.
+ * <p> Each warehouse keeps the bytes of its last version in each format,
+ * the version is the sequence of its last change so the changes made by
+ * other instances are noticed too. The bytes of a warehouse are dropped
+ * when one of its yards changes here.
+ */
+@Component
+public class YardListingCache {
+
+    /** Name of the counter of the reads, tagged with the result. */
+    public static final String READS_METRIC = "yms.yard.listing.cache";
+
+    /** The media type of the Smile listings. */
+    private static final MediaType SMILE_TYPE =
+            MediaType.parseMediaType(YardController.SMILE_VALUE);
+
+    /** The formats of the listings, the first one is the default. */
+    public static final List<MediaType> MEDIA_TYPES = List.of(
+            MediaType.APPLICATION_JSON, SMILE_TYPE,
+            MediaType.APPLICATION_CBOR,
+            YardProtobufHttpMessageConverter.PROTOBUF);
+
+    /** The mapper of the Smile listings. */
+    private static final ObjectMapper SMILE =
+            JsonUtils.configure(new ObjectMapper(new SmileFactory()));
+
+    /** The mapper of the CBOR listings. */
+    private static final ObjectMapper CBOR =
+            JsonUtils.configure(new ObjectMapper(new CBORFactory()));
+
+    /** The listings of each warehouse by format. */
+    private final Map<String, Map<MediaType, Listing>> listings =
+            new ConcurrentHashMap<>();
+
+    /** The reads answered from the cache, it's never null. */
+    private final Counter hits;
+
+    /** The reads that serialized the listing, it's never null. */
+    private final Counter misses;
+
+    /** Constructor.
+     *
+     * @param registry The registry of the metrics.
+     */
+    @Autowired
+    public YardListingCache(MeterRegistry registry) {
+        this.hits = registry.counter(READS_METRIC, "result", "hit");
+        this.misses = registry.counter(READS_METRIC, "result", "miss");
+    }
+
+    /** Chooses the format of a listing from the {@code Accept} header.
+     *
+     * @param accept The header, can be null.
+     * @return the preferred supported format, JSON if none matches.
+     */
+    public MediaType negotiate(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return MEDIA_TYPES.get(0);
+        }
+        List<MediaType> accepted = MediaType.parseMediaTypes(accept);
+        MediaType.sortBySpecificityAndQuality(accepted);
+        for (MediaType mediaType : accepted) {
+            for (MediaType supported : MEDIA_TYPES) {
+                if (mediaType.isCompatibleWith(supported)) {
+                    return supported;
+                }
+            }
+        }
+        return MEDIA_TYPES.get(0);
+    }
+
+    /** Obtains the serialized listing of a warehouse.
+     *
+     * @param warehouse The warehouse, cannot be null.
+     * @param version   The current version of the warehouse.
+     * @param mediaType The format, one of {@link #MEDIA_TYPES}.
+     * @param listing   Reads the listing when it's not cached, it should
+     *                  read the yards after the version was obtained.
+     * @return the bytes of the listing, they must not be modified.
+     */
+    public byte[] get(String warehouse, long version, MediaType mediaType,
+                      Supplier<Object> listing) {
+        Map<MediaType, Listing> formats = listings.computeIfAbsent(
+                warehouse, key -> new ConcurrentHashMap<>());
+        Listing cached = formats.get(mediaType);
+        if (cached != null && cached.version == version) {
+            hits.increment();
+            return cached.bytes;
+        }
+        misses.increment();
+        byte[] bytes = serialize(listing.get(), mediaType);
+        // An older read finishing late doesn't replace a newer version.
+        formats.merge(mediaType, new Listing(version, bytes),
+                (current, read) -> current.version > read.version
+                        ? current : read);
+        return bytes;
+    }
+
+    /** Groups the yards of a listing by their color.
+     *
+     * @param yards The yards of a warehouse, cannot be null.
+     * @return the yards by their hex color.
+     */
+    public static Map<String, List<Yard>> byColor(List<Yard> yards) {
+        Map<String, List<Yard>> byColor = new HashMap<>();
+        for (Yard yard : yards) {
+            byColor.computeIfAbsent(yard.getColor(),
+                    color -> new ArrayList<>()).add(yard);
+        }
+        return byColor;
+    }
+
+    /** Drops the listings of the warehouse of a committed change.
+     *
+     * @param event The change of the yard, cannot be null.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onYardChanged(YardChangedEvent event) {
+        listings.remove(event.getWarehouse());
+    }
+
+    /** Serializes a listing.
+     *
+     * @param listing   The listing.
+     * @param mediaType The format.
+     * @return the bytes.
+     */
+    private static byte[] serialize(Object listing, MediaType mediaType) {
+        try {
+            if (MediaType.APPLICATION_CBOR.equals(mediaType)) {
+                return CBOR.writeValueAsBytes(listing);
+            }
+            if (SMILE_TYPE.equals(mediaType)) {
+                return SMILE.writeValueAsBytes(listing);
+            }
+            if (YardProtobufHttpMessageConverter.PROTOBUF.equals(mediaType)) {
+                return YardProtobufHttpMessageConverter.toMessage(listing)
+                        .toByteArray();
+            }
+            return JsonUtils.instance.writeValueAsBytes(listing);
+        } catch (JsonProcessingException e) {
+            throw new HttpMessageNotWritableException(
+                    "Couldn't serialize the listing", e);
+        }
+    }
+
+    /** The bytes of a version of a listing.
+     */
+    private static class Listing {
+
+        /** The version of the warehouse. */
+        private final long version;
+
+        /** The serialized listing. */
+        private final byte[] bytes;
+
+        /** Constructor.
+         *
+         * @param version The version of the warehouse.
+         * @param bytes   The serialized listing.
+         */
+        private Listing(long version, byte[] bytes) {
+            this.version = version;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.frubana.operations.logistics.yms.yard.application;
+
+import com.frubana.operations.logistics.yms.common.utils.JsonUtils;
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import com.frubana.operations.logistics.yms.yard.domain.YardLookup;
+import com.frubana.operations.logistics.yms.yard.domain.proto.YardGroups;
+import com.frubana.operations.logistics.yms.yard.domain.proto.YardList;
+import com.google.protobuf.Message;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/** Writes the yard responses with the messages of {@code yard.proto}.
+ * <p> Supports a {@link Yard}, a {@link List} of yards, the listings that
+ * group the yards in a {@link Map} and the {@link YardLookup}. It's only
+ * used by the endpoints that declare {@link #PROTOBUF_VALUE} as producible,
+ * the lists and maps with something different of yards are written as JSON.
+ */
+public class YardProtobufHttpMessageConverter
+        extends AbstractHttpMessageConverter<Object> {
+
+    /** The media type of the protobuf responses. */
+    public static final String PROTOBUF_VALUE = "application/x-protobuf";
+
+    /** The media type of the protobuf responses. */
+    public static final MediaType PROTOBUF =
+            MediaType.parseMediaType(PROTOBUF_VALUE);
+
+    /** Constructor.
+     */
+    public YardProtobufHttpMessageConverter() {
+        super(PROTOBUF);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Yard.class.isAssignableFrom(clazz)
+                || YardLookup.class.isAssignableFrom(clazz)
+                || List.class.isAssignableFrom(clazz)
+                || Map.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage input)
+            throws HttpMessageNotReadableException {
+        throw new HttpMessageNotReadableException(
+                "The yards are not read as protobuf", input);
+    }
+
+    @Override
+    protected void writeInternal(Object body, HttpOutputMessage output)
+            throws IOException, HttpMessageNotWritableException {
+        Message message;
+        try {
+            message = toMessage(body);
+        } catch (HttpMessageNotWritableException e) {
+            // Nothing was written yet, so the body still can go as JSON.
+            output.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            output.getBody().write(JsonUtils.instance.writeValueAsBytes(body));
+            return;
+        }
+        message.writeTo(output.getBody());
+    }
+
+    /** Converts a response body to its protobuf message.
+     *
+     * @param body The body of the response.
+     * @return the message.
+     * @throws HttpMessageNotWritableException if the body has something
+     * different of yards.
+     */
+    public static Message toMessage(Object body) {
+        if (body instanceof Yard) {
+            return toMessage((Yard) body);
+        }
+        if (body instanceof YardLookup) {
+            YardLookup lookup = (YardLookup) body;
+            return com.frubana.operations.logistics.yms.yard.domain.proto
+                    .YardLookup.newBuilder()
+                    .addAllYards(toList(lookup.getYards()).getYardsList())
+                    .addAllMissing(lookup.getMissing())
+                    .build();
+        }
+        if (body instanceof List) {
+            return toList((List<?>) body);
+        }
+        if (body instanceof Map) {
+            YardGroups.Builder groups = YardGroups.newBuilder();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) body).entrySet()) {
+                if (!(entry.getValue() instanceof List)) {
+                    throw new HttpMessageNotWritableException(
+                            "Only groups of yards are written as protobuf");
+                }
+                groups.putGroups(String.valueOf(entry.getKey()),
+                        toList((List<?>) entry.getValue()));
+            }
+            return groups.build();
+        }
+        throw new HttpMessageNotWritableException(
+                "Only yards are written as protobuf");
+    }
+
+    /** Converts a list of yards.
+     *
+     * @param yards The yards.
+     * @return the {@link YardList}.
+     */
+    static YardList toList(List<?> yards) {
+        YardList.Builder list = YardList.newBuilder();
+        for (Object yard : yards) {
+            if (!(yard instanceof Yard)) {
+                throw new HttpMessageNotWritableException(
+                        "Only lists of yards are written as protobuf");
+            }
+            list.addYards(toMessage((Yard) yard));
+        }
+        return list.build();
+    }
+
+    /** Converts a yard.
+     *
+     * @param yard The yard.
+     * @return the protobuf yard.
+     */
+    public static com.frubana.operations.logistics.yms.yard.domain.proto.Yard
+            toMessage(Yard yard) {
+        com.frubana.operations.logistics.yms.yard.domain.proto.Yard.Builder
+                message = com.frubana.operations.logistics.yms.yard.domain
+                .proto.Yard.newBuilder()
+                .setId(yard.getId())
+                .setColor(Math.max(yard.getRgb(), 0))
+                .setAssignationNumber(yard.getAssignationNumber());
+        if (yard.getWarehouse() != null) {
+            message.setWarehouse(yard.getWarehouse());
+        }
+        return message.build();
+    }
+}
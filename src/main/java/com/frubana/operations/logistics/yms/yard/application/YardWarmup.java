@@ -0,0 +1,191 @@
+package com.frubana.operations.logistics.yms.yard.application;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.frubana.operations.logistics.yms.common.configuration.FormattedLogger;
+import com.frubana.operations.logistics.yms.common.datasource.Deadline;
+import com.frubana.operations.logistics.yms.common.utils.JsonUtils;
+import com.frubana.operations.logistics.yms.health.service.HealthCheck;
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import com.frubana.operations.logistics.yms.yard.service.YardService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/** Warms the read paths of every warehouse once the application is ready,
+ * so the first requests after a deploy don't pay for the cold statements,
+ * serializers and listings.
+ * <p> The warehouses are warmed in parallel: their listings are cached in
+ * every format, the lookups, changes and summaries are read once and their
+ * responses serialized. The readiness stays down until it finishes or
+ * {@code yms.warmup.timeout} milliseconds pass.
+ */
+@Component
+public class YardWarmup implements HealthCheck {
+
+    /** Logger. */
+    private final Logger logger = LoggerFactory.getLogger(YardWarmup.class);
+
+    /** The service to read the yards, it's never null. */
+    private final YardService yardService;
+
+    /** The serialized listings to fill, it's never null. */
+    private final YardListingCache listingCache;
+
+    /** Formatter to set the log in a specific format, it's never null. */
+    private final FormattedLogger logFormatter;
+
+    /** Whether the warm-up runs, otherwise the readiness is up at once. */
+    private final boolean enabled;
+
+    /** The warehouses warmed at the same time. */
+    private final int threads;
+
+    /** The milliseconds the readiness waits for the warm-up. */
+    private final long timeout;
+
+    /** The running warm-up, null until the application is ready. */
+    private volatile CompletableFuture<Void> warmup;
+
+    /** The {@link System#currentTimeMillis()} the readiness stops waiting. */
+    private volatile long deadline;
+
+    /** Constructor.
+     *
+     * @param yardService  The service to read the yards, required.
+     * @param listingCache The serialized listings to fill, required.
+     * @param logFormatter Formatter to set the log, required.
+     * @param enabled      Whether the warm-up runs.
+     * @param threads      The warehouses warmed at the same time.
+     * @param timeout      The milliseconds the readiness waits for it.
+     */
+    @Autowired
+    public YardWarmup(YardService yardService,
+                      YardListingCache listingCache,
+                      FormattedLogger logFormatter,
+                      @Value("${yms.warmup.enabled:true}") boolean enabled,
+                      @Value("${yms.warmup.threads:4}") int threads,
+                      @Value("${yms.warmup.timeout:60000}") long timeout) {
+        this.yardService = yardService;
+        this.listingCache = listingCache;
+        this.logFormatter = logFormatter;
+        this.enabled = enabled;
+        this.threads = threads;
+        this.timeout = timeout;
+    }
+
+    /** Starts the warm-up once the application is ready, the migrations
+     * already ran.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        start();
+    }
+
+    /** Starts the warm-up of every warehouse.
+     *
+     * @return the warm-up, it doesn't complete exceptionally.
+     */
+    CompletableFuture<Void> start() {
+        deadline = System.currentTimeMillis() + timeout;
+        if (!enabled) {
+            warmup = CompletableFuture.completedFuture(null);
+            return warmup;
+        }
+        long start = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+                new CustomizableThreadFactory("yms-warmup-"));
+        warmup = CompletableFuture
+                .supplyAsync(yardService::getWarehouses, executor)
+                .thenCompose(warehouses -> CompletableFuture.allOf(
+                        warehouses.stream()
+                                .map(warehouse -> CompletableFuture.runAsync(
+                                        () -> warm(warehouse), executor))
+                                .toArray(CompletableFuture[]::new))
+                        .thenApply(ignored -> warehouses))
+                .handle((warehouses, error) -> {
+                    executor.shutdown();
+                    HashMap<String, Object> params = new HashMap<>();
+                    params.put("elapsedMs", System.currentTimeMillis() - start);
+                    if (error != null) {
+                        logFormatter.logError(logger, "warmup",
+                                "Couldn't list the warehouses to warm up",
+                                params, error);
+                    } else {
+                        params.put("warehouses", warehouses);
+                        logFormatter.logInfo(logger, "warmup",
+                                "Warmed up the warehouses", params);
+                    }
+                    return null;
+                });
+        return warmup;
+    }
+
+    /** {@inheritDoc}
+     * <p> It's down while the warm-up runs and for at most
+     * {@code yms.warmup.timeout} milliseconds.
+     */
+    @Override
+    public boolean isServiceHealthy() {
+        CompletableFuture<Void> current = warmup;
+        return current != null && (current.isDone()
+                || System.currentTimeMillis() >= deadline);
+    }
+
+    @Override
+    public String getName() { return "warmup"; }
+
+    /** Warms the read paths of a warehouse, a failure only skips the rest
+     * of the warehouse. Its statements have the deadline of the warm-up,
+     * so they don't keep the pools busy once the service is ready.
+     *
+     * @param warehouse The warehouse, cannot be null.
+     */
+    private void warm(String warehouse) {
+        Deadline.start(deadline - System.currentTimeMillis());
+        try {
+            long version = yardService.getVersion(warehouse);
+            List<Yard> yards = yardService.getYards(warehouse, version);
+            for (MediaType mediaType : YardListingCache.MEDIA_TYPES) {
+                listingCache.get(warehouse, version, mediaType,
+                        () -> YardListingCache.byColor(yards));
+            }
+            List<Integer> ids = yards.stream().limit(2).map(Yard::getId)
+                    .collect(Collectors.toList());
+            JsonUtils.instance.writeValueAsBytes(
+                    yardService.lookup(ids, warehouse));
+            if (!yards.isEmpty()) {
+                Yard yard = yards.get(0);
+                JsonUtils.instance.writeValueAsBytes(
+                        yardService.getYard(String.valueOf(yard.getId()),
+                                warehouse));
+                yardService.getByWarehouseAndAssignationNumber(warehouse,
+                        yard.getAssignationNumber());
+                YardProtobufHttpMessageConverter.toMessage(yard);
+            }
+            JsonUtils.instance.writeValueAsBytes(
+                    yardService.getChanges(version, 1, warehouse));
+            JsonUtils.instance.writeValueAsBytes(
+                    yardService.getSummary(warehouse));
+        } catch (RuntimeException | JsonProcessingException e) {
+            HashMap<String, Object> params = new HashMap<>();
+            params.put("warehouse", warehouse);
+            logFormatter.logError(logger, "warm",
+                    "Couldn't warm up the warehouse", params, e);
+        } finally {
+            Deadline.clear();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.frubana.operations.logistics.yms.yard.domain;
+
+/** One row of the aggregation of the yards by warehouse, color and state,
+ * used to seed the occupancy counters.
+ */
+public class ColorCount {
+
+    /** The warehouse of the yards. */
+    private final String warehouse;
+
+    /** The color of the yards packed as 0xRRGGBB. */
+    private final int rgb;
+
+    /** If the yards have their default color. */
+    private final boolean free;
+
+    /** The number of yards. */
+    private final long yards;
+
+    /** The highest assignation number of the yards. */
+    private final int maxAssignationNumber;
+
+    /** Constructor.
+     *
+     * @param warehouse            The warehouse of the yards.
+     * @param rgb                  The color packed as 0xRRGGBB.
+     * @param free                 If the yards have their default color.
+     * @param yards                The number of yards.
+     * @param maxAssignationNumber The highest assignation number.
+     */
+    public ColorCount(String warehouse, int rgb, boolean free, long yards,
+                      int maxAssignationNumber) {
+        this.warehouse = warehouse;
+        this.rgb = rgb;
+        this.free = free;
+        this.yards = yards;
+        this.maxAssignationNumber = maxAssignationNumber;
+    }
+
+    /** @return the warehouse of the yards. */
+    public String getWarehouse() { return warehouse; }
+
+    /** @return the color packed as 0xRRGGBB. */
+    public int getRgb() { return rgb; }
+
+    /** @return true if the yards have their default color. */
+    public boolean isFree() { return free; }
+
+    /** @return the number of yards. */
+    public long getYards() { return yards; }
+
+    /** @return the highest assignation number. */
+    public int getMaxAssignationNumber() { return maxAssignationNumber; }
+}
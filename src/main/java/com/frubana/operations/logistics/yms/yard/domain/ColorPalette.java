@@ -0,0 +1,118 @@
+package com.frubana.operations.logistics.yms.yard.domain;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/** The colors of the yards packed as 24-bit RGB integers.
+ * <p> The colors are received as hexadecimal strings like {@code #D3D3D3},
+ * {@code d3d3d3} or {@code #DDD} and are normalized to the same integer, so
+ * case variants are the same color. The palette keeps a single canonical
+ * {@code #RRGGBB} string for the first {@link #MAX_COLORS} colors used, so
+ * the yards never allocate it again when they are serialized.
+ */
+public final class ColorPalette {
+
+    /** Value of a yard without color. */
+    public static final int NONE = -1;
+
+    /** The maximum number of colors kept, the colors come from the requests
+     * so the palette cannot grow to the 16M colors possible. */
+    static final int MAX_COLORS = 10_000;
+
+    /** The canonical hexadecimal string of each color used. */
+    private static final ConcurrentHashMap<Integer, String> palette =
+            new ConcurrentHashMap<>();
+
+    /** Digits used to build the hexadecimal strings. */
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    /** Constructor, private as this must be accessed static. */
+    private ColorPalette() {}
+
+    /** Packs the hexadecimal representation of a color.
+     *
+     * @param color The color as {@code #RRGGBB} or {@code #RGB}, the
+     *              {@code #} is optional and the case is ignored.
+     * @return the color as {@code 0xRRGGBB}, {@link #NONE} if the color is
+     * null or blank.
+     * @throws IllegalArgumentException if the color is not hexadecimal.
+     */
+    public static int parse(String color) {
+        if (color == null || color.isBlank()) {
+            return NONE;
+        }
+        String value = color.strip();
+        int start = value.charAt(0) == '#' ? 1 : 0;
+        int length = value.length() - start;
+        if (length != 6 && length != 3) {
+            throw invalid(color);
+        }
+        int rgb = 0;
+        for (int i = start; i < value.length(); i++) {
+            int digit = Character.digit(value.charAt(i), 16);
+            if (digit < 0) {
+                throw invalid(color);
+            }
+            rgb = length == 3
+                    ? (rgb << 8) | (digit << 4) | digit
+                    : (rgb << 4) | digit;
+        }
+        return rgb;
+    }
+
+    /** Obtains the canonical hexadecimal representation of a color.
+     *
+     * @param rgb The color as {@code 0xRRGGBB}.
+     * @return the color as {@code #RRGGBB} in upper case, null if the color
+     * is {@link #NONE}. A new string if the palette is full.
+     */
+    public static String toHex(int rgb) {
+        if (rgb == NONE) {
+            return null;
+        }
+        String hex = palette.get(rgb);
+        if (hex != null) {
+            return hex;
+        }
+        if (palette.size() >= MAX_COLORS) {
+            return format(rgb);
+        }
+        return palette.computeIfAbsent(rgb, ColorPalette::format);
+    }
+
+    /** @return the number of colors kept. */
+    static int size() { return palette.size(); }
+
+    /** Normalizes the hexadecimal representation of a color.
+     *
+     * @param color The color in any of the accepted formats.
+     * @return the canonical {@code #RRGGBB} string, null if no color given.
+     */
+    public static String normalize(String color) {
+        return toHex(parse(color));
+    }
+
+    /** Formats a color as {@code #RRGGBB}.
+     *
+     * @param rgb The color as {@code 0xRRGGBB}.
+     * @return the formatted color.
+     */
+    private static String format(int rgb) {
+        char[] hex = new char[7];
+        hex[0] = '#';
+        for (int i = 6; i > 0; i--) {
+            hex[i] = HEX_DIGITS[rgb & 0xF];
+            rgb >>>= 4;
+        }
+        return new String(hex);
+    }
+
+    /** Creates the error of an invalid color.
+     *
+     * @param color The invalid color.
+     * @return the exception to throw.
+     */
+    private static IllegalArgumentException invalid(String color) {
+        return new IllegalArgumentException("The color " + color +
+                " is not a valid hexadecimal color like #D3D3D3");
+    }
+}
@@ -0,0 +1,74 @@
+package com.frubana.operations.logistics.yms.yard.domain;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+
+import java.util.Map;
+
+/** The occupancy of the yards of a warehouse.
+ * <p> This is an example of the expected JSON.
+ * <code>
+ * {
+ *    "colors":{
+ *       "#D3D3D3":{"used":3,"free":12},
+ *       "#0000FF":{"used":0,"free":4}
+ *    },
+ *    "maxAssignationNumber":12
+ * }
+ * </code>
+ * A yard is free while it has its default color, otherwise it's used and
+ * counted in its current color.
+ */
+@JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY)
+public class OccupancySummary {
+
+    /** The yards of each color in format #RRGGBB. */
+    private final Map<String, ColorOccupancy> colors;
+
+    /** The highest assignation number of the warehouse. */
+    private final long maxAssignationNumber;
+
+    /** Constructor.
+     *
+     * @param colors               The yards of each color.
+     * @param maxAssignationNumber The highest assignation number.
+     */
+    public OccupancySummary(Map<String, ColorOccupancy> colors,
+                            long maxAssignationNumber) {
+        this.colors = colors;
+        this.maxAssignationNumber = maxAssignationNumber;
+    }
+
+    /** @return the yards of each color, never null. */
+    public Map<String, ColorOccupancy> getColors() { return colors; }
+
+    /** @return the highest assignation number, 0 if there are no yards. */
+    public long getMaxAssignationNumber() { return maxAssignationNumber; }
+
+    /** The used and free yards of a color.
+     */
+    @JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY)
+    public static class ColorOccupancy {
+
+        /** The yards with this color that are not their default one. */
+        private final long used;
+
+        /** The yards with this color as default color. */
+        private final long free;
+
+        /** Constructor.
+         *
+         * @param used The used yards.
+         * @param free The free yards.
+         */
+        public ColorOccupancy(long used, long free) {
+            this.used = used;
+            this.free = free;
+        }
+
+        /** @return the used yards. */
+        public long getUsed() { return used; }
+
+        /** @return the free yards. */
+        public long getFree() { return free; }
+    }
+}
@@ -2,7 +2,10 @@ package com.frubana.operations.logistics.yms.yard.domain;
 
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.JsonFormat;
-import org.apache.commons.lang3.StringUtils;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonSetter;
+import com.frubana.operations.logistics.yms.common.utils.WarehouseCodes;
 
 import java.math.BigInteger;
 import java.time.LocalDate;
@@ -40,13 +43,15 @@ import java.time.LocalDateTime;
 @JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY)
 public class Yard {
 
-    //a number that represents the unique id of the yard
+    //a number that identifies the yard inside its warehouse, each shard has
+    //its own sequence so it repeats in the warehouses of other shards
     int id;
-    //the color of this yard in hexadecimal representation #RRGGBB
-    String color;
+    //the color of this yard packed as 0xRRGGBB, exposed as #RRGGBB
+    @JsonIgnore
+    int rgb = ColorPalette.NONE;
     //the number that represents the space location of this yard (NOT UNIQUE)
     int assignationNumber;
-    // the String of the warehouse
+    // the canonical String of the warehouse
     String warehouse;
 
 
@@ -58,8 +63,19 @@ public class Yard {
      */
     public Yard(int id,
                 String color,int assignationNumber){
+        this(id, ColorPalette.parse(color), assignationNumber);
+    }
+
+    /**
+     * Creates a new instance of the yard with all its attributes.
+     * @param id the unique identifier of the Yard
+     * @param rgb the color of the Yard packed as 0xRRGGBB
+     * @param assignationNumber the space location of this yard.
+     */
+    public Yard(int id,
+                int rgb,int assignationNumber){
         this.id=id;
-        this.color=color;
+        this.rgb=rgb;
         this.assignationNumber=assignationNumber;
         this.validate();
     }
@@ -73,7 +89,7 @@ public class Yard {
         if(!(this.id >0)){
             throw new IllegalArgumentException();
         }
-        if(StringUtils.isEmpty(this.color) || StringUtils.isBlank(this.color)){
+        if(this.rgb == ColorPalette.NONE){
             throw new IllegalArgumentException();
         }
         return  true;
@@ -103,10 +119,29 @@ public class Yard {
 
     /***
      * get the color of the yard.
-     * @return the color in hex format.
+     * @return the color in hex format #RRGGBB.
      */
+    @JsonProperty("color")
     public String getColor() {
-        return this.color;
+        return ColorPalette.toHex(this.rgb);
+    }
+
+    /***
+     * set the color of the yard, the case variants are the same color.
+     * @param color the color in hex format.
+     */
+    @JsonProperty("color")
+    public void setColor(String color) {
+        this.rgb = ColorPalette.parse(color);
+    }
+
+    /***
+     * get the color of the yard.
+     * @return the color packed as 0xRRGGBB.
+     */
+    @JsonIgnore
+    public int getRgb() {
+        return this.rgb;
     }
 
 
@@ -118,14 +153,27 @@ public class Yard {
         return this.assignationNumber;
     }
 
+    /***
+     * set the assignationNumber of the yard.
+     * @param assignationNumber the space location of this yard.
+     */
+    public void setAssignationNumber(int assignationNumber) {
+        this.assignationNumber = assignationNumber;
+    }
+
     /**
      * retrieve the warehouse
      * @return {@link String} the warehouse
      */
     public String getWarehouse(){return  this.warehouse; }
 
+    /**
+     * assign the warehouse using its canonical instance.
+     * @param warehouse the warehouse of the yard.
+     */
+    @JsonSetter("warehouse")
     public void AssignWarehouse(String warehouse){
-        this.warehouse=warehouse;
+        this.warehouse=WarehouseCodes.canonical(warehouse);
     }
 
 
@@ -0,0 +1,90 @@
+package com.frubana.operations.logistics.yms.yard.domain;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDateTime;
+
+/** A change of a yard stored in the outbox, in the order it was committed.
+ * <p> This is an example of the expected JSON.
+ * <code>
+ * {
+ *    "seq":1052,
+ *    "yardId":3,
+ *    "warehouse":"PA",
+ *    "color":"#D3D3D3",
+ *    "previousColor":"#0000FF",
+ *    "assignationNumber":7,
+ *    "changedAt":"2021-04-23 10:15:30"
+ * }
+ * </code>
+ * The previous color is null for the registered yards.
+ */
+@JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY)
+public class YardChange {
+
+    /** The position of the change, increases with each commit. */
+    private final long seq;
+
+    /** The id of the changed yard. */
+    private final int yardId;
+
+    /** The warehouse of the yard. */
+    private final String warehouse;
+
+    /** The color of the yard after the change in format #RRGGBB. */
+    private final String color;
+
+    /** The color of the yard before the change, null if it was registered. */
+    private final String previousColor;
+
+    /** The space location of the yard. */
+    private final int assignationNumber;
+
+    /** When the change was made. */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private final LocalDateTime changedAt;
+
+    /** Constructor.
+     *
+     * @param seq               The position of the change.
+     * @param yardId            The id of the yard.
+     * @param warehouse         The warehouse of the yard.
+     * @param color             The color after the change.
+     * @param previousColor     The color before the change, can be null.
+     * @param assignationNumber The space location of the yard.
+     * @param changedAt         When the change was made.
+     */
+    public YardChange(long seq, int yardId, String warehouse, String color,
+                      String previousColor, int assignationNumber,
+                      LocalDateTime changedAt) {
+        this.seq = seq;
+        this.yardId = yardId;
+        this.warehouse = warehouse;
+        this.color = color;
+        this.previousColor = previousColor;
+        this.assignationNumber = assignationNumber;
+        this.changedAt = changedAt;
+    }
+
+    /** @return the position of the change. */
+    public long getSeq() { return seq; }
+
+    /** @return the id of the yard. */
+    public int getYardId() { return yardId; }
+
+    /** @return the warehouse of the yard. */
+    public String getWarehouse() { return warehouse; }
+
+    /** @return the color after the change. */
+    public String getColor() { return color; }
+
+    /** @return the color before the change, null if it was registered. */
+    public String getPreviousColor() { return previousColor; }
+
+    /** @return the space location of the yard. */
+    public int getAssignationNumber() { return assignationNumber; }
+
+    /** @return when the change was made. */
+    public LocalDateTime getChangedAt() { return changedAt; }
+}
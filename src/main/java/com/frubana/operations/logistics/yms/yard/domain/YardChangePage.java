@@ -0,0 +1,43 @@
+package com.frubana.operations.logistics.yms.yard.domain;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+
+import java.util.List;
+
+/** A page of the changes of the yards after a given sequence.
+ * <p> This is an example of the expected JSON.
+ * <code>
+ * {
+ *    "changes":[{@link YardChange}],
+ *    "next":1052
+ * }
+ * </code>
+ * The consumers ask for the next page with {@code since=next} until the
+ * page comes empty.
+ */
+@JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY)
+public class YardChangePage {
+
+    /** The changes in the order they were committed. */
+    private final List<YardChange> changes;
+
+    /** The sequence to ask for the following changes. */
+    private final long next;
+
+    /** Constructor.
+     *
+     * @param changes The changes of the page, cannot be null.
+     * @param since   The sequence the page was asked from.
+     */
+    public YardChangePage(List<YardChange> changes, long since) {
+        this.changes = changes;
+        this.next = changes.isEmpty() ? since
+                : changes.get(changes.size() - 1).getSeq();
+    }
+
+    /** @return the changes of the page, never null. */
+    public List<YardChange> getChanges() { return changes; }
+
+    /** @return the sequence to ask for the following changes. */
+    public long getNext() { return next; }
+}
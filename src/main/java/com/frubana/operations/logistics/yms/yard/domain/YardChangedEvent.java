@@ -0,0 +1,67 @@
+package com.frubana.operations.logistics.yms.yard.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/** Published by the yard service every time a yard is registered or freed,
+ * the listeners receive it once the transaction is committed.
+ * <p> This is an example of the JSON sent to the subscribers.
+ * <code>
+ * {
+ *    "yard":{"id":3,"assignationNumber":7,"warehouse":"PA","color":"#D3D3D3"},
+ *    "warehouse":"PA",
+ *    "previousColor":"#0000FF",
+ *    "registration":false
+ * }
+ * </code>
+ */
+public class YardChangedEvent {
+
+    /** The yard as it's stored after the change, it's never null. */
+    private final Yard yard;
+
+    /** The color the yard had before the change packed as 0xRRGGBB,
+     * {@link ColorPalette#NONE} if the yard was just registered. */
+    private final int previousRgb;
+
+    /** Constructor.
+     *
+     * @param yard        The yard after the change, with its warehouse.
+     * @param previousRgb The color before the change, or
+     *                    {@link ColorPalette#NONE} for a new yard.
+     */
+    public YardChangedEvent(Yard yard, int previousRgb) {
+        this.yard = yard;
+        this.previousRgb = previousRgb;
+    }
+
+    /** Creates the event of a change read from the outbox.
+     *
+     * @param change The change, cannot be null.
+     * @return the event of the change.
+     */
+    public static YardChangedEvent of(YardChange change) {
+        Yard yard = new Yard(change.getYardId(), change.getColor(),
+                change.getAssignationNumber());
+        yard.AssignWarehouse(change.getWarehouse());
+        return new YardChangedEvent(yard,
+                ColorPalette.parse(change.getPreviousColor()));
+    }
+
+    /** @return the yard after the change, never null. */
+    public Yard getYard() { return yard; }
+
+    /** @return the warehouse of the yard. */
+    public String getWarehouse() { return yard.getWarehouse(); }
+
+    /** @return the color before the change, {@link ColorPalette#NONE} for a
+     * new yard. */
+    @JsonIgnore
+    public int getPreviousRgb() { return previousRgb; }
+
+    /** @return the color before the change in format #RRGGBB, null for a
+     * new yard. */
+    public String getPreviousColor() { return ColorPalette.toHex(previousRgb); }
+
+    /** @return true if the yard didn't exist before the change. */
+    public boolean isRegistration() { return previousRgb == ColorPalette.NONE; }
+}
@@ -0,0 +1,40 @@
+package com.frubana.operations.logistics.yms.yard.domain;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+
+import java.util.List;
+
+/** The result of looking up several yards by id.
+ * <p> This is an example of the expected JSON.
+ * <code>
+ * {
+ *    "yards":[{@link Yard}],
+ *    "missing":[7, 12]
+ * }
+ * </code>
+ */
+@JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY)
+public class YardLookup {
+
+    /** The yards found, in the order of the requested ids. */
+    private final List<Yard> yards;
+
+    /** The requested ids that don't exist in the warehouse. */
+    private final List<Integer> missing;
+
+    /** Constructor.
+     *
+     * @param yards   The yards found, cannot be null.
+     * @param missing The ids not found, cannot be null.
+     */
+    public YardLookup(List<Yard> yards, List<Integer> missing) {
+        this.yards = yards;
+        this.missing = missing;
+    }
+
+    /** @return the yards found, never null. */
+    public List<Yard> getYards() { return yards; }
+
+    /** @return the ids not found, never null. */
+    public List<Integer> getMissing() { return missing; }
+}
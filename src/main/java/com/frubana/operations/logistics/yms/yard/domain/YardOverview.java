@@ -0,0 +1,37 @@
+package com.frubana.operations.logistics.yms.yard.domain;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/** The yards of every warehouse, with the warehouses that couldn't be read
+ * in time.
+ */
+public class YardOverview {
+
+    /** The yards of each warehouse read. */
+    private final Map<String, List<Yard>> yards;
+
+    /** The warehouses missing from the overview. */
+    private final Set<String> incomplete;
+
+    /** Constructor.
+     *
+     * @param yards      The yards of each warehouse read, cannot be null.
+     * @param incomplete The warehouses that failed or timed out, cannot be
+     *                   null.
+     */
+    public YardOverview(Map<String, List<Yard>> yards, Set<String> incomplete) {
+        this.yards = yards;
+        this.incomplete = incomplete;
+    }
+
+    /** @return the yards of each warehouse read, never null. */
+    public Map<String, List<Yard>> getYards() { return yards; }
+
+    /** @return the warehouses missing from the overview, never null. */
+    public Set<String> getIncomplete() { return incomplete; }
+
+    /** @return true if every warehouse was read. */
+    public boolean isComplete() { return incomplete.isEmpty(); }
+}
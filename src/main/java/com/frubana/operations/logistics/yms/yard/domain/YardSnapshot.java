@@ -0,0 +1,82 @@
+package com.frubana.operations.logistics.yms.yard.domain;
+
+/** The yards of a warehouse at a version of its changes, as stored in the
+ * snapshot file of the warm restarts.
+ * <p> The yards are kept in parallel arrays, the same position of each one
+ * describes a yard, so a big warehouse takes a few arrays instead of an
+ * object per yard.
+ */
+public class YardSnapshot {
+
+    /** The warehouse of the yards. */
+    private final String warehouse;
+
+    /** The sequence of the last change of the warehouse included. */
+    private final long version;
+
+    /** The ids of the yards. */
+    private final int[] ids;
+
+    /** The colors of the yards packed as 0xRRGGBB. */
+    private final int[] rgbs;
+
+    /** The space locations of the yards. */
+    private final int[] assignationNumbers;
+
+    /** The sequence of the last change of each yard. */
+    private final long[] versions;
+
+    /** Constructor.
+     *
+     * @param warehouse          The warehouse of the yards.
+     * @param version            The sequence of the last change included.
+     * @param ids                The ids of the yards.
+     * @param rgbs               The colors of the yards.
+     * @param assignationNumbers The space locations of the yards.
+     * @param versions           The sequence of the last change of each
+     *                           yard.
+     */
+    public YardSnapshot(String warehouse, long version, int[] ids,
+                        int[] rgbs, int[] assignationNumbers,
+                        long[] versions) {
+        if (rgbs.length != ids.length
+                || assignationNumbers.length != ids.length
+                || versions.length != ids.length) {
+            throw new IllegalArgumentException(
+                    "The yards of the snapshot have missing fields");
+        }
+        this.warehouse = warehouse;
+        this.version = version;
+        this.ids = ids;
+        this.rgbs = rgbs;
+        this.assignationNumbers = assignationNumbers;
+        this.versions = versions;
+    }
+
+    /** @return the warehouse of the yards. */
+    public String getWarehouse() { return warehouse; }
+
+    /** @return the sequence of the last change of the warehouse included. */
+    public long getVersion() { return version; }
+
+    /** @return the number of yards. */
+    public int size() { return ids.length; }
+
+    /** @param index The position of the yard.
+     * @return the id of the yard. */
+    public int getId(int index) { return ids[index]; }
+
+    /** @param index The position of the yard.
+     * @return the color of the yard packed as 0xRRGGBB. */
+    public int getRgb(int index) { return rgbs[index]; }
+
+    /** @param index The position of the yard.
+     * @return the space location of the yard. */
+    public int getAssignationNumber(int index) {
+        return assignationNumbers[index];
+    }
+
+    /** @param index The position of the yard.
+     * @return the sequence of the last change of the yard. */
+    public long getVersion(int index) { return versions[index]; }
+}
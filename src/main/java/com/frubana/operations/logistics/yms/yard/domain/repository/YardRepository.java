@@ -1,103 +1,276 @@
 package com.frubana.operations.logistics.yms.yard.domain.repository;
 
+import com.frubana.operations.logistics.yms.common.datasource.UsesWorkload;
+import com.frubana.operations.logistics.yms.common.datasource.WarehouseShards;
+import com.frubana.operations.logistics.yms.common.datasource.Workload;
+import com.frubana.operations.logistics.yms.common.utils.WarehouseCodes;
+import com.frubana.operations.logistics.yms.yard.domain.ColorCount;
+import com.frubana.operations.logistics.yms.yard.domain.ColorPalette;
 import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import com.frubana.operations.logistics.yms.yard.domain.YardChange;
 import org.jdbi.v3.core.Handle;
-import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.HandleCallback;
 import org.jdbi.v3.core.mapper.RowMapper;
 import org.jdbi.v3.core.statement.Query;
 import org.jdbi.v3.core.statement.StatementContext;
-import org.jdbi.v3.core.statement.Update;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
-/** Some repository using JDBI
+/** Some repository using JDBI, each warehouse is stored in the shard of
+ * its country.
+ * <p> The listings, exports and feeds use the {@link Workload#BULK} pools,
+ * the lookups, registrations and releases the critical ones.
  */
 @Component
 public class YardRepository {
     
-    /** The JDBI instance to request data to the database, it's never null. */
-    private final Jdbi dbi;
+    /** Start of the statements that change the yards, takes the lock of the
+     * outbox of the warehouse until the commit so the changes of each
+     * warehouse are committed in the order of their sequence. The writes of
+     * different warehouses don't wait for each other. */
+    private static final String OUTBOX_LOCK = "with outbox_lock as (" +
+            "select pg_advisory_xact_lock(hashtext('yard_change:' || :warehouse)))";
+
+    /** The databases of each warehouse to request data, it's never null. */
+    private final WarehouseShards shards;
+
+    /** The warehouses whose partition is known to be committed, it's never
+     * null. */
+    private final Set<String> partitionedWarehouses =
+            ConcurrentHashMap.newKeySet();
 
     /** Base constructor of the repository.
      *
-     * @param jdbi the JDBI instance to use in the queries.
+     * @param shards the databases of each warehouse to use in the queries.
      */
     @Autowired
-    public YardRepository(Jdbi jdbi) {
-        this.dbi = jdbi;
+    public YardRepository(WarehouseShards shards) {
+        this.shards = shards;
     }
 
     /**
-     * register a yard for a specific warehouses.
+     * register a yard for a specific warehouses, the free slot is looked up
+     * and taken in one transaction of the shard of the warehouse.
      * @param yard the yard to be register.
      * @param warehouse the warehouse to be registered.
      * @return the {@link Yard}  registered.
      */
     public Yard register(Yard yard, String warehouse){
-        int nextAssignation = this.getNextAssignationNumber(yard.getColor(),
-                warehouse);
-        String sql_query="Insert into yard (color, warehouse, assignation_number, default_color)"+
-                " values(:color, :warehouse, :nextAssignation, :color)";
-        try(Handle handler=dbi.open();
-            Update query_string = handler.createUpdate(sql_query)){
-            query_string
-                    .bind("color",yard.getColor())
-                    .bind("warehouse",warehouse)
-                    .bind("nextAssignation", nextAssignation);
-            int yard_id=query_string
-                    .executeAndReturnGeneratedKeys("id")
-                    .mapTo(int.class).first();
-            handler.close();
-            Yard createdYard = new Yard(yard_id,yard.getColor(),
-                    nextAssignation);
-            createdYard.AssignWarehouse(warehouse);
-            return createdYard ;
-        }
+        String sql_query=OUTBOX_LOCK+", inserted as ("+
+                "Insert into yard (color, warehouse, assignation_number, default_color)"+
+                " select :color, :warehouse, :nextAssignation, :color from outbox_lock"+
+                " returning id, color, warehouse, assignation_number), change as ("+
+                "Insert into yard_change (yard_id, warehouse, color, assignation_number)"+
+                " select id, warehouse, color, assignation_number from inserted)"+
+                " select id from inserted";
+        return inRegistration(warehouse, handler -> {
+            int nextAssignation = this.getNextAssignationNumber(handler,
+                    yard.getColor(), warehouse);
+            try (Query query_string = handler.createQuery(sql_query)) {
+                query_string
+                        .bind("color",yard.getColor())
+                        .bind("warehouse",warehouse)
+                        .bind("nextAssignation", nextAssignation);
+                int yard_id=query_string
+                        .mapTo(int.class).first();
+                Yard createdYard = new Yard(yard_id,yard.getColor(),
+                        nextAssignation);
+                createdYard.AssignWarehouse(warehouse);
+                return createdYard ;
+            }
+        });
     }
     
+    /**
+     * register several yards of a warehouse with a single insert, the slots
+     * are allocated together in the order of the list in one transaction of
+     * the shard of the warehouse.
+     * @param yards the yards to be registered.
+     * @param warehouse the warehouse to be registered.
+     * @return the {@link Yard} registered in the same order.
+     */
+    public List<Yard> registerAll(List<Yard> yards, String warehouse){
+        String sql_query=OUTBOX_LOCK+", inserted as ("+
+                "Insert into yard (color, warehouse, assignation_number, default_color)"+
+                " select batch.color, :warehouse, batch.assignation_number, batch.color"+
+                " from outbox_lock, unnest(:colors, :assignations)"+
+                " as batch(color, assignation_number)"+
+                " returning id, color, warehouse, assignation_number), change as ("+
+                "Insert into yard_change (yard_id, warehouse, color, assignation_number)"+
+                " select id, warehouse, color, assignation_number from inserted)"+
+                " select id, color, assignation_number from inserted";
+        return inRegistration(warehouse, handler -> {
+            String[] colors = new String[yards.size()];
+            int[] assignations = new int[yards.size()];
+            Map<String, Set<Integer>> used = this.getAssignationNumbers(
+                    handler, yards.stream().map(Yard::getColor).distinct()
+                            .toArray(String[]::new), warehouse);
+            Map<String, Integer> next = new HashMap<>();
+            for (int i = 0; i < colors.length; i++) {
+                colors[i] = yards.get(i).getColor();
+                Set<Integer> taken = used.computeIfAbsent(colors[i],
+                        color -> new HashSet<>());
+                int assignationNumber = next.getOrDefault(colors[i], 1);
+                while (taken.contains(assignationNumber)) {
+                    assignationNumber++;
+                }
+                taken.add(assignationNumber);
+                next.put(colors[i], assignationNumber + 1);
+                assignations[i] = assignationNumber;
+            }
+            try (Query query_string = handler.createQuery(sql_query)) {
+                query_string
+                        .bind("warehouse",warehouse)
+                        .bind("colors", colors)
+                        .bind("assignations", assignations);
+                // The rows are returned in any order, the color and slot of
+                // the batch identify each one.
+                Map<String, Integer> ids = new HashMap<>();
+                query_string.map((rs, ctx) -> Map.entry(
+                        rs.getString("color") + "@" + rs.getInt("assignation_number"),
+                        rs.getInt("id")))
+                        .forEach(entry -> ids.put(entry.getKey(), entry.getValue()));
+                List<Yard> createdYards = new ArrayList<>(colors.length);
+                for (int i = 0; i < colors.length; i++) {
+                    Yard createdYard = new Yard(
+                            ids.get(colors[i] + "@" + assignations[i]),
+                            colors[i], assignations[i]);
+                    createdYard.AssignWarehouse(warehouse);
+                    createdYards.add(createdYard);
+                }
+                return createdYards;
+            }
+        });
+    }
+
     /**
      * update a yard for a specific warehouses, assignationNumber and default_color.
      * @param yard the yard to be update.
-     * @return the {@link Yard}  update.
+     * @return the {@link Yard}  update, with its default color.
      */
     public Yard updateColorYard(Yard yard){
-        String sql_query="Update yard set color = default_color"+
-                " WHERE color = :color and warehouse=:warehouse and assignation_number=:assignationNumber";
-        try(Handle handler=dbi.open();
-            Update query_string = handler.createUpdate(sql_query)){
+        String sql_query=OUTBOX_LOCK+", updated as ("+
+                "Update yard set color = default_color from outbox_lock"+
+                " WHERE color = :color and warehouse=:warehouse and assignation_number=:assignationNumber"+
+                " returning id, default_color, warehouse, assignation_number), change as ("+
+                "Insert into yard_change (yard_id, warehouse, color, previous_color, assignation_number)"+
+                " select id, warehouse, default_color, :color, assignation_number from updated)"+
+                " select id, default_color from updated";
+        try(Handle handler=shards.forWarehouse(yard.getWarehouse()).open();
+            Query query_string = handler.createQuery(sql_query)){
             query_string
                     .bind("color",yard.getColor())
                     .bind("warehouse",yard.getWarehouse())
                     .bind("assignationNumber",yard.getAssignationNumber());
-            int yard_id=query_string
-                    .executeAndReturnGeneratedKeys("id")
-                    .mapTo(int.class).first();
-            yard.setId(yard_id);
+            Yard updatedYard=query_string
+                    .map((rs, ctx) -> new Yard(rs.getInt("id"),
+                            rs.getString("default_color"),
+                            yard.getAssignationNumber()))
+                    .first();
+            updatedYard.AssignWarehouse(yard.getWarehouse());
             handler.close();
-            return yard;
+            return updatedYard;
         }
     }
 
     /**
-     * @param color
-     * @param warehouse
-     * @return
+     * Runs a registration in one transaction of the shard of the warehouse,
+     * or in the transaction of the caller in the default database. The lock
+     * of the outbox of the warehouse is taken and its partition created
+     * before the registration.
+     * @param warehouse the warehouse of the yards.
+     * @param registration the statements of the registration.
+     * @param <T> the type of the registered yards.
+     * @return the registered yards.
      */
-    private int getNextAssignationNumber(String color, String warehouse){
+    private <T> T inRegistration(String warehouse,
+                                 HandleCallback<T, RuntimeException> registration) {
+        boolean partitioned = partitionedWarehouses.contains(warehouse);
+        try (Handle handler = shards.forWarehouse(warehouse).open()) {
+            boolean joined = handler.isInTransaction();
+            T registered = handler.inTransaction(transaction -> {
+                lockOutbox(transaction, warehouse);
+                if (!partitioned) {
+                    transaction.createCall("{call yard_ensure_partition(:warehouse)}")
+                            .bind("warehouse", warehouse)
+                            .invoke();
+                }
+                return registration.withHandle(transaction);
+            });
+            if (!partitioned) {
+                partitioned(warehouse, joined);
+            }
+            return registered;
+        }
+    }
+
+    /**
+     * Remembers the partition of the warehouse exists once the transaction
+     * that created it commits, a rolled back one leaves it to the next
+     * registration.
+     * @param warehouse the warehouse of the partition.
+     * @param joined if the partition was created in the spring transaction
+     *               of the caller, otherwise it's already committed.
+     */
+    private void partitioned(String warehouse, boolean joined) {
+        if (!joined || !TransactionSynchronizationManager
+                .isSynchronizationActive()) {
+            partitionedWarehouses.add(warehouse);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronizationAdapter() {
+                    @Override
+                    public void afterCommit() {
+                        partitionedWarehouses.add(warehouse);
+                    }
+                });
+    }
+
+    /**
+     * Takes the lock of the outbox of the warehouse until the end of the
+     * transaction, so the concurrent registrations of the warehouse don't
+     * take the same free slot.
+     * @param handler the handle of the transaction of the registration.
+     * @param warehouse the warehouse of the yards.
+     */
+    private void lockOutbox(Handle handler, String warehouse) {
+        handler.createQuery("select 1 from (select pg_advisory_xact_lock(" +
+                "hashtext('yard_change:' || :warehouse))) outbox_lock")
+                .bind("warehouse", warehouse)
+                .mapTo(int.class)
+                .one();
+    }
+
+    /**
+     * @param handler the handle of the transaction of the registration.
+     * @param color the color of the yard.
+     * @param warehouse the warehouse of the yard.
+     * @return the first free assignation number of the color.
+     */
+    private int getNextAssignationNumber(Handle handler, String color,
+                                         String warehouse){
         String sql_query = "Select assignation_number from YARD " +
         "where color=:color and warehouse=:warehouse order by assignation_number ASC";
 
-        try (Handle handler = dbi.open(); Query query_string = handler.createQuery(sql_query)) {
+        try (Query query_string = handler.createQuery(sql_query)) {
         	query_string
             	.bind("color", color)
             	.bind("warehouse", warehouse);
         	List<Integer> assignationNumbers = query_string.mapTo(Integer.class).list();
-            handler.close();
             int assignationNumber = 0;
             for (Integer num : assignationNumbers) {
             	assignationNumber++;
@@ -110,6 +283,30 @@ public class YardRepository {
         
     }
 
+    /**
+     * @param handler the handle of the transaction of the registration.
+     * @param colors the colors of the yards.
+     * @param warehouse the warehouse of the yards.
+     * @return the assignation numbers in use of each color.
+     */
+    private Map<String, Set<Integer>> getAssignationNumbers(Handle handler,
+                                                            String[] colors,
+                                                            String warehouse){
+        String sql_query = "Select color, assignation_number from YARD " +
+                "where color = any(:colors) and warehouse=:warehouse";
+        try (Query query_string = handler.createQuery(sql_query)) {
+            query_string
+                    .bind("colors", colors)
+                    .bind("warehouse", warehouse);
+            Map<String, Set<Integer>> used = new HashMap<>();
+            query_string.map((rs, ctx) -> Map.entry(rs.getString("color"),
+                    rs.getInt("assignation_number")))
+                    .forEach(entry -> used.computeIfAbsent(entry.getKey(),
+                            color -> new HashSet<>()).add(entry.getValue()));
+            return used;
+        }
+    }
+
     /**
      * Retrieve if an yard exists or not in the DB
      * @param id the id of the yard
@@ -119,7 +316,7 @@ public class YardRepository {
     public boolean exist(int id, String warehouse) {
         String sql_query = "Select count(*) from YARD " +
                 "where id= :id and warehouse=:warehouse";
-        try (Handle handler = dbi.open();
+        try (Handle handler = shards.forWarehouse(warehouse).open();
              Query query_string = handler.createQuery(sql_query)) {
             query_string
                     .bind("id", id)
@@ -140,7 +337,7 @@ public class YardRepository {
         String sql_query = "Select id,color,warehouse,assignation_number "+
                 "from YARD " +
                 "where id= :id and warehouse=:warehouse";
-        try (Handle handler = dbi.open();
+        try (Handle handler = shards.forWarehouse(warehouse).open();
              Query query_string = handler.createQuery(sql_query)) {
             query_string
                     .bind("id", id)
@@ -151,11 +348,33 @@ public class YardRepository {
         }
     }
 
+    /**
+     * Retrieve the {@link Yard} of several ids of a warehouse in one query.
+     * @param ids the ids of the yards.
+     * @param warehouse the warehouse that you are asking for.
+     * @return the yards that exist, in any order.
+     */
+    public List<Yard> getByIdsAndWarehouse(int[] ids, String warehouse) {
+        String sql_query = "Select id,color,warehouse,assignation_number "+
+                "from YARD " +
+                "where id = any(:ids) and warehouse=:warehouse";
+        try (Handle handler = shards.forWarehouse(warehouse).open();
+             Query query_string = handler.createQuery(sql_query)) {
+            query_string
+                    .bind("ids", ids)
+                    .bind("warehouse", warehouse);
+            List<Yard> yards = query_string.mapTo(Yard.class).list();
+            handler.close();
+            return yards;
+        }
+    }
+
+    @UsesWorkload(Workload.BULK)
     public List<Yard> getByWarehouse(String warehouse) {
         String sql_query = "Select id,color,warehouse,assignation_number "+
                 "from YARD " +
                 "where warehouse=:warehouse order by assignation_number";
-        try (Handle handler = dbi.open();
+        try (Handle handler = shards.forWarehouse(warehouse).open();
              Query query_string = handler.createQuery(sql_query)) {
             query_string
                     .bind("warehouse", warehouse);
@@ -169,7 +388,7 @@ public class YardRepository {
         String sql_query = "Select id,color,warehouse,assignation_number "+
                 "from YARD " +
                 "where warehouse=:warehouse and assignation_number=:assignationNumber order by assignation_number";
-        try (Handle handler = dbi.open();
+        try (Handle handler = shards.forWarehouse(warehouse).open();
              Query query_string = handler.createQuery(sql_query)) {
             query_string
                     .bind("warehouse", warehouse)
@@ -180,14 +399,130 @@ public class YardRepository {
         }
     }
 
+    /**
+     * Retrieve the warehouses with yards of every shard.
+     * @return the warehouses.
+     */
+    @UsesWorkload(Workload.BULK)
+    public List<String> getWarehouses() {
+        String sql_query = "Select distinct warehouse from YARD";
+        return shards.fanOut(dbi -> {
+            try (Handle handler = dbi.open();
+                 Query query_string = handler.createQuery(sql_query)) {
+                List<String> warehouses = query_string
+                        .mapTo(String.class).list();
+                handler.close();
+                return warehouses;
+            }
+        });
+    }
+
+    /**
+     * Retrieve all the yards of every shard, the shards are queried in
+     * parallel. Each shard has its own sequence of ids, so a yard is only
+     * identified by its warehouse and id.
+     * @return the yards of all the warehouses.
+     */
+    @UsesWorkload(Workload.BULK)
     public List<Yard> getAll() {
         String sql_query = "Select id,color,warehouse,assignation_number "+
                 "from YARD ";
-        try (Handle handler = dbi.open();
+        return shards.fanOut(dbi -> {
+            try (Handle handler = dbi.open();
+                 Query query_string = handler.createQuery(sql_query)) {
+                List<Yard> yards = query_string.mapTo(Yard.class).list();
+                handler.close();
+                return yards;
+            }
+        });
+    }
+
+    /**
+     * Count the yards of every shard by warehouse, color and if they have
+     * their default color, without reading the yards.
+     * @return the {@link ColorCount} of each group.
+     */
+    @UsesWorkload(Workload.BULK)
+    public List<ColorCount> getOccupancy() {
+        String sql_query = "Select warehouse, color, " +
+                "coalesce(color = default_color, false) as free, " +
+                "count(*) as yards, " +
+                "max(assignation_number) as max_assignation_number " +
+                "from YARD group by 1, 2, 3";
+        return shards.fanOut(dbi -> {
+            try (Handle handler = dbi.open();
+                 Query query_string = handler.createQuery(sql_query)) {
+                List<ColorCount> counts = query_string
+                        .map((rs, ctx) -> new ColorCount(
+                                rs.getString("warehouse"),
+                                ColorPalette.parse(rs.getString("color")),
+                                rs.getBoolean("free"),
+                                rs.getLong("yards"),
+                                rs.getInt("max_assignation_number")))
+                        .list();
+                handler.close();
+                return counts;
+            }
+        });
+    }
+
+    /**
+     * Retrieve the version of the yards of a warehouse, it changes on each
+     * registration or release of the warehouse.
+     * @param warehouse the warehouse of the yards.
+     * @return the sequence of the last change of the warehouse, 0 if it has
+     * none.
+     */
+    @UsesWorkload(Workload.BULK)
+    public long getVersion(String warehouse) {
+        String sql_query = "Select coalesce(max(seq), 0) from YARD_CHANGE " +
+                "where warehouse = :warehouse";
+        try (Handle handler = shards.forWarehouse(warehouse).open();
              Query query_string = handler.createQuery(sql_query)) {
-            List<Yard> yards = query_string.mapTo(Yard.class).list();
+            long version = query_string
+                    .bind("warehouse", warehouse)
+                    .mapTo(Long.class)
+                    .one();
             handler.close();
-            return yards;
+            return version;
+        }
+    }
+
+    /**
+     * Retrieve the changes of a warehouse committed after a sequence, in
+     * order.
+     * <p> The changes of a warehouse are committed in the order of their
+     * sequence, so a gap is a change rolled back or of other warehouse and
+     * nothing is held back. The changes of different warehouses are not, and
+     * each shard has its own sequence, so they are only read per warehouse.
+     * @param since the last sequence already known, 0 for all the changes.
+     * @param limit the maximum number of changes to retrieve.
+     * @param warehouse the warehouse of the changes, cannot be null.
+     * @return the {@link YardChange} after the sequence.
+     */
+    @UsesWorkload(Workload.BULK)
+    public List<YardChange> getChanges(long since, int limit, String warehouse) {
+        String sql_query = "Select seq, yard_id, warehouse, color, " +
+                "previous_color, assignation_number, changed_at " +
+                "from YARD_CHANGE where seq > :since and warehouse = :warehouse " +
+                "order by seq limit :limit";
+        try (Handle handler = shards.forWarehouse(warehouse).open();
+             Query query_string = handler.createQuery(sql_query)) {
+            List<YardChange> changes = query_string
+                    .bind("since", since)
+                    .bind("limit", limit)
+                    .bind("warehouse", warehouse)
+                    .map((rs, ctx) -> new YardChange(
+                            rs.getLong("seq"),
+                            rs.getInt("yard_id"),
+                            WarehouseCodes.canonical(rs.getString("warehouse")),
+                            ColorPalette.normalize(rs.getString("color")),
+                            ColorPalette.normalize(rs.getString("previous_color")),
+                            rs.getInt("assignation_number"),
+                            rs.getTimestamp("changed_at").toLocalDateTime()))
+                    .list();
+            handler.close();
+            return changes;
         }
     }
 
@@ -0,0 +1,195 @@
+package com.frubana.operations.logistics.yms.yard.domain.repository;
+
+import com.frubana.operations.logistics.yms.yard.domain.YardSnapshot;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/** The local file with the snapshot of the yards, written and read through
+ * a memory map so a restart reads it without copying it to the heap first.
+ * <p> The file has a header with a magic number, the format and the number
+ * of warehouses, then each warehouse with its name, version and yards, 20
+ * bytes per yard, and a CRC32 of everything before it. A new snapshot is
+ * written to a temporary file and moved over the old one, so a crash never
+ * leaves half a snapshot.
+ */
+@Component
+public class YardSnapshotFile {
+
+    /** The first bytes of the file, "YMSS". */
+    static final int MAGIC = 0x594D5353;
+
+    /** The version of the layout of the file. */
+    static final int FORMAT = 1;
+
+    /** The longest name of a warehouse, its length is an unsigned short. */
+    private static final int MAX_NAME_BYTES = 0xFFFF;
+
+    /** The bytes of each yard: id, color, assignation number, version. */
+    private static final int YARD_BYTES = 4 + 4 + 4 + 8;
+
+    /** The path of the snapshot, it's never null. */
+    private final Path path;
+
+    /** Constructor.
+     *
+     * @param path The path of the snapshot.
+     */
+    @Autowired
+    public YardSnapshotFile(
+            @Value("${yms.snapshot.path:yards.snapshot}") String path) {
+        this.path = Paths.get(path);
+    }
+
+    /** @return the path of the snapshot. */
+    public Path getPath() { return path; }
+
+    /** Replaces the snapshot.
+     *
+     * @param warehouses The yards of each warehouse, cannot be null.
+     * @throws IOException if the file cannot be written.
+     */
+    public void write(Collection<YardSnapshot> warehouses) throws IOException {
+        List<byte[]> names = new ArrayList<>(warehouses.size());
+        long size = 4 + 4 + 4 + 8;
+        for (YardSnapshot warehouse : warehouses) {
+            byte[] name = warehouse.getWarehouse()
+                    .getBytes(StandardCharsets.UTF_8);
+            if (name.length > MAX_NAME_BYTES) {
+                throw new IOException("The name of the warehouse is longer " +
+                        "than " + MAX_NAME_BYTES + " bytes");
+            }
+            names.add(name);
+            size += 2 + name.length + 8 + 4
+                    + (long) warehouse.size() * YARD_BYTES;
+        }
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary,
+                StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(
+                    FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC).putInt(FORMAT).putInt(warehouses.size());
+            int index = 0;
+            for (YardSnapshot warehouse : warehouses) {
+                byte[] name = names.get(index++);
+                buffer.putShort((short) name.length).put(name)
+                        .putLong(warehouse.getVersion())
+                        .putInt(warehouse.size());
+                for (int yard = 0; yard < warehouse.size(); yard++) {
+                    buffer.putInt(warehouse.getId(yard))
+                            .putInt(warehouse.getRgb(yard))
+                            .putInt(warehouse.getAssignationNumber(yard))
+                            .putLong(warehouse.getVersion(yard));
+                }
+            }
+            buffer.putLong(checksum(buffer, buffer.position()));
+            buffer.force();
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Reads the snapshot.
+     *
+     * @return the yards of each warehouse, empty if there is no snapshot.
+     * @throws IOException if the file cannot be read or it's corrupted.
+     */
+    public List<YardSnapshot> read() throws IOException {
+        if (!Files.exists(path)) {
+            return List.of();
+        }
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 4 + 4 + 4 + 8 || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid snapshot size " + size);
+            }
+            MappedByteBuffer buffer = channel.map(
+                    FileChannel.MapMode.READ_ONLY, 0, size);
+            int end = (int) size - 8;
+            if (checksum(buffer, end) != buffer.getLong(end)) {
+                throw new IOException("The snapshot checksum doesn't match");
+            }
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT) {
+                throw new IOException("Unknown snapshot format");
+            }
+            buffer.limit(end);
+            int count = buffer.getInt();
+            List<YardSnapshot> warehouses = new ArrayList<>(count);
+            for (int index = 0; index < count; index++) {
+                warehouses.add(readWarehouse(buffer));
+            }
+            return warehouses;
+        } catch (BufferUnderflowException | IllegalArgumentException
+                | NegativeArraySizeException e) {
+            throw new IOException("The snapshot is truncated", e);
+        }
+    }
+
+    /** Reads the yards of a warehouse.
+     *
+     * @param buffer The snapshot at the start of the warehouse.
+     * @return the yards of the warehouse.
+     */
+    private static YardSnapshot readWarehouse(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        if (length > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid name length " + length);
+        }
+        byte[] name = new byte[length];
+        buffer.get(name);
+        long version = buffer.getLong();
+        int size = buffer.getInt();
+        if (size < 0 || (long) size * YARD_BYTES > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid yard count " + size);
+        }
+        int[] ids = new int[size];
+        int[] rgbs = new int[size];
+        int[] assignationNumbers = new int[size];
+        long[] versions = new long[size];
+        for (int yard = 0; yard < size; yard++) {
+            ids[yard] = buffer.getInt();
+            rgbs[yard] = buffer.getInt();
+            assignationNumbers[yard] = buffer.getInt();
+            versions[yard] = buffer.getLong();
+        }
+        return new YardSnapshot(new String(name, StandardCharsets.UTF_8),
+                version, ids, rgbs, assignationNumbers, versions);
+    }
+
+    /** Computes the CRC32 of the start of a buffer.
+     *
+     * @param buffer The buffer, its position is not changed.
+     * @param end    The end of the bytes to check.
+     * @return the checksum.
+     */
+    private static long checksum(ByteBuffer buffer, int end) {
+        ByteBuffer bytes = buffer.duplicate();
+        bytes.position(0).limit(end);
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+}
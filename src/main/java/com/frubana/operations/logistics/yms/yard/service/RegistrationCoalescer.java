@@ -0,0 +1,306 @@
+package com.frubana.operations.logistics.yms.yard.service;
+
+import com.frubana.operations.logistics.yms.yard.domain.ColorPalette;
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import com.frubana.operations.logistics.yms.yard.domain.YardChangedEvent;
+import com.frubana.operations.logistics.yms.yard.domain.repository.YardRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/** Groups the concurrent registrations of a warehouse to persist them in a
+ * single transaction.
+ * <p> The first registration of a warehouse opens a batch that is persisted
+ * after {@code yms.register.coalesce.window} microseconds, or as soon as it
+ * reaches {@code yms.register.coalesce.max-batch} registrations. The
+ * batches of the same warehouse are persisted one at a time so their slots
+ * don't overlap. Disabled unless {@code yms.register.coalesce.enabled}.
+ * <p> A registration without color is rejected before joining a batch, so
+ * it can't fail the others. A registration cancelled before its batch is
+ * persisted is left out of it, but once the batch is being persisted its
+ * yard is registered even if its caller left: a client that retries after
+ * a timeout must look up the yard first to not register it twice.
+ */
+@Component
+public class RegistrationCoalescer {
+
+    /** Persists a batch of registrations of a warehouse.
+     */
+    @FunctionalInterface
+    public interface Persister {
+
+        /** Persists the yards in one transaction.
+         *
+         * @param warehouse The warehouse of the yards.
+         * @param yards     The yards to register, in arrival order.
+         * @return the registered yards in the same order.
+         */
+        List<Yard> persist(String warehouse, List<Yard> yards);
+    }
+
+    /** If the registrations are grouped. */
+    private final boolean enabled;
+
+    /** The time in microseconds a batch waits for more registrations. */
+    private final long window;
+
+    /** The registrations that close a batch. */
+    private final int maxBatch;
+
+    /** Persists the batches, it's never null. */
+    private final Persister persister;
+
+    /** The threads that persist the batches, it's never null. */
+    private final ScheduledExecutorService executor;
+
+    /** The open batch of each warehouse. */
+    private final Map<String, Batch> batches = new ConcurrentHashMap<>();
+
+    /** The lock of each warehouse held while persisting its batches, only
+     * while a batch of the warehouse uses it. */
+    private final Map<String, WarehouseLock> locks = new ConcurrentHashMap<>();
+
+    /** Constructor.
+     *
+     * @param repository   Repository to persist the yards.
+     * @param transactions Manager of the transactions of the batches.
+     * @param events       Publisher of the changes of the yards.
+     * @param enabled      If the registrations are grouped.
+     * @param window       The microseconds a batch waits.
+     * @param maxBatch     The registrations that close a batch.
+     * @param threads      The threads that persist the batches.
+     */
+    @Autowired
+    public RegistrationCoalescer(
+            YardRepository repository,
+            PlatformTransactionManager transactions,
+            ApplicationEventPublisher events,
+            @Value("${yms.register.coalesce.enabled:false}") boolean enabled,
+            @Value("${yms.register.coalesce.window:2000}") long window,
+            @Value("${yms.register.coalesce.max-batch:64}") int maxBatch,
+            @Value("${yms.register.coalesce.threads:2}") int threads) {
+        this(transactionalPersister(repository,
+                new TransactionTemplate(transactions), events),
+                enabled, window, maxBatch,
+                Executors.newScheduledThreadPool(threads,
+                        new CustomizableThreadFactory("yms-coalescer-")));
+    }
+
+    /** Constructor.
+     *
+     * @param persister Persists the batches, cannot be null.
+     * @param enabled   If the registrations are grouped.
+     * @param window    The microseconds a batch waits.
+     * @param maxBatch  The registrations that close a batch.
+     * @param executor  The threads that persist the batches, cannot be null.
+     */
+    public RegistrationCoalescer(Persister persister, boolean enabled,
+                                 long window, int maxBatch,
+                                 ScheduledExecutorService executor) {
+        this.persister = persister;
+        this.enabled = enabled;
+        this.window = window;
+        this.maxBatch = maxBatch;
+        this.executor = executor;
+    }
+
+    /** @return true if the registrations are grouped. */
+    public boolean isEnabled() { return enabled; }
+
+    /** Adds a registration to the open batch of its warehouse.
+     *
+     * @param yard      The yard to register, cannot be null.
+     * @param warehouse The warehouse of the yard, cannot be null.
+     * @return the registered yard once its batch is committed, or the error
+     * of the batch. Cancel it to leave the yard out of a batch not persisted
+     * yet.
+     */
+    public CompletableFuture<Yard> submit(Yard yard, String warehouse) {
+        if (yard.getRgb() == ColorPalette.NONE) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException(
+                    "The color of the yard cannot be null or empty"));
+        }
+        Registration registration = new Registration(yard);
+        Batch[] full = new Batch[1];
+        batches.compute(warehouse, (key, batch) -> {
+            if (batch == null) {
+                Batch opened = new Batch(warehouse);
+                opened.timer = executor.schedule(() -> expire(opened),
+                        window, TimeUnit.MICROSECONDS);
+                batch = opened;
+            }
+            batch.registrations.add(registration);
+            if (batch.registrations.size() >= maxBatch) {
+                full[0] = batch;
+                return null;
+            }
+            return batch;
+        });
+        if (full[0] != null) {
+            full[0].timer.cancel(false);
+            Batch batch = full[0];
+            executor.execute(() -> flush(batch));
+        }
+        return registration.result;
+    }
+
+    /** Persists a batch whose window ended, unless it was already closed
+     * because it was full.
+     *
+     * @param batch The batch.
+     */
+    private void expire(Batch batch) {
+        if (batches.remove(batch.warehouse, batch)) {
+            flush(batch);
+        }
+    }
+
+    /** Persists a closed batch and completes its registrations.
+     *
+     * @param batch The batch.
+     */
+    private void flush(Batch batch) {
+        // The registrations cancelled while waiting for the lock are left
+        // out, the callers are completed once the lock is released.
+        List<Registration> pending = new ArrayList<>();
+        List<Yard> registered;
+        try {
+            registered = locked(batch.warehouse, () -> {
+                List<Yard> yards = new ArrayList<>();
+                for (Registration registration : batch.registrations) {
+                    if (!registration.result.isDone()) {
+                        pending.add(registration);
+                        yards.add(registration.yard);
+                    }
+                }
+                return yards.isEmpty() ? yards
+                        : persister.persist(batch.warehouse, yards);
+            });
+        } catch (RuntimeException e) {
+            pending.forEach(registration ->
+                    registration.result.completeExceptionally(e));
+            return;
+        }
+        for (int i = 0; i < registered.size(); i++) {
+            pending.get(i).result.complete(registered.get(i));
+        }
+    }
+
+    /** Runs a task holding the lock of a warehouse, the lock is removed
+     * once no batch uses it.
+     *
+     * @param warehouse The warehouse.
+     * @param task      The task.
+     * @param <T>       The type of the result.
+     * @return the result of the task.
+     */
+    private <T> T locked(String warehouse, Supplier<T> task) {
+        WarehouseLock lock = locks.compute(warehouse, (key, current) -> {
+            WarehouseLock used = current == null ? new WarehouseLock() : current;
+            used.users++;
+            return used;
+        });
+        try {
+            synchronized (lock) {
+                return task.get();
+            }
+        } finally {
+            locks.computeIfPresent(warehouse,
+                    (key, current) -> --current.users == 0 ? null : current);
+        }
+    }
+
+    /** @return the number of warehouses with a batch being persisted. */
+    int getLocks() { return locks.size(); }
+
+    /** Stops the threads, the open batches are persisted first. */
+    @PreDestroy
+    public void close() {
+        executor.shutdown();
+    }
+
+    /** Creates the persister that registers each batch in one transaction
+     * and publishes its changes after the commit.
+     *
+     * @param repository  Repository to persist the yards.
+     * @param transaction The template of the transactions.
+     * @param events      Publisher of the changes of the yards.
+     * @return the {@link Persister}.
+     */
+    private static Persister transactionalPersister(
+            YardRepository repository, TransactionTemplate transaction,
+            ApplicationEventPublisher events) {
+        return (warehouse, yards) -> transaction.execute(status -> {
+            List<Yard> registered = repository.registerAll(yards, warehouse);
+            registered.forEach(yard -> events.publishEvent(
+                    new YardChangedEvent(yard, ColorPalette.NONE)));
+            return registered;
+        });
+    }
+
+    /** The registrations of a warehouse persisted together.
+     */
+    private static class Batch {
+
+        /** The warehouse of the registrations. */
+        private final String warehouse;
+
+        /** The registrations in arrival order. */
+        private final List<Registration> registrations = new ArrayList<>();
+
+        /** The task that closes the batch at the end of the window. */
+        private ScheduledFuture<?> timer;
+
+        /** Constructor.
+         *
+         * @param warehouse The warehouse of the registrations.
+         */
+        private Batch(String warehouse) {
+            this.warehouse = warehouse;
+        }
+    }
+
+    /** The lock of a warehouse and the batches that use it.
+     */
+    private static class WarehouseLock {
+
+        /** The batches persisting or waiting for the lock, changed only
+         * while the warehouse is locked by the map. */
+        private int users;
+    }
+
+    /** A yard waiting to be registered.
+     */
+    private static class Registration {
+
+        /** The yard to register. */
+        private final Yard yard;
+
+        /** Completed with the registered yard. */
+        private final CompletableFuture<Yard> result = new CompletableFuture<>();
+
+        /** Constructor.
+         *
+         * @param yard The yard to register.
+         */
+        private Registration(Yard yard) {
+            this.yard = yard;
+        }
+    }
+}
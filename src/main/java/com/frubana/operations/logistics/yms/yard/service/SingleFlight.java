@@ -0,0 +1,204 @@
+package com.frubana.operations.logistics.yms.yard.service;
+
+import com.frubana.operations.logistics.yms.common.datasource.Deadline;
+import com.frubana.operations.logistics.yms.common.datasource.DeadlineExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/** Shares one call among the concurrent identical calls of an operation.
+ * <p> A call only joins a flight that hasn't started yet, so the result is
+ * never read before the call arrived: while a flight of a key runs, the
+ * calls of the key wait together for the next one, made once the running
+ * one finishes. The calls that joined another's flight are counted in
+ * {@link #COLLAPSED_METRIC} by operation.
+ * <p> The joined calls receive the same result instance, it must not be
+ * modified.
+ * <p> The call runs with the latest {@link Deadline} of its callers, or
+ * without deadline if any caller has none, so a caller with a short
+ * deadline doesn't cancel the call of the others. Each caller waits for
+ * the result only until its own deadline.
+ *
+ * @param <K> The arguments of the operation.
+ * @param <V> The result of the operation.
+ */
+public class SingleFlight<K, V> {
+
+    /** Name of the counter of the calls that joined another's flight. */
+    public static final String COLLAPSED_METRIC = "yms.single.flight.collapsed";
+
+    /** The calls of the operation that joined another's flight. */
+    private final Counter collapsed;
+
+    /** The running and the next flight of each key. */
+    private final Map<K, Flights<V>> flights = new ConcurrentHashMap<>();
+
+    /** Constructor.
+     *
+     * @param operation The name of the operation, tag of the counter.
+     * @param registry  The registry of the counter, cannot be null.
+     */
+    public SingleFlight(String operation, MeterRegistry registry) {
+        this.collapsed = Counter.builder(COLLAPSED_METRIC)
+                .tag("operation", operation)
+                .register(registry);
+    }
+
+    /** Makes the call or joins the next identical one.
+     *
+     * @param key  The arguments of the call, cannot be null.
+     * @param call The call, made in the thread of the first caller of the
+     *             flight.
+     * @return the result of a call started after this one arrived.
+     * @throws DeadlineExceededException if the deadline of the caller
+     * passed waiting for the call of another.
+     */
+    public V execute(K key, Supplier<V> call) {
+        Flight<V>[] joined = newFlights(2);
+        boolean[] leads = new boolean[1];
+        Long deadline = Deadline.current();
+        flights.compute(key, (k, current) -> {
+            Flights<V> next = current == null ? new Flights<>() : current;
+            if (next.running == null) {
+                next.running = new Flight<>();
+                joined[0] = next.running;
+                leads[0] = true;
+            } else if (next.queued == null) {
+                next.queued = new Flight<>();
+                joined[0] = next.queued;
+                leads[0] = true;
+                // The flight waits for the running one.
+                joined[1] = next.running;
+            } else {
+                joined[0] = next.queued;
+            }
+            joined[0].join(deadline);
+            return next;
+        });
+        Flight<V> flight = joined[0];
+        if (!leads[0]) {
+            collapsed.increment();
+            return await(flight.result);
+        }
+        if (joined[1] != null) {
+            // The outcome of the previous flight doesn't matter, it started
+            // before this one's callers arrived.
+            joined[1].result.handle((result, error) -> null).join();
+        }
+        V result;
+        // Nobody joins the flight once it runs, so its deadline is final.
+        Long previous = Deadline.enter(flight.deadline);
+        try {
+            result = call.get();
+        } catch (RuntimeException | Error e) {
+            land(key, flight);
+            flight.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            Deadline.restore(previous);
+        }
+        land(key, flight);
+        flight.result.complete(result);
+        return result;
+    }
+
+    /** Starts the queued flight of a key once its running flight finished,
+     * before the callers of the finished flight are released so no caller
+     * joins a started flight.
+     *
+     * @param key    The arguments of the call.
+     * @param flight The finished flight.
+     */
+    private void land(K key, Flight<V> flight) {
+        flights.computeIfPresent(key, (k, current) -> {
+            if (current.running == flight) {
+                current.running = current.queued;
+                current.queued = null;
+            }
+            return current.running == null ? null : current;
+        });
+    }
+
+    /** Waits for the result of another's flight until the deadline of the
+     * current thread.
+     *
+     * @param result The result of the flight.
+     * @return the result.
+     */
+    private static <V> V await(CompletableFuture<V> result) {
+        try {
+            return result.get(Math.max(0, Deadline.remainingMillis()),
+                    TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new CompletionException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new DeadlineExceededException(
+                    "The deadline passed waiting for the shared call", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DeadlineExceededException(
+                    "Interrupted waiting for the shared call", e);
+        }
+    }
+
+    /** @param size The size of the array.
+     * @return an array of flights. */
+    @SuppressWarnings("unchecked")
+    private static <V> Flight<V>[] newFlights(int size) {
+        return new Flight[size];
+    }
+
+    /** The running and the next flight of a key, changed only while the key
+     * is locked by the map.
+     */
+    private static class Flights<V> {
+
+        /** The flight in progress, null if none. */
+        private Flight<V> running;
+
+        /** The flight that starts after the running one, null if none. */
+        private Flight<V> queued;
+    }
+
+    /** A call shared by the callers that joined it.
+     */
+    private static class Flight<V> {
+
+        /** The result of the call. */
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+
+        /** The latest deadline of the callers, null if one has none. */
+        private Long deadline;
+
+        /** If no caller joined yet. */
+        private boolean empty = true;
+
+        /** Adds a caller to the flight, while its key is locked by the map.
+         *
+         * @param callerDeadline The deadline of the caller, null if none.
+         */
+        private void join(Long callerDeadline) {
+            if (empty) {
+                deadline = callerDeadline;
+                empty = false;
+            } else if (deadline != null && (callerDeadline == null
+                    || callerDeadline - deadline > 0)) {
+                deadline = callerDeadline;
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.frubana.operations.logistics.yms.yard.service;
+
+import com.frubana.operations.logistics.yms.common.configuration.FormattedLogger;
+import com.frubana.operations.logistics.yms.yard.domain.YardChange;
+import com.frubana.operations.logistics.yms.yard.domain.YardChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.context.event.EventListener;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.UnicastProcessor;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Pushes the changes of the yards of a warehouse to the subscribed screens.
+ * <p> Each subscriber receives a snapshot of the yards and then the
+ * {@link YardChangedEvent} of the warehouse, read from the outbox by
+ * {@link YardOutboxRelay} so the changes made through every instance of the
+ * service are sent. The changes are buffered per
+ * subscriber up to {@code yms.stream.buffer-size}, a subscriber that falls
+ * behind loses its buffer and receives a new snapshot instead of slowing
+ * down the writers.
+ */
+@Component
+public class YardChangeFeed {
+
+    /** Name of the event with all the yards of the warehouse. */
+    public static final String SNAPSHOT_EVENT = "snapshot";
+
+    /** Name of the event with a change of a yard. */
+    public static final String CHANGE_EVENT = "change";
+
+    /** Logger. */
+    private final Logger logger = LoggerFactory.getLogger(YardChangeFeed.class);
+
+    /** Formatter to set the log in a specific format, it's never null. */
+    private final FormattedLogger logFormatter;
+
+    /** The service to read the snapshots, it's never null. */
+    private final YardService yardService;
+
+    /** The changes pending to send to each subscriber by warehouse, a
+     * warehouse is removed with its last subscriber. */
+    private final Map<String, Set<FluxSink<YardChangedEvent>>> subscribers =
+            new ConcurrentHashMap<>();
+
+    /** The changes that can be buffered for a subscriber. */
+    private final int bufferSize;
+
+    /** The time between heartbeats, it's never null. */
+    private final Duration heartbeat;
+
+    /** The relay of the changes of the outbox, it's never null. */
+    private final YardOutboxRelay relay;
+
+    /** Constructor.
+     *
+     * @param yardService  The service to read the snapshots.
+     * @param relay        The relay of the changes of the outbox.
+     * @param logFormatter Formatter to set the log, required.
+     * @param bufferSize   The changes that can be buffered per subscriber.
+     * @param heartbeat    The time in milliseconds between heartbeats.
+     */
+    @Autowired
+    public YardChangeFeed(YardService yardService,
+                          YardOutboxRelay relay,
+                          FormattedLogger logFormatter,
+                          @Value("${yms.stream.buffer-size:256}")
+                                  int bufferSize,
+                          @Value("${yms.stream.heartbeat-interval:15000}")
+                                  long heartbeat) {
+        this.yardService = yardService;
+        this.relay = relay;
+        this.logFormatter = logFormatter;
+        this.bufferSize = bufferSize;
+        this.heartbeat = Duration.ofMillis(heartbeat);
+    }
+
+    /** Subscribes to the yards of a warehouse.
+     *
+     * @param warehouse The warehouse to follow, cannot be null.
+     * @return the snapshot and changes of the warehouse with heartbeats in
+     * between, it never completes.
+     */
+    public Flux<ServerSentEvent<Object>> subscribe(String warehouse) {
+        Flux<ServerSentEvent<Object>> heartbeats = Flux.interval(heartbeat)
+                .onBackpressureDrop()
+                .map(tick -> ServerSentEvent.builder()
+                        .comment("heartbeat").build());
+        return Flux.merge(session(warehouse).retry(Exceptions::isOverflow),
+                heartbeats);
+    }
+
+    /** Sends the snapshot and then the changes of the warehouse until the
+     * buffer of the subscriber overflows.
+     * <p> The warehouse is followed and the subscriber registered before
+     * reading the snapshot so the changes committed meanwhile are not lost,
+     * they may be sent after a snapshot that already has them.
+     *
+     * @param warehouse The warehouse to follow.
+     * @return the events of the session, fails with an overflow error when
+     * the subscriber falls behind.
+     */
+    private Flux<ServerSentEvent<Object>> session(String warehouse) {
+        return Flux.defer(() -> {
+            // On overflow the pending changes are dropped so the subscriber
+            // gets the error, and the new snapshot, on its next request.
+            ArrayBlockingQueue<YardChangedEvent> pending =
+                    new ArrayBlockingQueue<>(bufferSize);
+            UnicastProcessor<YardChangedEvent> changes = UnicastProcessor
+                    .create(pending, dropped -> pending.clear(), () -> { });
+            FluxSink<YardChangedEvent> sink = changes.sink();
+            Runnable unfollow = relay.follow(warehouse);
+            subscribers.compute(warehouse, (key, sinks) -> {
+                Set<FluxSink<YardChangedEvent>> joined = sinks == null
+                        ? ConcurrentHashMap.newKeySet() : sinks;
+                joined.add(sink);
+                return joined;
+            });
+
+            Mono<ServerSentEvent<Object>> snapshot = Mono
+                    .fromCallable(() -> yardService.getYards(warehouse))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .map(yards -> ServerSentEvent.builder()
+                            .event(SNAPSHOT_EVENT).data(yards).build());
+            return snapshot
+                    .concatWith(changes.map(change -> ServerSentEvent.builder()
+                            .event(CHANGE_EVENT).data(change).build()))
+                    .doOnError(Exceptions::isOverflow, error -> resync(warehouse))
+                    .doFinally(signal -> {
+                        subscribers.computeIfPresent(warehouse,
+                                (key, sinks) -> sinks.remove(sink)
+                                        && sinks.isEmpty() ? null : sinks);
+                        unfollow.run();
+                    });
+        });
+    }
+
+    /** Sends a change of the outbox to the subscribers of its warehouse.
+     *
+     * @param change The change of the yard, cannot be null.
+     */
+    @EventListener
+    public void onYardChange(YardChange change) {
+        Set<FluxSink<YardChangedEvent>> sinks =
+                subscribers.get(change.getWarehouse());
+        if (sinks != null) {
+            YardChangedEvent event = YardChangedEvent.of(change);
+            sinks.forEach(sink -> sink.next(event));
+        }
+    }
+
+    /** @return the number of warehouses with subscribers. */
+    int getWarehouses() { return subscribers.size(); }
+
+    /** Obtains the current subscribers of a warehouse.
+     *
+     * @param warehouse The warehouse.
+     * @return the number of subscribers.
+     */
+    public int getSubscribers(String warehouse) {
+        Set<FluxSink<YardChangedEvent>> sinks = subscribers.get(warehouse);
+        return sinks == null ? 0 : sinks.size();
+    }
+
+    /** Logs a subscriber that fell behind and is sent a new snapshot.
+     *
+     * @param warehouse The warehouse of the subscriber.
+     */
+    private void resync(String warehouse) {
+        HashMap<String, Object> params = new HashMap<>();
+        params.put("warehouse", warehouse);
+        params.put("bufferSize", bufferSize);
+        logFormatter.logInfo(logger, "resync",
+                "Subscriber fell behind, sending a new snapshot", params);
+    }
+}
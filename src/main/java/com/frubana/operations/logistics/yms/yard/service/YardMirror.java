@@ -0,0 +1,383 @@
+package com.frubana.operations.logistics.yms.yard.service;
+
+import com.frubana.operations.logistics.yms.common.configuration.FormattedLogger;
+import com.frubana.operations.logistics.yms.yard.domain.ColorPalette;
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import com.frubana.operations.logistics.yms.yard.domain.YardChange;
+import com.frubana.operations.logistics.yms.yard.domain.YardSnapshot;
+import com.frubana.operations.logistics.yms.yard.domain.repository.YardRepository;
+import com.frubana.operations.logistics.yms.yard.domain.repository.YardSnapshotFile;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** The yards of each warehouse kept in memory and followed through the
+ * outbox of the changes, so the listings don't read the yard table.
+ * <p> A warehouse is loaded from the database the first time it's read,
+ * after that only the changes after its version are read. Only the
+ * warehouses with changes in the database are kept, so the unknown
+ * warehouses of the requests don't grow the mirror nor its snapshot. The
+ * mirror is written to a {@link YardSnapshotFile} every
+ * {@code yms.snapshot.interval} milliseconds and on shutdown, and restored
+ * from it on startup: each warehouse of the snapshot is checked against the
+ * last change of the database and only the missing changes are replayed, a
+ * warehouse newer than the database is loaded again.
+ */
+@Component
+public class YardMirror {
+
+    /** Name of the counter of the changes replayed. */
+    public static final String REPLAYED_METRIC = "yms.yard.mirror.replayed";
+
+    /** Name of the counter of the full loads of a warehouse. */
+    public static final String LOADS_METRIC = "yms.yard.mirror.loads";
+
+    /** Logger. */
+    private final Logger logger = LoggerFactory.getLogger(YardMirror.class);
+
+    /** Formatter to set the log in a specific format, it's never null. */
+    private final FormattedLogger logFormatter;
+
+    /** The repository of the yards and their changes, it's never null. */
+    private final YardRepository repository;
+
+    /** The snapshot of the warm restarts, it's never null. */
+    private final YardSnapshotFile snapshotFile;
+
+    /** Whether the snapshot is restored and written. */
+    private final boolean snapshotEnabled;
+
+    /** The changes read at once while replaying. */
+    private final int pageSize;
+
+    /** The changes replayed, it's never null. */
+    private final Counter replayed;
+
+    /** The full loads of a warehouse, it's never null. */
+    private final Counter loads;
+
+    /** The yards of each warehouse. */
+    private final Map<String, WarehouseYards> warehouses =
+            new ConcurrentHashMap<>();
+
+    /** Constructor.
+     *
+     * @param repository      Repository of the yards and their changes.
+     * @param snapshotFile    The snapshot of the warm restarts.
+     * @param registry        The registry of the metrics.
+     * @param logFormatter    Formatter to set the log, required.
+     * @param snapshotEnabled Whether the snapshot is restored and written.
+     * @param pageSize        The changes read at once while replaying.
+     */
+    @Autowired
+    public YardMirror(YardRepository repository,
+                      YardSnapshotFile snapshotFile,
+                      MeterRegistry registry,
+                      FormattedLogger logFormatter,
+                      @Value("${yms.snapshot.enabled:true}")
+                              boolean snapshotEnabled,
+                      @Value("${yms.snapshot.page-size:1000}") int pageSize) {
+        this.repository = repository;
+        this.snapshotFile = snapshotFile;
+        this.logFormatter = logFormatter;
+        this.snapshotEnabled = snapshotEnabled;
+        this.pageSize = pageSize;
+        this.replayed = registry.counter(REPLAYED_METRIC);
+        this.loads = registry.counter(LOADS_METRIC);
+    }
+
+    /** Restores the snapshot once the application is ready, after the
+     * relations of the warehouses are loaded and before the warm-up reads
+     * the warehouses.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    public void onApplicationReady() {
+        restore();
+    }
+
+    /** Restores the warehouses of the snapshot that are still valid and
+     * replays their missing changes, the rest are loaded when read.
+     */
+    void restore() {
+        if (!snapshotEnabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        HashMap<String, Object> params = new HashMap<>();
+        params.put("path", snapshotFile.getPath().toString());
+        List<YardSnapshot> snapshots;
+        try {
+            snapshots = snapshotFile.read();
+        } catch (IOException e) {
+            logFormatter.logError(logger, "restore",
+                    "Couldn't read the snapshot of the yards", params, e);
+            return;
+        }
+        List<String> restored = new ArrayList<>();
+        List<String> discarded = new ArrayList<>();
+        double replayedBefore = replayed.count();
+        for (YardSnapshot snapshot : snapshots) {
+            String warehouse = snapshot.getWarehouse();
+            try {
+                // A database behind the snapshot was restored or replaced,
+                // its changes cannot be replayed over it.
+                long current = repository.getVersion(warehouse);
+                if (current == 0 || current < snapshot.getVersion()) {
+                    discarded.add(warehouse);
+                    continue;
+                }
+                WarehouseYards yards = new WarehouseYards(snapshot);
+                synchronized (yards) {
+                    catchUp(warehouse, yards);
+                }
+                warehouses.putIfAbsent(warehouse, yards);
+                restored.add(warehouse);
+            } catch (RuntimeException e) {
+                discarded.add(warehouse);
+                params.put("warehouse", warehouse);
+                logFormatter.logError(logger, "restore",
+                        "Couldn't restore the warehouse", params, e);
+            }
+        }
+        params.put("restored", restored);
+        params.put("discarded", discarded);
+        params.put("replayed", (long) (replayed.count() - replayedBefore));
+        params.put("elapsedMs", System.currentTimeMillis() - start);
+        logFormatter.logInfo(logger, "restore",
+                "Restored the snapshot of the yards", params);
+    }
+
+    /** Writes the snapshot of the warehouses in memory.
+     */
+    @Scheduled(initialDelayString = "${yms.snapshot.interval:60000}",
+            fixedDelayString = "${yms.snapshot.interval:60000}")
+    public void save() {
+        if (!snapshotEnabled || warehouses.isEmpty()) {
+            return;
+        }
+        List<YardSnapshot> snapshots = new ArrayList<>(warehouses.size());
+        warehouses.forEach((warehouse, yards) -> {
+            synchronized (yards) {
+                snapshots.add(yards.snapshot(warehouse));
+            }
+        });
+        try {
+            snapshotFile.write(snapshots);
+        } catch (IOException e) {
+            HashMap<String, Object> params = new HashMap<>();
+            params.put("path", snapshotFile.getPath().toString());
+            logFormatter.logError(logger, "save",
+                    "Couldn't write the snapshot of the yards", params, e);
+        }
+    }
+
+    /** Writes the last snapshot before the application stops.
+     */
+    @PreDestroy
+    public void close() {
+        save();
+    }
+
+    /** Obtains the yards of a warehouse at a version or a newer one.
+     *
+     * @param warehouse The warehouse, cannot be null.
+     * @param version   The version the yards must include, as returned by
+     *                  {@link YardRepository#getVersion(String)}.
+     * @return the yards ordered by assignation number.
+     */
+    public List<Yard> getYards(String warehouse, long version) {
+        WarehouseYards yards = warehouses.get(warehouse);
+        if (yards == null) {
+            yards = load(warehouse);
+        }
+        synchronized (yards) {
+            if (yards.version < version) {
+                catchUp(warehouse, yards);
+            }
+            if (yards.version >= version) {
+                return yards.toList(warehouse);
+            }
+        }
+        // The changes before the version are gone, e.g. the warehouse moved
+        // to another database.
+        return load(warehouse).toList(warehouse);
+    }
+
+    /** Loads all the yards of a warehouse from the database.
+     *
+     * @param warehouse The warehouse, cannot be null.
+     * @return the yards, they replaced the ones in memory unless the
+     * warehouse has no changes.
+     */
+    private WarehouseYards load(String warehouse) {
+        loads.increment();
+        // The version is read first, the replay of the changes already in
+        // the yards writes the same values again.
+        long version = repository.getVersion(warehouse);
+        WarehouseYards yards = new WarehouseYards(version,
+                repository.getByWarehouse(warehouse));
+        if (version > 0) {
+            warehouses.put(warehouse, yards);
+        } else {
+            warehouses.remove(warehouse);
+        }
+        return yards;
+    }
+
+    /** Applies the changes of a warehouse after its version, the caller
+     * holds the lock of the yards.
+     *
+     * @param warehouse The warehouse, cannot be null.
+     * @param yards     The yards of the warehouse.
+     */
+    private void catchUp(String warehouse, WarehouseYards yards) {
+        List<YardChange> changes;
+        do {
+            changes = repository.getChanges(yards.version, pageSize,
+                    warehouse);
+            for (YardChange change : changes) {
+                yards.apply(change);
+            }
+            replayed.increment(changes.size());
+        } while (changes.size() == pageSize);
+    }
+
+    /** The yards of a warehouse in memory.
+     */
+    private static class WarehouseYards {
+
+        /** The sequence of the last change applied. */
+        private long version;
+
+        /** The yards by id. */
+        private final Map<Integer, MirroredYard> yards;
+
+        /** Creates the yards read from the database.
+         *
+         * @param version The version read before the yards.
+         * @param read    The yards.
+         */
+        private WarehouseYards(long version, List<Yard> read) {
+            this.version = version;
+            this.yards = new HashMap<>(read.size() * 2);
+            for (Yard yard : read) {
+                yards.put(yard.getId(), new MirroredYard(yard.getRgb(),
+                        yard.getAssignationNumber(), version));
+            }
+        }
+
+        /** Creates the yards of a snapshot.
+         *
+         * @param snapshot The snapshot of the warehouse.
+         */
+        private WarehouseYards(YardSnapshot snapshot) {
+            this.version = snapshot.getVersion();
+            this.yards = new HashMap<>(snapshot.size() * 2);
+            for (int index = 0; index < snapshot.size(); index++) {
+                yards.put(snapshot.getId(index), new MirroredYard(
+                        snapshot.getRgb(index),
+                        snapshot.getAssignationNumber(index),
+                        snapshot.getVersion(index)));
+            }
+        }
+
+        /** Applies a change, the outbox has the whole yard after it.
+         *
+         * @param change The change.
+         */
+        private void apply(YardChange change) {
+            if (change.getColor() != null) {
+                yards.put(change.getYardId(), new MirroredYard(
+                        ColorPalette.parse(change.getColor()),
+                        change.getAssignationNumber(), change.getSeq()));
+            }
+            version = Math.max(version, change.getSeq());
+        }
+
+        /** Copies the yards.
+         *
+         * @param warehouse The warehouse of the yards.
+         * @return the yards ordered by assignation number.
+         */
+        private List<Yard> toList(String warehouse) {
+            List<Yard> list = new ArrayList<>(yards.size());
+            yards.forEach((id, mirrored) -> {
+                Yard yard = new Yard(id, mirrored.rgb,
+                        mirrored.assignationNumber);
+                yard.AssignWarehouse(warehouse);
+                list.add(yard);
+            });
+            list.sort(Comparator.comparingInt(Yard::getAssignationNumber)
+                    .thenComparingInt(Yard::getId));
+            return list;
+        }
+
+        /** Copies the yards to a snapshot.
+         *
+         * @param warehouse The warehouse of the yards.
+         * @return the snapshot.
+         */
+        private YardSnapshot snapshot(String warehouse) {
+            int size = yards.size();
+            int[] ids = new int[size];
+            int[] rgbs = new int[size];
+            int[] assignationNumbers = new int[size];
+            long[] versions = new long[size];
+            int index = 0;
+            for (Map.Entry<Integer, MirroredYard> entry : yards.entrySet()) {
+                ids[index] = entry.getKey();
+                rgbs[index] = entry.getValue().rgb;
+                assignationNumbers[index] = entry.getValue().assignationNumber;
+                versions[index] = entry.getValue().version;
+                index++;
+            }
+            return new YardSnapshot(warehouse, version, ids, rgbs,
+                    assignationNumbers, versions);
+        }
+    }
+
+    /** A yard in memory.
+     */
+    private static class MirroredYard {
+
+        /** The color packed as 0xRRGGBB. */
+        private final int rgb;
+
+        /** The space location. */
+        private final int assignationNumber;
+
+        /** The sequence of its last change. */
+        private final long version;
+
+        /** Constructor.
+         *
+         * @param rgb               The color packed as 0xRRGGBB.
+         * @param assignationNumber The space location.
+         * @param version           The sequence of its last change.
+         */
+        private MirroredYard(int rgb, int assignationNumber, long version) {
+            this.rgb = rgb;
+            this.assignationNumber = assignationNumber;
+            this.version = version;
+        }
+    }
+}
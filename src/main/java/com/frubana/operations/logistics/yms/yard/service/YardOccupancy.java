@@ -0,0 +1,196 @@
+package com.frubana.operations.logistics.yms.yard.service;
+
+import com.frubana.operations.logistics.yms.common.configuration.FormattedLogger;
+import com.frubana.operations.logistics.yms.yard.domain.ColorCount;
+import com.frubana.operations.logistics.yms.yard.domain.ColorPalette;
+import com.frubana.operations.logistics.yms.yard.domain.OccupancySummary;
+import com.frubana.operations.logistics.yms.yard.domain.OccupancySummary.ColorOccupancy;
+import com.frubana.operations.logistics.yms.yard.domain.YardChangedEvent;
+import com.frubana.operations.logistics.yms.yard.domain.repository.YardRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Counters of the used and free yards of each color by warehouse, so the
+ * summaries are answered without reading the yards.
+ * <p> The counters are seeded with one aggregation when the application is
+ * ready and reseeded periodically to pick up the changes made by other
+ * instances, between seeds they are updated with the
+ * {@link YardChangedEvent} of the committed changes.
+ */
+@Component
+public class YardOccupancy {
+
+    /** Logger. */
+    private final Logger logger = LoggerFactory.getLogger(YardOccupancy.class);
+
+    /** Formatter to set the log in a specific format, it's never null. */
+    private final FormattedLogger logFormatter;
+
+    /** The repository to aggregate the yards, it's never null. */
+    private final YardRepository repository;
+
+    /** The counters of each warehouse, replaced as a whole on each seed. */
+    private volatile Map<String, WarehouseCounters> warehouses =
+            new ConcurrentHashMap<>();
+
+    /** Constructor.
+     *
+     * @param repository   Repository to aggregate the yards.
+     * @param logFormatter Formatter to set the log, required.
+     */
+    @Autowired
+    public YardOccupancy(YardRepository repository,
+                         FormattedLogger logFormatter) {
+        this.repository = repository;
+        this.logFormatter = logFormatter;
+    }
+
+    /** Seeds the counters once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reseed();
+    }
+
+    /** Recomputes the counters from the database, keeping the current ones
+     * if the database cannot be reached.
+     */
+    @Scheduled(initialDelayString = "${yms.occupancy.reseed-interval:300000}",
+            fixedDelayString = "${yms.occupancy.reseed-interval:300000}")
+    public void reseed() {
+        try {
+            seed(repository.getOccupancy());
+        } catch (RuntimeException e) {
+            logFormatter.logError(logger, "reseed",
+                    "Couldn't seed the occupancy counters", null, e);
+        }
+    }
+
+    /** Replaces the counters with the given aggregation.
+     *
+     * @param counts The yards by warehouse, color and state, cannot be null.
+     */
+    void seed(List<ColorCount> counts) {
+        Map<String, WarehouseCounters> seeded = new ConcurrentHashMap<>();
+        for (ColorCount count : counts) {
+            WarehouseCounters counters = seeded.computeIfAbsent(
+                    count.getWarehouse(), warehouse -> new WarehouseCounters());
+            ColorCounters color = counters.color(count.getRgb());
+            (count.isFree() ? color.free : color.used).add(count.getYards());
+            counters.maxAssignationNumber.accumulate(
+                    count.getMaxAssignationNumber());
+        }
+        warehouses = seeded;
+
+        HashMap<String, Object> params = new HashMap<>();
+        params.put("warehouses", seeded.keySet());
+        logFormatter.logInfo(logger, "seed",
+                "Seeded the occupancy counters", params);
+    }
+
+    /** Updates the counters with a committed change.
+     * <p> After a registration or a release the yard has its default color,
+     * so it's counted as free in its current color, a released yard stops
+     * being used in its previous color.
+     *
+     * @param event The change of the yard, cannot be null.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onYardChanged(YardChangedEvent event) {
+        int rgb = event.getYard().getRgb();
+        int previous = event.getPreviousRgb();
+        if (previous == rgb) {
+            return;
+        }
+        WarehouseCounters counters = warehouses.computeIfAbsent(
+                event.getWarehouse(), warehouse -> new WarehouseCounters());
+        if (previous != ColorPalette.NONE) {
+            counters.color(previous).used.decrement();
+        }
+        counters.color(rgb).free.increment();
+        counters.maxAssignationNumber.accumulate(
+                event.getYard().getAssignationNumber());
+    }
+
+    /** Obtains the occupancy of a warehouse.
+     *
+     * @param warehouse The warehouse, cannot be null.
+     * @return the {@link OccupancySummary}, empty if the warehouse has no
+     * yards.
+     */
+    public OccupancySummary getSummary(String warehouse) {
+        WarehouseCounters counters = warehouses.get(warehouse);
+        if (counters == null) {
+            return new OccupancySummary(Map.of(), 0);
+        }
+        return counters.summary();
+    }
+
+    /** Obtains the occupancy of every warehouse.
+     *
+     * @return the {@link OccupancySummary} by warehouse, never null.
+     */
+    public Map<String, OccupancySummary> getSummaries() {
+        Map<String, OccupancySummary> summaries = new TreeMap<>();
+        warehouses.forEach((warehouse, counters) ->
+                summaries.put(warehouse, counters.summary()));
+        return summaries;
+    }
+
+    /** The counters of a warehouse.
+     */
+    private static class WarehouseCounters {
+
+        /** The counters of each color packed as 0xRRGGBB. */
+        private final Map<Integer, ColorCounters> colors =
+                new ConcurrentHashMap<>();
+
+        /** The highest assignation number. */
+        private final LongAccumulator maxAssignationNumber =
+                new LongAccumulator(Math::max, 0);
+
+        /** Obtains the counters of a color, creating them if needed.
+         *
+         * @param rgb The color packed as 0xRRGGBB.
+         * @return the counters of the color.
+         */
+        private ColorCounters color(int rgb) {
+            return colors.computeIfAbsent(rgb, key -> new ColorCounters());
+        }
+
+        /** @return the current value of the counters. */
+        private OccupancySummary summary() {
+            Map<String, ColorOccupancy> summary = new TreeMap<>();
+            colors.forEach((rgb, counters) -> summary.put(
+                    ColorPalette.toHex(rgb), new ColorOccupancy(
+                            counters.used.sum(), counters.free.sum())));
+            return new OccupancySummary(summary,
+                    maxAssignationNumber.get());
+        }
+    }
+
+    /** The used and free yards of a color.
+     */
+    private static class ColorCounters {
+
+        /** The yards with this color that are not their default one. */
+        private final LongAdder used = new LongAdder();
+
+        /** The yards with this color as default color. */
+        private final LongAdder free = new LongAdder();
+    }
+}
@@ -0,0 +1,201 @@
+package com.frubana.operations.logistics.yms.yard.service;
+
+import com.frubana.operations.logistics.yms.common.configuration.FormattedLogger;
+import com.frubana.operations.logistics.yms.yard.domain.YardChange;
+import com.frubana.operations.logistics.yms.yard.domain.YardChangedEvent;
+import com.frubana.operations.logistics.yms.yard.domain.repository.YardRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/** Publishes the changes of the outbox of the followed warehouses as
+ * {@link YardChange} events, whichever instance of the service committed
+ * them.
+ * <p> The outbox of each followed warehouse is read every
+ * {@code yms.changes.poll-interval} milliseconds, and at once after a change
+ * of the warehouse is committed by this instance. The changes of a
+ * warehouse are committed in the order of their sequence, so each one is
+ * published once and in order from the first change after the warehouse is
+ * followed.
+ */
+@Component
+public class YardOutboxRelay {
+
+    /** Logger. */
+    private final Logger logger = LoggerFactory.getLogger(YardOutboxRelay.class);
+
+    /** Formatter to set the log in a specific format, it's never null. */
+    private final FormattedLogger logFormatter;
+
+    /** The repository to read the outbox, it's never null. */
+    private final YardRepository repository;
+
+    /** Publisher of the changes read, it's never null. */
+    private final ApplicationEventPublisher events;
+
+    /** The milliseconds between the reads of the outbox. */
+    private final long interval;
+
+    /** The changes read at once. */
+    private final int pageSize;
+
+    /** The thread that reads the outbox, it's never null. */
+    private final ScheduledExecutorService executor;
+
+    /** The followed warehouses, removed when nobody follows them. */
+    private final Map<String, Followed> followed = new ConcurrentHashMap<>();
+
+    /** Constructor.
+     *
+     * @param repository   Repository to read the outbox.
+     * @param events       Publisher of the changes read.
+     * @param logFormatter Formatter to set the log, required.
+     * @param interval     The milliseconds between the reads of the outbox.
+     * @param pageSize     The changes read at once.
+     */
+    @Autowired
+    public YardOutboxRelay(YardRepository repository,
+                           ApplicationEventPublisher events,
+                           FormattedLogger logFormatter,
+                           @Value("${yms.changes.poll-interval:1000}")
+                                   long interval,
+                           @Value("${yms.changes.max-limit:1000}")
+                                   int pageSize) {
+        this.repository = repository;
+        this.events = events;
+        this.logFormatter = logFormatter;
+        this.interval = interval;
+        this.pageSize = pageSize;
+        this.executor = Executors.newSingleThreadScheduledExecutor(
+                new CustomizableThreadFactory("yms-outbox-"));
+    }
+
+    /** Starts reading the outbox periodically. */
+    @PostConstruct
+    public void start() {
+        executor.scheduleWithFixedDelay(this::pollAll, interval, interval,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /** Stops reading the outbox. */
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /** Follows the changes of a warehouse committed from now on.
+     *
+     * @param warehouse The warehouse, cannot be null.
+     * @return the action that stops following it, to run once.
+     */
+    public Runnable follow(String warehouse) {
+        if (followed.computeIfPresent(warehouse, (key, current) -> {
+            current.followers++;
+            return current;
+        }) == null) {
+            // The version is read before joining so no change is missed, it's
+            // not used if the warehouse is followed meanwhile.
+            Followed following = new Followed(repository.getVersion(warehouse));
+            following.followers = 1;
+            followed.merge(warehouse, following, (current, ignored) -> {
+                current.followers++;
+                return current;
+            });
+        }
+        return () -> followed.computeIfPresent(warehouse,
+                (key, current) -> --current.followers == 0 ? null : current);
+    }
+
+    /** @return the number of warehouses followed. */
+    int getFollowed() { return followed.size(); }
+
+    /** Reads the outbox of a warehouse at once after this instance changed
+     * it.
+     *
+     * @param event The change of the yard, cannot be null.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onYardChanged(YardChangedEvent event) {
+        String warehouse = event.getWarehouse();
+        if (followed.containsKey(warehouse)) {
+            try {
+                executor.execute(() -> poll(warehouse));
+            } catch (RejectedExecutionException e) {
+                // The relay is closed.
+            }
+        }
+    }
+
+    /** Publishes the new changes of every followed warehouse. */
+    void pollAll() {
+        for (String warehouse : followed.keySet()) {
+            poll(warehouse);
+        }
+    }
+
+    /** Publishes the new changes of a warehouse, a failure is logged and the
+     * changes are read again on the next poll.
+     *
+     * @param warehouse The warehouse.
+     */
+    private void poll(String warehouse) {
+        Followed following = followed.get(warehouse);
+        if (following == null) {
+            return;
+        }
+        try {
+            List<YardChange> changes;
+            do {
+                changes = repository.getChanges(following.seq, pageSize,
+                        warehouse);
+                for (YardChange change : changes) {
+                    following.seq = change.getSeq();
+                    events.publishEvent(change);
+                }
+            } while (changes.size() == pageSize);
+        } catch (RuntimeException e) {
+            HashMap<String, Object> params = new HashMap<>();
+            params.put("warehouse", warehouse);
+            params.put("seq", following.seq);
+            logFormatter.logError(logger, "poll",
+                    "Couldn't read the outbox of the warehouse", params, e);
+        }
+    }
+
+    /** A followed warehouse.
+     */
+    private static class Followed {
+
+        /** The last change published, changed only by the thread of the
+         * relay. */
+        private volatile long seq;
+
+        /** The followers, changed only while the warehouse is locked by
+         * the map. */
+        private int followers;
+
+        /** Constructor.
+         *
+         * @param seq The last change already known.
+         */
+        private Followed(long seq) {
+            this.seq = seq;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.frubana.operations.logistics.yms.yard.service;
+
+import com.frubana.operations.logistics.yms.common.configuration.FormattedLogger;
+import com.frubana.operations.logistics.yms.common.datasource.Deadline;
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import com.frubana.operations.logistics.yms.yard.domain.YardOverview;
+import com.frubana.operations.logistics.yms.yard.domain.repository.YardRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/** Builds the overview of all the yards reading each warehouse in parallel.
+ * <p> The warehouses are read in read-only transactions on a bounded
+ * executor, a warehouse that fails or takes more than
+ * {@code yms.overview.warehouse-timeout} is left out and flagged as
+ * incomplete instead of failing the whole overview. The reads run with that
+ * timeout, or the deadline of the request if it's earlier, as their
+ * {@link Deadline}, so the statements of a warehouse left out are cancelled
+ * instead of running on in the background.
+ */
+@Component
+public class YardOverviewService {
+
+    /** Logger. */
+    private final Logger logger =
+            LoggerFactory.getLogger(YardOverviewService.class);
+
+    /** Formatter to set the log in a specific format, it's never null. */
+    private final FormattedLogger logFormatter;
+
+    /** The repository to read the yards, it's never null. */
+    private final YardRepository repository;
+
+    /** The read-only transactions of each warehouse, it's never null. */
+    private final TransactionTemplate readOnly;
+
+    /** The threads that read the warehouses, it's never null. */
+    private final ExecutorService executor;
+
+    /** The milliseconds to wait for each warehouse. */
+    private final long timeout;
+
+    /** Constructor.
+     *
+     * @param repository   Repository to read the yards.
+     * @param transactions Manager of the transactions of each warehouse.
+     * @param logFormatter Formatter to set the log, required.
+     * @param threads      The warehouses read at the same time.
+     * @param timeout      The milliseconds to wait for each warehouse.
+     */
+    @Autowired
+    public YardOverviewService(
+            YardRepository repository,
+            PlatformTransactionManager transactions,
+            FormattedLogger logFormatter,
+            @Value("${yms.overview.threads:8}") int threads,
+            @Value("${yms.overview.warehouse-timeout:2000}") long timeout) {
+        this.repository = repository;
+        this.logFormatter = logFormatter;
+        this.readOnly = new TransactionTemplate(transactions);
+        this.readOnly.setReadOnly(true);
+        this.timeout = timeout;
+        // When the queue is full the request thread reads the warehouse.
+        this.executor = new ThreadPoolExecutor(threads, threads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 32),
+                new CustomizableThreadFactory("yms-overview-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /** Reads the yards of every warehouse.
+     *
+     * @return the {@link YardOverview} with the warehouses read and the
+     * ones that failed or timed out.
+     */
+    public YardOverview getOverview() {
+        List<String> warehouses = repository.getWarehouses();
+        long deadline = Deadline.earliest(timeout);
+        Map<String, CompletableFuture<List<Yard>>> pending =
+                new LinkedHashMap<>(capacity(warehouses.size()));
+        for (String warehouse : warehouses) {
+            pending.put(warehouse, CompletableFuture.supplyAsync(
+                    Deadline.propagate(deadline, () -> readOnly.execute(
+                            status -> repository.getByWarehouse(warehouse))),
+                    executor));
+        }
+
+        Map<String, List<Yard>> yards =
+                new HashMap<>(capacity(warehouses.size()));
+        TreeSet<String> incomplete = new TreeSet<>();
+        for (Map.Entry<String, CompletableFuture<List<Yard>>> entry
+                : pending.entrySet()) {
+            // All the warehouses started together, so each one waits only
+            // what is left of the timeout.
+            long left = Math.max(0, deadline - System.nanoTime());
+            try {
+                List<Yard> found = entry.getValue()
+                        .get(left, TimeUnit.NANOSECONDS);
+                if (!found.isEmpty()) {
+                    yards.put(entry.getKey(), found);
+                }
+            } catch (TimeoutException | ExecutionException e) {
+                entry.getValue().cancel(false);
+                incomplete.add(entry.getKey());
+                HashMap<String, Object> params = new HashMap<>();
+                params.put("warehouse", entry.getKey());
+                logFormatter.logError(logger, "getOverview",
+                        "Couldn't read the warehouse in time", params, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                incomplete.add(entry.getKey());
+            }
+        }
+        return new YardOverview(yards, incomplete);
+    }
+
+    /** Stops the threads. */
+    @PreDestroy
+    public void close() {
+        executor.shutdown();
+    }
+
+    /** Calculates the capacity of a hash map that holds the given entries
+     * without resizing.
+     *
+     * @param entries The entries to hold.
+     * @return the initial capacity.
+     */
+    private static int capacity(int entries) {
+        return (int) (entries / 0.75f) + 1;
+    }
+}
@@ -1,36 +1,123 @@
 package com.frubana.operations.logistics.yms.yard.service;
 
+import com.frubana.operations.logistics.yms.common.datasource.Deadline;
+import com.frubana.operations.logistics.yms.common.datasource.DeadlineExceededException;
 import com.frubana.operations.logistics.yms.health.service.HealthCheck;
+import com.frubana.operations.logistics.yms.yard.domain.ColorPalette;
+import com.frubana.operations.logistics.yms.yard.domain.OccupancySummary;
 import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import com.frubana.operations.logistics.yms.yard.domain.YardChangePage;
+import com.frubana.operations.logistics.yms.yard.domain.YardChangedEvent;
+import com.frubana.operations.logistics.yms.yard.domain.YardLookup;
+import com.frubana.operations.logistics.yms.yard.domain.YardOverview;
 import com.frubana.operations.logistics.yms.yard.domain.repository.YardRepository;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker.State;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import io.github.resilience4j.retry.annotation.Retry;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /** Service of the some objects Logic.
+ * <p> The concurrent identical reads of the listings share one call with
+ * {@link SingleFlight}, started after each of them arrived.
  */
 @Component
 public class YardService implements HealthCheck {
     /** The name that represents this service. MUST NOT BE CHANGED. */
     public static final String SERVICE_NAME = "yms";
 
+    /** The key of the reads without arguments. */
+    private static final String ALL = "all";
+
 
     /** The repository to ask for data, it's never null. */
     private final YardRepository repository;
 
+    /** The counters of the yards of each warehouse, it's never null. */
+    private final YardOccupancy occupancy;
+
+    /** Publisher of the {@link YardChangedEvent}, it's never null. */
+    private final ApplicationEventPublisher events;
+
+    /** Groups the concurrent registrations when enabled, it's never null. */
+    private final RegistrationCoalescer coalescer;
+
+    /** Reads the yards of all the warehouses in parallel, it's never null. */
+    private final YardOverviewService overview;
+
+    /** The yards of each warehouse in memory, it's never null. */
+    private final YardMirror mirror;
+
+    /** Shares the reads of the version of a warehouse. */
+    private final SingleFlight<String, Long> versions;
+
+    /** Shares the reads of the yards of a warehouse. */
+    private final SingleFlight<String, List<Yard>> warehouseYards;
+
+    /** Shares the reads of the yards in memory of a warehouse version. */
+    private final SingleFlight<List<Object>, List<Yard>> mirroredYards;
+
+    /** Shares the reads of the warehouses. */
+    private final SingleFlight<String, List<String>> warehouses;
+
+    /** Shares the reads of all the yards. */
+    private final SingleFlight<String, List<Yard>> allYards;
+
+    /** Shares the reads of the yards of every warehouse. */
+    private final SingleFlight<String, YardOverview> overviews;
+
+    /** The circuit breaker of the calls to the database, it's never null. */
+    private final io.github.resilience4j.circuitbreaker.CircuitBreaker
+            circuitBreaker;
+
 
     /** Constructor.
      *
      * @param repository        Repository to persists or extract the needed
      *                          data of the tasks.
+     * @param occupancy         The counters of the yards of each warehouse.
+     * @param events            Publisher of the changes of the yards.
+     * @param coalescer         Groups the concurrent registrations.
+     * @param overview          Reads the yards of all the warehouses.
+     * @param circuitBreakers   The circuit breakers of the application.
+     * @param mirror            The yards of each warehouse in memory.
+     * @param registry          The registry of the collapsed reads.
      */
     @Autowired
-    public YardService(YardRepository repository) {
+    public YardService(YardRepository repository, YardOccupancy occupancy,
+                       ApplicationEventPublisher events,
+                       RegistrationCoalescer coalescer,
+                       YardOverviewService overview,
+                       CircuitBreakerRegistry circuitBreakers,
+                       YardMirror mirror,
+                       MeterRegistry registry) {
         this.repository = repository;
+        this.occupancy = occupancy;
+        this.events = events;
+        this.coalescer = coalescer;
+        this.overview = overview;
+        this.circuitBreaker = circuitBreakers.circuitBreaker(SERVICE_NAME);
+        this.mirror = mirror;
+        this.versions = new SingleFlight<>("getVersion", registry);
+        this.warehouseYards = new SingleFlight<>("getYards", registry);
+        this.mirroredYards = new SingleFlight<>("getMirroredYards", registry);
+        this.warehouses = new SingleFlight<>("getWarehouses", registry);
+        this.allYards = new SingleFlight<>("getAllYards", registry);
+        this.overviews = new SingleFlight<>("getOverview", registry);
     }
 
 
@@ -40,6 +127,7 @@ public class YardService implements HealthCheck {
      * @param warehouse The warehouse where the task belongs.
      * @return True if the tasks exists, false otherwise.
      */
+    @Transactional(readOnly = true)
     @Retry(name = SERVICE_NAME)
     @CircuitBreaker(name = SERVICE_NAME)
     public boolean exists(String id, String warehouse) {
@@ -52,6 +140,7 @@ public class YardService implements HealthCheck {
      * @param warehouse The warehouse where the task belongs.
      * @return The some object of the given id.
      */
+    @Transactional(readOnly = true)
     @Retry(name = SERVICE_NAME)
     @CircuitBreaker(name = SERVICE_NAME)
     public Yard getYard(String id, String warehouse) {
@@ -59,13 +148,51 @@ public class YardService implements HealthCheck {
     }
 
 
+    /** Returns the yards of several ids of a warehouse.
+     *
+     * @param ids       The ids of the wanted yards, without repeated ones.
+     * @param warehouse The warehouse where the yards belong.
+     * @return The yards found in the order of the ids and the missing ids.
+     */
+    @Transactional(readOnly = true)
+    @Retry(name = SERVICE_NAME)
+    @CircuitBreaker(name = SERVICE_NAME)
+    public YardLookup lookup(List<Integer> ids, String warehouse) {
+        Map<Integer, Yard> found = new HashMap<>();
+        for (Yard yard : repository.getByIdsAndWarehouse(
+                ids.stream().mapToInt(Integer::intValue).toArray(),
+                warehouse)) {
+            found.put(yard.getId(), yard);
+        }
+        List<Yard> yards = new ArrayList<>(found.size());
+        List<Integer> missing = new ArrayList<>(ids.size() - found.size());
+        for (Integer id : ids) {
+            Yard yard = found.get(id);
+            if (yard != null) {
+                yards.add(yard);
+            } else {
+                missing.add(id);
+            }
+        }
+        return new YardLookup(yards, missing);
+    }
+
+
+    /** The service is healthy while its circuit breaker lets the calls
+     * through, the database itself is checked by the other checks.
+     *
+     * @return false if the circuit breaker is open.
+     */
     @Override
     public boolean isServiceHealthy() {
-        return true;
+        return circuitBreaker.getState() != State.OPEN
+                && circuitBreaker.getState() != State.FORCED_OPEN;
     }
 
     /**
-     * Save a Yard in the repository
+     * Save a Yard in the repository, when the coalescer is enabled it's
+     * saved in the same transaction of the concurrent registrations of the
+     * warehouse.
      * @param yard
      * @param warehouse
      */
@@ -73,7 +200,42 @@ public class YardService implements HealthCheck {
     @Retry(name = SERVICE_NAME)
     @CircuitBreaker(name = SERVICE_NAME)
     public Yard registerYard(Yard yard, String warehouse) {
-       return this.repository.register(yard,warehouse);
+       if (coalescer.isEnabled()) {
+           return awaitRegistration(coalescer.submit(yard, warehouse));
+       }
+       Yard registered = this.repository.register(yard,warehouse);
+       events.publishEvent(new YardChangedEvent(registered, ColorPalette.NONE));
+       return registered;
+    }
+
+    /** Waits for a coalesced registration until the deadline of the
+     * request, without a deadline it waits until the batch is persisted.
+     *
+     * @param registration The registration submitted to the coalescer.
+     * @return the registered yard.
+     * @throws DeadlineExceededException if the deadline passed first, the
+     * registration is cancelled but if its batch was already being persisted
+     * the yard is registered anyway.
+     */
+    private Yard awaitRegistration(CompletableFuture<Yard> registration) {
+        try {
+            return registration.get(Math.max(0, Deadline.remainingMillis()),
+                    TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new CompletionException(e.getCause());
+        } catch (TimeoutException e) {
+            registration.cancel(false);
+            throw new DeadlineExceededException(
+                    "The deadline passed waiting for the registration", e);
+        } catch (InterruptedException e) {
+            registration.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new DeadlineExceededException(
+                    "Interrupted waiting for the registration", e);
+        }
     }
 
      /**
@@ -99,29 +261,107 @@ public class YardService implements HealthCheck {
     public Yard liberar(Yard yard) {
        Yard yardFound=getByWarehouseAndAssignationNumber(yard.getWarehouse(), yard.getAssignationNumber());
        if(yardFound!=null){
-        return this.repository.updateColorYard(yard);
+        Yard freed = this.repository.updateColorYard(yard);
+        events.publishEvent(new YardChangedEvent(freed, yard.getRgb()));
+        return freed;
        }else{
            return null;
        }
     }
 
+    /**
+     * get the version of the yards of a warehouse, it changes on each
+     * registration or release of the warehouse.
+     * @param warehouse the warehouse that contains the yards
+     */
+    @Transactional(readOnly = true)
+    @Retry(name = SERVICE_NAME)
+    @CircuitBreaker(name = SERVICE_NAME)
+    public long getVersion(String warehouse) {
+        return versions.execute(warehouse,
+                () -> repository.getVersion(warehouse));
+    }
+
     /**
      * get a list of yards by warehouse
      * @param warehouse the warehouse that contains the yards
      */
-    @Transactional
+    @Transactional(readOnly = true)
     @Retry(name = SERVICE_NAME)
     @CircuitBreaker(name = SERVICE_NAME)
     public List<Yard> getYards(String warehouse) {
-        return repository.getByWarehouse(warehouse);
+        return warehouseYards.execute(warehouse,
+                () -> repository.getByWarehouse(warehouse));
     }
+    /**
+     * get the yards of a warehouse from memory, reading only the changes
+     * after the yards already known.
+     * @param warehouse the warehouse that contains the yards
+     * @param version the version the yards must include, read before with
+     *                {@link #getVersion(String)}
+     */
+    @Retry(name = SERVICE_NAME)
+    @CircuitBreaker(name = SERVICE_NAME)
+    public List<Yard> getYards(String warehouse, long version) {
+        return mirroredYards.execute(List.of(warehouse, version),
+                () -> mirror.getYards(warehouse, version));
+    }
+
+    /**
+     * get the warehouses with yards of every shard.
+     */
+    @Transactional(readOnly = true)
+    @Retry(name = SERVICE_NAME)
+    @CircuitBreaker(name = SERVICE_NAME)
+    public List<String> getWarehouses() {
+        return warehouses.execute(ALL, repository::getWarehouses);
+    }
+
     /**
      * get a list of yards.
      */
-    @Transactional
+    @Transactional(readOnly = true)
     @Retry(name = SERVICE_NAME)
     @CircuitBreaker(name = SERVICE_NAME)
     public List<Yard> getYards() {
-        return repository.getAll();
+        return allYards.execute(ALL, repository::getAll);
+    }
+
+    /**
+     * get the yards of every warehouse, read in parallel.
+     */
+    @Retry(name = SERVICE_NAME)
+    @CircuitBreaker(name = SERVICE_NAME)
+    public YardOverview getOverview() {
+        return overviews.execute(ALL, overview::getOverview);
+    }
+
+    /**
+     * get the changes of the yards committed after a sequence.
+     * @param since the last sequence already known by the consumer.
+     * @param limit the maximum number of changes to return.
+     * @param warehouse the warehouse of the changes.
+     */
+    @Transactional(readOnly = true)
+    @Retry(name = SERVICE_NAME)
+    @CircuitBreaker(name = SERVICE_NAME)
+    public YardChangePage getChanges(long since, int limit, String warehouse) {
+        return new YardChangePage(
+                repository.getChanges(since, limit, warehouse), since);
+    }
+
+    /**
+     * get the used and free yards of each color of a warehouse.
+     * @param warehouse the warehouse that contains the yards
+     */
+    public OccupancySummary getSummary(String warehouse) {
+        return occupancy.getSummary(warehouse);
+    }
+
+    /**
+     * get the used and free yards of each color by warehouse.
+     */
+    public Map<String, OccupancySummary> getSummaries() {
+        return occupancy.getSummaries();
     }
 }
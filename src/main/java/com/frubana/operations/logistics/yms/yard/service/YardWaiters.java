@@ -0,0 +1,212 @@
+package com.frubana.operations.logistics.yms.yard.service;
+
+import com.frubana.operations.logistics.yms.yard.domain.ColorPalette;
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import com.frubana.operations.logistics.yms.yard.domain.YardChange;
+import com.frubana.operations.logistics.yms.yard.domain.YardChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.http.ResponseEntity.status;
+
+/** The requests parked until a yard of their color is freed.
+ * <p> The waiters of each warehouse and color are served in arrival order,
+ * each freed yard completes only the oldest waiter still waiting. The
+ * releases are read from the outbox by {@link YardOutboxRelay}, so a yard
+ * freed through any instance of the service wakes the waiters of this one.
+ * The waiters don't hold a thread, they are completed from the thread of
+ * the relay or by the container on timeout.
+ */
+@Component
+public class YardWaiters {
+
+    /** Name of the gauge with the current waiters. */
+    public static final String WAITERS_METRIC = "yms.yard.free.waiters";
+
+    /** Name of the timer of the waits, tagged with the outcome. */
+    public static final String WAIT_METRIC = "yms.yard.free.wait";
+
+    /** The waiters of each warehouse and color, oldest first. The queues
+     * are added and removed when empty inside the locks of the map, so a
+     * waiter is never parked in a queue that was already removed. */
+    private final Map<Key, Queue<Waiter>> waiters = new ConcurrentHashMap<>();
+
+    /** The number of requests waiting. */
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    /** The registry of the wait times, it's never null. */
+    private final MeterRegistry registry;
+
+    /** The relay of the changes of the outbox, it's never null. */
+    private final YardOutboxRelay relay;
+
+    /** Constructor.
+     *
+     * @param registry The registry of the metrics.
+     * @param relay    The relay of the changes of the outbox.
+     */
+    @Autowired
+    public YardWaiters(MeterRegistry registry, YardOutboxRelay relay) {
+        this.registry = registry;
+        this.relay = relay;
+        registry.gauge(WAITERS_METRIC, waiting);
+    }
+
+    /** Parks a request until a yard of the color is freed in the warehouse.
+     *
+     * @param warehouse The warehouse of the yard, cannot be null.
+     * @param rgb       The color of the yard packed as 0xRRGGBB.
+     * @param timeout   The milliseconds to wait before answering with no
+     *                  content.
+     * @return the result completed with the freed {@link Yard}, or with a
+     * 204 on timeout.
+     */
+    public DeferredResult<ResponseEntity<Object>> await(String warehouse,
+                                                        int rgb,
+                                                        long timeout) {
+        DeferredResult<ResponseEntity<Object>> result = new DeferredResult<>(
+                timeout, status(HttpStatus.NO_CONTENT).build());
+        Key key = new Key(warehouse, rgb);
+        // Followed before parking, so a release committed meanwhile wakes it.
+        Runnable unfollow = relay.follow(warehouse);
+        Waiter waiter = new Waiter(result, Timer.start(registry));
+        waiters.compute(key, (k, queue) -> {
+            Queue<Waiter> parked = queue == null
+                    ? new ConcurrentLinkedQueue<>() : queue;
+            parked.add(waiter);
+            return parked;
+        });
+        waiting.incrementAndGet();
+        result.onTimeout(() -> waiter.stop("timeout"));
+        result.onError(error -> waiter.stop("error"));
+        result.onCompletion(() -> {
+            waiters.computeIfPresent(key, (k, queue) -> {
+                if (queue.remove(waiter)) {
+                    waiting.decrementAndGet();
+                }
+                return queue.isEmpty() ? null : queue;
+            });
+            unfollow.run();
+        });
+        return result;
+    }
+
+    /** Completes the oldest waiter of a yard freed in the outbox.
+     *
+     * @param change The change of the yard, cannot be null.
+     */
+    @EventListener
+    public void onYardChange(YardChange change) {
+        YardChangedEvent event = YardChangedEvent.of(change);
+        Yard yard = event.getYard();
+        if (event.isRegistration() || event.getPreviousRgb() == yard.getRgb()) {
+            return;
+        }
+        Key key = new Key(event.getWarehouse(), yard.getRgb());
+        Queue<Waiter> queue = waiters.get(key);
+        if (queue == null) {
+            return;
+        }
+        Waiter waiter;
+        while ((waiter = queue.poll()) != null) {
+            waiting.decrementAndGet();
+            if (waiter.result.setResult(status(HttpStatus.OK).body(yard))) {
+                waiter.stop("freed");
+                break;
+            }
+        }
+        waiters.computeIfPresent(key,
+                (k, parked) -> parked.isEmpty() ? null : parked);
+    }
+
+    /** @return the number of warehouses and colors with waiters. */
+    int getQueues() { return waiters.size(); }
+
+    /** Obtains the requests waiting for a color.
+     *
+     * @param warehouse The warehouse of the yard.
+     * @param color     The color of the yard.
+     * @return the number of waiters.
+     */
+    public int getWaiters(String warehouse, String color) {
+        Queue<Waiter> queue = waiters.get(
+                new Key(warehouse, ColorPalette.parse(color)));
+        return queue == null ? 0 : queue.size();
+    }
+
+    /** A parked request.
+     */
+    private class Waiter {
+
+        /** The result to complete. */
+        private final DeferredResult<ResponseEntity<Object>> result;
+
+        /** The wait time measured since the request was parked. */
+        private final Timer.Sample sample;
+
+        /** Constructor.
+         *
+         * @param result The result to complete.
+         * @param sample The started measure of the wait.
+         */
+        private Waiter(DeferredResult<ResponseEntity<Object>> result,
+                       Timer.Sample sample) {
+            this.result = result;
+            this.sample = sample;
+        }
+
+        /** Records the wait time.
+         *
+         * @param outcome How the wait ended.
+         */
+        private void stop(String outcome) {
+            sample.stop(registry.timer(WAIT_METRIC, "outcome", outcome));
+        }
+    }
+
+    /** The warehouse and color of the waiters.
+     */
+    private static class Key {
+
+        /** The warehouse of the yard. */
+        private final String warehouse;
+
+        /** The color packed as 0xRRGGBB. */
+        private final int rgb;
+
+        /** Constructor.
+         *
+         * @param warehouse The warehouse of the yard.
+         * @param rgb       The color packed as 0xRRGGBB.
+         */
+        private Key(String warehouse, int rgb) {
+            this.warehouse = warehouse;
+            this.rgb = rgb;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return rgb == key.rgb && warehouse.equals(key.warehouse);
+        }
+
+        @Override
+        public int hashCode() { return Objects.hash(warehouse, rgb); }
+    }
+}
@@ -0,0 +1,76 @@
+-- Turns the yard table into a table list-partitioned by warehouse.
+-- Every warehouse gets its own partition, the rows of a warehouse without
+-- partition go to yard_default until yard_ensure_partition creates it.
+
+ALTER TABLE public.yard RENAME TO yard_unpartitioned;
+ALTER TABLE public.yard_unpartitioned
+    RENAME CONSTRAINT "PK_Yard" TO "PK_Yard_unpartitioned";
+ALTER SEQUENCE public.yard_id_seq OWNED BY NONE;
+
+CREATE TABLE public.yard (
+          Id integer not null default nextval('public.yard_id_seq'),
+          Color varchar,
+          Warehouse varchar not null,
+          assignation_number integer,
+          default_color varchar,
+          constraint "PK_Yard" primary key(Warehouse, ID)
+) PARTITION BY LIST (Warehouse);
+
+CREATE TABLE public.yard_default PARTITION OF public.yard DEFAULT;
+
+-- Used by the listings and the gap scan of the next assignation number.
+CREATE INDEX yard_color_assignation_index
+    ON public.yard (Warehouse, Color, assignation_number);
+
+-- Name of the partition of a warehouse, readable and collision free.
+CREATE OR REPLACE FUNCTION public.yard_partition_name(p_warehouse varchar)
+RETURNS varchar LANGUAGE sql IMMUTABLE AS $$
+    SELECT 'yard_' || lower(regexp_replace(p_warehouse, '[^A-Za-z0-9]+', '_', 'g'))
+        || '_' || substr(md5(p_warehouse), 1, 8);
+$$;
+
+-- Creates the partition of the warehouse if it does not exist, moving the
+-- rows that were stored in the default partition meanwhile.
+CREATE OR REPLACE FUNCTION public.yard_ensure_partition(p_warehouse varchar)
+RETURNS void LANGUAGE plpgsql AS $$
+DECLARE
+    partition_name varchar := public.yard_partition_name(p_warehouse);
+BEGIN
+    IF to_regclass('public.' || partition_name) IS NOT NULL THEN
+        RETURN;
+    END IF;
+    -- Several instances can register the first yard of a warehouse at once.
+    PERFORM pg_advisory_xact_lock(hashtext('yard_partition'), hashtext(p_warehouse));
+    IF to_regclass('public.' || partition_name) IS NOT NULL THEN
+        RETURN;
+    END IF;
+    EXECUTE format('CREATE TABLE public.%I (LIKE public.yard INCLUDING DEFAULTS)',
+                   partition_name);
+    EXECUTE format('WITH moved AS (DELETE FROM public.yard_default '
+                   'WHERE warehouse = %L RETURNING *) '
+                   'INSERT INTO public.%I SELECT * FROM moved',
+                   p_warehouse, partition_name);
+    EXECUTE format('ALTER TABLE public.yard ATTACH PARTITION public.%I '
+                   'FOR VALUES IN (%L)', partition_name, p_warehouse);
+END;
+$$;
+
+DO $$
+DECLARE
+    w varchar;
+BEGIN
+    FOR w IN SELECT DISTINCT warehouse FROM public.yard_unpartitioned
+             WHERE warehouse IS NOT NULL LOOP
+        PERFORM public.yard_ensure_partition(w);
+    END LOOP;
+END;
+$$;
+
+-- The API always registers the yards with a warehouse, the legacy rows
+-- without one are kept in the default partition.
+INSERT INTO public.yard (Id, Color, Warehouse, assignation_number, default_color)
+SELECT Id, Color, COALESCE(Warehouse, ''), assignation_number, default_color
+FROM public.yard_unpartitioned;
+
+DROP TABLE public.yard_unpartitioned;
+ALTER SEQUENCE public.yard_id_seq OWNED BY public.yard.Id;
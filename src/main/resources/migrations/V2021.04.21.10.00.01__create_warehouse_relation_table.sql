@@ -0,0 +1,14 @@
+-- Relations of each warehouse with its country and region.
+
+CREATE TABLE IF NOT EXISTS public.warehouse_relation (
+          Warehouse varchar not null,
+          Name varchar not null,
+          Country varchar not null,
+          Region varchar not null,
+          updated_at timestamp not null default CURRENT_TIMESTAMP,
+          constraint "PK_Warehouse_Relation" primary key(Warehouse)
+);
+
+INSERT INTO public.warehouse_relation (Warehouse, Name, Country, Region)
+VALUES ('PA', 'Puente aranda', 'co', 'BOG')
+ON CONFLICT (Warehouse) DO NOTHING;
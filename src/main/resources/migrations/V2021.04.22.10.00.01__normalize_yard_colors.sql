@@ -0,0 +1,64 @@
+-- Normalizes the hexadecimal colors to #RRGGBB in upper case, the same
+-- representation used by the service, so case variants like #d3d3d3 and
+-- #D3D3D3 share the same slot sequence. The rows whose color is not
+-- hexadecimal can't be read by the service, so they are moved to
+-- yard_rejected to be fixed by hand.
+
+UPDATE public.yard
+SET Color = '#' || regexp_replace(upper(ltrim(btrim(Color), '#')),
+                                  '^(.)(.)(.)$', '\1\1\2\2\3\3')
+WHERE ltrim(btrim(Color), '#') ~* '^([0-9a-f]{3}|[0-9a-f]{6})$'
+  AND Color !~ '^#[0-9A-F]{6}$';
+
+CREATE TABLE public.yard_rejected (
+          Id integer not null,
+          Color varchar,
+          Warehouse varchar not null,
+          assignation_number integer,
+          default_color varchar,
+          rejected_at timestamp not null default now(),
+          constraint "PK_Yard_rejected" primary key(Warehouse, Id)
+);
+
+WITH rejected AS (
+    DELETE FROM public.yard
+    WHERE Color IS NULL OR Color !~ '^#[0-9A-F]{6}$'
+    RETURNING Id, Color, Warehouse, assignation_number, default_color
+)
+INSERT INTO public.yard_rejected (Id, Color, Warehouse, assignation_number,
+                                  default_color)
+SELECT Id, Color, Warehouse, assignation_number, default_color
+FROM rejected;
+
+-- The legacy yards have no default color, the release gives them back the
+-- color they were registered with.
+UPDATE public.yard
+SET default_color = '#' || regexp_replace(upper(ltrim(btrim(default_color), '#')),
+                                          '^(.)(.)(.)$', '\1\1\2\2\3\3')
+WHERE ltrim(btrim(default_color), '#') ~* '^([0-9a-f]{3}|[0-9a-f]{6})$'
+  AND default_color !~ '^#[0-9A-F]{6}$';
+
+UPDATE public.yard
+SET default_color = Color
+WHERE default_color IS NULL OR default_color !~ '^#[0-9A-F]{6}$';
+
+-- The case variants that had the same slot of their color now share the
+-- color, so the newer ones get the next free slots of it.
+WITH numbered AS (
+    SELECT Warehouse, Id, Color,
+           row_number() OVER (PARTITION BY Warehouse, Color, assignation_number
+                              ORDER BY Id) AS duplicate,
+           max(assignation_number) OVER (PARTITION BY Warehouse, Color) AS last
+    FROM public.yard
+    WHERE assignation_number IS NOT NULL
+), renumbered AS (
+    SELECT Warehouse, Id,
+           last + row_number() OVER (PARTITION BY Warehouse, Color
+                                     ORDER BY Id) AS assignation_number
+    FROM numbered
+    WHERE duplicate > 1
+)
+UPDATE public.yard y
+SET assignation_number = r.assignation_number
+FROM renumbered r
+WHERE y.Warehouse = r.Warehouse AND y.Id = r.Id;
@@ -0,0 +1,25 @@
+-- Outbox with every change of the yards, written in the same statement of
+-- the change. The writers take the advisory lock yard_change until their
+-- commit, so the sequence is committed in order and a reader that saw seq N
+-- never receives a lower seq later.
+
+CREATE TABLE public.yard_change (
+          seq bigserial not null,
+          yard_id integer not null,
+          Warehouse varchar not null,
+          Color varchar,
+          previous_color varchar,
+          assignation_number integer,
+          changed_at timestamp not null default now(),
+          constraint "PK_Yard_change" primary key(seq)
+);
+
+-- Used by the consumers that follow a single warehouse.
+CREATE INDEX yard_change_warehouse_index
+    ON public.yard_change (Warehouse, seq);
+
+-- The current yards are the starting point of the consumers.
+INSERT INTO public.yard_change (yard_id, Warehouse, Color, assignation_number)
+SELECT Id, Warehouse, Color, assignation_number
+FROM public.yard
+ORDER BY Id;
@@ -0,0 +1,8 @@
+-- The writers of the outbox now take the advisory lock yard_change:<warehouse>
+-- until their commit, so the sequence is committed in order inside each
+-- warehouse only and the outbox is read per warehouse. As the transactions
+-- of different warehouses overlap, changed_at records when the change was
+-- written instead of when its transaction started.
+
+ALTER TABLE public.yard_change
+    ALTER COLUMN changed_at SET DEFAULT clock_timestamp();
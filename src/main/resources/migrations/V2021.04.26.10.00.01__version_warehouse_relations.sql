@@ -0,0 +1,24 @@
+-- Every insert or update of a relation takes a new revision, so the version
+-- of the relations, their count and last revision, changes on each change.
+-- The updates also set updated_at, the statements never did.
+
+CREATE SEQUENCE public.warehouse_relation_revision_seq;
+
+ALTER TABLE public.warehouse_relation
+    ADD revision bigint not null
+        default nextval('public.warehouse_relation_revision_seq');
+
+CREATE OR REPLACE FUNCTION public.warehouse_relation_touch()
+RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    NEW.revision := nextval('public.warehouse_relation_revision_seq');
+    IF TG_OP = 'UPDATE' THEN
+        NEW.updated_at := clock_timestamp();
+    END IF;
+    RETURN NEW;
+END;
+$$;
+
+CREATE TRIGGER warehouse_relation_touch
+    BEFORE INSERT OR UPDATE ON public.warehouse_relation
+    FOR EACH ROW EXECUTE FUNCTION public.warehouse_relation_touch();
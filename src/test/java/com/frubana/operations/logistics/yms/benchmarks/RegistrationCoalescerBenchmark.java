@@ -0,0 +1,145 @@
+package com.frubana.operations.logistics.yms.benchmarks;
+
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import com.frubana.operations.logistics.yms.yard.service.RegistrationCoalescer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/** Measures the latency of the registrations of a burst with and without
+ * the {@link RegistrationCoalescer}, against a fake database whose commits
+ * are flushed one at a time and cost a fixed time regardless of the rows,
+ * like an fsync of the log.
+ * <p> A window of 0 registers each yard in its own transaction. The
+ * commits per second of each run are printed at the end of each iteration.
+ * Run it with the {@code main} as described in the README.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Threads(32)
+@Fork(1)
+public class RegistrationCoalescerBenchmark {
+
+    /** The time in microseconds each batch waits, 0 without coalescer. */
+    @Param({"0", "500", "2000"})
+    public long window;
+
+    /** The time in microseconds of each commit. */
+    @Param({"1000"})
+    public long commit;
+
+    /** The log of the fake database, flushed by one commit at a time. */
+    private final Object log = new Object();
+
+    /** Commits made by the fake database. */
+    private final AtomicLong commits = new AtomicLong();
+
+    /** The start of the current iteration. */
+    private long start;
+
+    /** The coalescer, null if the window is 0. */
+    private RegistrationCoalescer coalescer;
+
+    /** Creates the coalescer with the fake database.
+     */
+    @Setup
+    public void setUp() {
+        coalescer = window == 0 ? null : new RegistrationCoalescer(
+                this::persist, true, window, 64,
+                Executors.newScheduledThreadPool(2));
+    }
+
+    /** Resets the commits of the iteration.
+     */
+    @Setup(Level.Iteration)
+    public void startIteration() {
+        commits.set(0);
+        start = System.nanoTime();
+    }
+
+    /** Prints the commits per second of the iteration.
+     */
+    @TearDown(Level.Iteration)
+    public void endIteration() {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%n  window %d us: %.0f commits/s%n", window,
+                commits.get() / seconds);
+    }
+
+    /** Stops the coalescer.
+     */
+    @TearDown
+    public void tearDown() {
+        if (coalescer != null) {
+            coalescer.close();
+        }
+    }
+
+    /** Registers a yard and waits for its commit.
+     *
+     * @return the registered yard.
+     */
+    @Benchmark
+    public Yard register() {
+        Yard yard = new Yard(1, 0xD3D3D3, 1);
+        if (coalescer == null) {
+            return persist("PA", List.of(yard)).get(0);
+        }
+        return coalescer.submit(yard, "PA").join();
+    }
+
+    /** Fake database, each call is a transaction.
+     *
+     * @param warehouse The warehouse of the yards.
+     * @param yards     The yards to register.
+     * @return the registered yards.
+     */
+    private List<Yard> persist(String warehouse, List<Yard> yards) {
+        synchronized (log) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(commit));
+        }
+        long id = commits.incrementAndGet();
+        List<Yard> registered = new ArrayList<>(yards.size());
+        for (Yard yard : yards) {
+            Yard created = new Yard((int) id, yard.getRgb(),
+                    yard.getAssignationNumber());
+            created.AssignWarehouse(warehouse);
+            registered.add(created);
+        }
+        return registered;
+    }
+
+    /** Runs the benchmark.
+     *
+     * @param args not used.
+     * @throws Exception if the benchmark fails.
+     */
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(RegistrationCoalescerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
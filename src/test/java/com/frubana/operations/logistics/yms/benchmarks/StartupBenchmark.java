@@ -0,0 +1,115 @@
+package com.frubana.operations.logistics.yms.benchmarks;
+
+import java.io.File;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Measures the time from the launch of the application until it answers
+ * its first request, to compare the default start with the fast-start
+ * profile and the class data sharing archive.
+ * <p> It's not a JMH benchmark, each run is a new JVM. Run it with:
+ * <code>
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=com.frubana.operations.logistics.yms.benchmarks.StartupBenchmark
+ *   "-Dyms.benchmark.command=java -jar target/change-me-0.0.1.jar
+ *     --spring.profiles.active=fast-start"
+ *   -Dyms.benchmark.url=http://localhost:8080/yms/yard/healthz
+ *   -Dyms.benchmark.runs=5
+ * </code>
+ * The command must reach its database, the port must be free between runs.
+ */
+public class StartupBenchmark {
+
+    /** The command that launches the application, split on the spaces. */
+    private static final String COMMAND = System.getProperty(
+            "yms.benchmark.command", "java -jar target/change-me-0.0.1.jar");
+
+    /** The URL of the first request. */
+    private static final String URL = System.getProperty(
+            "yms.benchmark.url", "http://localhost:8080/yms/yard/healthz");
+
+    /** The launches measured. */
+    private static final int RUNS = Integer.getInteger(
+            "yms.benchmark.runs", 5);
+
+    /** The milliseconds a launch has to answer. */
+    private static final long TIMEOUT = Long.getLong(
+            "yms.benchmark.timeout", 120000);
+
+    /** Runs the benchmark.
+     *
+     * @param args not used.
+     * @throws Exception if a launch fails or doesn't answer in time.
+     */
+    public static void main(String[] args) throws Exception {
+        HttpClient http = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(1))
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(URL))
+                .timeout(Duration.ofSeconds(5))
+                .GET().build();
+        List<Long> times = new ArrayList<>(RUNS);
+        for (int run = 0; run < RUNS; run++) {
+            long time = launch(http, request);
+            times.add(time);
+            System.out.printf("run %d: %d ms%n", run + 1, time);
+        }
+        Collections.sort(times);
+        System.out.printf("time to first request (ms): min %d, median %d, "
+                        + "max %d%n", times.get(0),
+                times.get(times.size() / 2), times.get(times.size() - 1));
+    }
+
+    /** Launches the application and waits for its first answer.
+     *
+     * @param http    The client of the request.
+     * @param request The first request.
+     * @return the milliseconds from the launch to the answer.
+     * @throws Exception if it doesn't answer in time.
+     */
+    private static long launch(HttpClient http, HttpRequest request)
+            throws Exception {
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(
+                Arrays.asList(COMMAND.trim().split("\\s+")))
+                .redirectErrorStream(true)
+                .redirectOutput(new File(System.getProperty(
+                        "java.io.tmpdir"), "yms-startup.log"))
+                .start();
+        try {
+            long deadline = start + TimeUnit.MILLISECONDS.toNanos(TIMEOUT);
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("The application exited "
+                            + "with " + process.exitValue());
+                }
+                try {
+                    HttpResponse<Void> response = http.send(request,
+                            HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() / 100 == 2) {
+                        return TimeUnit.NANOSECONDS.toMillis(
+                                System.nanoTime() - start);
+                    }
+                } catch (ConnectException e) {
+                    // Not listening yet.
+                }
+                Thread.sleep(10);
+            }
+            throw new IllegalStateException("No answer in " + TIMEOUT + " ms");
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.frubana.operations.logistics.yms.benchmarks;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.frubana.operations.logistics.yms.common.utils.JsonUtils;
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Measures the memory of a large yard listing with the compact {@link Yard}
+ * against the previous representation with one color and warehouse string
+ * per yard.
+ * <p> Run it with:
+ * <code>
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=com.frubana.operations.logistics.yms.benchmarks.YardFootprintBenchmark
+ * </code>
+ * It prints the retained size of the listing and then runs the JMH
+ * benchmark of the deserialization with the allocation profiler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class YardFootprintBenchmark {
+
+    /** Number of yards of the listing. */
+    private static final int YARDS = 20_000;
+
+    /** Colors used, with the case variants the clients send. */
+    private static final String[] COLORS = {"#D3D3D3", "#d3d3d3", "#0000FF",
+            "#0000ff", "#FF0000", "#00FF00", "#FFFF00", "#000000"};
+
+    /** The JSON of the listing. */
+    private String json;
+
+    /** Previous representation of the yard. */
+    @JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY)
+    static class LegacyYard {
+        int id;
+        String color;
+        int assignationNumber;
+        String warehouse;
+    }
+
+    /** Builds the JSON of the listing. */
+    @Setup
+    public void setUp() throws Exception {
+        json = JsonUtils.instance.writeValueAsString(legacyListing());
+    }
+
+    /** Deserializes the listing into the previous representation.
+     *
+     * @return the listing.
+     * @throws Exception if the JSON is invalid.
+     */
+    @Benchmark
+    public List<LegacyYard> legacyListing_deserialize() throws Exception {
+        return JsonUtils.instance.readValue(json,
+                new TypeReference<List<LegacyYard>>() { });
+    }
+
+    /** Deserializes the listing into the compact representation.
+     *
+     * @return the listing.
+     * @throws Exception if the JSON is invalid.
+     */
+    @Benchmark
+    public List<Yard> compactListing_deserialize() throws Exception {
+        return JsonUtils.instance.readValue(json,
+                new TypeReference<List<Yard>>() { });
+    }
+
+    /** Builds a listing as the database returns it, with new strings on
+     * each row.
+     *
+     * @return the listing in the previous representation.
+     */
+    static List<LegacyYard> legacyListing() {
+        List<LegacyYard> yards = new ArrayList<>(YARDS);
+        for (int i = 1; i <= YARDS; i++) {
+            LegacyYard yard = new LegacyYard();
+            yard.id = i;
+            yard.color = new String(COLORS[i % COLORS.length]);
+            yard.assignationNumber = i / COLORS.length + 1;
+            yard.warehouse = new String("W" + (i % 40));
+            yards.add(yard);
+        }
+        return yards;
+    }
+
+    /** Builds the same listing in the compact representation.
+     *
+     * @return the listing.
+     */
+    static List<Yard> compactListing() {
+        List<Yard> yards = new ArrayList<>(YARDS);
+        for (LegacyYard legacy : legacyListing()) {
+            Yard yard = new Yard(legacy.id, legacy.color,
+                    legacy.assignationNumber);
+            yard.AssignWarehouse(legacy.warehouse);
+            yards.add(yard);
+        }
+        return yards;
+    }
+
+    /** Prints the retained size of both listings and runs the benchmark.
+     *
+     * @param args not used.
+     * @throws Exception if the benchmark fails.
+     */
+    public static void main(String[] args) throws Exception {
+        long legacy = GraphLayout.parseInstance(legacyListing()).totalSize();
+        long compact = GraphLayout.parseInstance(compactListing()).totalSize();
+        System.out.printf("Retained size of %d yards: legacy %d bytes, " +
+                        "compact %d bytes (%.1f%% less)%n", YARDS, legacy,
+                compact, 100.0 * (legacy - compact) / legacy);
+
+        new Runner(new OptionsBuilder()
+                .include(YardFootprintBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
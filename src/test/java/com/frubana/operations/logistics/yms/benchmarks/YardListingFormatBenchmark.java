@@ -0,0 +1,170 @@
+package com.frubana.operations.logistics.yms.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.frubana.operations.logistics.yms.common.utils.JsonUtils;
+import com.frubana.operations.logistics.yms.yard.application.YardProtobufHttpMessageConverter;
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** Measures the payload size and the serialization time of a full-warehouse
+ * listing, grouped by color as {@code GET /{warehouse}/} answers it, in each
+ * of the negotiated formats, and the application mapper against a plain
+ * one.
+ * <p> Run it with:
+ * <code>
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=com.frubana.operations.logistics.yms.benchmarks.YardListingFormatBenchmark
+ * </code>
+ * It prints the size of the listing in each format and then runs the JMH
+ * benchmark of the serialization with the allocation profiler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class YardListingFormatBenchmark {
+
+    /** Number of yards of the warehouse. */
+    private static final int YARDS = 5_000;
+
+    /** Colors of the yards. */
+    private static final String[] COLORS = {"#D3D3D3", "#0000FF", "#FF0000",
+            "#00FF00", "#FFFF00", "#000000"};
+
+    /** JSON with indentation, as the responses were written before. */
+    private static final ObjectMapper INDENTED = new ObjectMapper()
+            .enable(SerializationFeature.INDENT_OUTPUT);
+
+    /** JSON without indentation. */
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    /** JSON with the Afterburner module of the application mapper. */
+    private static final ObjectMapper TUNED = JsonUtils.instance;
+
+    /** Jackson Smile. */
+    private static final ObjectMapper SMILE =
+            new ObjectMapper(new SmileFactory());
+
+    /** Jackson CBOR. */
+    private static final ObjectMapper CBOR =
+            new ObjectMapper(new CBORFactory());
+
+    /** The listing of the warehouse. */
+    private Map<String, List<Yard>> listing;
+
+    /** Builds the listing. */
+    @Setup
+    public void setUp() {
+        listing = listing();
+    }
+
+    /** @return the listing as indented JSON. */
+    @Benchmark
+    public byte[] indentedJson() throws Exception {
+        return INDENTED.writeValueAsBytes(listing);
+    }
+
+    /** @return the listing as compact JSON. */
+    @Benchmark
+    public byte[] compactJson() throws Exception {
+        return JSON.writeValueAsBytes(listing);
+    }
+
+    /** @return the listing as compact JSON with the application mapper. */
+    @Benchmark
+    public byte[] tunedJson() throws Exception {
+        return TUNED.writeValueAsBytes(listing);
+    }
+
+    /** @return the listing as Smile. */
+    @Benchmark
+    public byte[] smile() throws Exception {
+        return SMILE.writeValueAsBytes(listing);
+    }
+
+    /** @return the listing as CBOR. */
+    @Benchmark
+    public byte[] cbor() throws Exception {
+        return CBOR.writeValueAsBytes(listing);
+    }
+
+    /** @return the listing as protobuf. */
+    @Benchmark
+    public byte[] protobuf() {
+        return YardProtobufHttpMessageConverter.toMessage(listing)
+                .toByteArray();
+    }
+
+    /** Builds the yards of a warehouse grouped by color.
+     *
+     * @return the listing.
+     */
+    static Map<String, List<Yard>> listing() {
+        Map<String, List<Yard>> listing = new HashMap<>();
+        for (int i = 1; i <= YARDS; i++) {
+            Yard yard = new Yard(i, COLORS[i % COLORS.length],
+                    i / COLORS.length + 1);
+            yard.AssignWarehouse("BOG");
+            listing.computeIfAbsent(yard.getColor(), color -> new ArrayList<>())
+                    .add(yard);
+        }
+        return listing;
+    }
+
+    /** Prints the size of the listing in each format and runs the
+     * benchmark.
+     *
+     * @param args not used.
+     * @throws Exception if the benchmark fails.
+     */
+    public static void main(String[] args) throws Exception {
+        YardListingFormatBenchmark benchmark = new YardListingFormatBenchmark();
+        benchmark.setUp();
+        int indented = benchmark.indentedJson().length;
+        System.out.printf("Payload of %d yards:%n", YARDS);
+        print("indented JSON", indented, indented);
+        print("compact JSON", benchmark.compactJson().length, indented);
+        print("Smile", benchmark.smile().length, indented);
+        print("CBOR", benchmark.cbor().length, indented);
+        print("protobuf", benchmark.protobuf().length, indented);
+
+        new Runner(new OptionsBuilder()
+                .include(YardListingFormatBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    /** Prints the size of a format.
+     *
+     * @param format   The name of the format.
+     * @param size     The bytes of the listing in the format.
+     * @param baseline The bytes of the listing in indented JSON.
+     */
+    private static void print(String format, int size, int baseline) {
+        System.out.printf("  %-14s %8d bytes (%.1f%% of indented JSON)%n",
+                format, size, 100.0 * size / baseline);
+    }
+}
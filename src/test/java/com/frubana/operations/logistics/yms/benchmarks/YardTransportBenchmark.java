@@ -0,0 +1,135 @@
+package com.frubana.operations.logistics.yms.benchmarks;
+
+import com.frubana.operations.logistics.yms.yard.domain.proto.LookupRequest;
+import com.frubana.operations.logistics.yms.yard.domain.proto.YardLookup;
+import com.frubana.operations.logistics.yms.yard.domain.proto.YardsGrpc;
+import io.grpc.ManagedChannel;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/** Compares the throughput of the lookup of a yard by the scanners through
+ * the REST endpoint and through the gRPC service, against a running
+ * instance.
+ * <p> Run it with:
+ * <code>
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=com.frubana.operations.logistics.yms.benchmarks.YardTransportBenchmark
+ *   -Dyms.benchmark.rest=http://localhost:8080/yms/yard
+ *   -Dyms.benchmark.grpc=localhost:9090
+ *   -Dyms.benchmark.warehouse=BOG -Dyms.benchmark.id=1
+ * </code>
+ * The yard must exist, both paths read it from the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(32)
+@Fork(1)
+public class YardTransportBenchmark {
+
+    /** The base URL of the yard endpoints. */
+    private static final String REST = System.getProperty(
+            "yms.benchmark.rest", "http://localhost:8080/yms/yard");
+
+    /** The host and port of the gRPC service. */
+    private static final String GRPC = System.getProperty(
+            "yms.benchmark.grpc", "localhost:9090");
+
+    /** The warehouse of the yard. */
+    private static final String WAREHOUSE = System.getProperty(
+            "yms.benchmark.warehouse", "BOG");
+
+    /** The id of the yard. */
+    private static final int ID = Integer.getInteger("yms.benchmark.id", 1);
+
+    /** The REST client, with keep alive as the scanners. */
+    private HttpClient http;
+
+    /** The request of the yard. */
+    private HttpRequest restRequest;
+
+    /** The channel to the gRPC service. */
+    private ManagedChannel channel;
+
+    /** The gRPC client. */
+    private YardsGrpc.YardsBlockingStub grpc;
+
+    /** The lookup of the yard. */
+    private LookupRequest grpcRequest;
+
+    /** Opens the clients. */
+    @Setup
+    public void setUp() {
+        http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        restRequest = HttpRequest.newBuilder(
+                URI.create(REST + "/" + WAREHOUSE + "/" + ID))
+                .header("Accept", "application/json")
+                .GET().build();
+        channel = NettyChannelBuilder.forTarget(GRPC).usePlaintext().build();
+        grpc = YardsGrpc.newBlockingStub(channel);
+        grpcRequest = LookupRequest.newBuilder()
+                .setWarehouse(WAREHOUSE).addIds(ID).build();
+    }
+
+    /** Closes the channel. */
+    @TearDown
+    public void tearDown() {
+        channel.shutdownNow();
+    }
+
+    /** @return the yard through HTTP/1.1 and JSON. */
+    @Benchmark
+    public byte[] rest() throws Exception {
+        HttpResponse<byte[]> response = http.send(restRequest,
+                HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(
+                    "Unexpected status " + response.statusCode());
+        }
+        return response.body();
+    }
+
+    /** @return the yard through gRPC. */
+    @Benchmark
+    public YardLookup grpc() {
+        return grpc.lookup(grpcRequest);
+    }
+
+    /** Runs the benchmark.
+     *
+     * @param args not used.
+     * @throws Exception if the benchmark fails.
+     */
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(YardTransportBenchmark.class.getSimpleName())
+                .jvmArgsAppend("-Dyms.benchmark.rest=" + REST,
+                        "-Dyms.benchmark.grpc=" + GRPC,
+                        "-Dyms.benchmark.warehouse=" + WAREHOUSE,
+                        "-Dyms.benchmark.id=" + ID)
+                .build()).run();
+    }
+}
@@ -0,0 +1,174 @@
+package com.frubana.operations.logistics.yms.common.clients;
+
+import com.frubana.operations.logistics.yms.common.configuration.FormattedLogger;
+import com.frubana.operations.logistics.yms.common.configuration.RestClientConfiguration;
+import com.frubana.operations.logistics.yms.common.utils.JsonUtils;
+import com.frubana.operations.logistics.yms.common.utils.WarehouseRelationUtils;
+import com.frubana.operations.logistics.yms.common.utils.WarehouseRelationUtils.WarehouseRelation;
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests the client of the report data service against a local stub.
+ */
+public class ReportDataServiceClientTest {
+
+    // The stub, its hits, the relations to restore and the client to test.
+    private HttpServer server;
+    private AtomicInteger hits;
+    private CountDownLatch release;
+    private CountDownLatch together;
+    private Map<String, WarehouseRelation> relations;
+    private ConnectionProvider connections;
+    private SimpleMeterRegistry registry;
+    private ReportDataServiceClient client;
+
+    /** Starts a stub that answers a yard of the requested warehouse, with
+     * PA in Colombia and MX in Mexico.
+     */
+    @BeforeEach
+    public void setUp() throws Exception {
+        hits = new AtomicInteger();
+        release = new CountDownLatch(0);
+        together = new CountDownLatch(0);
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/microservice/orders/", this::orders);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        relations = WarehouseRelationUtils.getRelations();
+        WarehouseRelationUtils.replaceRelations(Map.of(
+                "PA", new WarehouseRelation("PA", "co", "Bogota"),
+                "MX", new WarehouseRelation("MX", "mx", "CDMX")));
+
+        String url = "http://localhost:" + server.getAddress().getPort();
+        RestClientConfiguration configuration = new RestClientConfiguration();
+        connections = configuration.webClientConnections(10, 500, 30000);
+        registry = new SimpleMeterRegistry();
+        client = new ReportDataServiceClient(
+                configuration.webClient(connections, registry, 1000, 5000),
+                CircuitBreakerRegistry.ofDefaults(), registry,
+                new FormattedLogger(), url, url, "", "/microservice/orders/",
+                "token", 60000, 100, 5000);
+    }
+
+    /** Stops the stub and restores the relations.
+     */
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        connections.dispose();
+        server.stop(0);
+        WarehouseRelationUtils.replaceRelations(relations);
+    }
+
+    /** Tests the same request in flight is made once and then cached.
+     */
+    @Test
+    public void coalesceTest() {
+        release = new CountDownLatch(1);
+
+        CompletableFuture<List<Yard>> first = client.fetch("PA", "2020-05-01");
+        CompletableFuture<List<Yard>> second =
+                client.fetch("PA", "2020-05-01");
+        release.countDown();
+
+        assertEquals("PA", first.join().get(0).getWarehouse(),
+                "The response is not read");
+        assertSame(first.join(), second.join(),
+                "The request in flight is not shared");
+        assertEquals("PA", client.requireSomeObjects("PA", "2020-05-01")
+                .get(0).getWarehouse(), "The cached response is not used");
+        assertEquals(1, hits.get(), "The service was called again");
+        client.requireSomeObjects("PA", "2020-05-02");
+        assertEquals(2, hits.get(), "Another date is not requested");
+    }
+
+    /** Tests the warehouses of several countries are requested at the same
+     * time.
+     */
+    @Test
+    public void parallelTest() {
+        together = new CountDownLatch(2);
+
+        Map<String, List<Yard>> yards =
+                client.requireSomeObjects(List.of("PA", "MX"), "2020-05-01");
+
+        assertEquals("PA", yards.get("PA").get(0).getWarehouse(),
+                "The Colombian warehouse is not requested");
+        assertEquals("MX", yards.get("MX").get(0).getWarehouse(),
+                "The Mexican warehouse is not requested");
+        assertEquals(2, hits.get(), "The warehouses are not requested");
+    }
+
+    /** Tests the requests without a service or with an invalid date are
+     * rejected before calling it.
+     */
+    @Test
+    public void invalidTest() {
+        assertThrows(IllegalArgumentException.class,
+                () -> client.requireSomeObjects("XX", "2020-05-01"));
+        WarehouseRelationUtils.replaceRelations(Map.of(
+                "BR", new WarehouseRelation("BR", "br", "SP")));
+        assertThrows(IllegalArgumentException.class,
+                () -> client.requireSomeObjects("BR", "2020-05-01"));
+        WarehouseRelationUtils.replaceRelations(Map.of(
+                "PA", new WarehouseRelation("PA", "co", "Bogota")));
+        assertThrows(IllegalArgumentException.class,
+                () -> client.requireSomeObjects("PA", "05/01/2020"));
+        assertEquals(0, hits.get(), "The service was called");
+    }
+
+    /** Answers a yard of the requested warehouse once released, failing if
+     * the other requests expected at the same time don't arrive.
+     *
+     * @param exchange The request.
+     * @throws IOException if the response cannot be written.
+     */
+    private void orders(HttpExchange exchange) throws IOException {
+        hits.incrementAndGet();
+        int status = 200;
+        try {
+            together.countDown();
+            if (!together.await(2, TimeUnit.SECONDS)
+                    || !release.await(5, TimeUnit.SECONDS)) {
+                status = 500;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            status = 500;
+        }
+        String query = exchange.getRequestURI().getQuery();
+        String warehouse = query.substring(query.indexOf("warehouse=") + 10,
+                query.indexOf('&'));
+        Yard yard = new Yard(1, 0x0000FF, 1);
+        yard.AssignWarehouse(warehouse);
+        byte[] body = JsonUtils.instance.writeValueAsString(List.of(yard))
+                .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
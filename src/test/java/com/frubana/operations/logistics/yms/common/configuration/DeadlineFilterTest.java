@@ -0,0 +1,67 @@
+package com.frubana.operations.logistics.yms.common.configuration;
+
+import com.frubana.operations.logistics.yms.common.datasource.Deadline;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests the deadline given to each request.
+ */
+public class DeadlineFilterTest {
+
+    // The filter to test.
+    private DeadlineFilter filter;
+
+    /** Creates a filter with a shorter timeout for the lookups.
+     */
+    @BeforeEach
+    public void setUp() {
+        Map<String, Long> endpoints = new LinkedHashMap<>();
+        endpoints.put("/yms/yard/*/lookup", 2000L);
+        filter = new DeadlineFilter(endpoints, true, 6000, 10000);
+    }
+
+    /** Tests the timeout comes from the header, the endpoint or the
+     * default, and the deadline is removed after the request.
+     */
+    @Test
+    public void timeoutTest() throws Exception {
+        assertEquals(1500, remaining("/yms/yard/PA/", "1500"), 100,
+                "The timeout of the client is not used");
+        assertEquals(10000, remaining("/yms/yard/PA/", "60000"), 100,
+                "The timeout of the client is not capped");
+        assertEquals(2000, remaining("/yms/yard/PA/lookup", null), 100,
+                "The timeout of the endpoint is not used");
+        assertEquals(6000, remaining("/yms/yard/PA/", "soon"), 100,
+                "The default timeout is not used");
+        assertEquals(6000, remaining("/yms/yard/PA/", "0"), 100,
+                "The zero timeout of the client is not ignored");
+        assertEquals(2000, remaining("/yms/yard/PA/lookup", "-1"), 100,
+                "The negative timeout of the client is not ignored");
+        assertFalse(Deadline.isSet(), "The deadline was kept in the thread");
+    }
+
+    /** Sends a request through the filter.
+     *
+     * @param uri     The URI of the request.
+     * @param timeout The header of the timeout, null for none.
+     * @return the milliseconds left to the deadline inside the request.
+     */
+    private long remaining(String uri, String timeout) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        if (timeout != null) {
+            request.addHeader(DeadlineFilter.TIMEOUT_HEADER, timeout);
+        }
+        AtomicLong remaining = new AtomicLong();
+        filter.doFilter(request, new MockHttpServletResponse(),
+                (req, res) -> remaining.set(Deadline.remainingMillis()));
+        return remaining.get();
+    }
+}
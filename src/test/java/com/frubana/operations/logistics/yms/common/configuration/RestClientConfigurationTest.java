@@ -0,0 +1,148 @@
+package com.frubana.operations.logistics.yms.common.configuration;
+
+import com.frubana.operations.logistics.yms.common.clients.HttpClientMetrics;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests the outbound clients against a local HTTP server.
+ */
+public class RestClientConfigurationTest {
+
+    // The local server, the ports of its clients and the clients to test.
+    private HttpServer server;
+    private Set<Integer> clientPorts;
+    private CountDownLatch slow;
+    private SimpleMeterRegistry registry;
+    private CloseableHttpClient httpClient;
+    private ConnectionProvider connections;
+    private String host;
+
+    /** Starts a server that answers "ok" on /ok and doesn't answer on
+     * /slow.
+     */
+    @BeforeEach
+    public void setUp() throws Exception {
+        clientPorts = ConcurrentHashMap.newKeySet();
+        slow = new CountDownLatch(1);
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/ok", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/slow", exchange -> {
+            try {
+                slow.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        host = "localhost:" + server.getAddress().getPort();
+        registry = new SimpleMeterRegistry();
+        RestClientConfiguration configuration = new RestClientConfiguration();
+        httpClient = configuration.httpClient(10, 2, 1000, 200, 500, 30000);
+        connections = configuration.webClientConnections(2, 500, 30000);
+    }
+
+    /** Stops the server and the clients.
+     */
+    @AfterEach
+    public void tearDown() throws Exception {
+        slow.countDown();
+        httpClient.close();
+        connections.dispose();
+        server.stop(0);
+    }
+
+    /** Tests the template reuses its connection and times the requests by
+     * host and status.
+     */
+    @Test
+    public void restTemplateTest() {
+        RestTemplate template = new RestClientConfiguration()
+                .restTemplate(httpClient, registry);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("ok", template.getForObject(
+                    "http://" + host + "/ok", String.class),
+                    "The response is not read");
+        }
+
+        assertEquals(1, clientPorts.size(), "The connection was not reused");
+        assertEquals(3, registry.timer(HttpClientMetrics.REQUESTS_METRIC,
+                "host", host, "method", "GET", "status", "200").count(),
+                "The requests are not timed by host");
+    }
+
+    /** Tests the template gives up on a silent response.
+     */
+    @Test
+    public void readTimeoutTest() {
+        RestTemplate template = new RestClientConfiguration()
+                .restTemplate(httpClient, registry);
+
+        assertThrows(ResourceAccessException.class, () -> template
+                .getForObject("http://" + host + "/slow", String.class));
+
+        assertEquals(1, registry.timer(HttpClientMetrics.REQUESTS_METRIC,
+                "host", host, "method", "GET", "status", "IO_ERROR").count(),
+                "The failed request is not timed");
+    }
+
+    /** Tests the web client reuses its idle connection, times the requests
+     * and gives up on a silent response.
+     */
+    @Test
+    public void webClientTest() throws Exception {
+        WebClient client = new RestClientConfiguration()
+                .webClient(connections, registry, 1000, 200);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("ok", client.get().uri("http://" + host + "/ok")
+                    .retrieve().bodyToMono(String.class)
+                    .block(Duration.ofSeconds(5)),
+                    "The response is not read");
+            // The connection goes back to the pool after the response is
+            // read, idle for longer than the read timeout.
+            Thread.sleep(300);
+        }
+        assertThrows(RuntimeException.class, () -> client.get()
+                .uri("http://" + host + "/slow").retrieve()
+                .bodyToMono(String.class).block(Duration.ofSeconds(5)));
+
+        assertEquals(1, clientPorts.size(), "The connection was not reused");
+        assertEquals(3, registry.timer(HttpClientMetrics.REQUESTS_METRIC,
+                "host", host, "method", "GET", "status", "200").count(),
+                "The requests are not timed by host");
+        assertEquals(1, registry.timer(HttpClientMetrics.REQUESTS_METRIC,
+                "host", host, "method", "GET", "status", "IO_ERROR").count(),
+                "The failed request is not timed");
+    }
+}
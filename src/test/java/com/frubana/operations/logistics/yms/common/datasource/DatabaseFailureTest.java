@@ -0,0 +1,65 @@
+package com.frubana.operations.logistics.yms.common.datasource;
+
+import org.jdbi.v3.core.statement.UnableToExecuteStatementException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests the errors recorded and retried for the work on the database.
+ */
+public class DatabaseFailureTest {
+
+    // Instances to test.
+    private final DatabaseFailure failure = new DatabaseFailure();
+    private final TransientDatabaseFailure retried =
+            new TransientDatabaseFailure();
+
+    /** Removes the deadline of the test.
+     */
+    @AfterEach
+    public void tearDown() {
+        Deadline.clear();
+    }
+
+    /** Tests a statement cancelled at the deadline is neither recorded nor
+     * retried, while the same error before the deadline is recorded.
+     */
+    @Test
+    public void cancelledStatementTest() {
+        RuntimeException cancelled = statementError("57014");
+        Deadline.start(10000);
+        assertTrue(failure.test(cancelled), "The database error is ignored");
+        assertFalse(retried.test(cancelled), "The cancel is retried");
+
+        Deadline.start(-1);
+        assertFalse(failure.test(cancelled),
+                "The statement cancelled at the deadline is a failure");
+        assertFalse(failure.test(new DeadlineExceededException("late")),
+                "The exceeded deadline is a failure");
+    }
+
+    /** Tests only the lost connections and transactions are retried, and
+     * the errors of the requests are not failures.
+     */
+    @Test
+    public void transientTest() {
+        assertTrue(retried.test(statementError("08006")),
+                "The lost connection is not retried");
+        assertTrue(retried.test(statementError("40P01")),
+                "The deadlock is not retried");
+        assertFalse(retried.test(statementError("23505")),
+                "The violated constraint is retried");
+        assertFalse(failure.test(new IllegalArgumentException("color")),
+                "The invalid request is a failure");
+    }
+
+    /** @param state The SQL state of the error.
+     * @return the error of Jdbi for a statement that failed with it. */
+    private static RuntimeException statementError(String state) {
+        return new UnableToExecuteStatementException(
+                new SQLException("failed", state), null);
+    }
+}
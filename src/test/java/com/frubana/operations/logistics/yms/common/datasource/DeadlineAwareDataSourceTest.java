@@ -0,0 +1,95 @@
+package com.frubana.operations.logistics.yms.common.datasource;
+
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.JdbiException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/** Tests the connections and statements of a request stop at its deadline.
+ */
+public class DeadlineAwareDataSourceTest {
+
+    /** A query that never ends by itself. */
+    private static final String ENDLESS_QUERY = "WITH RECURSIVE n(x) AS "
+            + "(SELECT 1 UNION ALL SELECT x + 1 FROM n) SELECT count(*) FROM n";
+
+    // Folder of the embedded database.
+    @TempDir Path folder;
+
+    /** Removes the deadline of the test thread.
+     */
+    @AfterEach
+    public void tearDown() {
+        Deadline.clear();
+    }
+
+    /** Tests the wait for a connection of a full pool ends at the deadline
+     * without leaving the thread interrupted.
+     */
+    @Test
+    public void poolWaitTest() throws Exception {
+        DataSource pool = mock(DataSource.class);
+        when(pool.getConnection()).thenAnswer(invocation -> {
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted during acquisition", e);
+            }
+            return mock(Connection.class);
+        });
+        DeadlineAwareDataSource dataSource = new DeadlineAwareDataSource(pool);
+
+        // The deadline belongs to the thread of the assertion.
+        assertTimeoutPreemptively(Duration.ofSeconds(2), () -> {
+            Deadline.start(100);
+            assertThrows(DeadlineExceededException.class,
+                    dataSource::getConnection);
+            assertFalse(Thread.currentThread().isInterrupted(),
+                    "The thread was left interrupted");
+            assertThrows(DeadlineExceededException.class,
+                    dataSource::getConnection);
+        });
+        verify(pool, times(1)).getConnection();
+
+        doReturn(mock(Connection.class)).when(pool).getConnection();
+        assertNotNull(dataSource.getConnection(),
+                "The threads without deadline are limited");
+    }
+
+    /** Tests a running statement is cancelled at the deadline and the
+     * threads without deadline are not limited.
+     */
+    @Test
+    public void statementTest() {
+        DriverManagerDataSource database = new DriverManagerDataSource(
+                "jdbc:sqlite:" + folder.resolve("deadline.db"));
+        Jdbi jdbi = Jdbi.create(new DeadlineAwareDataSource(database));
+        jdbi.addCustomizer(new DeadlineStatementCustomizer());
+        int one = jdbi.withHandle(handle -> handle
+                .createQuery("SELECT 1").mapTo(Integer.class).one());
+        assertEquals(1, one, "The statements without deadline are limited");
+
+        // The deadline belongs to the thread of the assertion.
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            Deadline.start(300);
+            long start = System.nanoTime();
+            assertThrows(JdbiException.class, () -> jdbi.withHandle(handle
+                    -> handle.createQuery(ENDLESS_QUERY)
+                    .mapTo(Long.class).one()));
+            assertTrue(System.nanoTime() - start < 1_000_000_000L,
+                    "The statement was not cancelled at the deadline");
+        });
+    }
+}
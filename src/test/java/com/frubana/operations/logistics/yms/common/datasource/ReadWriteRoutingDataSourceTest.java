@@ -0,0 +1,125 @@
+package com.frubana.operations.logistics.yms.common.datasource;
+
+import com.frubana.operations.logistics.yms.common.configuration.FormattedLogger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests the routing of the read-only transactions to the replica using two
+ * embedded databases.
+ */
+public class ReadWriteRoutingDataSourceTest {
+
+    // Databases used as primary and replica.
+    @TempDir Path folder;
+    private DataSource primary;
+    private DataSource replica;
+
+    /** Creates both databases with a table that tells which one answered.
+     */
+    @BeforeEach
+    public void setUp() {
+        primary = database("primary");
+        replica = database("replica");
+    }
+
+    /** Tests the read-only transactions go to the healthy replica and the
+     * rest to the primary.
+     */
+    @Test
+    public void routesReadOnlyToReplicaTest() {
+        ReplicaPool pool = new ReplicaPool(replica, "SELECT 0",
+                Duration.ofSeconds(1), new FormattedLogger());
+        pool.checkLag();
+        DataSource routing = lazy(new ReadWriteRoutingDataSource(primary, pool));
+
+        assertEquals("replica", answeredBy(routing, true),
+                "The read-only transaction was not sent to the replica");
+        assertEquals("primary", answeredBy(routing, false),
+                "The write transaction was not sent to the primary");
+        assertEquals("primary", new JdbcTemplate(routing).queryForObject(
+                "SELECT name FROM origin", String.class),
+                "A query without transaction was not sent to the primary");
+    }
+
+    /** Tests the reads fall back to the primary when the replica lag is
+     * bigger than the allowed one or the replica cannot be reached.
+     */
+    @Test
+    public void fallbackToPrimaryTest() {
+        ReplicaPool pool = new ReplicaPool(replica, "SELECT 5",
+                Duration.ofSeconds(1), new FormattedLogger());
+        DataSource routing = lazy(new ReadWriteRoutingDataSource(primary, pool));
+
+        // Not checked yet.
+        assertEquals("primary", answeredBy(routing, true),
+                "The replica was used before knowing its lag");
+
+        // Lagging.
+        pool.checkLag();
+        assertFalse(pool.isHealthy(), "A lagging replica is healthy");
+        assertEquals("primary", answeredBy(routing, true),
+                "The lagging replica received the read");
+
+        // Failing.
+        pool = new ReplicaPool(replica, "SELECT broken FROM nowhere",
+                Duration.ofSeconds(1), new FormattedLogger());
+        pool.checkLag();
+        assertFalse(pool.isHealthy(), "A failing replica is healthy");
+    }
+
+    /** Creates a database that answers with its name.
+     *
+     * @param name The name to answer.
+     * @return the data source of the database.
+     */
+    private DataSource database(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:sqlite:" + folder.resolve(name + ".db"));
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.execute("CREATE TABLE origin (name TEXT)");
+        template.update("INSERT INTO origin VALUES (?)", name);
+        return dataSource;
+    }
+
+    /** Wraps the routing the same way the configuration does.
+     *
+     * @param routing The routing data source.
+     * @return the lazy data source.
+     */
+    private DataSource lazy(DataSource routing) {
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy();
+        proxy.setTargetDataSource(routing);
+        proxy.setDefaultAutoCommit(true);
+        proxy.setDefaultTransactionIsolation(
+                Connection.TRANSACTION_SERIALIZABLE);
+        proxy.afterPropertiesSet();
+        return proxy;
+    }
+
+    /** Asks the name of the database inside a transaction.
+     *
+     * @param dataSource The data source to query.
+     * @param readOnly   If the transaction is read-only.
+     * @return the name of the database that answered.
+     */
+    private String answeredBy(DataSource dataSource, boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(
+                new DataSourceTransactionManager(dataSource));
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status -> new JdbcTemplate(dataSource)
+                .queryForObject("SELECT name FROM origin", String.class));
+    }
+}
@@ -0,0 +1,136 @@
+package com.frubana.operations.logistics.yms.common.datasource;
+
+import com.frubana.operations.logistics.yms.common.utils.WarehouseRelationUtils;
+import com.frubana.operations.logistics.yms.common.utils.WarehouseRelationUtils.WarehouseRelation;
+import org.jdbi.v3.core.Jdbi;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/** Tests the routing of the warehouses to the shard of their country and
+ * the queries to every shard.
+ */
+public class WarehouseShardsTest {
+
+    // The databases of the default shard and the countries.
+    private final Jdbi defaultShard = mock(Jdbi.class);
+    private final Jdbi mexico = mock(Jdbi.class);
+    private final Jdbi peru = mock(Jdbi.class);
+
+    // Instance to test and the relations before the test.
+    private WarehouseShards shards;
+    private Map<String, WarehouseRelation> previous;
+
+    /** Creates the shards of mx and pe, co stays in the default shard.
+     */
+    @BeforeEach
+    public void setUp() {
+        previous = WarehouseRelationUtils.getRelations();
+        WarehouseRelationUtils.replaceRelations(Map.of(
+                "PA", new WarehouseRelation("Puente aranda", "co", "BOG"),
+                "MX1", new WarehouseRelation("Iztapalapa", "mx", "CDMX"),
+                "LIM", new WarehouseRelation("Ate", "pe", "LIM")));
+        shards = new WarehouseShards(defaultShard,
+                Map.of("mx", mexico, "pe", peru),
+                Executors.newFixedThreadPool(2));
+    }
+
+    /** Restores the relations and stops the threads.
+     */
+    @AfterEach
+    public void tearDown() {
+        shards.close();
+        WarehouseRelationUtils.replaceRelations(previous);
+    }
+
+    /** Tests each warehouse uses the shard of its country, the countries
+     * without shard the default one and the unknown warehouses none.
+     */
+    @Test
+    public void forWarehouseTest() {
+        assertSame(mexico, shards.forWarehouse("MX1"),
+                "The warehouse is not in the shard of its country");
+        assertSame(peru, shards.forWarehouse("LIM"),
+                "The warehouse is not in the shard of its country");
+        assertSame(defaultShard, shards.forWarehouse("PA"),
+                "The country without shard is not in the default one");
+        assertThrows(IllegalArgumentException.class,
+                () -> shards.forWarehouse("UNKNOWN"),
+                "The warehouse without relation was routed");
+        assertThrows(IllegalArgumentException.class,
+                () -> shards.forWarehouse(" "),
+                "A blank warehouse was routed");
+    }
+
+    /** Tests the results of every shard are merged starting by the default
+     * one, and the other shards use the workload and deadline of the
+     * caller.
+     */
+    @Test
+    public void fanOutTest() {
+        Workload previousWorkload = Workload.BULK.enter();
+        Deadline.start(10000);
+        Long deadline = Deadline.current();
+        List<String> results;
+        try {
+            results = shards.fanOut(dbi -> {
+                assertEquals(deadline, Deadline.current(),
+                        "A shard did not use the deadline of the caller");
+                return List.of(name(dbi), Workload.current().name());
+            });
+        } finally {
+            Workload.restore(previousWorkload);
+            Deadline.clear();
+        }
+
+        assertEquals(6, results.size(), "A shard was not queried");
+        assertEquals(List.of("default", "BULK"), results.subList(0, 2),
+                "The default shard is not the first one");
+        assertTrue(results.containsAll(List.of("mexico", "peru")),
+                "The results of a shard are missing");
+        assertEquals(3, results.stream().filter("BULK"::equals).count(),
+                "A shard did not use the workload of the caller");
+    }
+
+    /** Tests a country sharing the database of other one is queried once
+     * and the errors of a shard are thrown as they are.
+     */
+    @Test
+    public void fanOutSharedTest() {
+        WarehouseShards shared = new WarehouseShards(defaultShard,
+                Map.of("mx", mexico, "pe", mexico),
+                Executors.newSingleThreadExecutor());
+        try {
+            assertEquals(List.of(defaultShard, mexico), shared.getShards(),
+                    "The shared database is not listed once");
+            assertEquals(List.of("default", "mexico"),
+                    shared.fanOut(dbi -> List.of(name(dbi))),
+                    "The shared database was not queried once");
+            IllegalStateException error = assertThrows(
+                    IllegalStateException.class, () -> shared.fanOut(dbi -> {
+                        if (dbi == mexico) {
+                            throw new IllegalStateException("Shard down");
+                        }
+                        return List.of(name(dbi));
+                    }), "The error of the shard was not thrown");
+            assertEquals("Shard down", error.getMessage(),
+                    "The error of the shard was wrapped");
+        } finally {
+            shared.close();
+        }
+    }
+
+    /** @param dbi A database of the test.
+     * @return the name of the database. */
+    private String name(Jdbi dbi) {
+        return dbi == defaultShard ? "default"
+                : dbi == mexico ? "mexico" : "peru";
+    }
+}
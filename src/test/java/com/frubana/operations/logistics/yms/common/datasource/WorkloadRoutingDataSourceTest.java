@@ -0,0 +1,123 @@
+package com.frubana.operations.logistics.yms.common.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests the statements of each work use its own pool, using two embedded
+ * databases as pools.
+ */
+public class WorkloadRoutingDataSourceTest {
+
+    // Pools of each work and the registry of their metrics.
+    @TempDir Path folder;
+    private SimpleMeterRegistry registry;
+    private HikariDataSource critical;
+    private HikariDataSource bulk;
+
+    /** Creates both pools with a table that tells which one answered.
+     */
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        critical = pool("critical");
+        bulk = pool("bulk");
+    }
+
+    /** Closes the pools.
+     */
+    @AfterEach
+    public void tearDown() {
+        critical.close();
+        bulk.close();
+    }
+
+    /** Tests the marked methods use the bulk pool, the rest the critical
+     * one, and each pool exports its wait and usage.
+     */
+    @Test
+    public void routeTest() {
+        LazyConnectionDataSourceProxy routing =
+                new LazyConnectionDataSourceProxy(
+                        new WorkloadRoutingDataSource(critical, bulk));
+        AspectJProxyFactory factory = new AspectJProxyFactory(
+                new Origins(new JdbcTemplate(routing)));
+        factory.addAspect(new WorkloadAspect());
+        Origins origins = factory.getProxy();
+
+        assertEquals("bulk", origins.export(), "The export used the "
+                + "critical pool");
+        assertEquals(Workload.CRITICAL, Workload.current(),
+                "The work of the thread was not restored");
+        assertEquals("critical", origins.lookup(), "The lookup used the "
+                + "bulk pool");
+
+        for (String pool : new String[]{"critical", "bulk"}) {
+            assertTrue(registry.get("hikaricp.connections.acquire")
+                    .tag("pool", pool).timer().count() > 0,
+                    "The wait of the pool is not exported: " + pool);
+            assertTrue(registry.get("hikaricp.connections.usage")
+                    .tag("pool", pool).timer().count() > 0,
+                    "The usage of the pool is not exported: " + pool);
+        }
+    }
+
+    /** Creates a pool of a database that answers with its name.
+     *
+     * @param name The name of the pool and the database.
+     * @return the pool.
+     */
+    private HikariDataSource pool(String name) {
+        String url = "jdbc:sqlite:" + folder.resolve(name + ".db");
+        // The table is created without the pool so it's not counted.
+        JdbcTemplate setup = new JdbcTemplate(
+                new DriverManagerDataSource(url));
+        setup.execute("CREATE TABLE origin (name TEXT)");
+        setup.update("INSERT INTO origin VALUES (?)", name);
+        HikariDataSource pool = new HikariDataSource();
+        pool.setJdbcUrl(url);
+        pool.setPoolName(name);
+        pool.setMaximumPoolSize(1);
+        pool.setMetricRegistry(registry);
+        return pool;
+    }
+
+    /** Asks the name of the pool that answered.
+     */
+    public static class Origins {
+
+        /** The queries of the pools. */
+        private final JdbcTemplate template;
+
+        /** Constructor.
+         *
+         * @param template The queries of the pools.
+         */
+        public Origins(JdbcTemplate template) {
+            this.template = template;
+        }
+
+        /** @return the name of the pool of the bulk work. */
+        @UsesWorkload(Workload.BULK)
+        public String export() {
+            return lookup();
+        }
+
+        /** @return the name of the pool of the current work. */
+        public String lookup() {
+            return template.queryForObject("SELECT name FROM origin",
+                    String.class);
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.frubana.operations.logistics.yms.common.utils;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /** Tests of the temporal warehouse relation util.
@@ -28,6 +30,30 @@ public class WarehouseRelationUtilsTest {
                 "the id is not registered");
     }
 
+    /** Tests the relations are replaced as a whole by a new snapshot.
+     */
+    @Test
+    public void replaceRelationsTest() {
+        Map<String, WarehouseRelationUtils.WarehouseRelation> previous =
+                WarehouseRelationUtils.getRelations();
+        try {
+            WarehouseRelationUtils.replaceRelations(Map.of("MX1",
+                    new WarehouseRelationUtils.WarehouseRelation(
+                            "Iztapalapa", "mx", "CDMX")));
+
+            assertEquals("mx",
+                    WarehouseRelationUtils.getRelation("MX1").getCountry(),
+                    "The new relation was not loaded");
+            assertNull(WarehouseRelationUtils.getRelation("PA"),
+                    "The removed relation is still returned");
+            assertThrows(UnsupportedOperationException.class, () ->
+                    WarehouseRelationUtils.getRelations().clear(),
+                    "The snapshot can be modified");
+        } finally {
+            WarehouseRelationUtils.replaceRelations(previous);
+        }
+    }
+
     /** Tests the error flow to request a relation.
      */
     @Test
@@ -0,0 +1,115 @@
+package com.frubana.operations.logistics.yms.health.domain;
+
+import com.frubana.operations.logistics.yms.health.service.HealthCheck;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests the checks run in parallel, with timeout and cached.
+ */
+public class SomeHealthVerifierTest {
+
+    /** Tests the checks run at the same time and their latency is reported.
+     */
+    @Test
+    public void parallelTest() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SomeHealthVerifier verifier = new SomeHealthVerifier(
+                List.of(check("a", 300, true), check("b", 300, true)),
+                registry, 2000, 5000);
+
+        long start = System.nanoTime();
+        Health health = verifier.health();
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(Status.UP, health.getStatus(), "The checks are not up");
+        assertTrue(elapsed < 550, "The checks ran one after another: "
+                + elapsed + "ms");
+        assertTrue((Double) ((Map<?, ?>) health.getDetails().get("a"))
+                .get("latencyMs") >= 300, "The latency is not reported");
+        assertEquals(1, registry.get(SomeHealthVerifier.CHECK_METRIC)
+                .tag("check", "b").tag("status", "UP").timer().count(),
+                "The latency is not recorded");
+        verifier.close();
+    }
+
+    /** Tests a slow check is reported down without waiting for it.
+     */
+    @Test
+    public void timeoutTest() {
+        SomeHealthVerifier verifier = new SomeHealthVerifier(
+                List.of(check("slow", 5000, true), check("fast", 0, true)),
+                new SimpleMeterRegistry(), 200, 5000);
+
+        long start = System.nanoTime();
+        Health health = verifier.health();
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(Status.DOWN, health.getStatus(), "The timeout is up");
+        assertEquals("TIMEOUT", ((Map<?, ?>) health.getDetails().get("slow"))
+                .get("status"), "The timeout is not reported");
+        assertEquals("UP", ((Map<?, ?>) health.getDetails().get("fast"))
+                .get("status"), "The fast check is not up");
+        assertTrue(elapsed < 1000, "The slow check was awaited");
+        assertEquals(1, verifier.check(), "The cached result is not down");
+        verifier.close();
+    }
+
+    /** Tests the result is reused during its TTL.
+     */
+    @Test
+    public void cacheTest() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        HealthCheck counted = new HealthCheck() {
+            @Override
+            public boolean isServiceHealthy() {
+                calls.incrementAndGet();
+                return true;
+            }
+        };
+        SomeHealthVerifier verifier = new SomeHealthVerifier(
+                List.of(counted), new SimpleMeterRegistry(), 1000, 100);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, verifier.check(), "The check is not ok");
+        }
+        assertEquals(1, calls.get(), "The result was not reused");
+        Thread.sleep(150);
+        verifier.check();
+        assertEquals(2, calls.get(), "The expired result was reused");
+        verifier.close();
+    }
+
+    /** Creates a check.
+     *
+     * @param name    The name of the check.
+     * @param delay   The milliseconds it takes.
+     * @param healthy The result.
+     * @return the {@link HealthCheck}.
+     */
+    private static HealthCheck check(String name, long delay,
+                                     boolean healthy) {
+        return new HealthCheck() {
+            @Override
+            public boolean isServiceHealthy() {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                return healthy;
+            }
+
+            @Override
+            public String getName() { return name; }
+        };
+    }
+}
@@ -0,0 +1,69 @@
+package com.frubana.operations.logistics.yms.health.service;
+
+import com.frubana.operations.logistics.yms.common.datasource.DatabasePools;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/** Tests every pool of the application is checked and closed.
+ */
+public class ConnectionPoolHealthCheckTest {
+
+    // Instance to test and the pools of the critical and bulk work.
+    private DatabasePools pools;
+    private ConnectionPoolHealthCheck check;
+    private HikariPoolMXBean critical;
+    private HikariPoolMXBean bulk;
+
+    /** Creates the check over two pools of 4 connections.
+     */
+    @BeforeEach
+    public void setUp() {
+        pools = new DatabasePools();
+        critical = pool();
+        bulk = pool();
+        pools.add(mock(HikariDataSource.class));
+        check = new ConnectionPoolHealthCheck(pools, 10);
+    }
+
+    /** Tests the check is down only while a pool is full and too many
+     * threads wait for it, the pools not started are skipped.
+     */
+    @Test
+    public void saturatedTest() {
+        when(critical.getActiveConnections()).thenReturn(4);
+        when(critical.getThreadsAwaitingConnection()).thenReturn(10);
+        when(bulk.getActiveConnections()).thenReturn(3);
+        when(bulk.getThreadsAwaitingConnection()).thenReturn(50);
+        assertTrue(check.isServiceHealthy(), "A pool that serves is down");
+
+        when(bulk.getActiveConnections()).thenReturn(4);
+        assertFalse(check.isServiceHealthy(),
+                "The saturated bulk pool is up");
+    }
+
+    /** Tests the pools are closed with the others.
+     */
+    @Test
+    public void closeTest() {
+        pools.close();
+
+        pools.getPools().forEach(pool -> verify(pool).close());
+    }
+
+    /** @return the state of a new pool of 4 connections. */
+    private HikariPoolMXBean pool() {
+        HikariDataSource pool = mock(HikariDataSource.class);
+        HikariPoolMXBean bean = mock(HikariPoolMXBean.class);
+        when(pool.getHikariPoolMXBean()).thenReturn(bean);
+        when(pool.getMaximumPoolSize()).thenReturn(4);
+        pools.add(pool);
+        return bean;
+    }
+}
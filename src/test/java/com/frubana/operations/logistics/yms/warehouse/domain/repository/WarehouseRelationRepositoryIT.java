@@ -0,0 +1,67 @@
+package com.frubana.operations.logistics.yms.warehouse.domain.repository;
+
+import com.frubana.operations.test.utils.PostgresTestDatabase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests the version of the warehouse relations in a Postgres database, see
+ * {@link PostgresTestDatabase}.
+ */
+public class WarehouseRelationRepositoryIT {
+
+    // Instance to test and its database.
+    private PostgresTestDatabase database;
+    private WarehouseRelationRepository repository;
+
+    /** Creates the repository over a database with the relation of PA.
+     */
+    @BeforeEach
+    public void setUp() {
+        database = PostgresTestDatabase.create();
+        repository = new WarehouseRelationRepository(database.getJdbi());
+    }
+
+    /** Drops the database.
+     */
+    @AfterEach
+    public void tearDown() {
+        if (database != null) {
+            database.close();
+        }
+    }
+
+    /** Tests the version changes on each insert, update and delete, even
+     * when the count of relations is the same.
+     */
+    @Test
+    public void versionTest() {
+        JdbcTemplate template = database.getTemplate();
+        Set<String> versions = new HashSet<>();
+        versions.add(repository.getVersion());
+
+        for (String change : List.of(
+                "insert into warehouse_relation (warehouse, name, country," +
+                        " region) values ('MX1', 'Iztapalapa', 'mx', 'CDMX')",
+                "update warehouse_relation set region = 'MTY'" +
+                        " where warehouse = 'MX1'",
+                "update warehouse_relation set country = 'pe'" +
+                        " where warehouse = 'PA'",
+                "delete from warehouse_relation where warehouse = 'MX1'",
+                "insert into warehouse_relation (warehouse, name, country," +
+                        " region) values ('MX1', 'Iztapalapa', 'mx', 'CDMX')")) {
+            template.execute(change);
+            assertTrue(versions.add(repository.getVersion()),
+                    "The version did not change with: " + change);
+        }
+        assertEquals("mx", repository.getAll().get("MX1").getCountry(),
+                "The relations are not the changed ones");
+    }
+}
@@ -0,0 +1,97 @@
+package com.frubana.operations.logistics.yms.warehouse.service;
+
+import com.frubana.operations.logistics.yms.common.configuration.FormattedLogger;
+import com.frubana.operations.logistics.yms.common.utils.WarehouseRelationUtils;
+import com.frubana.operations.logistics.yms.common.utils.WarehouseRelationUtils.WarehouseRelation;
+import com.frubana.operations.logistics.yms.warehouse.domain.repository.WarehouseRelationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/** Tests the relations are reloaded only when their version changes.
+ */
+public class WarehouseRelationRegistryTest {
+
+    // Instance to test, its repository and the relations before the test.
+    private WarehouseRelationRepository repository;
+    private WarehouseRelationRegistry registry;
+    private Map<String, WarehouseRelation> previous;
+
+    /** Creates the registry over a repository with the relation of MX1.
+     */
+    @BeforeEach
+    public void setUp() {
+        previous = WarehouseRelationUtils.getRelations();
+        repository = mock(WarehouseRelationRepository.class);
+        when(repository.getVersion()).thenReturn("1@1");
+        when(repository.getAll()).thenReturn(Map.of("MX1",
+                new WarehouseRelation("Iztapalapa", "mx", "CDMX")));
+        registry = new WarehouseRelationRegistry(repository,
+                mock(FormattedLogger.class));
+    }
+
+    /** Restores the relations.
+     */
+    @AfterEach
+    public void tearDown() {
+        WarehouseRelationUtils.replaceRelations(previous);
+    }
+
+    /** Tests the reload replaces all the relations.
+     */
+    @Test
+    public void reloadTest() {
+        assertEquals(1, registry.reload(), "The relations were not counted");
+
+        assertEquals("mx", WarehouseRelationUtils.getRelation("MX1")
+                .getCountry(), "The new relation was not loaded");
+        assertNull(WarehouseRelationUtils.getRelation("PA"),
+                "The removed relation is still loaded");
+    }
+
+    /** Tests the relations are reloaded on the first refresh and after a
+     * change of the version only.
+     */
+    @Test
+    public void refreshTest() {
+        registry.refresh();
+        registry.refresh();
+        verify(repository, times(1)).getAll();
+
+        when(repository.getVersion()).thenReturn("1@2");
+        when(repository.getAll()).thenReturn(Map.of("MX1",
+                new WarehouseRelation("Iztapalapa", "mx", "MTY")));
+        registry.refresh();
+
+        verify(repository, times(2)).getAll();
+        assertEquals("MTY", WarehouseRelationUtils.getRelation("MX1")
+                .getRegion(), "The updated relation was not loaded");
+    }
+
+    /** Tests the loaded relations are kept when the database fails, and the
+     * readiness is down only until the first load.
+     */
+    @Test
+    public void refreshErrorTest() {
+        assertFalse(registry.isServiceHealthy(),
+                "The service is ready without relations");
+        registry.refresh();
+        assertTrue(registry.isServiceHealthy(),
+                "The service is not ready with the relations");
+        when(repository.getVersion()).thenThrow(
+                new IllegalStateException("Database down"));
+
+        assertDoesNotThrow(() -> registry.refresh(),
+                "The error of the database was thrown");
+        assertEquals("mx", WarehouseRelationUtils.getRelation("MX1")
+                .getCountry(), "The loaded relations were lost");
+    }
+}
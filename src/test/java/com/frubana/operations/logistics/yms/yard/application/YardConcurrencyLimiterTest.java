@@ -0,0 +1,109 @@
+package com.frubana.operations.logistics.yms.yard.application;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests the requests of the yards are shed over the adaptive limit.
+ */
+public class YardConcurrencyLimiterTest {
+
+    // The limiter to test and its metrics.
+    private SimpleMeterRegistry registry;
+    private YardConcurrencyLimiter limiter;
+
+    /** Creates a limiter of 5 requests, 2 of them reserved for writes.
+     */
+    @BeforeEach
+    public void setUp() throws Exception {
+        registry = new SimpleMeterRegistry();
+        limiter = new YardConcurrencyLimiter(registry, true, 5, 1, 5, 0.2,
+                0.4, 2);
+    }
+
+    /** Tests the reads are rejected at once when they fill their part of
+     * the limit, while the writes and the health checks still pass.
+     */
+    @Test
+    public void priorityTest() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.getLimit().tryAcquire(false),
+                    "The reads don't have their part of the limit");
+        }
+
+        MockHttpServletResponse read = filter("GET", "/yms/yard/PA/");
+        MockHttpServletResponse lookup = filter("POST", "/yms/yard/PA/lookup");
+        MockHttpServletResponse write = filter("POST", "/yms/yard/PA/");
+        MockHttpServletResponse health = filter("GET", "/yms/yard/healthz");
+
+        assertEquals(503, read.getStatus(), "The read was not shed");
+        assertEquals("2", read.getHeader(HttpHeaders.RETRY_AFTER),
+                "The client is not told when to retry");
+        assertEquals(503, lookup.getStatus(), "The lookup is not a read");
+        assertEquals(200, write.getStatus(), "The write was shed");
+        assertEquals(200, health.getStatus(), "The health check was shed");
+        assertEquals(2, registry.counter(
+                YardConcurrencyLimiter.REJECTED_METRIC, "priority", "read")
+                .count(), "The rejections are not counted");
+        assertEquals(3, registry.get(YardConcurrencyLimiter.INFLIGHT_METRIC)
+                .gauge().value(), "The finished requests were not released");
+    }
+
+    /** Tests the limit grows while the latency is stable and shrinks when
+     * the requests start queueing.
+     */
+    @Test
+    public void gradientTest() {
+        GradientLimit limit = new GradientLimit(10, 2, 100, 0.5, 0);
+
+        saturate(limit, 20, 10);
+        int grown = limit.getLimit();
+        assertTrue(grown > 10, "The limit didn't grow: " + grown);
+
+        saturate(limit, 10, 200);
+        assertTrue(limit.getLimit() < grown / 2,
+                "The limit didn't shrink: " + limit.getLimit());
+        assertTrue(limit.getLimit() >= 2, "The limit is under the minimum");
+    }
+
+    /** Fills the limit and releases all the requests with a latency.
+     *
+     * @param limit  The limit.
+     * @param rounds The times the limit is filled.
+     * @param millis The latency of the requests.
+     */
+    private static void saturate(GradientLimit limit, int rounds,
+                                 long millis) {
+        for (int round = 0; round < rounds; round++) {
+            int started = 0;
+            while (limit.tryAcquire(true)) {
+                started++;
+            }
+            for (int i = 0; i < started; i++) {
+                limit.release(TimeUnit.MILLISECONDS.toNanos(millis));
+            }
+        }
+    }
+
+    /** Sends a request through the limiter.
+     *
+     * @param method The method of the request.
+     * @param uri    The URI of the request.
+     * @return the response, 200 if it reached the chain.
+     */
+    private MockHttpServletResponse filter(String method, String uri)
+            throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        limiter.doFilter(new MockHttpServletRequest(method, uri), response,
+                new MockFilterChain());
+        return response;
+    }
+}
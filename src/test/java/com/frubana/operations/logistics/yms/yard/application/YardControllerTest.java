@@ -0,0 +1,186 @@
+package com.frubana.operations.logistics.yms.yard.application;
+
+import com.frubana.operations.logistics.yms.common.configuration.FormattedLogger;
+import com.frubana.operations.logistics.yms.common.configuration.RestHandlerConfiguration;
+import com.frubana.operations.logistics.yms.common.utils.JsonUtils;
+import com.frubana.operations.logistics.yms.common.utils.SlackUtils;
+import com.frubana.operations.logistics.yms.yard.domain.YardChangePage;
+import com.frubana.operations.logistics.yms.yard.domain.YardOverview;
+import com.frubana.operations.logistics.yms.yard.service.YardChangeFeed;
+import com.frubana.operations.logistics.yms.yard.service.YardService;
+import com.frubana.operations.logistics.yms.yard.service.YardWaiters;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.request.async.DeferredResult;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/** Tests the validations of the yard endpoints and their errors, which are
+ * answered as JSON even when the client asks for protobuf.
+ */
+public class YardControllerTest {
+
+    // The endpoints with the converters of the application and the services.
+    private YardService yardService;
+    private YardChangeFeed changeFeed;
+    private YardWaiters waiters;
+    private MockMvc mvc;
+
+    /** Creates the controller with the JSON and protobuf converters and the
+     * exception handlers.
+     */
+    @BeforeEach
+    public void setUp() {
+        yardService = mock(YardService.class);
+        changeFeed = mock(YardChangeFeed.class);
+        waiters = mock(YardWaiters.class);
+        FormattedLogger logFormatter = mock(FormattedLogger.class);
+        YardController controller = new YardController(yardService,
+                changeFeed, waiters, mock(YardListingCache.class),
+                logFormatter);
+        ReflectionTestUtils.setField(controller, "maxLookupIds", 500);
+        ReflectionTestUtils.setField(controller, "maxChanges", 1000);
+        ReflectionTestUtils.setField(controller, "maxAwaitTimeout", 30000L);
+        mvc = MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new RestHandlerConfiguration(
+                        logFormatter, mock(SlackUtils.class)))
+                .setMessageConverters(
+                        new MappingJackson2HttpMessageConverter(
+                                JsonUtils.instance),
+                        new YardProtobufHttpMessageConverter())
+                .setAsyncRequestTimeout(60000)
+                .build();
+    }
+
+    /** Tests an invalid lookup answers 400 with the JSON message.
+     */
+    @Test
+    public void badRequestTest() throws Exception {
+        mvc.perform(post("/yms/yard/BOG/lookup")
+                .contentType(MediaType.APPLICATION_JSON).content("[]")
+                .accept(YardProtobufHttpMessageConverter.PROTOBUF))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.message")
+                        .value("The ids cannot be null or empty"));
+    }
+
+    /** Tests the missing yards answer 404 with the JSON message.
+     */
+    @Test
+    public void notFoundTest() throws Exception {
+        when(yardService.getOverview()).thenReturn(
+                new YardOverview(Map.of(), Set.of()));
+
+        mvc.perform(get("/yms/yard/")
+                .accept(YardProtobufHttpMessageConverter.PROTOBUF))
+                .andExpect(status().isNotFound())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.status").value(404));
+    }
+
+    /** Tests the errors of the exception handlers keep their status.
+     */
+    @Test
+    public void handlerTest() throws Exception {
+        when(yardService.lookup(any(), anyString())).thenThrow(
+                new IllegalArgumentException("The warehouse is unknown"));
+
+        mvc.perform(post("/yms/yard/BOG/lookup")
+                .contentType(MediaType.APPLICATION_JSON).content("[1]")
+                .accept(YardProtobufHttpMessageConverter.PROTOBUF))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.message")
+                        .value("The warehouse is unknown"));
+    }
+
+    /** Tests the pages of changes are asked with the given sequence, limit
+     * and warehouse.
+     */
+    @Test
+    public void changesTest() throws Exception {
+        when(yardService.getChanges(anyLong(), anyInt(), any()))
+                .thenReturn(new YardChangePage(List.of(), 7));
+
+        mvc.perform(get("/yms/yard/changes").param("since", "7")
+                .param("limit", "50").param("warehouse", "BOG"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.next").value(7));
+        mvc.perform(get("/yms/yard/changes").param("warehouse", "MED"))
+                .andExpect(status().isOk());
+
+        verify(yardService).getChanges(7, 50, "BOG");
+        verify(yardService).getChanges(0, 100, "MED");
+    }
+
+    /** Tests the invalid sequences and limits, and the requests without
+     * warehouse, are rejected.
+     */
+    @Test
+    public void invalidChangesTest() throws Exception {
+        mvc.perform(get("/yms/yard/changes").param("since", "-1"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/yms/yard/changes").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/yms/yard/changes").param("limit", "1001"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message")
+                        .value("The limit must be between 1 and 1000"));
+        mvc.perform(get("/yms/yard/changes").param("warehouse", " "))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message")
+                        .value("The warehouse is required"));
+
+        verify(yardService, never()).getChanges(anyLong(), anyInt(), any());
+    }
+
+    /** Tests the event stream stays open without timeout while the other
+     * async requests end at the default one.
+     */
+    @Test
+    public void asyncTimeoutTest() throws Exception {
+        when(changeFeed.subscribe(anyString())).thenReturn(Flux.never());
+        when(waiters.await(anyString(), anyInt(), anyLong()))
+                .thenReturn(new DeferredResult<>());
+
+        MvcResult stream = mvc.perform(get("/yms/yard/BOG/stream")
+                .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult await = mvc.perform(get("/yms/yard/BOG/await-free")
+                .param("color", "#0000FF"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        assertEquals(-1, stream.getRequest().getAsyncContext().getTimeout(),
+                "The stream has a timeout");
+        assertEquals(60000, await.getRequest().getAsyncContext().getTimeout(),
+                "The async request has no default timeout");
+    }
+}
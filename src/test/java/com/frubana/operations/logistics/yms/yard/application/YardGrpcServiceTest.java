@@ -0,0 +1,205 @@
+package com.frubana.operations.logistics.yms.yard.application;
+
+import com.frubana.operations.logistics.yms.common.configuration.FormattedLogger;
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import com.frubana.operations.logistics.yms.yard.domain.YardChange;
+import com.frubana.operations.logistics.yms.yard.domain.YardLookup;
+import com.frubana.operations.logistics.yms.yard.domain.proto.FreeRequest;
+import com.frubana.operations.logistics.yms.yard.domain.proto.LookupRequest;
+import com.frubana.operations.logistics.yms.yard.domain.proto.RegisterRequest;
+import com.frubana.operations.logistics.yms.yard.domain.proto.WatchRequest;
+import com.frubana.operations.logistics.yms.yard.domain.proto.YardEvent;
+import com.frubana.operations.logistics.yms.yard.domain.proto.YardsGrpc;
+import com.frubana.operations.logistics.yms.yard.service.YardChangeFeed;
+import com.frubana.operations.logistics.yms.yard.service.YardOutboxRelay;
+import com.frubana.operations.logistics.yms.yard.service.YardService;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ServerCallStreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/** Tests the gRPC service through an in-process channel.
+ */
+public class YardGrpcServiceTest {
+
+    // Instance to test, its dependencies and the channel to call it.
+    private YardService yardService;
+    private YardChangeFeed feed;
+    private Server server;
+    private ManagedChannel channel;
+    private YardsGrpc.YardsBlockingStub stub;
+
+    /** Serves the service in process.
+     */
+    @BeforeEach
+    public void setUp() throws Exception {
+        yardService = mock(YardService.class);
+        YardOutboxRelay relay = mock(YardOutboxRelay.class);
+        when(relay.follow(any())).thenReturn(() -> { });
+        feed = new YardChangeFeed(yardService, relay, new FormattedLogger(),
+                16, 60000);
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name).directExecutor()
+                .addService(new YardGrpcService(yardService, feed,
+                        new FormattedLogger(), 2))
+                .build().start();
+        channel = InProcessChannelBuilder.forName(name).directExecutor()
+                .build();
+        stub = YardsGrpc.newBlockingStub(channel);
+    }
+
+    /** Closes the channel and the server.
+     */
+    @AfterEach
+    public void tearDown() {
+        channel.shutdownNow();
+        server.shutdownNow();
+    }
+
+    /** Tests a yard is registered with the packed color.
+     */
+    @Test
+    public void registerTest() {
+        when(yardService.registerYard(any(), eq("PA")))
+                .thenReturn(yard(1, 1));
+
+        com.frubana.operations.logistics.yms.yard.domain.proto.Yard
+                registered = stub.register(RegisterRequest.newBuilder()
+                .setWarehouse("PA").setColor(0x0000FF).build());
+
+        assertEquals(1, registered.getId(), "The yard is not the registered");
+        verify(yardService).registerYard(
+                argThat(yard -> yard.getRgb() == 0x0000FF), eq("PA"));
+    }
+
+    /** Tests freeing a yard that doesn't exist fails with NOT_FOUND.
+     */
+    @Test
+    public void freeNotFoundTest() {
+        FreeRequest request = FreeRequest.newBuilder().setWarehouse("PA")
+                .setAssignationNumber(3).setColor(0xFF0000).build();
+
+        StatusRuntimeException error = assertThrows(
+                StatusRuntimeException.class, () -> stub.free(request));
+
+        assertEquals(Status.Code.NOT_FOUND, error.getStatus().getCode(),
+                "The missing yard is not reported");
+        verify(yardService).liberar(argThat(yard ->
+                yard.getAssignationNumber() == 3
+                        && "PA".equals(yard.getWarehouse())
+                        && yard.getRgb() == 0xFF0000));
+    }
+
+    /** Tests the lookup keeps the order and rejects too many ids.
+     */
+    @Test
+    public void lookupTest() {
+        when(yardService.lookup(List.of(2, 1), "PA")).thenReturn(
+                new YardLookup(List.of(yard(2, 1)), List.of(1)));
+
+        com.frubana.operations.logistics.yms.yard.domain.proto.YardLookup
+                lookup = stub.lookup(LookupRequest.newBuilder()
+                .setWarehouse("PA").addAllIds(List.of(2, 1, 2)).build());
+
+        assertEquals(2, lookup.getYards(0).getId(), "The yard is not found");
+        assertEquals(List.of(1), lookup.getMissingList(),
+                "The missing ids are not reported");
+        StatusRuntimeException error = assertThrows(
+                StatusRuntimeException.class,
+                () -> stub.lookup(LookupRequest.newBuilder()
+                        .setWarehouse("PA").addAllIds(List.of(1, 2, 3))
+                        .build()));
+        assertEquals(Status.Code.INVALID_ARGUMENT,
+                error.getStatus().getCode(), "The ids were not limited");
+    }
+
+    /** Tests the watch sends the snapshot and then the changes.
+     */
+    @Test
+    public void watchTest() throws Exception {
+        when(yardService.getYards("PA")).thenReturn(List.of(yard(1, 1)));
+
+        Iterator<YardEvent> events = stub.watch(
+                WatchRequest.newBuilder().setWarehouse("PA").build());
+        YardEvent snapshot = events.next();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (feed.getSubscribers("PA") == 0
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        feed.onYardChange(new YardChange(1, 2, "PA", "#0000FF", "#FF0000", 2,
+                LocalDateTime.now()));
+        YardEvent change = events.next();
+
+        assertEquals(1, snapshot.getSnapshot().getYards(0).getId(),
+                "The snapshot is not the first event");
+        assertEquals(2, change.getChange().getYard().getId(),
+                "The change is not sent");
+        assertEquals(0xFF0000, change.getChange().getPreviousColor(),
+                "The previous color is not sent");
+        assertFalse(change.getChange().getRegistration(),
+                "The release is sent as a registration");
+    }
+
+    /** Tests the watch has at most one event requested however many times
+     * the transport becomes ready, and requests the next one on arrival.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void watchDemandTest() {
+        ServerCallStreamObserver<YardEvent> call =
+                mock(ServerCallStreamObserver.class);
+        when(call.isReady()).thenReturn(true);
+        AtomicLong requested = new AtomicLong();
+        YardGrpcService.WatchSubscriber subscriber =
+                new YardGrpcService.WatchSubscriber(call, error -> { });
+        subscriber.demand();
+        Flux.<ServerSentEvent<Object>>never()
+                .doOnRequest(requested::addAndGet)
+                .subscribe(subscriber);
+        for (int i = 0; i < 10; i++) {
+            subscriber.demand();
+        }
+        assertEquals(1, requested.get(), "The ready handler added demand");
+
+        requested.set(0);
+        Flux.range(1, 3)
+                .map(id -> ServerSentEvent.builder((Object) List.of(yard(id, id)))
+                        .event(YardChangeFeed.SNAPSHOT_EVENT).build())
+                .doOnRequest(requested::addAndGet)
+                .subscribe(new YardGrpcService.WatchSubscriber(
+                        call, error -> { }));
+        verify(call, times(3)).onNext(any());
+        assertEquals(4, requested.get(),
+                "The events were not requested one at a time");
+    }
+
+    /** Creates a blue yard of PA.
+     *
+     * @param id                The id of the yard.
+     * @param assignationNumber The assignation number of the yard.
+     * @return the yard.
+     */
+    private static Yard yard(int id, int assignationNumber) {
+        Yard yard = new Yard(id, 0x0000FF, assignationNumber);
+        yard.AssignWarehouse("PA");
+        return yard;
+    }
+}
@@ -0,0 +1,103 @@
+package com.frubana.operations.logistics.yms.yard.application;
+
+import com.frubana.operations.logistics.yms.common.utils.JsonUtils;
+import com.frubana.operations.logistics.yms.yard.domain.ColorPalette;
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import com.frubana.operations.logistics.yms.yard.domain.YardChangedEvent;
+import com.frubana.operations.logistics.yms.yard.domain.proto.YardGroups;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests the cache of the serialized listings.
+ */
+public class YardListingCacheTest {
+
+    // Instance to test, its metrics and the reads of the listing.
+    private SimpleMeterRegistry registry;
+    private YardListingCache cache;
+    private AtomicInteger reads;
+    private Supplier<Object> listing;
+
+    /** Creates an empty cache.
+     */
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        cache = new YardListingCache(registry);
+        reads = new AtomicInteger();
+        listing = () -> {
+            reads.incrementAndGet();
+            return Map.of("#0000FF", List.of(yard()));
+        };
+    }
+
+    /** Tests the same version is serialized once per format.
+     */
+    @Test
+    public void getTest() throws Exception {
+        byte[] json = cache.get("PA", 4, MediaType.APPLICATION_JSON, listing);
+        byte[] again = cache.get("PA", 4, MediaType.APPLICATION_JSON, listing);
+        byte[] protobuf = cache.get("PA", 4,
+                YardProtobufHttpMessageConverter.PROTOBUF, listing);
+
+        assertSame(json, again, "The listing was serialized again");
+        assertEquals(2, reads.get(), "Each format is not read once");
+        assertEquals(1, JsonUtils.instance.readTree(json).get("#0000FF")
+                .size(), "The JSON is not the listing");
+        assertEquals(1, YardGroups.parseFrom(protobuf)
+                .getGroupsOrThrow("#0000FF").getYardsCount(),
+                "The protobuf is not the listing");
+        assertEquals(1, registry.counter(YardListingCache.READS_METRIC,
+                "result", "hit").count(), "The hit is not counted");
+    }
+
+    /** Tests a new version or a change of the warehouse reads the listing
+     * again.
+     */
+    @Test
+    public void invalidationTest() {
+        cache.get("PA", 4, MediaType.APPLICATION_JSON, listing);
+        cache.get("PA", 5, MediaType.APPLICATION_JSON, listing);
+        assertEquals(2, reads.get(), "The new version was not read");
+
+        cache.onYardChanged(new YardChangedEvent(yard(), ColorPalette.NONE));
+        cache.get("PA", 5, MediaType.APPLICATION_JSON, listing);
+        assertEquals(3, reads.get(), "The change did not drop the listing");
+    }
+
+    /** Tests the format follows the preference of the client.
+     */
+    @Test
+    public void negotiateTest() {
+        assertEquals(MediaType.APPLICATION_JSON, cache.negotiate(null),
+                "JSON is not the default");
+        assertEquals(MediaType.APPLICATION_JSON, cache.negotiate("*/*"),
+                "JSON is not the default of any format");
+        assertEquals(YardProtobufHttpMessageConverter.PROTOBUF,
+                cache.negotiate("application/json;q=0.5, " +
+                        "application/x-protobuf"),
+                "The preferred format was not chosen");
+        assertEquals(MediaType.APPLICATION_CBOR,
+                cache.negotiate("application/cbor"),
+                "CBOR was not chosen");
+    }
+
+    /** Creates a blue yard of PA.
+     *
+     * @return the yard.
+     */
+    private static Yard yard() {
+        Yard yard = new Yard(1, 0x0000FF, 1);
+        yard.AssignWarehouse("PA");
+        return yard;
+    }
+}
@@ -0,0 +1,76 @@
+package com.frubana.operations.logistics.yms.yard.application;
+
+import com.frubana.operations.logistics.yms.common.utils.JsonUtils;
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import com.frubana.operations.logistics.yms.yard.domain.proto.YardGroups;
+import com.frubana.operations.logistics.yms.yard.domain.proto.YardList;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests the protobuf representation of the yard responses.
+ */
+public class YardProtobufHttpMessageConverterTest {
+
+    /** Tests a listing grouped by color is written and read back.
+     */
+    @Test
+    public void writeGroupsTest() throws Exception {
+        Yard yard = new Yard(7, "#0000ff", 3);
+        yard.AssignWarehouse("BOG");
+        YardProtobufHttpMessageConverter converter =
+                new YardProtobufHttpMessageConverter();
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+
+        converter.write(Map.of(yard.getColor(), List.of(yard)),
+                YardProtobufHttpMessageConverter.PROTOBUF, output);
+
+        assertEquals(YardProtobufHttpMessageConverter.PROTOBUF,
+                output.getHeaders().getContentType(),
+                "The content type is not protobuf");
+        YardList yards = YardGroups.parseFrom(output.getBodyAsBytes())
+                .getGroupsOrThrow("#0000FF");
+        assertEquals(1, yards.getYardsCount(), "The yard was not written");
+        assertEquals(7, yards.getYards(0).getId(), "The id is different");
+        assertEquals(0x0000FF, yards.getYards(0).getColor(),
+                "The color is not packed");
+        assertEquals(3, yards.getYards(0).getAssignationNumber(),
+                "The assignation number is different");
+        assertEquals("BOG", yards.getYards(0).getWarehouse(),
+                "The warehouse is different");
+    }
+
+    /** Tests the bodies without yards are not written.
+     */
+    @Test
+    public void writeErrorTest() {
+        assertThrows(HttpMessageNotWritableException.class,
+                () -> YardProtobufHttpMessageConverter.toMessage(
+                        List.of("Yard not Found")));
+        assertFalse(new YardProtobufHttpMessageConverter().canRead(
+                Yard.class, YardProtobufHttpMessageConverter.PROTOBUF),
+                "The protobuf yards should not be read");
+    }
+
+    /** Tests the maps without groups of yards are written as JSON.
+     */
+    @Test
+    public void writeJsonTest() throws Exception {
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+
+        new YardProtobufHttpMessageConverter().write(Map.of("status", 404),
+                YardProtobufHttpMessageConverter.PROTOBUF, output);
+
+        assertEquals(MediaType.APPLICATION_JSON,
+                output.getHeaders().getContentType(),
+                "The content type is not JSON");
+        assertEquals(404, JsonUtils.instance.readTree(output.getBodyAsBytes())
+                .get("status").asInt(), "The body is not the map");
+    }
+}
@@ -0,0 +1,111 @@
+package com.frubana.operations.logistics.yms.yard.application;
+
+import com.frubana.operations.logistics.yms.common.configuration.FormattedLogger;
+import com.frubana.operations.logistics.yms.yard.domain.OccupancySummary;
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import com.frubana.operations.logistics.yms.yard.domain.YardChangePage;
+import com.frubana.operations.logistics.yms.yard.domain.YardLookup;
+import com.frubana.operations.logistics.yms.yard.service.YardService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/** Tests the warm-up of the warehouses and the readiness it gates.
+ */
+public class YardWarmupTest {
+
+    // The service read by the warm-up and the listings it fills.
+    private YardService yardService;
+    private SimpleMeterRegistry registry;
+    private YardListingCache listingCache;
+
+    /** Mocks two warehouses with one yard each.
+     */
+    @BeforeEach
+    public void setUp() {
+        yardService = mock(YardService.class);
+        registry = new SimpleMeterRegistry();
+        listingCache = new YardListingCache(registry);
+        when(yardService.getWarehouses()).thenReturn(List.of("PA", "BOG"));
+        when(yardService.getVersion(anyString())).thenReturn(3L);
+        when(yardService.getYards(anyString(), anyLong())).thenAnswer(
+                invocation -> List.of(yard(invocation.getArgument(0))));
+        when(yardService.lookup(anyList(), anyString())).thenReturn(
+                new YardLookup(List.of(), List.of()));
+        when(yardService.getChanges(anyLong(), anyInt(), anyString()))
+                .thenReturn(new YardChangePage(List.of(), 3));
+        when(yardService.getSummary(anyString())).thenReturn(
+                new OccupancySummary(Map.of(), 0));
+    }
+
+    /** Tests every warehouse is warmed and the readiness is up after it.
+     */
+    @Test
+    public void warmTest() throws Exception {
+        YardWarmup warmup = new YardWarmup(yardService, listingCache,
+                new FormattedLogger(), true, 2, 60000);
+        assertFalse(warmup.isServiceHealthy(),
+                "The readiness is up before the warm-up");
+
+        warmup.start().get(5, TimeUnit.SECONDS);
+
+        assertTrue(warmup.isServiceHealthy(),
+                "The readiness is down after the warm-up");
+        verify(yardService).getYards("PA", 3);
+        verify(yardService).getYards("BOG", 3);
+        verify(yardService).getYard("1", "PA");
+        listingCache.get("PA", 3, MediaType.APPLICATION_JSON, () -> {
+            throw new AssertionError("The listing was not cached");
+        });
+        assertEquals(2.0 * YardListingCache.MEDIA_TYPES.size(),
+                registry.counter(YardListingCache.READS_METRIC,
+                        "result", "miss").count(),
+                "Not every format of every warehouse was cached");
+    }
+
+    /** Tests the readiness stops waiting for a slow warm-up after the
+     * timeout and a failing warehouse doesn't stop the others.
+     */
+    @Test
+    public void timeoutTest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(yardService.getYards("PA", 3)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            throw new IllegalStateException("Database down");
+        });
+        YardWarmup warmup = new YardWarmup(yardService, listingCache,
+                new FormattedLogger(), true, 2, 100);
+
+        warmup.start();
+        assertFalse(warmup.isServiceHealthy(),
+                "The readiness didn't wait for the warm-up");
+        Thread.sleep(150);
+        assertTrue(warmup.isServiceHealthy(),
+                "The readiness waited beyond the timeout");
+
+        release.countDown();
+        warmup.start().get(5, TimeUnit.SECONDS);
+        verify(yardService, atLeastOnce()).getSummary("BOG");
+    }
+
+    /** Creates a blue yard.
+     *
+     * @param warehouse The warehouse of the yard.
+     * @return the yard.
+     */
+    private static Yard yard(String warehouse) {
+        Yard yard = new Yard(1, 0x0000FF, 1);
+        yard.AssignWarehouse(warehouse);
+        return yard;
+    }
+}
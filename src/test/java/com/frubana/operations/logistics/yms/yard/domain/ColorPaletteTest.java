@@ -0,0 +1,88 @@
+package com.frubana.operations.logistics.yms.yard.domain;
+
+import com.frubana.operations.logistics.yms.common.utils.JsonUtils;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests the packing and normalization of the yard colors.
+ */
+public class ColorPaletteTest {
+
+    /** Tests the accepted formats are the same color.
+     */
+    @Test
+    public void parseTest() {
+        assertEquals(0xD3D3D3, ColorPalette.parse("#D3D3D3"),
+                "The upper case color was not packed");
+        assertEquals(0xD3D3D3, ColorPalette.parse("#d3d3d3"),
+                "The lower case color is a different color");
+        assertEquals(0xD3D3D3, ColorPalette.parse(" d3d3d3 "),
+                "The color without # is a different color");
+        assertEquals(0xDDEEFF, ColorPalette.parse("#def"),
+                "The short color was not expanded");
+        assertEquals(ColorPalette.NONE, ColorPalette.parse(" "),
+                "The blank color is not empty");
+        assertEquals(ColorPalette.NONE, ColorPalette.parse(null),
+                "The null color is not empty");
+    }
+
+    /** Tests the invalid colors are rejected.
+     */
+    @Test
+    public void parseErrorTest() {
+        Exception exception = assertThrows(IllegalArgumentException.class,
+                () -> ColorPalette.parse("#GGGGGG"));
+        assertTrue(exception.getMessage().contains("#GGGGGG"),
+                "Error does not contain the color, instead has " +
+                        exception.getMessage());
+        assertThrows(IllegalArgumentException.class,
+                () -> ColorPalette.parse("#D3D3D3D3"));
+        assertThrows(IllegalArgumentException.class,
+                () -> ColorPalette.parse("blue"));
+    }
+
+    /** Tests the colors are formatted once in the canonical form.
+     */
+    @Test
+    public void toHexTest() {
+        assertEquals("#00A0FF", ColorPalette.toHex(0x00A0FF),
+                "The color was not formatted as #RRGGBB");
+        assertSame(ColorPalette.normalize("#00a0ff"),
+                ColorPalette.normalize("00A0FF"),
+                "The canonical string is not shared");
+        assertNull(ColorPalette.toHex(ColorPalette.NONE),
+                "The empty color has a representation");
+    }
+
+    /** Tests the palette stops growing once it's full and the colors out of
+     * it are still formatted.
+     */
+    @Test
+    public void boundedTest() {
+        String kept = ColorPalette.toHex(0x00A0FF);
+        for (int rgb = 0; rgb <= ColorPalette.MAX_COLORS; rgb++) {
+            ColorPalette.toHex(0x100000 + rgb);
+        }
+
+        assertEquals(ColorPalette.MAX_COLORS, ColorPalette.size(),
+                "The palette grew past its limit");
+        assertEquals("#FFFFFE", ColorPalette.toHex(0xFFFFFE),
+                "The color out of the palette was not formatted");
+        assertSame(kept, ColorPalette.toHex(0x00A0FF),
+                "The color kept was formatted again");
+    }
+
+    /** Tests the yards are serialized with the canonical color.
+     */
+    @Test
+    public void yardJsonTest() throws Exception {
+        Yard yard = JsonUtils.instance.readValue(
+                "{\"color\":\"#d3d3d3\",\"warehouse\":\"PA\"}", Yard.class);
+        assertEquals(0xD3D3D3, yard.getRgb(), "The color was not packed");
+        assertEquals("{\"id\":0,\"assignationNumber\":0,\"warehouse\":\"PA\"," +
+                        "\"color\":\"#D3D3D3\"}",
+                JsonUtils.instance.writeValueAsString(yard),
+                "The yard JSON is not the expected");
+    }
+}
@@ -0,0 +1,102 @@
+package com.frubana.operations.logistics.yms.yard.domain.repository;
+
+import com.frubana.operations.logistics.yms.common.datasource.WarehouseShards;
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import com.frubana.operations.test.utils.PostgresTestDatabase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests the normalization of the colors of the yards, see
+ * {@link PostgresTestDatabase}.
+ */
+public class YardColorsMigrationIT {
+
+    // The database before the normalization and its queries.
+    private PostgresTestDatabase database;
+    private JdbcTemplate template;
+
+    /** Creates the database with the yards of before the normalization.
+     */
+    @BeforeEach
+    public void setUp() {
+        database = PostgresTestDatabase.create("2021.04.21.10.00.01");
+        template = database.getTemplate();
+        template.execute("insert into yard (id, color, warehouse," +
+                " assignation_number, default_color) values" +
+                " (1, '#D3D3D3', 'BOG', 1, '#D3D3D3')," +
+                " (2, '#D3D3D3', 'BOG', 1, '#d3d3d3')," +
+                " (3, '#D3D3D3', 'BOG', 2, null)," +
+                " (4, ' #fff ', 'BOG', 1, '#fff')," +
+                " (5, 'red', 'BOG', 1, 'red')," +
+                " (6, null, 'BOG', 2, null)," +
+                " (7, '#D3D3D3', 'MED', 1, '#D3D3D3')");
+    }
+
+    /** Drops the database.
+     */
+    @AfterEach
+    public void tearDown() {
+        if (database != null) {
+            database.close();
+        }
+    }
+
+    /** Tests the rows without a hexadecimal color are moved out of the
+     * yards and the outbox, and the others are readable.
+     */
+    @Test
+    public void rejectedTest() {
+        database.migrate("latest");
+
+        assertEquals(List.of(5, 6), template.queryForList(
+                "select id from yard_rejected order by id", Integer.class),
+                "The invalid colors were not rejected");
+        assertEquals(List.of(), template.queryForList(
+                "select yard_id from yard_change where yard_id in (5, 6)",
+                Integer.class), "The rejected yards are in the outbox");
+        assertEquals("#FFFFFF", template.queryForObject(
+                "select color from yard where id = 4", String.class),
+                "The padded color was not normalized");
+        assertEquals(List.of(), template.queryForList("select id from yard" +
+                " where default_color is distinct from upper(default_color)" +
+                " or default_color is null", Integer.class),
+                "A default color was not repaired");
+        try (WarehouseShards shards = new WarehouseShards(database.getJdbi(),
+                Map.of(), Executors.newSingleThreadExecutor())) {
+            List<Yard> yards = new YardRepository(shards).getAll();
+            assertEquals(5, yards.size(), "The yards are not readable");
+        }
+    }
+
+    /** Tests the case variants of a slot keep the oldest one and the others
+     * take the next slots of the color, starting the outbox with them.
+     */
+    @Test
+    public void duplicatedTest() {
+        database.migrate("latest");
+
+        Map<Integer, Integer> slots = template.queryForList(
+                "select id, assignation_number from yard" +
+                " where warehouse = 'BOG' and color = '#D3D3D3'").stream()
+                .collect(Collectors.toMap(row -> (Integer) row.get("id"),
+                        row -> (Integer) row.get("assignation_number")));
+
+        assertEquals(Map.of(1, 1, 2, 3, 3, 2), slots,
+                "The duplicated slot did not take the next one");
+        assertEquals(1, template.queryForObject("select assignation_number" +
+                " from yard where id = 7", Integer.class),
+                "The slot of other warehouse was changed");
+        assertEquals(List.of(3), template.queryForList(
+                "select assignation_number from yard_change where yard_id = 2",
+                Integer.class), "The new slot has no change");
+    }
+}
@@ -0,0 +1,119 @@
+package com.frubana.operations.logistics.yms.yard.domain.repository;
+
+import com.frubana.operations.logistics.yms.common.datasource.WarehouseShards;
+import com.frubana.operations.logistics.yms.common.utils.WarehouseRelationUtils;
+import com.frubana.operations.logistics.yms.common.utils.WarehouseRelationUtils.WarehouseRelation;
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import com.frubana.operations.test.utils.PostgresTestDatabase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests the partitions of the warehouses in a Postgres database, see
+ * {@link PostgresTestDatabase}.
+ */
+public class YardPartitionIT {
+
+    // Instance to test and its database.
+    private PostgresTestDatabase database;
+    private JdbcTemplate template;
+    private WarehouseShards shards;
+    private YardRepository repository;
+
+    // The relations before the test.
+    private Map<String, WarehouseRelation> previous;
+
+    /** Creates the repository over an empty database, with the relations of
+     * BOG and MED.
+     */
+    @BeforeEach
+    public void setUp() {
+        previous = WarehouseRelationUtils.getRelations();
+        WarehouseRelationUtils.replaceRelations(Map.of(
+                "BOG", new WarehouseRelation("Bogota", "co", "BOG"),
+                "MED", new WarehouseRelation("Medellin", "co", "MED")));
+        database = PostgresTestDatabase.create();
+        template = database.getTemplate();
+        shards = new WarehouseShards(database.getJdbi(), Map.of(),
+                Executors.newSingleThreadExecutor());
+        repository = new YardRepository(shards);
+    }
+
+    /** Drops the database and restores the relations.
+     */
+    @AfterEach
+    public void tearDown() {
+        WarehouseRelationUtils.replaceRelations(previous);
+        if (shards != null) {
+            shards.close();
+        }
+        if (database != null) {
+            database.close();
+        }
+    }
+
+    /** Tests the partition is created once, with the rows of the warehouse
+     * stored meanwhile in the default partition.
+     */
+    @Test
+    public void ensurePartitionTest() {
+        template.execute("insert into yard (color, warehouse," +
+                " assignation_number, default_color) values" +
+                " ('#0000FF', 'BOG', 1, '#0000FF')," +
+                " ('#0000FF', 'MED', 1, '#0000FF')");
+
+        template.execute("select yard_ensure_partition('BOG')");
+        template.execute("select yard_ensure_partition('BOG')");
+
+        assertEquals(1, count(partition("BOG")),
+                "The rows were not moved to the partition");
+        assertEquals(1, count("yard_default"),
+                "The rows of other warehouse were moved");
+        assertEquals(2, count("yard"), "The rows are not in the yards");
+    }
+
+    /** Tests a partition created by a rolled back registration is created
+     * again by the next one.
+     */
+    @Test
+    public void rolledBackPartitionTest() {
+        TransactionTemplate transaction = new TransactionTemplate(
+                new DataSourceTransactionManager(database.getDataSource()));
+        transaction.execute(status -> {
+            repository.register(new Yard(1, "#0000FF", 1), "BOG");
+            status.setRollbackOnly();
+            return null;
+        });
+        assertNull(template.queryForObject("select to_regclass(?)::text",
+                String.class, partition("BOG")),
+                "The partition was not rolled back");
+
+        transaction.execute(status ->
+                repository.register(new Yard(1, "#0000FF", 1), "BOG"));
+
+        assertEquals(1, count(partition("BOG")),
+                "The registration was not stored in a new partition");
+    }
+
+    /** @param warehouse The warehouse.
+     * @return the name of its partition. */
+    private String partition(String warehouse) {
+        return template.queryForObject("select yard_partition_name(?)",
+                String.class, warehouse);
+    }
+
+    /** @param table The table.
+     * @return its rows. */
+    private int count(String table) {
+        return template.queryForObject("select count(*) from " + table,
+                Integer.class);
+    }
+}
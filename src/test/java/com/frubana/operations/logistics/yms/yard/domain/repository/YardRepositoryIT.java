@@ -0,0 +1,204 @@
+package com.frubana.operations.logistics.yms.yard.domain.repository;
+
+import com.frubana.operations.logistics.yms.common.datasource.WarehouseShards;
+import com.frubana.operations.logistics.yms.common.utils.WarehouseRelationUtils;
+import com.frubana.operations.logistics.yms.common.utils.WarehouseRelationUtils.WarehouseRelation;
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import com.frubana.operations.logistics.yms.yard.domain.YardChange;
+import com.frubana.operations.test.utils.PostgresTestDatabase;
+import org.jdbi.v3.core.Handle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests the statements of the yards in a Postgres database, see
+ * {@link PostgresTestDatabase}.
+ */
+public class YardRepositoryIT {
+
+    // Instance to test and its database.
+    private PostgresTestDatabase database;
+    private WarehouseShards shards;
+    private YardRepository repository;
+
+    // The relations before the test.
+    private Map<String, WarehouseRelation> previous;
+
+    /** Creates the repository over an empty database, with the relations of
+     * BOG and MED.
+     */
+    @BeforeEach
+    public void setUp() {
+        previous = WarehouseRelationUtils.getRelations();
+        WarehouseRelationUtils.replaceRelations(Map.of(
+                "BOG", new WarehouseRelation("Bogota", "co", "BOG"),
+                "MED", new WarehouseRelation("Medellin", "co", "MED")));
+        database = PostgresTestDatabase.create();
+        shards = new WarehouseShards(database.getJdbi(), Map.of(),
+                Executors.newSingleThreadExecutor());
+        repository = new YardRepository(shards);
+    }
+
+    /** Drops the database and restores the relations.
+     */
+    @AfterEach
+    public void tearDown() {
+        WarehouseRelationUtils.replaceRelations(previous);
+        if (shards != null) {
+            shards.close();
+        }
+        if (database != null) {
+            database.close();
+        }
+    }
+
+    /** Tests a batch takes the free slots of each color and its yards are
+     * found by their ids.
+     */
+    @Test
+    public void registerAllTest() {
+        repository.register(yard("#0000FF"), "BOG");
+
+        List<Yard> batch = repository.registerAll(List.of(yard("#0000FF"),
+                yard("#FF0000"), yard("#0000FF")), "BOG");
+        List<Yard> found = repository.getByIdsAndWarehouse(batch.stream()
+                .mapToInt(Yard::getId).toArray(), "BOG");
+
+        assertEquals(List.of(2, 1, 3), batch.stream()
+                .map(Yard::getAssignationNumber).collect(Collectors.toList()),
+                "The batch did not take the free slots");
+        assertEquals(3, found.size(), "The yards of the batch were not found");
+    }
+
+    /** Tests the concurrent registrations of a warehouse take different
+     * slots, the free slot is looked up and taken in one transaction.
+     */
+    @Test
+    public void concurrentRegisterTest() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Yard>> registered = executor.invokeAll(
+                    Collections.nCopies(20, () -> repository.register(
+                            yard("#0000FF"), "BOG")));
+            Set<Integer> slots = new HashSet<>();
+            for (Future<Yard> yard : registered) {
+                slots.add(yard.get().getAssignationNumber());
+            }
+
+            assertEquals(20, slots.size(), "Two registrations took a slot");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /** Tests each write appends its change in the same statement.
+     */
+    @Test
+    public void outboxTest() {
+        Yard registered = repository.register(yard("#0000FF"), "BOG");
+        List<Yard> batch = repository.registerAll(
+                List.of(yard("#0000FF"), yard("#FF0000")), "BOG");
+        Yard freed = repository.updateColorYard(registered);
+
+        List<YardChange> changes = repository.getChanges(0, 10, "BOG");
+
+        assertEquals(4, changes.size(), "A write has no change");
+        assertEquals(List.of(registered.getId(), batch.get(0).getId(),
+                batch.get(1).getId(), freed.getId()), changes.stream()
+                .map(YardChange::getYardId).collect(Collectors.toList()),
+                "The changes are not the writes in order");
+        assertEquals(2, changes.get(1).getAssignationNumber(),
+                "The batch did not take the next slot");
+        assertNull(changes.get(0).getPreviousColor(),
+                "The registration has a previous color");
+        assertEquals("#0000FF", changes.get(3).getPreviousColor(),
+                "The release has no previous color");
+        assertEquals(changes.get(3).getSeq(), repository.getVersion("BOG"),
+                "The version is not the last change");
+    }
+
+    /** Tests the pages of changes of a warehouse after a sequence.
+     */
+    @Test
+    public void changesTest() {
+        repository.register(yard("#0000FF"), "BOG");
+        repository.register(yard("#0000FF"), "MED");
+        repository.register(yard("#0000FF"), "BOG");
+
+        List<YardChange> first = repository.getChanges(0, 1, "BOG");
+        List<YardChange> second = repository.getChanges(
+                first.get(0).getSeq(), 1, "BOG");
+
+        assertEquals(List.of("BOG"), warehouses(first),
+                "The first page is not the first change");
+        assertEquals(List.of("BOG"), warehouses(second),
+                "The changes of the warehouse are not filtered");
+        assertTrue(repository.getChanges(second.get(0).getSeq(), 10, "BOG")
+                .isEmpty(), "There are changes after the last one");
+    }
+
+    /** Tests a write of a warehouse doesn't wait for an open write of other
+     * one, and its changes are not held back by the gap of the open one.
+     */
+    @Test
+    public void gapTest() {
+        try (Handle open = database.getJdbi().open()) {
+            open.begin();
+            open.execute("select pg_advisory_xact_lock(hashtext('yard_change:BOG'))");
+            open.execute("insert into yard_change (yard_id, warehouse, color," +
+                    " assignation_number) values (99, 'BOG', '#0000FF', 1)");
+
+            Yard medellin = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                    () -> repository.register(yard("#0000FF"), "MED"),
+                    "The write waited for other warehouse");
+
+            assertEquals(medellin.getId(), repository.getChanges(0, 10, "MED")
+                    .get(0).getYardId(), "The warehouse was held back");
+            assertTrue(repository.getChanges(0, 10, "BOG").isEmpty(),
+                    "The open change was read");
+
+            open.commit();
+        }
+        assertEquals(List.of(99), repository.getChanges(0, 10, "BOG")
+                .stream().map(YardChange::getYardId)
+                .collect(Collectors.toList()),
+                "The change is not returned once committed");
+    }
+
+    /** Tests a rolled back change doesn't hold back the changes after it.
+     */
+    @Test
+    public void rolledBackGapTest() {
+        database.getTemplate().execute("select nextval('yard_change_seq_seq')");
+        repository.register(yard("#0000FF"), "BOG");
+
+        assertEquals(1, repository.getChanges(0, 10, "BOG").size(),
+                "The gap holds back the changes");
+    }
+
+    /** @param changes The changes.
+     * @return the warehouse of each change. */
+    private static List<String> warehouses(List<YardChange> changes) {
+        return changes.stream().map(YardChange::getWarehouse)
+                .collect(Collectors.toList());
+    }
+
+    /** @param color The color of the yard.
+     * @return a yard to register. */
+    private static Yard yard(String color) {
+        return new Yard(1, color, 1);
+    }
+}
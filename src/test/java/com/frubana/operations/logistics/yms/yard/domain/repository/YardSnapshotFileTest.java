@@ -0,0 +1,72 @@
+package com.frubana.operations.logistics.yms.yard.domain.repository;
+
+import com.frubana.operations.logistics.yms.yard.domain.YardSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests the names of the warehouses in the snapshot of the yards.
+ */
+public class YardSnapshotFileTest {
+
+    // Instance to test.
+    private YardSnapshotFile snapshotFile;
+
+    /** Creates the snapshot in a temporary directory.
+     *
+     * @param directory The directory of the snapshot.
+     */
+    @BeforeEach
+    public void setUp(@TempDir Path directory) {
+        snapshotFile = new YardSnapshotFile(
+                directory.resolve("yards.snapshot").toString());
+    }
+
+    /** Tests a name longer than a signed short is written and read, and a
+     * longer one is rejected.
+     */
+    @Test
+    public void longNameTest() throws Exception {
+        String name = "W".repeat(40000);
+        snapshotFile.write(List.of(snapshot(name)));
+
+        assertEquals(name, snapshotFile.read().get(0).getWarehouse(),
+                "The long name was not read");
+        assertThrows(IOException.class, () -> snapshotFile.write(
+                List.of(snapshot("W".repeat(70000)))),
+                "The name too long was written");
+    }
+
+    /** Tests a name length past the end of the file is an invalid snapshot.
+     */
+    @Test
+    public void invalidNameLengthTest() throws Exception {
+        snapshotFile.write(List.of(snapshot("PA")));
+        byte[] bytes = Files.readAllBytes(snapshotFile.getPath());
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.putShort(12, (short) 0xFFFF);
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 8);
+        buffer.putLong(bytes.length - 8, crc.getValue());
+        Files.write(snapshotFile.getPath(), bytes);
+
+        assertThrows(IOException.class, () -> snapshotFile.read(),
+                "The invalid name length was read");
+    }
+
+    /** @param warehouse The warehouse of the snapshot.
+     * @return a snapshot with a yard. */
+    private static YardSnapshot snapshot(String warehouse) {
+        return new YardSnapshot(warehouse, 5, new int[]{1},
+                new int[]{0x0000FF}, new int[]{1}, new long[]{5});
+    }
+}
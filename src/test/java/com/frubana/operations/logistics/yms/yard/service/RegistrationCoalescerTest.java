@@ -0,0 +1,139 @@
+package com.frubana.operations.logistics.yms.yard.service;
+
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests the grouping of the registrations.
+ */
+public class RegistrationCoalescerTest {
+
+    // The threads used by the coalescer.
+    private final ScheduledExecutorService executor =
+            Executors.newScheduledThreadPool(2);
+
+    // The batches received by the persister.
+    private final List<List<Yard>> batches = new CopyOnWriteArrayList<>();
+
+    /** Stops the threads.
+     */
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /** Tests the registrations in the window are persisted together and each
+     * caller receives its own yard.
+     */
+    @Test
+    public void windowTest() {
+        RegistrationCoalescer coalescer = new RegistrationCoalescer(
+                this::persist, true, 50_000, 64, executor);
+        List<CompletableFuture<Yard>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            results.add(coalescer.submit(new Yard(1, 0x0000FF, i), "PA"));
+        }
+        CompletableFuture<Yard> other =
+                coalescer.submit(new Yard(1, 0x0000FF, 9), "BO");
+
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).join().getAssignationNumber(),
+                    "The caller received the yard of another caller");
+        }
+        assertEquals("BO", other.join().getWarehouse());
+        assertEquals(2, batches.size(), "The warehouses were not grouped");
+    }
+
+    /** Tests a full batch is persisted before the end of its window.
+     */
+    @Test
+    public void maxBatchTest() {
+        RegistrationCoalescer coalescer = new RegistrationCoalescer(
+                this::persist, true, 60_000_000, 3, executor);
+        List<CompletableFuture<Yard>> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            results.add(coalescer.submit(new Yard(1, 0x0000FF, i), "PA"));
+        }
+        results.forEach(CompletableFuture::join);
+        assertEquals(1, batches.size());
+        assertEquals(3, batches.get(0).size());
+    }
+
+    /** Tests every caller of a failed batch receives the error.
+     */
+    @Test
+    public void errorTest() {
+        AtomicInteger calls = new AtomicInteger();
+        RegistrationCoalescer coalescer = new RegistrationCoalescer(
+                (warehouse, yards) -> {
+                    calls.incrementAndGet();
+                    throw new IllegalStateException("broken");
+                }, true, 10_000, 64, executor);
+        CompletableFuture<Yard> first =
+                coalescer.submit(new Yard(1, 0x0000FF, 1), "PA");
+        CompletableFuture<Yard> second =
+                coalescer.submit(new Yard(1, 0x0000FF, 2), "PA");
+
+        assertThrows(CompletionException.class, first::join);
+        CompletionException error =
+                assertThrows(CompletionException.class, second::join);
+        assertEquals("broken", error.getCause().getMessage());
+        assertEquals(1, calls.get(), "The batch was persisted twice");
+    }
+
+    /** Tests a registration without color is rejected alone, a cancelled
+     * one is left out of its batch and the lock of the warehouse is
+     * released after the batch.
+     */
+    @Test
+    public void isolatedTest() {
+        RegistrationCoalescer coalescer = new RegistrationCoalescer(
+                this::persist, true, 50_000, 64, executor);
+        CompletableFuture<Yard> valid =
+                coalescer.submit(new Yard(1, 0x0000FF, 1), "PA");
+        CompletableFuture<Yard> colorless = coalescer.submit(new Yard(), "PA");
+        CompletableFuture<Yard> cancelled =
+                coalescer.submit(new Yard(1, 0x0000FF, 2), "PA");
+        cancelled.cancel(false);
+
+        assertEquals(1, valid.join().getAssignationNumber(),
+                "The valid registration failed with the others");
+        CompletionException error =
+                assertThrows(CompletionException.class, colorless::join);
+        assertTrue(error.getCause() instanceof IllegalArgumentException,
+                "The registration without color was not rejected");
+        assertEquals(1, batches.size());
+        assertEquals(1, batches.get(0).size(),
+                "The rejected or cancelled registrations were persisted");
+        assertEquals(0, coalescer.getLocks(), "The lock was kept");
+    }
+
+    /** Fake persister that keeps the batches.
+     *
+     * @param warehouse The warehouse of the yards.
+     * @param yards     The yards to register.
+     * @return the yards with their warehouse.
+     */
+    private List<Yard> persist(String warehouse, List<Yard> yards) {
+        batches.add(yards);
+        List<Yard> registered = new ArrayList<>();
+        for (Yard yard : yards) {
+            Yard created = new Yard(registered.size() + 1, yard.getRgb(),
+                    yard.getAssignationNumber());
+            created.AssignWarehouse(warehouse);
+            registered.add(created);
+        }
+        return registered;
+    }
+}
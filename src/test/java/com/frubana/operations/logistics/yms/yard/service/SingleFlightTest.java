@@ -0,0 +1,224 @@
+package com.frubana.operations.logistics.yms.yard.service;
+
+import com.frubana.operations.logistics.yms.common.datasource.Deadline;
+import com.frubana.operations.logistics.yms.common.datasource.DeadlineExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests the concurrent identical calls share one call.
+ */
+public class SingleFlightTest {
+
+    // The calls made, the latch that holds the first one and the flights.
+    private AtomicInteger calls;
+    private CountDownLatch release;
+    private SimpleMeterRegistry registry;
+    private SingleFlight<String, Integer> flight;
+    private ExecutorService executor;
+
+    /** Creates the flights of an operation that holds its first call.
+     */
+    @BeforeEach
+    public void setUp() {
+        calls = new AtomicInteger();
+        release = new CountDownLatch(1);
+        registry = new SimpleMeterRegistry();
+        flight = new SingleFlight<>("test", registry);
+        executor = Executors.newCachedThreadPool();
+    }
+
+    /** Stops the callers.
+     */
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    /** Tests the calls that arrive during a flight share the next one and
+     * never receive the result of the running one.
+     */
+    @Test
+    public void collapseTest() throws Exception {
+        Future<Integer> first = executor.submit(() -> call("PA"));
+        waitFor(() -> calls.get() == 1);
+        List<Future<Integer>> late = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            late.add(executor.submit(() -> call("PA")));
+        }
+        waitFor(() -> collapsed() == 3);
+        Future<Integer> other = executor.submit(() -> call("MX"));
+        waitFor(() -> calls.get() == 2);
+        release.countDown();
+
+        assertEquals(1, first.get(5, TimeUnit.SECONDS),
+                "The first call didn't get its result");
+        assertEquals(2, other.get(5, TimeUnit.SECONDS),
+                "Another key is not called on its own");
+        for (Future<Integer> result : late) {
+            assertEquals(3, result.get(5, TimeUnit.SECONDS),
+                    "A late call got the result of an older call");
+        }
+        assertEquals(3, calls.get(), "The identical calls were not shared");
+        assertEquals(3, collapsed(), "The collapsed calls are not counted");
+
+        assertEquals(4, flight.execute("PA", calls::incrementAndGet),
+                "A call after the flights got an old result");
+    }
+
+    /** Tests the callers of a failed flight receive its error and the next
+     * call is made again.
+     */
+    @Test
+    public void failureTest() throws Exception {
+        Future<Integer> first = executor.submit(() -> call("PA"));
+        waitFor(() -> calls.get() == 1);
+        List<Future<Integer>> late = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            late.add(executor.submit(() -> flight.execute("PA", () -> {
+                calls.incrementAndGet();
+                throw new IllegalStateException("down");
+            })));
+        }
+        waitFor(() -> collapsed() == 1);
+        release.countDown();
+
+        assertEquals(1, first.get(5, TimeUnit.SECONDS),
+                "The first call didn't get its result");
+        for (Future<Integer> result : late) {
+            ExecutionException error = assertThrows(ExecutionException.class,
+                    () -> result.get(5, TimeUnit.SECONDS));
+            assertTrue(error.getCause() instanceof IllegalStateException,
+                    "The error of the flight is not received");
+        }
+        assertEquals(3, flight.execute("PA", calls::incrementAndGet),
+                "The failed flight was kept");
+    }
+
+    /** Tests the flight runs with the latest deadline of its callers and
+     * each caller waits only until its own deadline.
+     */
+    @Test
+    public void deadlineTest() throws Exception {
+        Future<Integer> first = executor.submit(() -> call("PA"));
+        waitFor(() -> calls.get() == 1);
+        CountDownLatch hold = new CountDownLatch(1);
+        AtomicLong remaining = new AtomicLong();
+        Supplier<Integer> held = () -> {
+            remaining.set(Deadline.remainingMillis());
+            calls.incrementAndGet();
+            try {
+                hold.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 2;
+        };
+        List<Future<Integer>> hurried = new ArrayList<>();
+        for (long timeout : new long[]{100, 200}) {
+            hurried.add(executor.submit(() -> withDeadline(timeout,
+                    () -> flight.execute("PA", held))));
+        }
+        Future<Integer> patient = executor.submit(() -> withDeadline(10000,
+                () -> flight.execute("PA", held)));
+        waitFor(() -> collapsed() == 2);
+        release.countDown();
+        assertEquals(1, first.get(5, TimeUnit.SECONDS),
+                "The first call didn't get its result");
+        waitFor(() -> calls.get() == 2
+                && hurried.stream().anyMatch(Future::isDone));
+        hold.countDown();
+
+        assertTrue(remaining.get() > 5000,
+                "The call didn't use the latest deadline of its callers");
+        assertEquals(2, patient.get(5, TimeUnit.SECONDS),
+                "The caller with time left didn't get the result");
+        long exceeded = 0;
+        for (Future<Integer> result : hurried) {
+            try {
+                assertEquals(2, result.get(5, TimeUnit.SECONDS));
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof DeadlineExceededException,
+                        "The caller didn't stop at its deadline");
+                exceeded++;
+            }
+        }
+        assertTrue(exceeded >= 1, "The callers waited past their deadline");
+    }
+
+    /** Runs a call with a deadline.
+     *
+     * @param timeout The milliseconds to the deadline.
+     * @param call    The call.
+     * @return the result of the call.
+     */
+    private static Integer withDeadline(long timeout, Supplier<Integer> call) {
+        Deadline.start(timeout);
+        try {
+            return call.get();
+        } finally {
+            Deadline.clear();
+        }
+    }
+
+    /** Counts a call of a key, holding it until released.
+     *
+     * @param key The key of the call.
+     * @return the number of the call.
+     */
+    private Integer call(String key) {
+        return flight.execute(key, () -> {
+            int call = calls.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return call;
+        });
+    }
+
+    /** @return the calls that joined another's flight. */
+    private long collapsed() {
+        return (long) registry.counter(SingleFlight.COLLAPSED_METRIC,
+                "operation", "test").count();
+    }
+
+    /** Waits until a condition holds.
+     *
+     * @param condition The condition.
+     */
+    private static void waitFor(Condition condition)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.holds()) {
+            assertTrue(System.nanoTime() < deadline, "The calls didn't arrive");
+            Thread.sleep(5);
+        }
+    }
+
+    /** A condition waited by the test.
+     */
+    @FunctionalInterface
+    private interface Condition {
+
+        /** @return true if the condition holds. */
+        boolean holds();
+    }
+}
@@ -0,0 +1,162 @@
+package com.frubana.operations.logistics.yms.yard.service;
+
+import com.frubana.operations.logistics.yms.common.configuration.FormattedLogger;
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import com.frubana.operations.logistics.yms.yard.domain.YardChange;
+import com.frubana.operations.logistics.yms.yard.domain.YardChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.BaseSubscriber;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/** Tests the feed of the changes of the yards.
+ */
+public class YardChangeFeedTest {
+
+    // Instance to test, its service and the warehouses it follows.
+    private YardService yardService;
+    private YardChangeFeed feed;
+    private AtomicInteger followers;
+
+    /** Creates a feed with a buffer of two changes.
+     */
+    @BeforeEach
+    public void setUp() {
+        yardService = mock(YardService.class);
+        when(yardService.getYards("PA")).thenReturn(List.of(yard(1)));
+        followers = new AtomicInteger();
+        YardOutboxRelay relay = mock(YardOutboxRelay.class);
+        when(relay.follow("PA")).thenAnswer(invocation -> {
+            followers.incrementAndGet();
+            return (Runnable) followers::decrementAndGet;
+        });
+        feed = new YardChangeFeed(yardService, relay, new FormattedLogger(),
+                2, 60000);
+    }
+
+    /** Tests the subscriber receives the snapshot and then the changes of
+     * its warehouse only, and the warehouse is forgotten with its last
+     * subscriber.
+     */
+    @Test
+    public void snapshotAndChangesTest() throws Exception {
+        Events events = new Events(Long.MAX_VALUE);
+        feed.subscribe("PA").subscribe(events);
+        await(() -> events.names().contains(YardChangeFeed.SNAPSHOT_EVENT));
+
+        assertEquals(1, followers.get(), "The warehouse is not followed");
+        feed.onYardChange(change(2, "PA"));
+        feed.onYardChange(change(3, "BO"));
+        await(() -> events.names().size() == 2);
+
+        assertEquals(List.of(YardChangeFeed.SNAPSHOT_EVENT,
+                YardChangeFeed.CHANGE_EVENT), events.names(),
+                "The events are not the expected");
+        YardChangedEvent change = (YardChangedEvent) events.received.get(1).data();
+        assertEquals(2, change.getYard().getId(), "The change is not the sent");
+
+        events.dispose();
+        await(() -> feed.getSubscribers("PA") == 0);
+        assertEquals(0, feed.getWarehouses(), "The warehouse was kept");
+        assertEquals(0, followers.get(), "The warehouse is still followed");
+    }
+
+    /** Tests a subscriber that falls behind receives a new snapshot instead
+     * of the changes it couldn't buffer.
+     */
+    @Test
+    public void resyncTest() throws Exception {
+        Events events = new Events(1);
+        feed.subscribe("PA").subscribe(events);
+        await(() -> events.names().size() == 1);
+
+        for (int i = 2; i < 100; i++) {
+            feed.onYardChange(change(i, "PA"));
+        }
+        events.request(Long.MAX_VALUE);
+        await(() -> events.names().lastIndexOf(
+                YardChangeFeed.SNAPSHOT_EVENT) > 0);
+
+        assertTrue(events.names().size() < 99,
+                "Every change was buffered for the slow subscriber");
+        verify(yardService, atLeast(2)).getYards("PA");
+        await(() -> feed.getSubscribers("PA") == 1);
+        assertEquals(1, followers.get(),
+                "The subscriber did not follow the warehouse again");
+        events.dispose();
+    }
+
+    /** Creates a yard of PA.
+     *
+     * @param id The id of the yard.
+     * @return the yard.
+     */
+    private static Yard yard(int id) {
+        Yard yard = new Yard(id, 0xD3D3D3, id);
+        yard.AssignWarehouse("PA");
+        return yard;
+    }
+
+    /** Creates the registration of a yard read from the outbox.
+     *
+     * @param id        The id of the yard.
+     * @param warehouse The warehouse of the yard.
+     * @return the change.
+     */
+    private static YardChange change(int id, String warehouse) {
+        return new YardChange(id, id, warehouse, "#D3D3D3", null, id,
+                LocalDateTime.now());
+    }
+
+    /** Waits up to five seconds for a condition.
+     *
+     * @param condition The condition to wait.
+     */
+    private static void await(BooleanSupplier condition) throws Exception {
+        for (int i = 0; i < 500 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean(), "The condition was not met");
+    }
+
+    /** Subscriber that keeps the received events.
+     */
+    private static class Events extends BaseSubscriber<ServerSentEvent<Object>> {
+
+        // The events received and the initial request.
+        private final List<ServerSentEvent<Object>> received =
+                new CopyOnWriteArrayList<>();
+        private final long initialRequest;
+
+        private Events(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            request(initialRequest);
+        }
+
+        @Override
+        protected void hookOnNext(ServerSentEvent<Object> event) {
+            received.add(event);
+        }
+
+        /** @return the names of the received events. */
+        private List<String> names() {
+            return received.stream().map(ServerSentEvent::event)
+                    .collect(Collectors.toList());
+        }
+    }
+}
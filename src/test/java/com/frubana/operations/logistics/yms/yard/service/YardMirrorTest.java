@@ -0,0 +1,172 @@
+package com.frubana.operations.logistics.yms.yard.service;
+
+import com.frubana.operations.logistics.yms.common.configuration.FormattedLogger;
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import com.frubana.operations.logistics.yms.yard.domain.YardChange;
+import com.frubana.operations.logistics.yms.yard.domain.repository.YardRepository;
+import com.frubana.operations.logistics.yms.yard.domain.repository.YardSnapshotFile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/** Tests the yards in memory and their snapshot.
+ */
+public class YardMirrorTest {
+
+    // The database, the snapshot and the metrics of the mirrors.
+    private YardRepository repository;
+    private YardSnapshotFile snapshotFile;
+    private SimpleMeterRegistry registry;
+
+    /** Mocks a warehouse with two yards at version 5.
+     *
+     * @param directory The directory of the snapshot.
+     */
+    @BeforeEach
+    public void setUp(@TempDir Path directory) {
+        repository = mock(YardRepository.class);
+        snapshotFile = new YardSnapshotFile(
+                directory.resolve("yards.snapshot").toString());
+        registry = new SimpleMeterRegistry();
+        when(repository.getVersion("PA")).thenReturn(5L);
+        when(repository.getByWarehouse("PA")).thenReturn(
+                List.of(yard(1, 0x0000FF, 1), yard(2, 0x0000FF, 2)));
+    }
+
+    /** Tests a restart restores the snapshot and replays only the changes
+     * after it.
+     */
+    @Test
+    public void restoreTest() {
+        YardMirror before = mirror();
+        before.getYards("PA", 5);
+        before.close();
+        when(repository.getVersion("PA")).thenReturn(7L);
+        when(repository.getChanges(5, 1000, "PA")).thenReturn(List.of(
+                change(6, 1, "#FF0000", 1), change(7, 3, "#0000FF", 3)));
+
+        YardMirror after = mirror();
+        after.restore();
+        List<Yard> yards = after.getYards("PA", 7);
+
+        assertEquals(List.of(1, 2, 3), ids(yards), "The yards are not kept");
+        assertEquals("#FF0000", yards.get(0).getColor(),
+                "The change was not replayed");
+        assertEquals("PA", yards.get(2).getWarehouse(),
+                "The warehouse is not set");
+        verify(repository, times(1)).getByWarehouse("PA");
+        assertEquals(2, registry.counter(YardMirror.REPLAYED_METRIC).count(),
+                "The replayed changes are not counted");
+    }
+
+    /** Tests a snapshot newer than the database or corrupted is not used.
+     */
+    @Test
+    public void discardTest() throws Exception {
+        YardMirror before = mirror();
+        before.getYards("PA", 5);
+        before.close();
+
+        when(repository.getVersion("PA")).thenReturn(2L);
+        YardMirror restored = mirror();
+        restored.restore();
+        restored.getYards("PA", 2);
+        verify(repository, times(2)).getByWarehouse("PA");
+
+        byte[] bytes = Files.readAllBytes(snapshotFile.getPath());
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(snapshotFile.getPath(), bytes);
+        YardMirror corrupted = mirror();
+        corrupted.restore();
+        corrupted.getYards("PA", 2);
+        verify(repository, times(3)).getByWarehouse("PA");
+    }
+
+    /** Tests a read newer than the mirror replays the changes in pages.
+     */
+    @Test
+    public void catchUpTest() {
+        YardMirror mirror = new YardMirror(repository, snapshotFile,
+                registry, new FormattedLogger(), false, 1);
+        mirror.getYards("PA", 5);
+        when(repository.getChanges(5, 1, "PA")).thenReturn(
+                List.of(change(6, 2, "#00FF00", 2)));
+        when(repository.getChanges(6, 1, "PA")).thenReturn(List.of());
+
+        List<Yard> yards = mirror.getYards("PA", 6);
+
+        assertEquals("#00FF00", yards.get(1).getColor(),
+                "The change was not applied");
+        verify(repository).getChanges(6, 1, "PA");
+        assertFalse(Files.exists(snapshotFile.getPath()),
+                "The disabled snapshot was written");
+    }
+
+    /** Tests the warehouses without changes in the database are not kept
+     * nor written to the snapshot.
+     */
+    @Test
+    public void unknownWarehouseTest() {
+        YardMirror mirror = mirror();
+
+        assertTrue(mirror.getYards("UNKNOWN", 0).isEmpty(),
+                "The unknown warehouse has yards");
+        mirror.getYards("UNKNOWN", 0);
+        mirror.close();
+
+        verify(repository, times(2)).getByWarehouse("UNKNOWN");
+        assertFalse(Files.exists(snapshotFile.getPath()),
+                "The unknown warehouse was written");
+    }
+
+    /** @return a mirror with the snapshot enabled. */
+    private YardMirror mirror() {
+        return new YardMirror(repository, snapshotFile, registry,
+                new FormattedLogger(), true, 1000);
+    }
+
+    /** Creates a yard of PA.
+     *
+     * @param id                The id of the yard.
+     * @param rgb               The color of the yard.
+     * @param assignationNumber The assignation number of the yard.
+     * @return the yard.
+     */
+    private static Yard yard(int id, int rgb, int assignationNumber) {
+        Yard yard = new Yard(id, rgb, assignationNumber);
+        yard.AssignWarehouse("PA");
+        return yard;
+    }
+
+    /** Creates a change of a yard of PA.
+     *
+     * @param seq               The sequence of the change.
+     * @param id                The id of the yard.
+     * @param color             The color after the change.
+     * @param assignationNumber The assignation number of the yard.
+     * @return the change.
+     */
+    private static YardChange change(long seq, int id, String color,
+                                     int assignationNumber) {
+        return new YardChange(seq, id, "PA", color, null, assignationNumber,
+                LocalDateTime.now());
+    }
+
+    /** @param yards The yards.
+     * @return their ids. */
+    private static List<Integer> ids(List<Yard> yards) {
+        return yards.stream().map(Yard::getId)
+                .collect(Collectors.toList());
+    }
+}
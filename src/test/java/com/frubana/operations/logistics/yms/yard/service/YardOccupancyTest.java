@@ -0,0 +1,94 @@
+package com.frubana.operations.logistics.yms.yard.service;
+
+import com.frubana.operations.logistics.yms.common.configuration.FormattedLogger;
+import com.frubana.operations.logistics.yms.yard.domain.ColorCount;
+import com.frubana.operations.logistics.yms.yard.domain.ColorPalette;
+import com.frubana.operations.logistics.yms.yard.domain.OccupancySummary;
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import com.frubana.operations.logistics.yms.yard.domain.YardChangedEvent;
+import com.frubana.operations.logistics.yms.yard.domain.repository.YardRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/** Tests the occupancy counters of the yards.
+ */
+public class YardOccupancyTest {
+
+    // Colors used in the tests.
+    private static final int GRAY = 0xD3D3D3;
+    private static final int BLUE = 0x0000FF;
+
+    // Instance to test and its repository.
+    private YardRepository repository;
+    private YardOccupancy occupancy;
+
+    /** Seeds the counters with the yards of PA.
+     */
+    @BeforeEach
+    public void setUp() {
+        repository = mock(YardRepository.class);
+        when(repository.getOccupancy()).thenReturn(List.of(
+                new ColorCount("PA", GRAY, true, 5, 5),
+                new ColorCount("PA", BLUE, false, 2, 7),
+                new ColorCount("PA", BLUE, true, 1, 1)));
+        occupancy = new YardOccupancy(repository, new FormattedLogger());
+        occupancy.reseed();
+    }
+
+    /** Tests the counters are seeded from the aggregation.
+     */
+    @Test
+    public void seedTest() {
+        OccupancySummary summary = occupancy.getSummary("PA");
+        assertEquals(5, summary.getColors().get("#D3D3D3").getFree());
+        assertEquals(0, summary.getColors().get("#D3D3D3").getUsed());
+        assertEquals(2, summary.getColors().get("#0000FF").getUsed());
+        assertEquals(1, summary.getColors().get("#0000FF").getFree());
+        assertEquals(7, summary.getMaxAssignationNumber(),
+                "The highest assignation number is not the expected");
+        assertTrue(occupancy.getSummary("BO").getColors().isEmpty(),
+                "A warehouse without yards has counters");
+    }
+
+    /** Tests the registrations and releases update the counters.
+     */
+    @Test
+    public void changesTest() {
+        Yard registered = new Yard(10, GRAY, 6);
+        registered.AssignWarehouse("PA");
+        occupancy.onYardChanged(
+                new YardChangedEvent(registered, ColorPalette.NONE));
+
+        Yard freed = new Yard(3, GRAY, 7);
+        freed.AssignWarehouse("PA");
+        occupancy.onYardChanged(new YardChangedEvent(freed, BLUE));
+
+        Yard alreadyFree = new Yard(4, BLUE, 1);
+        alreadyFree.AssignWarehouse("PA");
+        occupancy.onYardChanged(new YardChangedEvent(alreadyFree, BLUE));
+
+        OccupancySummary summary = occupancy.getSummary("PA");
+        assertEquals(7, summary.getColors().get("#D3D3D3").getFree(),
+                "The registered and freed yards are not free");
+        assertEquals(1, summary.getColors().get("#0000FF").getUsed(),
+                "The freed yard is still used");
+        assertEquals(1, summary.getColors().get("#0000FF").getFree(),
+                "A yard already free was counted twice");
+        assertEquals(7, summary.getMaxAssignationNumber());
+    }
+
+    /** Tests a failing reseed keeps the current counters.
+     */
+    @Test
+    public void reseedErrorTest() {
+        when(repository.getOccupancy()).thenThrow(new IllegalStateException());
+        occupancy.reseed();
+        assertEquals(1, occupancy.getSummaries().size(),
+                "The counters were lost after a failed reseed");
+    }
+}
@@ -0,0 +1,83 @@
+package com.frubana.operations.logistics.yms.yard.service;
+
+import com.frubana.operations.logistics.yms.common.configuration.FormattedLogger;
+import com.frubana.operations.logistics.yms.yard.domain.YardChange;
+import com.frubana.operations.logistics.yms.yard.domain.repository.YardRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/** Tests the changes of the outbox are published for the followed
+ * warehouses.
+ */
+public class YardOutboxRelayTest {
+
+    // Instance to test, its repository and the changes published.
+    private YardRepository repository;
+    private YardOutboxRelay relay;
+    private final List<YardChange> published = new CopyOnWriteArrayList<>();
+
+    /** Creates the relay over an outbox of PA at version 10, reading two
+     * changes at once.
+     */
+    @BeforeEach
+    public void setUp() {
+        repository = mock(YardRepository.class);
+        when(repository.getVersion("PA")).thenReturn(10L);
+        ApplicationEventPublisher events = event ->
+                published.add((YardChange) event);
+        relay = new YardOutboxRelay(repository, events, new FormattedLogger(),
+                60000, 2);
+    }
+
+    /** Stops the relay.
+     */
+    @AfterEach
+    public void tearDown() {
+        relay.close();
+    }
+
+    /** Tests the changes committed after the warehouse is followed, by any
+     * instance, are published once and in order, and nothing is read once
+     * nobody follows it.
+     */
+    @Test
+    public void followTest() {
+        Runnable first = relay.follow("PA");
+        Runnable second = relay.follow("PA");
+        verify(repository, times(1)).getVersion("PA");
+        when(repository.getChanges(10, 2, "PA"))
+                .thenReturn(List.of(change(11), change(12)));
+        when(repository.getChanges(12, 2, "PA"))
+                .thenReturn(List.of(change(13)));
+
+        relay.pollAll();
+        relay.pollAll();
+
+        assertEquals(List.of(11L, 12L, 13L), published.stream()
+                .map(YardChange::getSeq).collect(Collectors.toList()),
+                "The changes are not published once and in order");
+        first.run();
+        assertEquals(1, relay.getFollowed(), "The warehouse was forgotten");
+        second.run();
+        assertEquals(0, relay.getFollowed(), "The warehouse was kept");
+        relay.pollAll();
+        verify(repository, times(3)).getChanges(anyLong(), anyInt(), any());
+    }
+
+    /** @param seq The position of the change.
+     * @return a change of a yard of PA. */
+    private static YardChange change(long seq) {
+        return new YardChange(seq, 1, "PA", "#D3D3D3", "#0000FF", 1,
+                LocalDateTime.now());
+    }
+}
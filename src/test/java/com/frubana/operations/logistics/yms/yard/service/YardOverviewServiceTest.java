@@ -0,0 +1,107 @@
+package com.frubana.operations.logistics.yms.yard.service;
+
+import com.frubana.operations.logistics.yms.common.configuration.FormattedLogger;
+import com.frubana.operations.logistics.yms.common.datasource.Deadline;
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import com.frubana.operations.logistics.yms.yard.domain.YardOverview;
+import com.frubana.operations.logistics.yms.yard.domain.repository.YardRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/** Tests the parallel overview of the yards.
+ */
+public class YardOverviewServiceTest {
+
+    // Instance to test and its repository.
+    private YardRepository repository;
+    private YardOverviewService overview;
+
+    /** Creates the overview with a timeout of 200 milliseconds.
+     */
+    @BeforeEach
+    public void setUp() {
+        repository = mock(YardRepository.class);
+        overview = new YardOverviewService(repository,
+                mock(PlatformTransactionManager.class),
+                new FormattedLogger(), 4, 200);
+    }
+
+    /** Stops the threads and removes the deadline of the test.
+     */
+    @AfterEach
+    public void tearDown() {
+        overview.close();
+        Deadline.clear();
+    }
+
+    /** Tests the slow and failing warehouses are flagged and the others
+     * returned.
+     */
+    @Test
+    public void partialOverviewTest() {
+        when(repository.getWarehouses())
+                .thenReturn(List.of("PA", "BO", "SLOW", "BROKEN"));
+        when(repository.getByWarehouse("PA")).thenReturn(List.of(yard("PA")));
+        when(repository.getByWarehouse("BO")).thenReturn(List.of(yard("BO")));
+        when(repository.getByWarehouse("SLOW")).thenAnswer(invocation -> {
+            Thread.sleep(2000);
+            return List.of(yard("SLOW"));
+        });
+        when(repository.getByWarehouse("BROKEN"))
+                .thenThrow(new IllegalStateException("broken"));
+
+        long start = System.currentTimeMillis();
+        YardOverview result = overview.getOverview();
+
+        assertTrue(System.currentTimeMillis() - start < 1500,
+                "The overview waited for the slow warehouse");
+        assertEquals(Set.of("PA", "BO"), result.getYards().keySet());
+        assertEquals(Set.of("BROKEN", "SLOW"), result.getIncomplete());
+        assertFalse(result.isComplete());
+    }
+
+    /** Tests the warehouses are read with the timeout as deadline, or the
+     * deadline of the request when it's earlier, so their statements are
+     * cancelled when they are left out.
+     */
+    @Test
+    public void deadlineTest() {
+        List<Long> remaining = new CopyOnWriteArrayList<>();
+        when(repository.getWarehouses()).thenReturn(List.of("PA"));
+        when(repository.getByWarehouse("PA")).thenAnswer(invocation -> {
+            remaining.add(Deadline.remainingMillis());
+            return List.of(yard("PA"));
+        });
+
+        overview.getOverview();
+        Deadline.start(50);
+        overview.getOverview();
+
+        assertTrue(remaining.get(0) > 50 && remaining.get(0) <= 200,
+                "The warehouse was not read with the timeout, but with "
+                        + remaining.get(0));
+        assertTrue(remaining.get(1) <= 50,
+                "The warehouse was not read with the request deadline, but"
+                        + " with " + remaining.get(1));
+    }
+
+    /** Creates a yard of a warehouse.
+     *
+     * @param warehouse The warehouse.
+     * @return the yard.
+     */
+    private static Yard yard(String warehouse) {
+        Yard yard = new Yard(1, 0xD3D3D3, 1);
+        yard.AssignWarehouse(warehouse);
+        return yard;
+    }
+}
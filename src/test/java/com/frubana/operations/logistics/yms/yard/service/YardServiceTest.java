@@ -0,0 +1,110 @@
+package com.frubana.operations.logistics.yms.yard.service;
+
+import com.frubana.operations.logistics.yms.common.datasource.Deadline;
+import com.frubana.operations.logistics.yms.common.datasource.DeadlineExceededException;
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import com.frubana.operations.logistics.yms.yard.domain.YardLookup;
+import com.frubana.operations.logistics.yms.yard.domain.repository.YardRepository;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/** Tests the logic of the yard service.
+ */
+public class YardServiceTest {
+
+    // Instance to test and its repository.
+    private YardRepository repository;
+    private YardService service;
+    private CircuitBreakerRegistry circuitBreakers;
+    private RegistrationCoalescer coalescer;
+
+    /** Creates the service with a mocked repository.
+     */
+    @BeforeEach
+    public void setUp() {
+        repository = mock(YardRepository.class);
+        circuitBreakers = CircuitBreakerRegistry.ofDefaults();
+        coalescer = mock(RegistrationCoalescer.class);
+        service = new YardService(repository, mock(YardOccupancy.class),
+                mock(ApplicationEventPublisher.class),
+                coalescer,
+                mock(YardOverviewService.class),
+                circuitBreakers, mock(YardMirror.class),
+                new SimpleMeterRegistry());
+    }
+
+    /** Tests the lookup resolves the ids with one query and keeps their
+     * order.
+     */
+    @Test
+    public void lookupTest() {
+        when(repository.getByIdsAndWarehouse(any(), eq("PA")))
+                .thenReturn(List.of(yard(9), yard(3)));
+
+        YardLookup lookup = service.lookup(List.of(3, 5, 9, 7), "PA");
+
+        verify(repository, times(1))
+                .getByIdsAndWarehouse(new int[]{3, 5, 9, 7}, "PA");
+        assertEquals(List.of(3, 9), lookup.getYards().stream()
+                .map(Yard::getId).collect(Collectors.toList()),
+                "The yards are not in the order of the ids");
+        assertEquals(List.of(5, 7), lookup.getMissing(),
+                "The missing ids are not the expected");
+    }
+
+    /** Tests the service is unhealthy while its circuit breaker is open.
+     */
+    @Test
+    public void healthTest() {
+        assertTrue(service.isServiceHealthy(), "The closed breaker is down");
+        circuitBreakers.circuitBreaker(YardService.SERVICE_NAME)
+                .transitionToOpenState();
+        assertFalse(service.isServiceHealthy(), "The open breaker is up");
+    }
+
+    /** Tests a coalesced registration is awaited only until the deadline
+     * of the request.
+     */
+    @Test
+    public void coalescedDeadlineTest() {
+        when(coalescer.isEnabled()).thenReturn(true);
+        when(coalescer.submit(any(), eq("PA")))
+                .thenReturn(new CompletableFuture<>());
+        Deadline.start(50);
+        try {
+            assertThrows(DeadlineExceededException.class,
+                    () -> service.registerYard(yard(1), "PA"),
+                    "The registration was awaited past the deadline");
+        } finally {
+            Deadline.clear();
+        }
+
+        when(coalescer.submit(any(), eq("PA")))
+                .thenReturn(CompletableFuture.failedFuture(
+                        new IllegalStateException("full")));
+        assertThrows(IllegalStateException.class,
+                () -> service.registerYard(yard(1), "PA"),
+                "The error of the batch was not thrown");
+    }
+
+    /** Creates a yard of PA.
+     *
+     * @param id The id of the yard.
+     * @return the yard.
+     */
+    private static Yard yard(int id) {
+        Yard yard = new Yard(id, 0xD3D3D3, 1);
+        yard.AssignWarehouse("PA");
+        return yard;
+    }
+}
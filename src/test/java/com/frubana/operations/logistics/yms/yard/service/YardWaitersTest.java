@@ -0,0 +1,139 @@
+package com.frubana.operations.logistics.yms.yard.service;
+
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import com.frubana.operations.logistics.yms.yard.domain.YardChange;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.StandardServletAsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import javax.servlet.AsyncEvent;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/** Tests the requests waiting for a free yard.
+ */
+public class YardWaitersTest {
+
+    // Colors used in the tests.
+    private static final int GRAY = 0xD3D3D3;
+    private static final int BLUE = 0x0000FF;
+
+    // Instance to test, its metrics and the followers of the outbox.
+    private SimpleMeterRegistry registry;
+    private YardWaiters waiters;
+    private final AtomicInteger followers = new AtomicInteger();
+
+    /** Creates the waiters with an in memory registry and a relay that
+     * counts its followers.
+     */
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        YardOutboxRelay relay = mock(YardOutboxRelay.class);
+        when(relay.follow(anyString())).thenAnswer(invocation -> {
+            followers.incrementAndGet();
+            return (Runnable) followers::decrementAndGet;
+        });
+        waiters = new YardWaiters(registry, relay);
+    }
+
+    /** Tests each freed yard completes the oldest waiter of its color.
+     */
+    @Test
+    public void fifoTest() {
+        DeferredResult<ResponseEntity<Object>> first =
+                waiters.await("PA", GRAY, 10000);
+        DeferredResult<ResponseEntity<Object>> second =
+                waiters.await("PA", GRAY, 10000);
+        DeferredResult<ResponseEntity<Object>> blue =
+                waiters.await("PA", BLUE, 10000);
+        assertEquals(3, registry.get(YardWaiters.WAITERS_METRIC).gauge()
+                .value(), "The waiters are not measured");
+        assertEquals(3, followers.get(), "The outbox is not followed");
+
+        waiters.onYardChange(change(5, "PA", "#D3D3D3", "#0000FF"));
+
+        assertTrue(first.hasResult(), "The oldest waiter was not completed");
+        ResponseEntity<?> response = (ResponseEntity<?>) first.getResult();
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(5, ((Yard) response.getBody()).getId(),
+                "The waiter didn't receive the freed yard");
+        assertFalse(second.hasResult(), "A freed yard completed two waiters");
+        assertFalse(blue.hasResult(), "A waiter of other color was completed");
+        assertEquals(1, waiters.getWaiters("PA", "#D3D3D3"));
+        assertEquals(1, registry.get(YardWaiters.WAIT_METRIC)
+                .tag("outcome", "freed").timer().count(),
+                "The wait was not measured");
+    }
+
+    /** Tests the registrations and the yards of other warehouses don't
+     * complete the waiters.
+     */
+    @Test
+    public void notMatchingTest() {
+        DeferredResult<ResponseEntity<Object>> waiter =
+                waiters.await("PA", GRAY, 10000);
+
+        waiters.onYardChange(change(5, "PA", "#D3D3D3", null));
+        waiters.onYardChange(change(6, "PA", "#D3D3D3", "#D3D3D3"));
+        waiters.onYardChange(change(7, "BO", "#D3D3D3", "#0000FF"));
+
+        assertFalse(waiter.hasResult(), "The waiter was completed");
+    }
+
+    /** Tests the queue of a color is removed, and the outbox unfollowed,
+     * once its waiters are freed or time out.
+     */
+    @Test
+    public void emptyQueuesTest() throws Exception {
+        waiters.await("PA", GRAY, 10000);
+        waiters.onYardChange(change(5, "PA", "#D3D3D3", "#0000FF"));
+        assertEquals(0, waiters.getQueues(), "The freed queue was kept");
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAsyncSupported(true);
+        StandardServletAsyncWebRequest web = new StandardServletAsyncWebRequest(
+                request, new MockHttpServletResponse());
+        WebAsyncManager manager = WebAsyncUtils.getAsyncManager(request);
+        manager.setAsyncWebRequest(web);
+        manager.startDeferredResultProcessing(
+                waiters.await("PA", BLUE, 10000));
+        assertEquals(1, waiters.getQueues(), "The waiter was not parked");
+
+        AsyncEvent event = new AsyncEvent(request.getAsyncContext());
+        web.onTimeout(event);
+        web.onComplete(event);
+
+        assertEquals(0, waiters.getQueues(), "The timed out queue was kept");
+        assertEquals(0, registry.get(YardWaiters.WAITERS_METRIC).gauge()
+                .value(), "The waiters are still counted");
+        assertEquals(1, followers.get(),
+                "The timed out waiter still follows the outbox");
+    }
+
+    /** Creates a change of the outbox.
+     *
+     * @param id            The id of the yard.
+     * @param warehouse     The warehouse of the yard.
+     * @param color         The color of the yard after the change.
+     * @param previousColor The color before the change, null if it was
+     *                      registered.
+     * @return the change.
+     */
+    private static YardChange change(int id, String warehouse, String color,
+                                     String previousColor) {
+        return new YardChange(id, id, warehouse, color, previousColor, id,
+                LocalDateTime.now());
+    }
+}
@@ -0,0 +1,105 @@
+package com.frubana.operations.test.utils;
+
+import com.frubana.operations.logistics.yms.common.configuration.JdbiConfiguration;
+import com.frubana.operations.logistics.yms.yard.domain.repository.YardRepository;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationVersion;
+import org.jdbi.v3.core.Jdbi;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.TransactionAwareDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/** Test util with a throwaway Postgres database migrated with the
+ * migrations of the application.
+ * <p> The server is given with the {@code yms.test.postgres.url} property,
+ * e.g. {@code -Dyms.test.postgres.url=jdbc:postgresql://localhost/postgres?user=postgres},
+ * the tests that use it are skipped without it.
+ */
+public class PostgresTestDatabase implements AutoCloseable {
+
+    /** The property with the url of the server. */
+    public static final String URL_PROPERTY = "yms.test.postgres.url";
+
+    /** The server where the database was created. */
+    private final JdbcTemplate server;
+
+    /** The name of the database. */
+    private final String name;
+
+    /** The connections of the database. */
+    private final DriverManagerDataSource dataSource;
+
+    /** Creates and migrates a new database, skips the test if no server is
+     * configured.
+     *
+     * @return the database, never null.
+     */
+    public static PostgresTestDatabase create() {
+        return create(MigrationVersion.LATEST.getVersion());
+    }
+
+    /** Creates a new database migrated up to a version, to test the next
+     * migrations with the rows they have to fix. Skips the test if no
+     * server is configured.
+     *
+     * @param version The last migration to apply, e.g. 2021.04.24.10.00.01.
+     * @return the database, never null.
+     */
+    public static PostgresTestDatabase create(String version) {
+        String url = System.getProperty(URL_PROPERTY);
+        assumeTrue(url != null && !url.isBlank(),
+                "No Postgres server in " + URL_PROPERTY);
+        PostgresTestDatabase database = new PostgresTestDatabase(url);
+        database.migrate(version);
+        return database;
+    }
+
+    /** Constructor.
+     *
+     * @param url The url of a database of the server.
+     */
+    private PostgresTestDatabase(String url) {
+        server = new JdbcTemplate(new DriverManagerDataSource(url));
+        name = "yms_it_" + UUID.randomUUID().toString().replace("-", "");
+        server.execute("CREATE DATABASE " + name);
+        dataSource = new DriverManagerDataSource(
+                url.replaceFirst("/[^/?]*(\\?|$)", "/" + name + "$1"));
+    }
+
+    /** Applies the migrations of the application up to a version.
+     *
+     * @param version The last migration to apply, {@code latest} for all.
+     */
+    public void migrate(String version) {
+        Flyway.configure().dataSource(dataSource)
+                .locations("filesystem:src/main/resources/migrations")
+                .target(version)
+                .load().migrate();
+    }
+
+    /** @return the connections of the database, not pooled. */
+    public DataSource getDataSource() { return dataSource; }
+
+    /** @return a {@link Jdbi} of the database with the plugins and
+     * mappers of the repositories, it joins the spring transactions of
+     * {@link #getDataSource()} as the one of the application. */
+    public Jdbi getJdbi() {
+        return Jdbi.create(new TransactionAwareDataSourceProxy(dataSource))
+                .installPlugin(new JdbiConfiguration().arrayTypesPlugin())
+                .registerRowMapper(new YardRepository.YardMapper());
+    }
+
+    /** @return the queries of the database. */
+    public JdbcTemplate getTemplate() { return new JdbcTemplate(dataSource); }
+
+    /** Drops the database. */
+    @Override
+    public void close() {
+        server.execute("DROP DATABASE IF EXISTS " + name);
+    }
+}
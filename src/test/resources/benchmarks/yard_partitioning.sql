@@ -0,0 +1,108 @@
+-- Benchmark of the yard lookups and gap scans before and after the list
+-- partitioning by warehouse (V2021.04.20.09.30.01).
+--
+-- Run it against a scratch Postgres (11 or newer), it only touches the
+-- yard_bench schema:
+--
+--     psql -d yms_bench -v warehouses=300 -v yards=2000 \
+--          -f src/test/resources/benchmarks/yard_partitioning.sql
+--
+-- Compare the "Execution Time" and the buffers read by each pair of plans.
+
+\set ON_ERROR_STOP on
+\if :{?warehouses} \else \set warehouses 300 \endif
+\if :{?yards} \else \set yards 2000 \endif
+
+DROP SCHEMA IF EXISTS yard_bench CASCADE;
+CREATE SCHEMA yard_bench;
+SET search_path TO yard_bench;
+
+-- Before: the single table with only the primary key.
+CREATE TABLE yard_flat (
+    id serial PRIMARY KEY,
+    color varchar,
+    warehouse varchar,
+    assignation_number integer,
+    default_color varchar
+);
+
+-- After: one partition per warehouse and the gap scan index.
+CREATE TABLE yard_partitioned (
+    id integer NOT NULL,
+    color varchar,
+    warehouse varchar NOT NULL,
+    assignation_number integer,
+    default_color varchar,
+    PRIMARY KEY (warehouse, id)
+) PARTITION BY LIST (warehouse);
+CREATE TABLE yard_partitioned_default PARTITION OF yard_partitioned DEFAULT;
+CREATE INDEX ON yard_partitioned (warehouse, color, assignation_number);
+
+SELECT format('CREATE TABLE yard_partitioned_w%s PARTITION OF yard_partitioned '
+              'FOR VALUES IN (%L)', w, 'W' || w)
+FROM generate_series(1, :warehouses) AS w
+\gexec
+
+-- Eight colors per warehouse with a gap every 97 slots.
+INSERT INTO yard_flat (color, warehouse, assignation_number, default_color)
+SELECT c.color, 'W' || w, n, c.color
+FROM generate_series(1, :warehouses) AS w,
+     generate_series(1, :yards / 8) AS n,
+     unnest(ARRAY['#D3D3D3', '#0000FF', '#FF0000', '#00FF00',
+                  '#FFFF00', '#FF00FF', '#00FFFF', '#000000']) AS c(color)
+WHERE n % 97 <> 0;
+
+INSERT INTO yard_partitioned
+SELECT id, color, warehouse, assignation_number, default_color FROM yard_flat;
+
+VACUUM ANALYZE yard_flat;
+VACUUM ANALYZE yard_partitioned;
+
+SELECT count(*) AS total_yards FROM yard_flat;
+
+PREPARE flat_lookup(int, varchar) AS
+    SELECT id, color, warehouse, assignation_number FROM yard_flat
+    WHERE id = $1 AND warehouse = $2;
+PREPARE partitioned_lookup(int, varchar) AS
+    SELECT id, color, warehouse, assignation_number FROM yard_partitioned
+    WHERE id = $1 AND warehouse = $2;
+
+PREPARE flat_listing(varchar) AS
+    SELECT id, color, warehouse, assignation_number FROM yard_flat
+    WHERE warehouse = $1 ORDER BY assignation_number;
+PREPARE partitioned_listing(varchar) AS
+    SELECT id, color, warehouse, assignation_number FROM yard_partitioned
+    WHERE warehouse = $1 ORDER BY assignation_number;
+
+PREPARE flat_gap_scan(varchar, varchar) AS
+    SELECT assignation_number FROM yard_flat
+    WHERE color = $1 AND warehouse = $2 ORDER BY assignation_number ASC;
+PREPARE partitioned_gap_scan(varchar, varchar) AS
+    SELECT assignation_number FROM yard_partitioned
+    WHERE color = $1 AND warehouse = $2 ORDER BY assignation_number ASC;
+
+\echo '=== lookup by id and warehouse'
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE flat_lookup(12345, 'W42');
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE partitioned_lookup(12345, 'W42');
+
+\echo '=== listing of a warehouse'
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE flat_listing('W42');
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE partitioned_listing('W42');
+
+\echo '=== gap scan of the next assignation number'
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE flat_gap_scan('#0000FF', 'W42');
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE partitioned_gap_scan('#0000FF', 'W42');
+
+\timing on
+\echo '=== 1000 gap scans'
+SELECT count(*) FROM generate_series(1, 1000) AS i,
+    LATERAL (SELECT array_agg(assignation_number ORDER BY assignation_number)
+             FROM yard_flat
+             WHERE color = '#0000FF' AND warehouse = 'W' || (i % :warehouses + 1)) g;
+SELECT count(*) FROM generate_series(1, 1000) AS i,
+    LATERAL (SELECT array_agg(assignation_number ORDER BY assignation_number)
+             FROM yard_partitioned
+             WHERE color = '#0000FF' AND warehouse = 'W' || (i % :warehouses + 1)) g;
+\timing off
+
+DROP SCHEMA yard_bench CASCADE;